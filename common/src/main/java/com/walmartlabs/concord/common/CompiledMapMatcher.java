@@ -0,0 +1,243 @@
+package com.walmartlabs.concord.common;
+
+/*-
+ * *****
+ * Concord
+ * -----
+ * Copyright (C) 2017 - 2020 Walmart Inc.
+ * -----
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * =====
+ */
+
+import java.util.*;
+import java.util.regex.Pattern;
+import java.util.regex.PatternSyntaxException;
+
+/**
+ * Precompiled form of {@link MapMatcher}. The conditions are compiled once
+ * into a tree of nodes with cached {@link Pattern}s and can be matched
+ * against any number of data maps. The matching rules are the same as
+ * in {@link MapMatcher#matches(Map, Map)}.
+ * <p>
+ * Instances are immutable and thread-safe.
+ */
+public final class CompiledMapMatcher {
+
+    private static final CompiledMapMatcher MATCH_ALL = new CompiledMapMatcher(null);
+
+    public static CompiledMapMatcher compile(Map<String, Object> conditions) {
+        if (conditions == null || conditions.isEmpty()) {
+            return MATCH_ALL;
+        }
+
+        return new CompiledMapMatcher(compileNode(conditions));
+    }
+
+    private final Node root;
+
+    private CompiledMapMatcher(Node root) {
+        this.root = root;
+    }
+
+    public boolean matches(Map<String, Object> data) {
+        if (root == null) {
+            return true;
+        }
+
+        return root.matches(data);
+    }
+
+    @SuppressWarnings("unchecked")
+    private static Node compileNode(Object conditions) {
+        if (conditions == null) {
+            return new NullNode();
+        } else if (conditions instanceof Map) {
+            return new ObjectNode((Map<String, Object>) conditions);
+        } else if (conditions instanceof String) {
+            return new StringNode((String) conditions);
+        } else if (conditions instanceof Collection) {
+            return new ArrayNode((Collection<Object>) conditions);
+        } else {
+            return new ValueNode(conditions);
+        }
+    }
+
+    private interface Node {
+
+        boolean matches(Object data);
+    }
+
+    private static final class NullNode implements Node {
+
+        @Override
+        public boolean matches(Object data) {
+            return data == null;
+        }
+    }
+
+    private static final class ValueNode implements Node {
+
+        private final Object value;
+
+        private ValueNode(Object value) {
+            this.value = value;
+        }
+
+        @Override
+        public boolean matches(Object data) {
+            return data != null && data.equals(value);
+        }
+    }
+
+    private static final class StringNode implements Node {
+
+        private final String value;
+        private final Pattern pattern;
+        private final PatternSyntaxException error;
+
+        private StringNode(String value) {
+            this.value = value;
+
+            Pattern p = null;
+            PatternSyntaxException err = null;
+            try {
+                p = Pattern.compile(value);
+            } catch (PatternSyntaxException e) {
+                // same as String#matches - fail only when the value is actually used as a regex
+                err = e;
+            }
+
+            this.pattern = p;
+            this.error = err;
+        }
+
+        @Override
+        public boolean matches(Object data) {
+            if (data == null) {
+                return false;
+            }
+
+            if (data instanceof String) {
+                if (error != null) {
+                    throw error;
+                }
+                return pattern.matcher((String) data).matches();
+            }
+
+            return data.equals(value);
+        }
+    }
+
+    private static final class ObjectNode implements Node {
+
+        private final Map<String, Object> conditions;
+        private final String[] keys;
+        private final Node[] nodes;
+
+        private ObjectNode(Map<String, Object> conditions) {
+            this.conditions = conditions;
+
+            this.keys = new String[conditions.size()];
+            this.nodes = new Node[conditions.size()];
+
+            int i = 0;
+            for (Map.Entry<String, Object> e : conditions.entrySet()) {
+                keys[i] = e.getKey();
+                nodes[i] = compileNode(e.getValue());
+                i++;
+            }
+        }
+
+        @Override
+        @SuppressWarnings("unchecked")
+        public boolean matches(Object data) {
+            if (data == null) {
+                return false;
+            }
+
+            if (!(data instanceof Map)) {
+                return data.equals(conditions);
+            }
+
+            Map<String, Object> m = (Map<String, Object>) data;
+            for (int i = 0; i < keys.length; i++) {
+                if (!nodes[i].matches(m.get(keys[i]))) {
+                    return false;
+                }
+            }
+
+            return true;
+        }
+    }
+
+    private static final class ArrayNode implements Node {
+
+        private final Collection<Object> conditions;
+        private final Node[] nodes;
+
+        private ArrayNode(Collection<Object> conditions) {
+            this.conditions = conditions;
+
+            this.nodes = new Node[conditions.size()];
+
+            int i = 0;
+            for (Object c : conditions) {
+                nodes[i++] = compileNode(c);
+            }
+        }
+
+        @Override
+        @SuppressWarnings("unchecked")
+        public boolean matches(Object data) {
+            if (data == null) {
+                return false;
+            }
+
+            if (data instanceof Collection) {
+                Collection<Object> items = (Collection<Object>) data;
+                if (nodes.length > items.size()) {
+                    return false;
+                }
+
+                for (Node n : nodes) {
+                    if (!matchAny(n, items)) {
+                        return false;
+                    }
+                }
+
+                return true;
+            }
+
+            // a single value matched against a list of conditions
+            // the arguments are swapped intentionally, to keep the behaviour of MapMatcher
+            for (Object c : conditions) {
+                if (MapMatcher.compareNodes(c, data)) {
+                    return true;
+                }
+            }
+
+            return false;
+        }
+
+        private static boolean matchAny(Node n, Collection<Object> items) {
+            for (Object i : items) {
+                if (n.matches(i)) {
+                    return true;
+                }
+            }
+
+            return false;
+        }
+    }
+}
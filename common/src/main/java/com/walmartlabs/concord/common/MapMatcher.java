@@ -34,7 +34,7 @@ public final class MapMatcher {
     }
 
     @SuppressWarnings("unchecked")
-    private static boolean compareNodes(Object data, Object conditions) {
+    static boolean compareNodes(Object data, Object conditions) {
         if (data == null && conditions == null) {
             return true;
         } else if (data == null || conditions == null) {
@@ -0,0 +1,94 @@
+package com.walmartlabs.concord.common;
+
+/*-
+ * *****
+ * Concord
+ * -----
+ * Copyright (C) 2017 - 2020 Walmart Inc.
+ * -----
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * =====
+ */
+
+import org.junit.Test;
+
+import java.util.*;
+
+import static org.junit.Assert.*;
+
+public class CompiledMapMatcherTest {
+
+    @Test
+    public void testSameAsMapMatcher() {
+        Map<String, Object> nested = new HashMap<>();
+        nested.put("o1", "o1v1");
+        nested.put("o2", "o2v2");
+
+        Map<String, Object> data = new HashMap<>();
+        data.put("a", "a-value");
+        data.put("b", "b-value");
+        data.put("c", 123);
+        data.put("d", null);
+        data.put("e", true);
+        data.put("f", Arrays.asList("3", "1", "4", "2"));
+        data.put("obj", nested);
+
+        List<Map<String, Object>> conditions = Arrays.asList(
+                Collections.emptyMap(),
+                map("a", "a-v.*"),
+                map("a", "x.*"),
+                map("b", "b-value", "c", 123),
+                map("c", "123"),
+                map("d", null),
+                map("e", Arrays.asList(true, false)),
+                map("e", Collections.singletonList(false)),
+                map("f", Arrays.asList("1", "2")),
+                map("f", Arrays.asList("1", "5")),
+                map("f", Arrays.asList("1", "2", "3", "4", "5")),
+                map("obj", map("o1", "o1.*")),
+                map("obj", map("o1", "o2.*")),
+                map("obj", "o1v1"),
+                map("unknown", "x"),
+                map("a", Arrays.asList("a-value", "b-value")));
+
+        for (Map<String, Object> c : conditions) {
+            boolean expected = MapMatcher.matches(data, c);
+            assertEquals("conditions: " + c, expected, CompiledMapMatcher.compile(c).matches(data));
+        }
+    }
+
+    @Test
+    public void testReuse() {
+        CompiledMapMatcher m = CompiledMapMatcher.compile(map("type", "k8s", "flavor", "large|medium"));
+
+        assertTrue(m.matches(map("type", "k8s", "flavor", "large")));
+        assertTrue(m.matches(map("type", "k8s", "flavor", "medium")));
+        assertFalse(m.matches(map("type", "k8s", "flavor", "small")));
+        assertFalse(m.matches(map("type", "k8s")));
+        assertFalse(m.matches(null));
+    }
+
+    @Test
+    public void testNoConditions() {
+        assertTrue(CompiledMapMatcher.compile(null).matches(null));
+        assertTrue(CompiledMapMatcher.compile(Collections.emptyMap()).matches(map("a", "b")));
+    }
+
+    private static Map<String, Object> map(Object... kvs) {
+        Map<String, Object> m = new HashMap<>();
+        for (int i = 0; i < kvs.length; i += 2) {
+            m.put((String) kvs[i], kvs[i + 1]);
+        }
+        return m;
+    }
+}
@@ -62,6 +62,35 @@ public class JsonStoreTaskIT extends AbstractServerIT {
 
     }
 
+    @Test(timeout = DEFAULT_TEST_TIMEOUT)
+    public void testBulk() throws Exception {
+        withOrg(orgName -> {
+            withProject(orgName, projectName -> {
+                withStorage(orgName, storageName -> {
+
+                    byte[] payload = archive(ProcessIT.class.getResource("jsonStoreTaskBulk").toURI());
+
+                    Map<String, Object> input = new HashMap<>();
+                    input.put("archive", payload);
+                    input.put("org", orgName);
+                    input.put("project", projectName);
+                    input.put("arguments.storageName", storageName);
+
+                    StartProcessResponse spr = start(input);
+
+                    ProcessApi processApi = new ProcessApi(getApiClient());
+                    ProcessEntry pir = waitForCompletion(processApi, spr.getInstanceId());
+
+                    // ---
+
+                    byte[] ab = getLog(pir.getLogFileName());
+                    assertLog(".*all: \\{a=one, b=two\\}$", ab);
+                    assertLog(".*deleted: 2$", ab);
+                });
+            });
+        });
+    }
+
     private void withOrg(Consumer<String> consumer) throws Exception {
         String orgName = "org_" + randomString();
         OrganizationsApi orgApi = new OrganizationsApi(getApiClient());
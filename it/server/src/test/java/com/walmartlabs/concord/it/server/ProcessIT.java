@@ -116,6 +116,25 @@ public class ProcessIT extends AbstractServerIT {
         waitForStatus(processApi, spr.getInstanceId(), StatusEnum.CANCELLED, StatusEnum.FAILED, StatusEnum.FINISHED);
     }
 
+    @Test(timeout = DEFAULT_TEST_TIMEOUT)
+    public void testLongWaitForCompletion() throws Exception {
+        byte[] payload = archive(ProcessIT.class.getResource("longWait").toURI());
+
+        ProcessApi processApi = new ProcessApi(getApiClient());
+        StartProcessResponse spr = start(payload);
+
+        // the process runs longer than the default async timeout of the servlet container (30s)
+        long t1 = System.currentTimeMillis();
+        ProcessEntry pir = processApi.waitForCompletion(spr.getInstanceId(), null);
+        long t2 = System.currentTimeMillis();
+
+        assertEquals(StatusEnum.FINISHED, pir.getStatus());
+        assertTrue("Waited for " + (t2 - t1) + "ms", t2 - t1 >= 30000);
+
+        byte[] ab = getLog(pir.getLogFileName());
+        assertLog(".*Hello, Concord!.*", ab);
+    }
+
     @Test(timeout = DEFAULT_TEST_TIMEOUT)
     public void testInterpolation() throws Exception {
         byte[] payload = archive(ProcessIT.class.getResource("interpolation").toURI());
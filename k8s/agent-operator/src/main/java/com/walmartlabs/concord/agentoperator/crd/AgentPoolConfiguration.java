@@ -20,6 +20,9 @@ package com.walmartlabs.concord.agentoperator.crd;
  * =====
  */
 
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.annotation.JsonInclude.Include;
+
 import java.util.Map;
 
 public class AgentPoolConfiguration {
@@ -38,6 +41,17 @@ public class AgentPoolConfiguration {
     private int size = DEFAULT_SIZE;
     private int sizeIncrement = DEFAULT_SIZE_INCREMENT;
     private Map<String, Object> queueSelector;
+
+    // optional, not included into the configuration hash unless specified
+    @JsonInclude(Include.NON_NULL)
+    private String scalingPolicy;
+    @JsonInclude(Include.NON_NULL)
+    private Integer workersPerPod;
+    @JsonInclude(Include.NON_NULL)
+    private Long scaleDownDelayMs;
+    @JsonInclude(Include.NON_NULL)
+    private Long queueDrainTimeMs;
+
     private Map<String, Object> configMap;
     private Map<String, Object> pod;
 
@@ -97,6 +111,52 @@ public class AgentPoolConfiguration {
         this.queueSelector = queueSelector;
     }
 
+    /**
+     * Name of the {@link com.walmartlabs.concord.agentoperator.scheduler.ScalingPolicy}
+     * to use. {@code null} means the default (incremental) policy.
+     */
+    public String getScalingPolicy() {
+        return scalingPolicy;
+    }
+
+    public void setScalingPolicy(String scalingPolicy) {
+        this.scalingPolicy = scalingPolicy;
+    }
+
+    /**
+     * Number of workers (concurrent processes) of each agent pod.
+     */
+    public Integer getWorkersPerPod() {
+        return workersPerPod;
+    }
+
+    public void setWorkersPerPod(Integer workersPerPod) {
+        this.workersPerPod = workersPerPod;
+    }
+
+    /**
+     * For how long the demand must stay below the current pool size
+     * before the pool is scaled down.
+     */
+    public Long getScaleDownDelayMs() {
+        return scaleDownDelayMs;
+    }
+
+    public void setScaleDownDelayMs(Long scaleDownDelayMs) {
+        this.scaleDownDelayMs = scaleDownDelayMs;
+    }
+
+    /**
+     * How fast the current queue backlog should be processed.
+     */
+    public Long getQueueDrainTimeMs() {
+        return queueDrainTimeMs;
+    }
+
+    public void setQueueDrainTimeMs(Long queueDrainTimeMs) {
+        this.queueDrainTimeMs = queueDrainTimeMs;
+    }
+
     public Map<String, Object> getConfigMap() {
         return configMap;
     }
@@ -20,24 +20,44 @@ package com.walmartlabs.concord.agentoperator.planner;
  * =====
  */
 
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
 import com.walmartlabs.concord.agentoperator.HashUtils;
 import com.walmartlabs.concord.agentoperator.resources.AgentConfigMap;
 import com.walmartlabs.concord.agentoperator.resources.AgentPod;
+import com.walmartlabs.concord.agentoperator.resources.Informer;
 import com.walmartlabs.concord.agentoperator.scheduler.AgentPoolInstance;
 import io.fabric8.kubernetes.api.model.ConfigMap;
 import io.fabric8.kubernetes.api.model.Pod;
 import io.fabric8.kubernetes.client.KubernetesClient;
 
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
 import java.io.IOException;
-import java.util.ArrayList;
-import java.util.List;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.stream.Collectors;
 
 public class Planner {
 
+    private static final Logger log = LoggerFactory.getLogger(Planner.class);
+
+    private static final int STATUS_THREADS = 8;
+    private static final long STATUS_TIMEOUT = 10000;
+
     private final KubernetesClient client;
+    private final Informer<Pod> pods;
+    private final Informer<ConfigMap> configMaps;
+    private final ExecutorService statusExecutor;
 
-    public Planner(KubernetesClient client) {
+    public Planner(KubernetesClient client, Informer<Pod> pods, Informer<ConfigMap> configMaps) {
         this.client = client;
+        this.pods = pods;
+        this.configMaps = configMaps;
+        this.statusExecutor = Executors.newFixedThreadPool(STATUS_THREADS, new ThreadFactoryBuilder()
+                .setNameFormat("planner-status-%d")
+                .setDaemon(true)
+                .build());
     }
 
     public List<Change> plan(AgentPoolInstance poolInstance) throws IOException {
@@ -46,16 +66,16 @@ public class Planner {
         List<Change> changes = new ArrayList<>();
 
         // process pods marked for removal first
-        client.pods()
-                .withLabel(AgentPod.TAGGED_FOR_REMOVAL_LABEL)
-                .withLabel(AgentPod.POOL_NAME_LABEL, resourceName)
-                .list()
-                .getItems()
+        Set<String> removed = new HashSet<>();
+        AgentPod.listTaggedForRemoval(this.pods, resourceName)
                 .stream()
                 .map(p -> p.getMetadata().getName())
-                .forEach(n -> changes.add(new TryToDeletePodChange(n)));
+                .forEach(n -> {
+                    changes.add(new TryToDeletePodChange(n));
+                    removed.add(n);
+                });
 
-        List<Pod> pods = AgentPod.list(client, resourceName);
+        List<Pod> pods = AgentPod.list(this.pods, resourceName);
         int currentSize = pods.size();
 
         // hash of the configuration, will be used to determine which resources should be updated
@@ -66,7 +86,7 @@ public class Planner {
         boolean recreateAllPods = false;
 
         String configMapName = configMapName(resourceName);
-        ConfigMap m = AgentConfigMap.get(client, configMapName);
+        ConfigMap m = AgentConfigMap.get(configMaps, configMapName);
 
         int targetSize = poolInstance.getTargetSize();
 
@@ -96,37 +116,46 @@ public class Planner {
             String currentHash = p.getMetadata().getLabels().get(AgentPod.CONFIG_HASH_LABEL);
             if (!newHash.equals(currentHash)) {
                 changes.add(new TagForRemovalChange(p.getMetadata().getName()));
+                removed.add(p.getMetadata().getName());
             }
         }
 
         // recreate all pods if the configmap changed
 
         if (recreateAllPods) {
-            pods.forEach(p -> changes.add(new TagForRemovalChange(p.getMetadata().getName())));
+            pods.forEach(p -> {
+                changes.add(new TagForRemovalChange(p.getMetadata().getName()));
+                removed.add(p.getMetadata().getName());
+            });
         }
 
         // create or remove pods according to the configured pool size
+        // pods that are being removed are not counted, but their names stay occupied until they are gone
 
-        for (int i = 0; i < targetSize; i++) {
-            String podName = podName(resourceName, i);
+        List<Pod> active = pods.stream()
+                .filter(p -> !removed.contains(p.getMetadata().getName()))
+                .collect(Collectors.toList());
 
-            boolean exists = hasPod(pods, podName);
-            if (exists) {
-                continue;
-            }
+        if (active.size() < targetSize) {
+            // never exceed the max pool size, including the pods that are still being removed
+            int maxSize = poolInstance.getResource().getSpec().getMaxSize();
+            int toCreate = Math.min(targetSize - active.size(), maxSize - currentSize);
 
-            changes.add(new CreatePodChange(poolInstance, podName, configMapName(resourceName), newHash));
-        }
+            Set<String> names = pods.stream()
+                    .map(p -> p.getMetadata().getName())
+                    .collect(Collectors.toSet());
 
-        if (currentSize > targetSize) {
-            for (int i = targetSize; i < currentSize; i++) {
+            for (int i = 0; toCreate > 0; i++) {
                 String podName = podName(resourceName, i);
-
-                boolean exists = hasPod(pods, podName);
-                if (!exists) {
+                if (names.contains(podName)) {
                     continue;
                 }
 
+                changes.add(new CreatePodChange(poolInstance, podName, configMapName(resourceName), newHash));
+                toCreate--;
+            }
+        } else if (active.size() > targetSize) {
+            for (String podName : selectForRemoval(active, active.size() - targetSize)) {
                 changes.add(new TagForRemovalChange(podName));
                 changes.add(new TryToDeletePodChange(podName));
             }
@@ -135,8 +164,76 @@ public class Planner {
         return changes;
     }
 
-    private static boolean hasPod(List<Pod> pods, String podName) {
-        return pods.stream().anyMatch(p -> p.getMetadata().getName().equals(podName));
+    /**
+     * Selects the pods to remove, preferring the idle agents.
+     * The agents' status is requested only if there are not enough
+     * non-running pods to remove. The requests are made in parallel.
+     */
+    private List<String> selectForRemoval(List<Pod> pods, int count) {
+        if (count >= pods.size()) {
+            // removing all pods, no need to check the agents
+            return pods.stream()
+                    .map(p -> p.getMetadata().getName())
+                    .collect(Collectors.toList());
+        }
+
+        List<PodSelector.Candidate> candidates = new ArrayList<>(pods.size());
+        List<String> running = new ArrayList<>();
+        for (Pod p : pods) {
+            String podName = p.getMetadata().getName();
+            if (p.getStatus() != null && "running".equalsIgnoreCase(p.getStatus().getPhase())) {
+                running.add(podName);
+            } else {
+                candidates.add(new PodSelector.Candidate(podName, podIndex(podName), false, null));
+            }
+        }
+
+        if (candidates.size() >= count) {
+            // enough non-running pods, no need to check the agents
+            return PodSelector.selectForRemoval(candidates, count);
+        }
+
+        Map<String, Future<AgentPod.MaintenanceMode>> statuses = new HashMap<>(running.size());
+        for (String podName : running) {
+            statuses.put(podName, statusExecutor.submit(() -> AgentPod.getMaintenanceModeStatus(client, podName)));
+        }
+
+        long deadline = System.currentTimeMillis() + STATUS_TIMEOUT;
+        for (String podName : running) {
+            Future<AgentPod.MaintenanceMode> f = statuses.get(podName);
+
+            Long workersAlive = null;
+            try {
+                long timeout = Math.max(0, deadline - System.currentTimeMillis());
+                workersAlive = f.get(timeout, TimeUnit.MILLISECONDS).getWorkersAlive();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                statuses.values().forEach(s -> s.cancel(true));
+                break;
+            } catch (ExecutionException e) {
+                log.warn("selectForRemoval ['{}'] -> can't get the agent's status: {}", podName, e.getCause().getMessage());
+            } catch (TimeoutException e) {
+                f.cancel(true);
+                log.warn("selectForRemoval ['{}'] -> can't get the agent's status: timeout", podName);
+            }
+
+            candidates.add(new PodSelector.Candidate(podName, podIndex(podName), true, workersAlive));
+        }
+
+        return PodSelector.selectForRemoval(candidates, count);
+    }
+
+    private static int podIndex(String podName) {
+        int idx = podName.lastIndexOf('-');
+        if (idx < 0) {
+            return -1;
+        }
+
+        try {
+            return Integer.parseInt(podName.substring(idx + 1));
+        } catch (NumberFormatException e) {
+            return -1;
+        }
     }
 
     private static String configMapName(String resourceName) {
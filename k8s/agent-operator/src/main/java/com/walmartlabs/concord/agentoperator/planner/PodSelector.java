@@ -0,0 +1,89 @@
+package com.walmartlabs.concord.agentoperator.planner;
+
+
+/*-
+ * *****
+ * Concord
+ * -----
+ * Copyright (C) 2017 - 2020 Walmart Inc.
+ * -----
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * =====
+ */
+
+import java.util.Comparator;
+import java.util.List;
+import java.util.stream.Collectors;
+
+/**
+ * Selects which pods to remove when a pool is scaled down.
+ * Prefers the pods that are not running, then the agents with the least
+ * number of active workers (idle agents first) and then the pods with
+ * the highest index.
+ */
+public final class PodSelector {
+
+    private static final Comparator<Candidate> REMOVAL_ORDER = Comparator
+            .comparing(Candidate::isRunning)
+            .thenComparing(Candidate::getWorkersAlive, Comparator.nullsLast(Comparator.naturalOrder()))
+            .thenComparing(Candidate::getIndex, Comparator.reverseOrder());
+
+    public static List<String> selectForRemoval(List<Candidate> candidates, int count) {
+        return candidates.stream()
+                .sorted(REMOVAL_ORDER)
+                .limit(Math.max(0, count))
+                .map(Candidate::getName)
+                .collect(Collectors.toList());
+    }
+
+    public static class Candidate {
+
+        private final String name;
+        private final int index;
+        private final boolean running;
+        private final Long workersAlive;
+
+        /**
+         * @param name         pod name
+         * @param index        pod index in the pool
+         * @param running      {@code true} if the pod is in the "Running" phase
+         * @param workersAlive number of busy workers of the pod's agent,
+         *                     {@code null} if unknown
+         */
+        public Candidate(String name, int index, boolean running, Long workersAlive) {
+            this.name = name;
+            this.index = index;
+            this.running = running;
+            this.workersAlive = workersAlive;
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        public int getIndex() {
+            return index;
+        }
+
+        public boolean isRunning() {
+            return running;
+        }
+
+        public Long getWorkersAlive() {
+            return workersAlive;
+        }
+    }
+
+    private PodSelector() {
+    }
+}
@@ -23,6 +23,8 @@ package com.walmartlabs.concord.agentoperator.processqueue;
 import com.fasterxml.jackson.core.type.TypeReference;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import okhttp3.*;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
 import javax.net.ssl.*;
 import java.io.IOException;
@@ -31,6 +33,15 @@ import java.util.List;
 
 public class ProcessQueueClient {
 
+    private static final Logger log = LoggerFactory.getLogger(ProcessQueueClient.class);
+
+    /**
+     * How long to use {@link #query()} after the aggregated endpoint was found
+     * to be unavailable (ms). E.g. the server might be upgraded or the token's
+     * permissions changed in the meantime.
+     */
+    private static final long REQUIREMENTS_RETRY_INTERVAL = 10 * 60 * 1000;
+
     private static final TypeReference<List<ProcessQueueEntry>> LIST_OF_PROCESS_QUEUE_ENTRIES = new TypeReference<List<ProcessQueueEntry>>() {
     };
 
@@ -39,6 +50,8 @@ public class ProcessQueueClient {
     private final OkHttpClient client;
     private final ObjectMapper objectMapper;
 
+    private volatile long requirementsRetryAt;
+
     public ProcessQueueClient(String baseUrl, String apiToken) {
         this.baseUrl = baseUrl;
         this.apiToken = apiToken;
@@ -46,14 +59,59 @@ public class ProcessQueueClient {
         this.objectMapper = new ObjectMapper();
     }
 
+    /**
+     * Returns all ENQUEUED processes.
+     */
     public List<ProcessQueueEntry> query() throws IOException {
+        return get("/api/v2/process?status=ENQUEUED");
+    }
+
+    /**
+     * Returns the number of ENQUEUED processes grouped by their requirements.
+     * Falls back to {@link #query()} if the server doesn't support
+     * the endpoint or the token lacks the necessary permissions. The endpoint
+     * is retried periodically.
+     */
+    public List<ProcessQueueEntry> queryRequirements() throws IOException {
+        return queryRequirements(null);
+    }
+
+    /**
+     * Same as {@link #queryRequirements()}, but also fetches the running,
+     * arrival and run time statistics for the last {@code statsPeriod} seconds.
+     */
+    public List<ProcessQueueEntry> queryRequirements(Integer statsPeriod) throws IOException {
+        if (System.currentTimeMillis() < requirementsRetryAt) {
+            return query();
+        }
+
+        String path = "/api/v2/process/requirements?status=ENQUEUED";
+        if (statsPeriod != null) {
+            path += "&statsPeriod=" + statsPeriod;
+        }
+
+        try {
+            return get(path);
+        } catch (UnsupportedException e) {
+            log.warn("queryRequirements -> can't fetch the aggregated queue data ({}), falling back to the full process list for {}ms",
+                    e.getMessage(), REQUIREMENTS_RETRY_INTERVAL);
+            requirementsRetryAt = System.currentTimeMillis() + REQUIREMENTS_RETRY_INTERVAL;
+            return query();
+        }
+    }
+
+    private List<ProcessQueueEntry> get(String path) throws IOException {
         Request req = new Request.Builder()
-                .url(baseUrl + "/api/v2/process?status=ENQUEUED")
+                .url(baseUrl + path)
                 .header("Authorization", apiToken)
                 .build();
 
         Call call = client.newCall(req);
         try (Response resp = call.execute()) {
+            if (resp.code() == 401 || resp.code() == 403 || resp.code() == 404) {
+                throw new UnsupportedException("HTTP " + resp.code());
+            }
+
             if (!resp.isSuccessful()) {
                 throw new IOException("Error while fething the process queue data: " + resp.code());
             }
@@ -105,4 +163,11 @@ public class ProcessQueueClient {
             throw new RuntimeException(e);
         }
     }
+
+    private static class UnsupportedException extends IOException {
+
+        private UnsupportedException(String message) {
+            super(message);
+        }
+    }
 }
@@ -31,20 +31,79 @@ import java.util.Map;
 public class ProcessQueueEntry implements Serializable {
 
     private final Map<String, Object> requirements;
+    private final int count;
+    private final int running;
+    private final int arrived;
+    private final int finished;
+    private final Long avgDuration;
 
+    public ProcessQueueEntry(Map<String, Object> requirements) {
+        this(requirements, null);
+    }
+
+    public ProcessQueueEntry(Map<String, Object> requirements, Integer count) {
+        this(requirements, count, null, null, null, null);
+    }
+
+    /**
+     * @param count       number of processes with the same requirements,
+     *                    {@code null} for individual process entries
+     * @param running     number of running processes with the same requirements
+     * @param arrived     number of processes created during the stats period
+     * @param finished    number of processes created during the stats period and
+     *                    already finished
+     * @param avgDuration average run time of the finished processes (ms),
+     *                    {@code null} if unknown
+     */
     @JsonCreator
-    public ProcessQueueEntry(@JsonProperty("requirements") Map<String, Object> requirements) {
+    public ProcessQueueEntry(@JsonProperty("requirements") Map<String, Object> requirements,
+                             @JsonProperty("count") Integer count,
+                             @JsonProperty("running") Integer running,
+                             @JsonProperty("arrived") Integer arrived,
+                             @JsonProperty("finished") Integer finished,
+                             @JsonProperty("avgDuration") Long avgDuration) {
+
         this.requirements = requirements;
+        this.count = count != null ? count : 1;
+        this.running = running != null ? running : 0;
+        this.arrived = arrived != null ? arrived : 0;
+        this.finished = finished != null ? finished : 0;
+        this.avgDuration = avgDuration;
     }
 
     public Map<String, Object> getRequirements() {
         return requirements;
     }
 
+    public int getCount() {
+        return count;
+    }
+
+    public int getRunning() {
+        return running;
+    }
+
+    public int getArrived() {
+        return arrived;
+    }
+
+    public int getFinished() {
+        return finished;
+    }
+
+    public Long getAvgDuration() {
+        return avgDuration;
+    }
+
     @Override
     public String toString() {
         return "ProcessQueueEntry{" +
                 "requirements=" + requirements +
+                ", count=" + count +
+                ", running=" + running +
+                ", arrived=" + arrived +
+                ", finished=" + finished +
+                ", avgDuration=" + avgDuration +
                 '}';
     }
 }
@@ -34,8 +34,18 @@ public final class AgentConfigMap {
 
     private static final ObjectMapper objectMapper = new ObjectMapper();
 
-    public static ConfigMap get(KubernetesClient client, String configMapName) {
-        return client.configMaps().withName(configMapName).get();
+    /**
+     * Creates an informer for all config maps in the current namespace.
+     */
+    public static Informer<ConfigMap> informer(KubernetesClient client, long resyncPeriod) {
+        return new Informer<>("configMaps",
+                () -> client.configMaps().list(),
+                (resourceVersion, watcher) -> client.configMaps().withResourceVersion(resourceVersion).watch(watcher),
+                resyncPeriod);
+    }
+
+    public static ConfigMap get(Informer<ConfigMap> configMaps, String configMapName) {
+        return configMaps.get(configMapName);
     }
 
     public static void create(KubernetesClient client, AgentPoolInstance poolInstance, String configMapName) throws IOException {
@@ -34,6 +34,7 @@ import io.fabric8.kubernetes.client.KubernetesClient;
 import java.io.ByteArrayInputStream;
 import java.io.IOException;
 import java.util.List;
+import java.util.Map;
 
 public final class AgentPod {
 
@@ -43,14 +44,26 @@ public final class AgentPod {
 
     private static final String AGENT_CONTAINER_NAME = "agent";
     private static final String[] MAINTENANCE_MODE_CMD = {"curl", "-X", "POST", "http://127.0.0.1:8010/maintenance-mode"};
+    private static final String[] MAINTENANCE_MODE_STATUS_CMD = {"curl", "-s", "http://127.0.0.1:8010/maintenance-mode"};
 
     private static final ObjectMapper objectMapper = new ObjectMapper();
 
-    public static List<Pod> list(KubernetesClient client, String resourceName) {
-        return client.pods()
-                .withLabel(POOL_NAME_LABEL, resourceName)
-                .list()
-                .getItems();
+    /**
+     * Creates an informer for all agent pods.
+     */
+    public static Informer<Pod> informer(KubernetesClient client, long resyncPeriod) {
+        return new Informer<>("pods",
+                () -> client.pods().withLabel(POOL_NAME_LABEL).list(),
+                (resourceVersion, watcher) -> client.pods().withLabel(POOL_NAME_LABEL).withResourceVersion(resourceVersion).watch(watcher),
+                resyncPeriod);
+    }
+
+    public static List<Pod> list(Informer<Pod> pods, String resourceName) {
+        return pods.list(p -> resourceName.equals(getLabel(p, POOL_NAME_LABEL)));
+    }
+
+    public static List<Pod> listTaggedForRemoval(Informer<Pod> pods, String resourceName) {
+        return pods.list(p -> resourceName.equals(getLabel(p, POOL_NAME_LABEL)) && getLabel(p, TAGGED_FOR_REMOVAL_LABEL) != null);
     }
 
     public static void create(KubernetesClient client,
@@ -71,13 +84,6 @@ public final class AgentPod {
         client.pods().load(new ByteArrayInputStream(podYaml.getBytes())).create();
     }
 
-    public static List<Pod> listPods(KubernetesClient client, String resourceName) {
-        return client.pods()
-                .withLabel(POOL_NAME_LABEL, resourceName)
-                .list()
-                .getItems();
-    }
-
     public static MaintenanceMode enableMaintenanceMode(KubernetesClient client, String podName) throws IOException {
         Output out = PodUtils.exec(client, podName, AGENT_CONTAINER_NAME, MAINTENANCE_MODE_CMD);
         try {
@@ -87,6 +93,19 @@ public final class AgentPod {
         }
     }
 
+    /**
+     * Returns the current maintenance mode status of the pod's agent
+     * without changing it.
+     */
+    public static MaintenanceMode getMaintenanceModeStatus(KubernetesClient client, String podName) throws IOException {
+        Output out = PodUtils.exec(client, podName, AGENT_CONTAINER_NAME, MAINTENANCE_MODE_STATUS_CMD);
+        try {
+            return objectMapper.readValue(out.getStdout(), MaintenanceMode.class);
+        } catch (IOException e) {
+            throw new IOException("Error while getting the maintenance mode status of " + podName + ": " + out.getStderr(), e);
+        }
+    }
+
     @JsonIgnoreProperties(ignoreUnknown = true)
     public static class MaintenanceMode {
 
@@ -117,6 +136,14 @@ public final class AgentPod {
         }
     }
 
+    private static String getLabel(Pod p, String name) {
+        Map<String, String> labels = p.getMetadata().getLabels();
+        if (labels == null) {
+            return null;
+        }
+        return labels.get(name);
+    }
+
     private AgentPod() {
     }
 }
@@ -0,0 +1,192 @@
+package com.walmartlabs.concord.agentoperator.resources;
+
+/*-
+ * *****
+ * Concord
+ * -----
+ * Copyright (C) 2017 - 2020 Walmart Inc.
+ * -----
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * =====
+ */
+
+import io.fabric8.kubernetes.api.model.HasMetadata;
+import io.fabric8.kubernetes.api.model.KubernetesResourceList;
+import io.fabric8.kubernetes.client.KubernetesClientException;
+import io.fabric8.kubernetes.client.Watch;
+import io.fabric8.kubernetes.client.Watcher;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.BiFunction;
+import java.util.function.Predicate;
+import java.util.function.Supplier;
+
+/**
+ * Keeps a local copy of k8s resources. The initial state is fetched using
+ * a list call, the updates are received using a watch. The cache is
+ * re-listed if the watch is closed and periodically, in case some events
+ * were missed. Each re-list builds a new copy of the cache, which replaces
+ * the current one only when complete.
+ */
+public class Informer<T extends HasMetadata> {
+
+    private static final Logger log = LoggerFactory.getLogger(Informer.class);
+
+    private final String name;
+    private final Supplier<KubernetesResourceList<T>> lister;
+    private final BiFunction<String, Watcher<T>, Watch> watcher;
+    private final long resyncPeriod;
+
+    private volatile Map<String, T> items = new ConcurrentHashMap<>();
+
+    private volatile boolean stale = true;
+    private volatile long lastSync;
+    private Watch watch;
+    private CacheUpdater updater;
+
+    /**
+     * @param name         name of the informer, for logging
+     * @param lister       lists the resources
+     * @param watcher      starts a watch using the specified resource version
+     * @param resyncPeriod the max time between full re-lists (ms)
+     */
+    public Informer(String name,
+                    Supplier<KubernetesResourceList<T>> lister,
+                    BiFunction<String, Watcher<T>, Watch> watcher,
+                    long resyncPeriod) {
+
+        this.name = name;
+        this.lister = lister;
+        this.watcher = watcher;
+        this.resyncPeriod = resyncPeriod;
+    }
+
+    public T get(String name) {
+        sync();
+        return items.get(name);
+    }
+
+    public List<T> list(Predicate<T> filter) {
+        sync();
+
+        List<T> result = new ArrayList<>();
+        for (T i : items.values()) {
+            if (filter.test(i)) {
+                result.add(i);
+            }
+        }
+        return result;
+    }
+
+    public synchronized void stop() {
+        closeWatch();
+        stale = true;
+    }
+
+    private void sync() {
+        if (!stale && System.currentTimeMillis() - lastSync < resyncPeriod) {
+            return;
+        }
+
+        synchronized (this) {
+            if (!stale && System.currentTimeMillis() - lastSync < resyncPeriod) {
+                return;
+            }
+
+            closeWatch();
+
+            KubernetesResourceList<T> l = lister.get();
+
+            Map<String, T> m = new ConcurrentHashMap<>();
+            for (T i : l.getItems()) {
+                m.put(i.getMetadata().getName(), i);
+            }
+
+            // the readers see either the old or the new copy, never a partially filled one
+            items = m;
+
+            // receive the changes made after the list call
+            updater = new CacheUpdater(m);
+            watch = watcher.apply(l.getMetadata().getResourceVersion(), updater);
+
+            stale = false;
+            lastSync = System.currentTimeMillis();
+
+            log.info("sync ['{}'] -> {} item(s)", name, m.size());
+        }
+    }
+
+    private void closeWatch() {
+        if (updater != null) {
+            // ignore the events of the old watch
+            updater.active = false;
+            updater = null;
+        }
+
+        if (watch != null) {
+            watch.close();
+            watch = null;
+        }
+    }
+
+    private class CacheUpdater implements Watcher<T> {
+
+        private final Map<String, T> items;
+
+        private volatile boolean active = true;
+
+        private CacheUpdater(Map<String, T> items) {
+            this.items = items;
+        }
+
+        @Override
+        public void eventReceived(Action action, T resource) {
+            if (!active) {
+                return;
+            }
+
+            switch (action) {
+                case ADDED:
+                case MODIFIED: {
+                    items.put(resource.getMetadata().getName(), resource);
+                    break;
+                }
+                case DELETED: {
+                    items.remove(resource.getMetadata().getName());
+                    break;
+                }
+                default: {
+                    log.warn("eventReceived ['{}'] -> {}, the cache will be reloaded", name, action);
+                    stale = true;
+                }
+            }
+        }
+
+        @Override
+        public void onClose(KubernetesClientException cause) {
+            if (!active) {
+                return;
+            }
+
+            if (cause != null) {
+                log.warn("onClose ['{}'] -> the watch was closed, the cache will be reloaded: {}", name, cause.getMessage());
+            }
+            stale = true;
+        }
+    }
+}
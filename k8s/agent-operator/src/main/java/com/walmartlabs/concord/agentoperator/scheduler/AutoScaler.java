@@ -22,12 +22,13 @@ package com.walmartlabs.concord.agentoperator.scheduler;
 
 import com.walmartlabs.concord.agentoperator.crd.AgentPoolConfiguration;
 import com.walmartlabs.concord.agentoperator.processqueue.ProcessQueueEntry;
-import com.walmartlabs.concord.common.MapMatcher;
+import com.walmartlabs.concord.common.CompiledMapMatcher;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.util.HashMap;
 import java.util.List;
-import java.util.Objects;
+import java.util.Map;
 import java.util.function.Function;
 
 public class AutoScaler {
@@ -36,6 +37,7 @@ public class AutoScaler {
 
     private final Function<String, Integer> podCounter;
     private final Function<AgentPoolInstance, Boolean> canBeUpdated;
+    private final Map<String, ScalingPolicy> policies;
 
     public AutoScaler(Function<String, Integer> podCounter) {
         this(podCounter, i -> {
@@ -45,8 +47,17 @@ public class AutoScaler {
     }
 
     public AutoScaler(Function<String, Integer> podCounter, Function<AgentPoolInstance, Boolean> canBeUpdated) {
+        this(podCounter, canBeUpdated, defaultPolicies());
+    }
+
+    /**
+     * @param policies available scaling policies, the key is the name used
+     *                 in {@link AgentPoolConfiguration#getScalingPolicy()}
+     */
+    public AutoScaler(Function<String, Integer> podCounter, Function<AgentPoolInstance, Boolean> canBeUpdated, Map<String, ScalingPolicy> policies) {
         this.podCounter = podCounter;
         this.canBeUpdated = canBeUpdated;
+        this.policies = policies;
     }
 
     public AgentPoolInstance apply(AgentPoolInstance i, List<ProcessQueueEntry> queueEntries) {
@@ -57,35 +68,46 @@ public class AutoScaler {
             return i;
         }
 
-        // the number of processes waiting for an agent in the current pool
-        int enqueuedCount = (int) queueEntries.stream()
-                .map(ProcessQueueEntry::getRequirements)
-                .filter(Objects::nonNull)
-                .filter(a -> MapMatcher.matches(a, cfg.getQueueSelector()))
-                .count();
+        // the processes waiting for an agent in the current pool
+        CompiledMapMatcher queueSelector = CompiledMapMatcher.compile(cfg.getQueueSelector());
+        Demand demand = Demand.of(queueSelector, queueEntries);
 
         // count the currently running pods
         int podsCount = podCounter.apply(i.getName());
 
-        int increment = 0;
-        if (enqueuedCount >= podsCount) {
-            increment = cfg.getSizeIncrement();
-        } if (enqueuedCount < podsCount) {
-            increment = -cfg.getSizeIncrement();
-        }
-
-        int targetSize = Math.max(cfg.getMinSize(), podsCount + increment);
+        int targetSize = Math.max(cfg.getMinSize(), getPolicy(i).getTargetSize(i, demand, podsCount));
         if (i.getTargetSize() == targetSize) {
             // no changes needed
             return i;
         }
 
         if (targetSize > cfg.getMaxSize()) {
-            log.warn("apply ['{}'] -> target pool size exceeds the allowed maximum: {} > {}", i.getName(), enqueuedCount, cfg.getMaxSize());
+            log.warn("apply ['{}'] -> target pool size exceeds the allowed maximum: {} > {}", i.getName(), targetSize, cfg.getMaxSize());
         }
         targetSize = Math.min(targetSize, cfg.getMaxSize());
 
         log.info("apply ['{}'] -> updated to {}", i.getName(), targetSize);
         return AgentPoolInstance.updateTargetSize(i, targetSize);
     }
+
+    private ScalingPolicy getPolicy(AgentPoolInstance i) {
+        String name = i.getResource().getSpec().getScalingPolicy();
+        if (name == null) {
+            name = IncrementalScalingPolicy.NAME;
+        }
+
+        ScalingPolicy p = policies.get(name);
+        if (p == null) {
+            log.warn("getPolicy ['{}'] -> unknown scaling policy '{}', using '{}'", i.getName(), name, IncrementalScalingPolicy.NAME);
+            p = policies.get(IncrementalScalingPolicy.NAME);
+        }
+        return p;
+    }
+
+    public static Map<String, ScalingPolicy> defaultPolicies() {
+        Map<String, ScalingPolicy> m = new HashMap<>();
+        m.put(IncrementalScalingPolicy.NAME, new IncrementalScalingPolicy());
+        m.put(RateBasedScalingPolicy.NAME, new RateBasedScalingPolicy());
+        return m;
+    }
 }
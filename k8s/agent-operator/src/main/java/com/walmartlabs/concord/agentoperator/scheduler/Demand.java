@@ -0,0 +1,124 @@
+package com.walmartlabs.concord.agentoperator.scheduler;
+
+
+/*-
+ * *****
+ * Concord
+ * -----
+ * Copyright (C) 2017 - 2020 Walmart Inc.
+ * -----
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * =====
+ */
+
+import com.walmartlabs.concord.agentoperator.processqueue.ProcessQueueEntry;
+import com.walmartlabs.concord.common.CompiledMapMatcher;
+
+import java.util.List;
+
+/**
+ * Aggregated demand for agents of a specific pool.
+ */
+public class Demand {
+
+    public static Demand of(CompiledMapMatcher queueSelector, List<ProcessQueueEntry> queueEntries) {
+        int enqueued = 0;
+        int running = 0;
+        int arrived = 0;
+        int finished = 0;
+
+        // average run time weighted by the number of finished processes
+        long durationTotal = 0;
+        int durationCount = 0;
+
+        for (ProcessQueueEntry e : queueEntries) {
+            if (e.getRequirements() == null || !queueSelector.matches(e.getRequirements())) {
+                continue;
+            }
+
+            enqueued += e.getCount();
+            running += e.getRunning();
+            arrived += e.getArrived();
+            finished += e.getFinished();
+
+            if (e.getAvgDuration() != null && e.getFinished() > 0) {
+                durationTotal += e.getAvgDuration() * e.getFinished();
+                durationCount += e.getFinished();
+            }
+        }
+
+        Long avgDuration = durationCount > 0 ? durationTotal / durationCount : null;
+        return new Demand(enqueued, running, arrived, finished, avgDuration);
+    }
+
+    private final int enqueued;
+    private final int running;
+    private final int arrived;
+    private final int finished;
+    private final Long avgDuration;
+
+    public Demand(int enqueued, int running, int arrived, int finished, Long avgDuration) {
+        this.enqueued = enqueued;
+        this.running = running;
+        this.arrived = arrived;
+        this.finished = finished;
+        this.avgDuration = avgDuration;
+    }
+
+    /**
+     * @return number of processes waiting for an agent
+     */
+    public int getEnqueued() {
+        return enqueued;
+    }
+
+    /**
+     * @return number of running processes
+     */
+    public int getRunning() {
+        return running;
+    }
+
+    /**
+     * @return number of processes created during the stats period
+     */
+    public int getArrived() {
+        return arrived;
+    }
+
+    /**
+     * @return number of processes created during the stats period and already finished
+     */
+    public int getFinished() {
+        return finished;
+    }
+
+    /**
+     * @return average run time of the finished processes (ms) or {@code null}
+     * if there are no finished processes yet
+     */
+    public Long getAvgDuration() {
+        return avgDuration;
+    }
+
+    @Override
+    public String toString() {
+        return "Demand{" +
+                "enqueued=" + enqueued +
+                ", running=" + running +
+                ", arrived=" + arrived +
+                ", finished=" + finished +
+                ", avgDuration=" + avgDuration +
+                '}';
+    }
+}
@@ -0,0 +1,44 @@
+package com.walmartlabs.concord.agentoperator.scheduler;
+
+
+/*-
+ * *****
+ * Concord
+ * -----
+ * Copyright (C) 2017 - 2020 Walmart Inc.
+ * -----
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * =====
+ */
+
+import com.walmartlabs.concord.agentoperator.crd.AgentPoolConfiguration;
+
+/**
+ * Adds or removes {@link AgentPoolConfiguration#getSizeIncrement()} pods
+ * depending on whether there are more enqueued processes than pods.
+ */
+public class IncrementalScalingPolicy implements ScalingPolicy {
+
+    public static final String NAME = "incremental";
+
+    @Override
+    public int getTargetSize(AgentPoolInstance i, Demand demand, int podsCount) {
+        AgentPoolConfiguration cfg = i.getResource().getSpec();
+
+        if (demand.getEnqueued() >= podsCount) {
+            return podsCount + cfg.getSizeIncrement();
+        }
+
+        return podsCount - cfg.getSizeIncrement();
+    }
+}
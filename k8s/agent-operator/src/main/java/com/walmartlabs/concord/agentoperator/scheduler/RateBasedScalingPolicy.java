@@ -0,0 +1,148 @@
+package com.walmartlabs.concord.agentoperator.scheduler;
+
+
+/*-
+ * *****
+ * Concord
+ * -----
+ * Copyright (C) 2017 - 2020 Walmart Inc.
+ * -----
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * =====
+ */
+
+import com.walmartlabs.concord.agentoperator.crd.AgentPoolConfiguration;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.function.LongSupplier;
+
+/**
+ * Sizes the pool in one step using the arrival rate and the average run time
+ * of the recent processes (Little's law) plus the current queue backlog.
+ * <p>
+ * The pool is scaled up immediately. It is scaled down only after the demand
+ * stays below the current target size for
+ * {@link AgentPoolConfiguration#getScaleDownDelayMs()} and only to the
+ * highest demand seen during that time.
+ */
+public class RateBasedScalingPolicy implements ScalingPolicy {
+
+    private static final Logger log = LoggerFactory.getLogger(RateBasedScalingPolicy.class);
+
+    public static final String NAME = "rate";
+
+    /**
+     * The period used to calculate the arrival rate and the average run time.
+     */
+    public static final int STATS_PERIOD_SEC = 900;
+
+    private static final int DEFAULT_WORKERS_PER_POD = 1;
+    private static final long DEFAULT_SCALE_DOWN_DELAY_MS = TimeUnit.MINUTES.toMillis(5);
+    private static final long DEFAULT_QUEUE_DRAIN_TIME_MS = TimeUnit.MINUTES.toMillis(1);
+
+    private final long statsPeriodMs;
+    private final LongSupplier clock;
+    private final Map<String, ScaleDown> scaleDowns = new ConcurrentHashMap<>();
+
+    public RateBasedScalingPolicy() {
+        this(TimeUnit.SECONDS.toMillis(STATS_PERIOD_SEC), System::currentTimeMillis);
+    }
+
+    public RateBasedScalingPolicy(long statsPeriodMs, LongSupplier clock) {
+        this.statsPeriodMs = statsPeriodMs;
+        this.clock = clock;
+    }
+
+    @Override
+    public int getTargetSize(AgentPoolInstance i, Demand demand, int podsCount) {
+        AgentPoolConfiguration cfg = i.getResource().getSpec();
+
+        int desired = podsFor(requiredWorkers(cfg, demand), workersPerPod(cfg));
+
+        int current = i.getTargetSize();
+        if (desired >= current) {
+            scaleDowns.remove(i.getName());
+            return desired;
+        }
+
+        // scale down only if the demand stays low long enough
+        long now = clock.getAsLong();
+        ScaleDown s = scaleDowns.compute(i.getName(), (k, v) -> v == null ? new ScaleDown(now, desired) : v.update(desired));
+        if (now - s.since < scaleDownDelayMs(cfg)) {
+            return current;
+        }
+
+        scaleDowns.remove(i.getName());
+
+        log.info("getTargetSize ['{}'] -> scaling down: {} -> {} ({})", i.getName(), current, s.peak, demand);
+        return s.peak;
+    }
+
+    private double requiredWorkers(AgentPoolConfiguration cfg, Demand demand) {
+        Long avgDuration = demand.getAvgDuration();
+        int enqueued = demand.getEnqueued();
+
+        if (avgDuration == null) {
+            // no history yet, one worker for each running or enqueued process
+            return demand.getRunning() + enqueued;
+        }
+
+        // the number of workers needed to keep up with the arrival rate
+        double arrivalRate = (double) demand.getArrived() / statsPeriodMs;
+        double steady = Math.max(demand.getRunning(), arrivalRate * avgDuration);
+
+        // the number of additional workers needed to process the current backlog
+        // within the configured time
+        double backlog = Math.min(enqueued, Math.ceil((double) enqueued * avgDuration / queueDrainTimeMs(cfg)));
+
+        return steady + backlog;
+    }
+
+    private static int podsFor(double workers, int workersPerPod) {
+        return (int) Math.ceil(workers / workersPerPod);
+    }
+
+    private static int workersPerPod(AgentPoolConfiguration cfg) {
+        Integer v = cfg.getWorkersPerPod();
+        return v != null && v > 0 ? v : DEFAULT_WORKERS_PER_POD;
+    }
+
+    private static long scaleDownDelayMs(AgentPoolConfiguration cfg) {
+        Long v = cfg.getScaleDownDelayMs();
+        return v != null && v >= 0 ? v : DEFAULT_SCALE_DOWN_DELAY_MS;
+    }
+
+    private static long queueDrainTimeMs(AgentPoolConfiguration cfg) {
+        Long v = cfg.getQueueDrainTimeMs();
+        return v != null && v > 0 ? v : DEFAULT_QUEUE_DRAIN_TIME_MS;
+    }
+
+    private static final class ScaleDown {
+
+        private final long since;
+        private final int peak;
+
+        private ScaleDown(long since, int peak) {
+            this.since = since;
+            this.peak = peak;
+        }
+
+        private ScaleDown update(int desired) {
+            return new ScaleDown(since, Math.max(peak, desired));
+        }
+    }
+}
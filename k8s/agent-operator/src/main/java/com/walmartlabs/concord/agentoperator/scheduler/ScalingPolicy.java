@@ -0,0 +1,36 @@
+package com.walmartlabs.concord.agentoperator.scheduler;
+
+
+/*-
+ * *****
+ * Concord
+ * -----
+ * Copyright (C) 2017 - 2020 Walmart Inc.
+ * -----
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * =====
+ */
+
+/**
+ * Calculates the desired size of an agent pool.
+ */
+public interface ScalingPolicy {
+
+    /**
+     * @param i         the pool
+     * @param demand    the current demand for the pool's agents
+     * @param podsCount the number of pods currently running in the pool
+     * @return the desired number of pods, before applying the pool's size limits
+     */
+    int getTargetSize(AgentPoolInstance i, Demand demand, int podsCount);
+}
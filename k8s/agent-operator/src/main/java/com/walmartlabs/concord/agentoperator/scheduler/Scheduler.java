@@ -26,7 +26,10 @@ import com.walmartlabs.concord.agentoperator.planner.Change;
 import com.walmartlabs.concord.agentoperator.planner.Planner;
 import com.walmartlabs.concord.agentoperator.processqueue.ProcessQueueClient;
 import com.walmartlabs.concord.agentoperator.processqueue.ProcessQueueEntry;
+import com.walmartlabs.concord.agentoperator.resources.AgentConfigMap;
 import com.walmartlabs.concord.agentoperator.resources.AgentPod;
+import com.walmartlabs.concord.agentoperator.resources.Informer;
+import io.fabric8.kubernetes.api.model.ConfigMap;
 import io.fabric8.kubernetes.api.model.Pod;
 import io.fabric8.kubernetes.client.KubernetesClient;
 import org.slf4j.Logger;
@@ -34,6 +37,7 @@ import org.slf4j.LoggerFactory;
 
 import java.io.IOException;
 import java.util.*;
+import java.util.stream.Collectors;
 
 public class Scheduler {
 
@@ -41,17 +45,24 @@ public class Scheduler {
 
     private static final long POLL_DELAY = 5000;
     private static final long ERROR_DELAY = 10000;
+    private static final long RESYNC_PERIOD = 600000;
 
     private final KubernetesClient k8sClient;
     private final ProcessQueueClient processQueueClient;
+    private final Informer<Pod> pods;
+    private final Informer<ConfigMap> configMaps;
     private final Planner planner;
+    private final AutoScaler autoScaler;
     private final Map<String, AgentPoolInstance> pools;
     private final List<Event> events;
 
     public Scheduler(KubernetesClient k8sClient, Configuration cfg) {
         this.k8sClient = k8sClient;
         this.processQueueClient = new ProcessQueueClient(cfg.concordBaseUrl, cfg.concordApiToken);
-        this.planner = new Planner(k8sClient);
+        this.pods = AgentPod.informer(k8sClient, RESYNC_PERIOD);
+        this.configMaps = AgentConfigMap.informer(k8sClient, RESYNC_PERIOD);
+        this.planner = new Planner(k8sClient, pods, configMaps);
+        this.autoScaler = new AutoScaler(n -> AgentPod.list(pods, n).size());
         this.pools = new HashMap<>();
         this.events = new LinkedList<>();
     }
@@ -105,13 +116,14 @@ public class Scheduler {
             return;
         }
 
-        // fetch the process queue status
+        // fetch the process queue status, once for all pools
+        List<ProcessQueueEntry> queueEntries = fetchQueue(todo);
 
         todo.parallelStream().forEach(i -> {
             try {
                 switch (i.getStatus()) {
                     case ACTIVE: {
-                        updateTargetSize(i);
+                        updateTargetSize(i, queueEntries);
                         processActive(i);
                         break;
                     }
@@ -146,19 +158,34 @@ public class Scheduler {
         }
     }
 
-    private void updateTargetSize(AgentPoolInstance i) throws IOException {
-        if (!i.getResource().getSpec().isAutoScale()) {
-            return;
+    private List<ProcessQueueEntry> fetchQueue(List<AgentPoolInstance> pools) {
+        List<AgentPoolConfiguration> autoScaled = pools.stream()
+                .filter(i -> i.getStatus() == AgentPoolInstance.Status.ACTIVE && i.getResource().getSpec().isAutoScale())
+                .map(i -> i.getResource().getSpec())
+                .collect(Collectors.toList());
+
+        if (autoScaled.isEmpty()) {
+            return null;
         }
 
-        List<ProcessQueueEntry> queueEntries = processQueueClient.query();
+        // the rate-based policy needs the recent process statistics
+        boolean needsStats = autoScaled.stream()
+                .anyMatch(s -> RateBasedScalingPolicy.NAME.equals(s.getScalingPolicy()));
+
+        try {
+            return processQueueClient.queryRequirements(needsStats ? RateBasedScalingPolicy.STATS_PERIOD_SEC : null);
+        } catch (IOException e) {
+            log.error("fetchQueue -> error while fetching the process queue data, skipping the autoscaling: {}", e.getMessage());
+            return null;
+        }
+    }
 
+    private void updateTargetSize(AgentPoolInstance i, List<ProcessQueueEntry> queueEntries) {
         AgentPoolConfiguration spec = i.getResource().getSpec();
-        if (!spec.isAutoScale()) {
+        if (!spec.isAutoScale() || queueEntries == null) {
             return;
         }
 
-        AutoScaler autoScaler = new AutoScaler(n -> AgentPod.list(k8sClient, n).size());
         synchronized (pools) {
             pools.put(i.getName(), autoScaler.apply(i, queueEntries));
         }
@@ -177,7 +204,7 @@ public class Scheduler {
         apply(changes);
 
         // if no pods left - remove the pool
-        List<Pod> pods = AgentPod.listPods(k8sClient, resourceName);
+        List<Pod> pods = AgentPod.list(this.pods, resourceName);
         if (pods.isEmpty()) {
             synchronized (pools) {
                 pools.remove(resourceName);
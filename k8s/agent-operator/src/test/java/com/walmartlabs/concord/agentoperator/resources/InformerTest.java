@@ -0,0 +1,185 @@
+package com.walmartlabs.concord.agentoperator.resources;
+
+
+/*-
+ * *****
+ * Concord
+ * -----
+ * Copyright (C) 2017 - 2020 Walmart Inc.
+ * -----
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * =====
+ */
+
+import io.fabric8.kubernetes.api.model.ListMeta;
+import io.fabric8.kubernetes.api.model.ObjectMeta;
+import io.fabric8.kubernetes.api.model.Pod;
+import io.fabric8.kubernetes.api.model.PodList;
+import io.fabric8.kubernetes.client.KubernetesClientException;
+import io.fabric8.kubernetes.client.Watcher;
+import org.junit.Test;
+
+import java.util.*;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.Assert.*;
+
+public class InformerTest {
+
+    @Test
+    public void testListAndWatch() {
+        AtomicReference<List<Pod>> pods = new AtomicReference<>(Arrays.asList(pod("a"), pod("b")));
+        List<Watcher<Pod>> watchers = new ArrayList<>();
+
+        Informer<Pod> informer = new Informer<>("test", () -> list(pods.get()), (version, w) -> {
+            watchers.add(w);
+            return () -> {
+            };
+        }, Long.MAX_VALUE);
+
+        assertNotNull(informer.get("a"));
+        assertEquals(2, informer.list(p -> true).size());
+        assertEquals(1, watchers.size());
+
+        Watcher<Pod> w = watchers.get(0);
+        w.eventReceived(Watcher.Action.ADDED, pod("c"));
+        w.eventReceived(Watcher.Action.DELETED, pod("a"));
+
+        assertNull(informer.get("a"));
+        assertNotNull(informer.get("c"));
+        assertEquals(1, informer.list(p -> p.getMetadata().getName().equals("b")).size());
+
+        // no re-list while the watch is active
+        assertEquals(1, watchers.size());
+    }
+
+    @Test
+    public void testRelistAfterClose() {
+        AtomicReference<List<Pod>> pods = new AtomicReference<>(Arrays.asList(pod("a"), pod("b")));
+        List<Watcher<Pod>> watchers = new ArrayList<>();
+        AtomicInteger closed = new AtomicInteger();
+
+        Informer<Pod> informer = new Informer<>("test", () -> list(pods.get()), (version, w) -> {
+            watchers.add(w);
+            return closed::incrementAndGet;
+        }, Long.MAX_VALUE);
+
+        assertEquals(2, informer.list(p -> true).size());
+
+        Watcher<Pod> oldWatcher = watchers.get(0);
+        oldWatcher.onClose(new KubernetesClientException("test"));
+
+        pods.set(Collections.singletonList(pod("c")));
+
+        // the cache is replaced with the new list
+        assertNull(informer.get("a"));
+        assertNotNull(informer.get("c"));
+        assertEquals(2, watchers.size());
+        assertEquals(1, closed.get());
+
+        // the events of the old watch are ignored
+        oldWatcher.eventReceived(Watcher.Action.ADDED, pod("d"));
+        assertNull(informer.get("d"));
+
+        watchers.get(1).eventReceived(Watcher.Action.ADDED, pod("d"));
+        assertNotNull(informer.get("d"));
+    }
+
+    @Test
+    public void testFailedRelist() {
+        AtomicBoolean fail = new AtomicBoolean();
+        List<Watcher<Pod>> watchers = new ArrayList<>();
+
+        Informer<Pod> informer = new Informer<>("test", () -> {
+            if (fail.get()) {
+                throw new KubernetesClientException("test");
+            }
+            return list(Collections.singletonList(pod("a")));
+        }, (version, w) -> {
+            watchers.add(w);
+            return () -> {
+            };
+        }, Long.MAX_VALUE);
+
+        assertNotNull(informer.get("a"));
+
+        fail.set(true);
+        watchers.get(0).onClose(null);
+
+        try {
+            informer.get("a");
+            fail("exception expected");
+        } catch (KubernetesClientException e) {
+            // expected
+        }
+
+        // the re-list is retried on the next call
+        fail.set(false);
+        assertNotNull(informer.get("a"));
+        assertEquals(2, watchers.size());
+    }
+
+    @Test(timeout = 30000)
+    public void testReadersDuringResync() throws Exception {
+        List<Pod> pods = new ArrayList<>();
+        for (int i = 0; i < 1000; i++) {
+            pods.add(pod("pod-" + i));
+        }
+
+        // re-list almost on every call
+        Informer<Pod> informer = new Informer<>("test", () -> list(pods), (version, w) -> () -> {
+        }, 1);
+
+        AtomicInteger misses = new AtomicInteger();
+        List<Thread> threads = new ArrayList<>();
+        long deadline = System.currentTimeMillis() + 500;
+        for (int i = 0; i < 4; i++) {
+            Thread t = new Thread(() -> {
+                while (System.currentTimeMillis() < deadline) {
+                    if (informer.get("pod-999") == null || informer.list(p -> true).size() != pods.size()) {
+                        misses.incrementAndGet();
+                    }
+                }
+            });
+            t.start();
+            threads.add(t);
+        }
+
+        for (Thread t : threads) {
+            t.join();
+        }
+
+        assertEquals(0, misses.get());
+    }
+
+    private static PodList list(List<Pod> items) {
+        ListMeta meta = new ListMeta();
+        meta.setResourceVersion("1");
+
+        PodList l = new PodList();
+        l.setMetadata(meta);
+        l.setItems(new ArrayList<>(items));
+        return l;
+    }
+
+    private static Pod pod(String name) {
+        ObjectMeta meta = new ObjectMeta();
+        meta.setName(name);
+
+        Pod p = new Pod();
+        p.setMetadata(meta);
+        return p;
+    }
+}
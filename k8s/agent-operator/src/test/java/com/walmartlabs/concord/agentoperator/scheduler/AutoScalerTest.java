@@ -28,7 +28,9 @@ import org.junit.Test;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
+import java.util.Map;
 import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
 
 import static org.junit.Assert.assertEquals;
 
@@ -137,4 +139,117 @@ public class AutoScalerTest {
         pool = as.apply(pool, queue);
         assertEquals(3, pool.getTargetSize());
     }
+
+    @Test
+    public void testAggregatedQueue() throws Exception {
+        AtomicInteger podCount = new AtomicInteger(3);
+
+        AutoScaler as = new AutoScaler(n -> podCount.get(), i -> true);
+
+        AgentPoolConfiguration spec = new AgentPoolConfiguration();
+        spec.setSizeIncrement(2);
+        spec.setMaxSize(10);
+        spec.setQueueSelector(Collections.singletonMap("test", 123));
+
+        AgentPool resource = new AgentPool();
+        resource.setSpec(spec);
+
+        AgentPoolInstance pool = new AgentPoolInstance("test", resource, AgentPoolInstance.Status.ACTIVE, 3, 0);
+
+        List<ProcessQueueEntry> queue = new ArrayList<>();
+        queue.add(new ProcessQueueEntry(Collections.singletonMap("test", 123), 2));
+        queue.add(new ProcessQueueEntry(Collections.singletonMap("test", 456), 100));
+        queue.add(new ProcessQueueEntry(null, 100));
+
+        // ---
+
+        // only two matching processes
+        pool = as.apply(pool, queue);
+        assertEquals(1, pool.getTargetSize());
+
+        podCount.set(1);
+
+        queue.add(new ProcessQueueEntry(Collections.singletonMap("test", 123), 5));
+
+        // seven matching processes
+        pool = as.apply(pool, queue);
+        assertEquals(3, pool.getTargetSize());
+    }
+
+    @Test
+    public void testRateBased() throws Exception {
+        AtomicInteger podCount = new AtomicInteger(1);
+        AtomicLong clock = new AtomicLong(0);
+
+        Map<String, ScalingPolicy> policies = Collections.singletonMap(RateBasedScalingPolicy.NAME, new RateBasedScalingPolicy(900000, clock::get));
+        AutoScaler as = new AutoScaler(n -> podCount.get(), i -> true, policies);
+
+        AgentPoolConfiguration spec = new AgentPoolConfiguration();
+        spec.setScalingPolicy(RateBasedScalingPolicy.NAME);
+        spec.setMaxSize(20);
+        spec.setWorkersPerPod(2);
+        spec.setScaleDownDelayMs(60000L);
+        spec.setQueueDrainTimeMs(60000L);
+        spec.setQueueSelector(Collections.singletonMap("test", 123));
+
+        AgentPool resource = new AgentPool();
+        resource.setSpec(spec);
+
+        AgentPoolInstance pool = new AgentPoolInstance("test", resource, AgentPoolInstance.Status.ACTIVE, 1, 0);
+
+        // ---
+
+        // no history yet, a worker for each enqueued process
+        pool = as.apply(pool, Collections.singletonList(entry(10, 0, 10, 0, null)));
+        assertEquals(5, pool.getTargetSize());
+
+        podCount.set(5);
+
+        // 90 processes in 15 minutes, 2 minutes each = 12 workers,
+        // plus 6 more to process the backlog within a minute
+        pool = as.apply(pool, Collections.singletonList(entry(6, 4, 90, 80, 120000L)));
+        assertEquals(9, pool.getTargetSize());
+
+        podCount.set(9);
+
+        // ---
+
+        // the demand drops, but not for long enough
+        pool = as.apply(pool, Collections.singletonList(entry(0, 2, 15, 15, 120000L)));
+        assertEquals(9, pool.getTargetSize());
+
+        clock.set(30000);
+        pool = as.apply(pool, Collections.singletonList(entry(0, 6, 45, 40, 120000L)));
+        assertEquals(9, pool.getTargetSize());
+
+        // scale down to the highest demand seen since then
+        clock.set(60000);
+        pool = as.apply(pool, Collections.singletonList(entry(0, 0, 0, 0, null)));
+        assertEquals(3, pool.getTargetSize());
+    }
+
+    @Test
+    public void testUnknownPolicy() throws Exception {
+        AtomicInteger podCount = new AtomicInteger(1);
+
+        AutoScaler as = new AutoScaler(n -> podCount.get(), i -> true);
+
+        AgentPoolConfiguration spec = new AgentPoolConfiguration();
+        spec.setScalingPolicy("unknown");
+        spec.setSizeIncrement(2);
+        spec.setQueueSelector(Collections.singletonMap("test", 123));
+
+        AgentPool resource = new AgentPool();
+        resource.setSpec(spec);
+
+        AgentPoolInstance pool = new AgentPoolInstance("test", resource, AgentPoolInstance.Status.ACTIVE, 1, 0);
+
+        // falls back to the incremental policy
+        pool = as.apply(pool, Collections.singletonList(entry(5, 0, 0, 0, null)));
+        assertEquals(3, pool.getTargetSize());
+    }
+
+    private static ProcessQueueEntry entry(int count, int running, int arrived, int finished, Long avgDuration) {
+        return new ProcessQueueEntry(Collections.singletonMap("test", 123), count, running, arrived, finished, avgDuration);
+    }
 }
@@ -0,0 +1,68 @@
+package com.walmartlabs.concord.agentoperator.scheduler;
+
+
+/*-
+ * *****
+ * Concord
+ * -----
+ * Copyright (C) 2017 - 2020 Walmart Inc.
+ * -----
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * =====
+ */
+
+import com.walmartlabs.concord.agentoperator.crd.AgentPoolConfiguration;
+import org.junit.Test;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertTrue;
+
+public class ScalingSimulationTest {
+
+    private static final long POD_STARTUP_MS = TimeUnit.SECONDS.toMillis(30);
+    private static final long STATS_PERIOD_MS = TimeUnit.SECONDS.toMillis(RateBasedScalingPolicy.STATS_PERIOD_SEC);
+
+    @Test
+    public void testCronBurst() throws Exception {
+        List<ScalingSimulator.TraceEntry> trace = ScalingSimulator.loadTrace("/traces/cron-burst.csv");
+
+        ScalingSimulator.Result incremental = new ScalingSimulator(spec(IncrementalScalingPolicy.NAME), POD_STARTUP_MS, STATS_PERIOD_MS)
+                .run(trace, clock -> new IncrementalScalingPolicy());
+
+        ScalingSimulator.Result rate = new ScalingSimulator(spec(RateBasedScalingPolicy.NAME), POD_STARTUP_MS, STATS_PERIOD_MS)
+                .run(trace, clock -> new RateBasedScalingPolicy(STATS_PERIOD_MS, clock));
+
+        // the bursts are picked up much faster...
+        assertTrue(rate.getMeanWaitMs() * 2 < incremental.getMeanWaitMs());
+        assertTrue(rate.getMaxWaitMs() < incremental.getMaxWaitMs());
+
+        // ...at a reasonable cost
+        assertTrue(rate.getPodSeconds() < incremental.getPodSeconds() * 3);
+    }
+
+    private static AgentPoolConfiguration spec(String policy) {
+        AgentPoolConfiguration spec = new AgentPoolConfiguration();
+        spec.setScalingPolicy(policy);
+        spec.setQueueSelector(Collections.singletonMap("flavor", "test"));
+        spec.setSize(1);
+        spec.setMinSize(1);
+        spec.setMaxSize(30);
+        spec.setSizeIncrement(2);
+        spec.setScalingDelayMs(TimeUnit.SECONDS.toMillis(30));
+        spec.setWorkersPerPod(1);
+        return spec;
+    }
+}
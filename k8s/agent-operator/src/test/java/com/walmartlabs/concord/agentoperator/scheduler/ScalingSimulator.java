@@ -0,0 +1,343 @@
+package com.walmartlabs.concord.agentoperator.scheduler;
+
+
+/*-
+ * *****
+ * Concord
+ * -----
+ * Copyright (C) 2017 - 2020 Walmart Inc.
+ * -----
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * =====
+ */
+
+import com.walmartlabs.concord.agentoperator.crd.AgentPool;
+import com.walmartlabs.concord.agentoperator.crd.AgentPoolConfiguration;
+import com.walmartlabs.concord.agentoperator.planner.PodSelector;
+import com.walmartlabs.concord.agentoperator.processqueue.ProcessQueueEntry;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+import java.util.function.Function;
+import java.util.function.LongSupplier;
+
+/**
+ * Replays a recorded queue trace against a scaling policy.
+ * <p>
+ * Models the scheduler's loop: every tick the process queue is aggregated
+ * the same way the server does it, the {@link AutoScaler} updates the target
+ * size and the pods are created or removed similarly to the planner.
+ * New pods become available after the startup delay, pods tagged for
+ * removal stop taking new processes and are removed once idle.
+ */
+public class ScalingSimulator {
+
+    private static final long TICK_MS = 5000;
+    private static final long MAX_OVERTIME_MS = 2 * 60 * 60 * 1000;
+
+    /**
+     * Loads a trace. Each line is {@code offsetSec,durationSec}, lines starting
+     * with {@code #} are ignored.
+     */
+    public static List<TraceEntry> loadTrace(String resource) throws IOException {
+        List<TraceEntry> result = new ArrayList<>();
+
+        try (InputStream in = ScalingSimulator.class.getResourceAsStream(resource);
+             BufferedReader reader = new BufferedReader(new InputStreamReader(in, StandardCharsets.UTF_8))) {
+
+            String line;
+            while ((line = reader.readLine()) != null) {
+                line = line.trim();
+                if (line.isEmpty() || line.startsWith("#")) {
+                    continue;
+                }
+
+                String[] as = line.split(",");
+                result.add(new TraceEntry(Long.parseLong(as[0].trim()) * 1000, Long.parseLong(as[1].trim()) * 1000));
+            }
+        }
+
+        result.sort(Comparator.comparingLong(e -> e.offsetMs));
+        return result;
+    }
+
+    private final AgentPoolConfiguration spec;
+    private final long podStartupMs;
+    private final long statsPeriodMs;
+
+    public ScalingSimulator(AgentPoolConfiguration spec, long podStartupMs, long statsPeriodMs) {
+        this.spec = spec;
+        this.podStartupMs = podStartupMs;
+        this.statsPeriodMs = statsPeriodMs;
+    }
+
+    /**
+     * @param policyFactory creates the policy, the argument is the simulation's clock
+     */
+    public Result run(List<TraceEntry> trace, Function<LongSupplier, ScalingPolicy> policyFactory) {
+        return new Run(trace, policyFactory).run();
+    }
+
+    public static class TraceEntry {
+
+        private final long offsetMs;
+        private final long durationMs;
+
+        public TraceEntry(long offsetMs, long durationMs) {
+            this.offsetMs = offsetMs;
+            this.durationMs = durationMs;
+        }
+    }
+
+    public static class Result {
+
+        private final long meanWaitMs;
+        private final long maxWaitMs;
+        private final long podSeconds;
+
+        private Result(long meanWaitMs, long maxWaitMs, long podSeconds) {
+            this.meanWaitMs = meanWaitMs;
+            this.maxWaitMs = maxWaitMs;
+            this.podSeconds = podSeconds;
+        }
+
+        /**
+         * @return average time between the process' creation and its start
+         */
+        public long getMeanWaitMs() {
+            return meanWaitMs;
+        }
+
+        public long getMaxWaitMs() {
+            return maxWaitMs;
+        }
+
+        /**
+         * @return total pod uptime, including the startup and the drain time
+         */
+        public long getPodSeconds() {
+            return podSeconds;
+        }
+
+        @Override
+        public String toString() {
+            return "Result{" +
+                    "meanWaitMs=" + meanWaitMs +
+                    ", maxWaitMs=" + maxWaitMs +
+                    ", podSeconds=" + podSeconds +
+                    '}';
+        }
+    }
+
+    private static class Process {
+
+        private final long arrivedAt;
+        private final long durationMs;
+        private long startedAt = -1;
+
+        private Process(long arrivedAt, long durationMs) {
+            this.arrivedAt = arrivedAt;
+            this.durationMs = durationMs;
+        }
+
+        private long finishedAt() {
+            return startedAt + durationMs;
+        }
+
+        private boolean isFinished(long now) {
+            return startedAt >= 0 && finishedAt() <= now;
+        }
+    }
+
+    private static class SimPod {
+
+        private final int index;
+        private final long readyAt;
+        private final List<Process> processes = new ArrayList<>();
+        private boolean tagged;
+
+        private SimPod(int index, long readyAt) {
+            this.index = index;
+            this.readyAt = readyAt;
+        }
+
+        private boolean isReady(long now) {
+            return readyAt <= now;
+        }
+    }
+
+    private class Run {
+
+        private final List<TraceEntry> trace;
+        private final Map<String, Object> requirements;
+        private final AutoScaler autoScaler;
+
+        private final Deque<Process> queue = new ArrayDeque<>();
+        private final List<Process> history = new ArrayList<>();
+        private final SortedMap<Integer, SimPod> pods = new TreeMap<>();
+
+        private long now;
+        private long lastUpdate;
+        private AgentPoolInstance pool;
+
+        private Run(List<TraceEntry> trace, Function<LongSupplier, ScalingPolicy> policyFactory) {
+            this.trace = trace;
+            this.requirements = spec.getQueueSelector();
+
+            String policyName = spec.getScalingPolicy() != null ? spec.getScalingPolicy() : IncrementalScalingPolicy.NAME;
+            ScalingPolicy policy = policyFactory.apply(() -> now);
+            this.autoScaler = new AutoScaler(n -> pods.size(),
+                    i -> now - lastUpdate > spec.getScalingDelayMs(),
+                    Collections.singletonMap(policyName, policy));
+
+            AgentPool resource = new AgentPool();
+            resource.setSpec(spec);
+            this.pool = new AgentPoolInstance("sim", resource, AgentPoolInstance.Status.ACTIVE, spec.getSize(), 0);
+        }
+
+        private Result run() {
+            for (int i = 0; i < spec.getSize(); i++) {
+                pods.put(i, new SimPod(i, podStartupMs));
+            }
+
+            long end = trace.isEmpty() ? 0 : trace.get(trace.size() - 1).offsetMs;
+            int next = 0;
+
+            long podMs = 0;
+            long waitTotal = 0;
+            long waitMax = 0;
+            int started = 0;
+
+            while (now < end + MAX_OVERTIME_MS) {
+                now += TICK_MS;
+
+                for (SimPod p : pods.values()) {
+                    p.processes.removeIf(pr -> pr.isFinished(now));
+                }
+
+                while (next < trace.size() && trace.get(next).offsetMs <= now) {
+                    TraceEntry e = trace.get(next++);
+                    Process pr = new Process(e.offsetMs, e.durationMs);
+                    queue.add(pr);
+                    history.add(pr);
+                }
+
+                pods.values().removeIf(p -> p.tagged && p.processes.isEmpty());
+
+                AgentPoolInstance updated = autoScaler.apply(pool, Collections.singletonList(queueEntry()));
+                if (updated.getTargetSize() != pool.getTargetSize()) {
+                    lastUpdate = now;
+                }
+                pool = updated;
+
+                plan();
+
+                // dispatch the queue to the available workers
+                for (SimPod p : pods.values()) {
+                    if (p.tagged || !p.isReady(now)) {
+                        continue;
+                    }
+
+                    while (!queue.isEmpty() && p.processes.size() < workersPerPod()) {
+                        Process pr = queue.poll();
+                        pr.startedAt = now;
+                        p.processes.add(pr);
+
+                        long wait = now - pr.arrivedAt;
+                        waitTotal += wait;
+                        waitMax = Math.max(waitMax, wait);
+                        started++;
+                    }
+                }
+
+                podMs += pods.size() * TICK_MS;
+
+                if (next >= trace.size() && queue.isEmpty() && pods.values().stream().allMatch(p -> p.processes.isEmpty())) {
+                    break;
+                }
+            }
+
+            return new Result(started > 0 ? waitTotal / started : 0, waitMax, podMs / 1000);
+        }
+
+        /**
+         * Same numbers as the server's "requirements" endpoint would return.
+         */
+        private ProcessQueueEntry queueEntry() {
+            int running = 0;
+            for (SimPod p : pods.values()) {
+                running += p.processes.size();
+            }
+
+            int arrived = 0;
+            int finished = 0;
+            long durationTotal = 0;
+            for (Process pr : history) {
+                if (pr.arrivedAt < now - statsPeriodMs) {
+                    continue;
+                }
+
+                arrived++;
+                if (pr.isFinished(now)) {
+                    finished++;
+                    durationTotal += pr.durationMs;
+                }
+            }
+
+            Long avgDuration = finished > 0 ? durationTotal / finished : null;
+            return new ProcessQueueEntry(requirements, queue.size(), running, arrived, finished, avgDuration);
+        }
+
+        private void plan() {
+            int targetSize = pool.getTargetSize();
+
+            List<SimPod> active = new ArrayList<>();
+            for (SimPod p : pods.values()) {
+                if (!p.tagged) {
+                    active.add(p);
+                }
+            }
+
+            if (active.size() < targetSize) {
+                int toCreate = Math.min(targetSize - active.size(), spec.getMaxSize() - pods.size());
+                for (int i = 0; toCreate > 0; i++) {
+                    if (pods.containsKey(i)) {
+                        continue;
+                    }
+
+                    pods.put(i, new SimPod(i, now + podStartupMs));
+                    toCreate--;
+                }
+            } else if (active.size() > targetSize) {
+                List<PodSelector.Candidate> candidates = new ArrayList<>();
+                for (SimPod p : active) {
+                    boolean ready = p.isReady(now);
+                    candidates.add(new PodSelector.Candidate(String.valueOf(p.index), p.index, ready, ready ? (long) p.processes.size() : null));
+                }
+
+                for (String n : PodSelector.selectForRemoval(candidates, active.size() - targetSize)) {
+                    pods.get(Integer.parseInt(n)).tagged = true;
+                }
+            }
+        }
+
+        private int workersPerPod() {
+            Integer v = spec.getWorkersPerPod();
+            return v != null ? v : 1;
+        }
+    }
+}
@@ -50,6 +50,13 @@ public class ConcordTask extends AbstractConcordTask {
 
     private static final long DEFAULT_KILL_TIMEOUT = 10000;
     private static final long DEFAULT_POLL_DELAY = 5000;
+    private static final long DEFAULT_WAIT_POLL_TIMEOUT = 30000;
+
+    /**
+     * Max number of processes in a single wait request. Must not exceed
+     * the server's {@code process.waitMaxIds}.
+     */
+    private static final int WAIT_BATCH_SIZE = 1000;
 
     /**
      * @deprecated use {@link #PAYLOAD_KEY}
@@ -76,6 +83,7 @@ public class ConcordTask extends AbstractConcordTask {
     private static final String INSTANCES_KEY = "instances";
     private static final String JOB_OUT_KEY = "jobOut";
     private static final String JOBS_KEY = "jobs";
+    private static final String JOBS_OUT_KEY = "jobsOut";
     private static final String ORG_KEY = "org";
     private static final String OUT_VARS_KEY = "outVars";
     private static final String PAYLOAD_KEY = "payload";
@@ -107,6 +115,8 @@ public class ConcordTask extends AbstractConcordTask {
     @InjectVariable("concord")
     Map<String, Object> defaults;
 
+    private volatile boolean bulkWaitSupported = true;
+
     @Override
     public void execute(Context ctx) throws Exception {
         Action action = getAction(ctx);
@@ -181,45 +191,95 @@ public class ConcordTask extends AbstractConcordTask {
     public <T> Map<String, T> waitForCompletion(@InjectVariable("context") Context ctx, List<String> ids, long timeout, Function<ProcessEntry, T> processor) {
         Map<String, T> result = new HashMap<>();
 
-        ids.parallelStream().map(UUID::fromString).forEach(id -> {
-            log.info("Waiting for {}...", id);
+        Set<UUID> pending = ids.stream()
+                .map(UUID::fromString)
+                .collect(Collectors.toCollection(LinkedHashSet::new));
 
-            long t1 = System.currentTimeMillis();
-            while (true) {
-                try {
-                    ProcessEntry e = ClientUtils.withRetry(3, 1000, () -> withClient(ctx, client -> {
-                        ProcessApi api = new ProcessApi(client);
-                        return api.get(id);
-                    }));
+        log.info("Waiting for {} process(es)...", pending.size());
 
-                    ProcessEntry.StatusEnum s = e.getStatus();
+        long t1 = System.currentTimeMillis();
+        while (!pending.isEmpty()) {
+            long pollTimeout = getWaitPollTimeout();
+            if (timeout > 0) {
+                long dt = System.currentTimeMillis() - t1;
+                if (dt >= timeout) {
+                    throw new RuntimeException(new TimeoutException("Timeout waiting for " + pending + ": " + dt));
+                }
+                pollTimeout = Math.min(pollTimeout, timeout - dt);
+            }
 
-                    if (isFinalStatus(s)) {
-                        T t = processor.apply(e);
-                        if (t != null) {
-                            result.put(id.toString(), t);
-                        }
-                        break;
-                    } else {
-                        long t2 = System.currentTimeMillis();
-                        if (timeout > 0) {
-                            long dt = t2 - t1;
-                            if (dt >= timeout) {
-                                throw new TimeoutException("Timeout waiting for " + id + ": " + dt);
-                            }
-                        }
+            List<UUID> batch = pending.stream()
+                    .limit(WAIT_BATCH_SIZE)
+                    .collect(Collectors.toList());
 
-                        Thread.sleep(DEFAULT_POLL_DELAY);
-                    }
-                } catch (Exception e) {
-                    throw new RuntimeException(e);
+            List<ProcessEntry> entries;
+            try {
+                entries = waitForStatus(ctx, batch, pollTimeout);
+            } catch (Exception e) {
+                throw new RuntimeException(e);
+            }
+
+            for (ProcessEntry e : entries) {
+                if (!isFinalStatus(e.getStatus()) || !pending.remove(e.getInstanceId())) {
+                    continue;
+                }
+
+                T t = processor.apply(e);
+                if (t != null) {
+                    result.put(e.getInstanceId().toString(), t);
                 }
             }
-        });
+        }
+
+        return result;
+    }
+
+    /**
+     * Waits (long-polls) until all processes in the batch are finished
+     * or until the timeout expires. Falls back to polling each process
+     * individually if the server doesn't support the bulk wait endpoint.
+     */
+    private List<ProcessEntry> waitForStatus(Context ctx, List<UUID> ids, long timeout) throws Exception {
+        if (bulkWaitSupported) {
+            try {
+                return ClientUtils.withRetry(3, 1000, () -> withClient(ctx, client -> {
+                    ProcessV2Api api = new ProcessV2Api(client);
+                    return api.waitForStatus(ids, "ALL", timeout);
+                }));
+            } catch (ApiException e) {
+                if (e.getCode() != 404 && e.getCode() != 405) {
+                    throw e;
+                }
+
+                log.warn("The server doesn't support bulk waiting (HTTP {}), polling each process...", e.getCode());
+                bulkWaitSupported = false;
+            }
+        }
+
+        List<ProcessEntry> result = new ArrayList<>(ids.size());
+        for (UUID id : ids) {
+            result.add(ClientUtils.withRetry(3, 1000, () -> withClient(ctx, client -> {
+                ProcessApi api = new ProcessApi(client);
+                return api.get(id);
+            })));
+        }
+
+        if (result.stream().noneMatch(e -> isFinalStatus(e.getStatus()))) {
+            Thread.sleep(DEFAULT_POLL_DELAY);
+        }
 
         return result;
     }
 
+    private long getWaitPollTimeout() {
+        // must be shorter than the client's read timeout
+        int readTimeout = apiCfg.readTimeout();
+        if (readTimeout <= 0) {
+            return DEFAULT_WAIT_POLL_TIMEOUT;
+        }
+        return Math.max(1000, Math.min(DEFAULT_WAIT_POLL_TIMEOUT, readTimeout / 2));
+    }
+
     public void kill(@InjectVariable("context") Context ctx, Map<String, Object> cfg) throws Exception {
         List<String> ids = new ArrayList<>();
 
@@ -320,28 +380,46 @@ public class ConcordTask extends AbstractConcordTask {
 
         addIfNotNull(input, "parentInstanceId", parentInstanceId);
 
+        // a list of per-instance arguments starts all instances with a single request
+        List<Map<String, Object>> instances = getBulkInstances(cfg);
+        if (instances != null) {
+            targetUri = "/api/v1/process/bulk";
+            input.put(INSTANCES_KEY, om.writeValueAsBytes(instances));
+        }
+
         boolean sync = getBoolean(cfg, SYNC_KEY, false);
         if (parentInstanceId != null) {
-            log.info("Starting a child process (project={}, repository={}, archive={}, sync={}, req={})",
-                    project, repo, archive, sync, req);
+            log.info("Starting {} child process(es) (project={}, repository={}, archive={}, sync={}, req={})",
+                    instances != null ? instances.size() : 1, project, repo, archive, sync, req);
         } else {
-            log.info("Starting a new process (project={}, repository={}, archive={}, sync={}, req={}), on {}",
-                    project, repo, archive, sync, req, ctx.getVariable(BASE_URL_KEY));
+            log.info("Starting {} new process(es) (project={}, repository={}, archive={}, sync={}, req={}), on {}",
+                    instances != null ? instances.size() : 1, project, repo, archive, sync, req, ctx.getVariable(BASE_URL_KEY));
         }
 
-        StartProcessResponse resp = request(ctx, targetUri, input, StartProcessResponse.class);
+        List<String> jobs;
+        if (instances != null) {
+            StartBulkProcessResponse resp = request(ctx, targetUri, input, StartBulkProcessResponse.class);
 
-        UUID processId = resp.getInstanceId();
+            jobs = new ArrayList<>();
+            for (UUID processId : resp.getInstanceIds()) {
+                log.info("Started a process: {}, URL: {}", processId, getProcessUrl(ctx, processId));
+                jobs.add(processId.toString());
+            }
+        } else {
+            StartProcessResponse resp = request(ctx, targetUri, input, StartProcessResponse.class);
 
-        log.info("Started a process: {}, URL: {}", processId, getProcessUrl(ctx, processId));
+            UUID processId = resp.getInstanceId();
+            log.info("Started a process: {}, URL: {}", processId, getProcessUrl(ctx, processId));
+
+            jobs = Collections.singletonList(processId.toString());
+        }
 
-        List<String> jobs = Collections.singletonList(processId.toString());
         ctx.setVariable(JOBS_KEY, jobs);
 
         if (sync) {
             boolean suspend = getBoolean(cfg, SUSPEND_KEY, false);
             if (suspend) {
-                log.info("Suspending the process until the child process ({}) is completed...", processId);
+                log.info("Suspending the process until the child process(es) ({}) are completed...", jobs);
                 suspend(ctx, jobs, true);
                 return;
             }
@@ -349,11 +427,26 @@ public class ConcordTask extends AbstractConcordTask {
             Map<String, ProcessEntry> result = waitForCompletion(ctx, jobs);
             handleResults(cfg, result);
 
+            // jobOut keeps the same shape for bulk starts: the variables of the started process
+            // (if there's only one), the variables of each process are saved into jobsOut
             Object out = null;
-            if (cfg.containsKey(OUT_VARS_KEY)) {
-                out = getOutVars(ctx, processId);
+            if (jobs.size() == 1 && cfg.containsKey(OUT_VARS_KEY)) {
+                out = getOutVars(ctx, UUID.fromString(jobs.get(0)));
             }
             ctx.setVariable(JOB_OUT_KEY, out != null ? out : Collections.emptyMap());
+
+            if (instances != null) {
+                Map<String, Map<String, Object>> vars = new HashMap<>();
+                if (cfg.containsKey(OUT_VARS_KEY)) {
+                    for (String id : jobs) {
+                        Map<String, Object> o = getOutVars(ctx, UUID.fromString(id));
+                        if (o != null) {
+                            vars.put(id, o);
+                        }
+                    }
+                }
+                ctx.setVariable(JOBS_OUT_KEY, vars);
+            }
         }
     }
 
@@ -623,6 +716,7 @@ public class ConcordTask extends AbstractConcordTask {
                 EXCLUSIVE_KEY,
                 IGNORE_FAILURES_KEY,
                 INSTANCE_ID_KEY,
+                INSTANCES_KEY,
                 ORG_KEY,
                 OUT_VARS_KEY,
                 PAYLOAD_KEY,
@@ -841,6 +935,49 @@ public class ConcordTask extends AbstractConcordTask {
         return i;
     }
 
+    /**
+     * Returns the list of per-instance arguments for bulk starts or {@code null}
+     * if the process should be started normally. {@code instances} can be a list
+     * of argument maps or a number of instances (with no instance-specific arguments).
+     */
+    @SuppressWarnings("unchecked")
+    private static List<Map<String, Object>> getBulkInstances(Map<String, Object> cfg) {
+        Object v = cfg.get(INSTANCES_KEY);
+        if (v == null) {
+            return null;
+        }
+
+        if (v instanceof Collection) {
+            List<Map<String, Object>> result = new ArrayList<>();
+            for (Object o : (Collection<Object>) v) {
+                if (o == null) {
+                    result.add(Collections.emptyMap());
+                } else if (o instanceof Map) {
+                    result.add((Map<String, Object>) o);
+                } else {
+                    throw new IllegalArgumentException("'" + INSTANCES_KEY + "' must be a number or a list of objects, got: " + o);
+                }
+            }
+
+            if (result.isEmpty()) {
+                throw new IllegalArgumentException("'" + INSTANCES_KEY + "' can't be an empty list");
+            }
+
+            return result;
+        }
+
+        int n = getInstances(cfg);
+        if (n == 1) {
+            return null;
+        }
+
+        List<Map<String, Object>> result = new ArrayList<>(n);
+        for (int i = 0; i < n; i++) {
+            result.add(Collections.emptyMap());
+        }
+        return result;
+    }
+
     private static String getStartAt(Map<String, Object> cfg) {
         Object v = cfg.get(START_AT_KEY);
         if (v == null) {
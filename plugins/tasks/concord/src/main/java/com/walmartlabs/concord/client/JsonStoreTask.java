@@ -29,6 +29,8 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import javax.inject.Named;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 
@@ -40,6 +42,12 @@ public class JsonStoreTask extends AbstractConcordTask {
     private static final int RETRY_COUNT = 3;
     private static final long RETRY_INTERVAL = 5000;
 
+    /**
+     * Max number of items sent in a single bulk request. Must not exceed
+     * the server's {@code jsonStore.maxBulkItems}.
+     */
+    private static final int BULK_BATCH_SIZE = 1000;
+
     public void put(@InjectVariable("context") Context ctx, String storeName, String itemPath, Object data) throws ApiException {
         put(ctx, assertOrg(ctx), storeName, itemPath, data);
     }
@@ -92,6 +100,91 @@ public class JsonStoreTask extends AbstractConcordTask {
         }));
     }
 
+    /**
+     * Creates or updates multiple items. The items are sent in batches of
+     * up to {@link #BULK_BATCH_SIZE} items.
+     *
+     * @param items item path -> item data
+     */
+    public void putAll(@InjectVariable("context") Context ctx, String storeName, Map<String, Object> items) throws ApiException {
+        putAll(ctx, assertOrg(ctx), storeName, items);
+    }
+
+    public void putAll(@InjectVariable("context") Context ctx, String orgName, String storeName, Map<String, Object> items) throws ApiException {
+        assertNotEmpty("Organization name", orgName);
+        assertNotEmpty("Store name", storeName);
+
+        log.info("Updating {} item(s) (org={}, store={})", items.size(), orgName, storeName);
+
+        List<JsonStoreDataEntry> entries = new ArrayList<>(items.size());
+        items.forEach((k, v) -> entries.add(new JsonStoreDataEntry().setPath(k).setData(v)));
+
+        for (List<JsonStoreDataEntry> batch : partition(entries)) {
+            ClientUtils.withRetry(RETRY_COUNT, RETRY_INTERVAL, () -> withClient(ctx, client -> {
+                JsonStoreDataApi api = new JsonStoreDataApi(client);
+                return api.bulkPut(orgName, storeName, batch);
+            }));
+        }
+    }
+
+    /**
+     * Returns multiple items. Missing items are skipped.
+     *
+     * @return item path -> item data
+     */
+    public Map<String, Object> getAll(@InjectVariable("context") Context ctx, String storeName, List<String> itemPaths) throws ApiException {
+        return getAll(ctx, assertOrg(ctx), storeName, itemPaths);
+    }
+
+    public Map<String, Object> getAll(@InjectVariable("context") Context ctx, String orgName, String storeName, List<String> itemPaths) throws ApiException {
+        assertNotEmpty("Organization name", orgName);
+        assertNotEmpty("Store name", storeName);
+
+        log.info("Getting {} item(s) (org='{}', store='{}')", itemPaths.size(), orgName, storeName);
+
+        Map<String, Object> result = new LinkedHashMap<>();
+        for (List<String> batch : partition(itemPaths)) {
+            List<JsonStoreDataEntry> entries = ClientUtils.withRetry(RETRY_COUNT, RETRY_INTERVAL, () -> withClient(ctx, client -> {
+                JsonStoreDataApi api = new JsonStoreDataApi(client);
+                return api.bulkGet(orgName, storeName, batch);
+            }));
+
+            for (JsonStoreDataEntry e : entries) {
+                result.put(e.getPath(), e.getData());
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Removes multiple items.
+     *
+     * @return the number of removed items
+     */
+    public int deleteAll(@InjectVariable("context") Context ctx, String storeName, List<String> itemPaths) throws ApiException {
+        return deleteAll(ctx, assertOrg(ctx), storeName, itemPaths);
+    }
+
+    public int deleteAll(@InjectVariable("context") Context ctx, String orgName, String storeName, List<String> itemPaths) throws ApiException {
+        assertNotEmpty("Organization name", orgName);
+        assertNotEmpty("Store name", storeName);
+
+        log.info("Removing {} item(s) (org='{}', store='{}')", itemPaths.size(), orgName, storeName);
+
+        int deleted = 0;
+        for (List<String> batch : partition(itemPaths)) {
+            JsonStoreBulkResult result = ClientUtils.withRetry(RETRY_COUNT, RETRY_INTERVAL, () -> withClient(ctx, client -> {
+                JsonStoreDataApi api = new JsonStoreDataApi(client);
+                return api.bulkDelete(orgName, storeName, batch);
+            }));
+
+            if (result != null && result.getDeleted() != null) {
+                deleted += result.getDeleted();
+            }
+        }
+        return deleted;
+    }
+
     public List<Object> executeQuery(@InjectVariable("context") Context ctx, String storeName, String queryName) throws ApiException {
         return executeQuery(ctx, storeName, queryName, (Map<String, Object>) null);
     }
@@ -128,6 +221,14 @@ public class JsonStoreTask extends AbstractConcordTask {
                 "Please specify it explicitly or run your process in a project.");
     }
 
+    private static <T> List<List<T>> partition(List<T> items) {
+        List<List<T>> result = new ArrayList<>();
+        for (int i = 0; i < items.size(); i += BULK_BATCH_SIZE) {
+            result.add(items.subList(i, Math.min(i + BULK_BATCH_SIZE, items.size())));
+        }
+        return result;
+    }
+
     private static void assertNotEmpty(String what, String s) {
         if (s == null || s.isEmpty()) {
             throw new IllegalArgumentException(what + " cannot be empty or null");
@@ -24,18 +24,42 @@ import com.walmartlabs.concord.dependencymanager.DependencyEntity;
 import org.apache.maven.artifact.versioning.ComparableVersion;
 
 import java.net.URI;
-import java.util.ArrayList;
-import java.util.Collection;
-import java.util.List;
-
-import static com.walmartlabs.concord.policyengine.Utils.matches;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Predicate;
 
 public class DependencyPolicy {
 
+    private static final int MAX_CACHED_KEYS = 10000;
+
     private final PolicyRules<DependencyRule> rules;
 
+    private final List<CompiledRule> allow;
+    private final List<CompiledRule> deny;
+    private final List<CompiledRule> warn;
+
+    /**
+     * Rules applicable to a specific "groupId:artifactId", ignoring the version ranges.
+     */
+    private final Map<String, Candidates> byArtifact = new ConcurrentHashMap<>();
+
+    /**
+     * Rules applicable to a specific URI scheme.
+     */
+    private final Map<String, Candidates> byScheme = new ConcurrentHashMap<>();
+
     public DependencyPolicy(PolicyRules<DependencyRule> rules) {
         this.rules = rules;
+
+        if (rules != null) {
+            this.allow = compile(rules.getAllow());
+            this.deny = compile(rules.getDeny());
+            this.warn = compile(rules.getWarn());
+        } else {
+            this.allow = Collections.emptyList();
+            this.deny = Collections.emptyList();
+            this.warn = Collections.emptyList();
+        }
     }
 
     public CheckResult<DependencyRule, DependencyEntity> check(Collection<DependencyEntity> dependencies) {
@@ -57,71 +81,150 @@ public class DependencyPolicy {
                        List<CheckResult.Item<DependencyRule, DependencyEntity>> warn,
                        List<CheckResult.Item<DependencyRule, DependencyEntity>> deny) {
 
-        for (DependencyRule r : rules.getAllow()) {
-            if (matchRule(r, d)) {
+        Candidates c;
+        Predicate<CompiledRule> matcher;
+
+        DependencyEntity.Artifact a = d.getArtifact();
+        if (a != null) {
+            c = candidates(byArtifact, a.getGroupId() + ":" + a.getArtifactId(), r -> r.matchesArtifact(a));
+            matcher = new VersionMatcher(a.getVersion());
+        } else {
+            URI link = d.getDirectLink();
+            String scheme = link.getScheme();
+            if (scheme == null) {
                 return;
             }
+            c = candidates(byScheme, scheme, r -> r.matchesScheme(scheme));
+            matcher = r -> true;
         }
 
-        for (DependencyRule r : rules.getDeny()) {
-            if (matchRule(r, d)) {
-                deny.add(new CheckResult.Item<>(r, d));
+        for (CompiledRule r : c.allow) {
+            if (matcher.test(r)) {
                 return;
             }
         }
 
-        for (DependencyRule r : rules.getWarn()) {
-            if (matchRule(r, d)) {
-                warn.add(new CheckResult.Item<>(r, d));
+        for (CompiledRule r : c.deny) {
+            if (matcher.test(r)) {
+                deny.add(new CheckResult.Item<>(r.rule, d));
+                return;
+            }
+        }
+
+        for (CompiledRule r : c.warn) {
+            if (matcher.test(r)) {
+                warn.add(new CheckResult.Item<>(r.rule, d));
                 return;
             }
         }
     }
 
-    private static boolean matchRule(DependencyRule r, DependencyEntity d) {
-        if (d.getArtifact() != null) {
-            return matchRule(r, d.getArtifact());
-        } else {
-            return matchRule(r, d.getDirectLink());
+    private Candidates candidates(Map<String, Candidates> cache, String key, Predicate<CompiledRule> filter) {
+        Candidates c = cache.get(key);
+        if (c != null) {
+            return c;
         }
+
+        c = new Candidates(filter(allow, filter), filter(deny, filter), filter(warn, filter));
+        if (cache.size() < MAX_CACHED_KEYS) {
+            cache.put(key, c);
+        }
+        return c;
     }
 
-    private static boolean matchRule(DependencyRule r, DependencyEntity.Artifact a) {
-        if (r.getScheme() != null && !matches(r.getScheme(), "mvn")) {
-            return false;
+    private static List<CompiledRule> filter(List<CompiledRule> rules, Predicate<CompiledRule> filter) {
+        List<CompiledRule> result = new ArrayList<>();
+        for (CompiledRule r : rules) {
+            if (filter.test(r)) {
+                result.add(r);
+            }
         }
+        return result.isEmpty() ? Collections.emptyList() : result;
+    }
 
-        if (r.getGroupId() != null && !matches(r.getGroupId(), a.getGroupId())) {
-            return false;
+    private static List<CompiledRule> compile(List<DependencyRule> rules) {
+        List<CompiledRule> result = new ArrayList<>(rules.size());
+        for (DependencyRule r : rules) {
+            result.add(new CompiledRule(r));
         }
+        return result;
+    }
+
+    private static final class Candidates {
+
+        private final List<CompiledRule> allow;
+        private final List<CompiledRule> deny;
+        private final List<CompiledRule> warn;
 
-        if (r.getArtifactId() != null && !matches(r.getArtifactId(), a.getArtifactId())) {
-            return false;
+        private Candidates(List<CompiledRule> allow, List<CompiledRule> deny, List<CompiledRule> warn) {
+            this.allow = allow;
+            this.deny = deny;
+            this.warn = warn;
         }
+    }
 
-        if (r.getFromVersion() != null && compareVersions(r.getFromVersion(), a.getVersion()) > 0) {
-            return false;
+    private static final class CompiledRule {
+
+        private final DependencyRule rule;
+        private final RulePattern scheme;
+        private final RulePattern groupId;
+        private final RulePattern artifactId;
+        private final ComparableVersion fromVersion;
+        private final ComparableVersion toVersion;
+
+        private CompiledRule(DependencyRule rule) {
+            this.rule = rule;
+            this.scheme = RulePattern.of(rule.getScheme());
+            this.groupId = RulePattern.of(rule.getGroupId());
+            this.artifactId = RulePattern.of(rule.getArtifactId());
+            this.fromVersion = rule.getFromVersion() != null ? new ComparableVersion(rule.getFromVersion()) : null;
+            this.toVersion = rule.getToVersion() != null ? new ComparableVersion(rule.getToVersion()) : null;
         }
 
-        if (r.getToVersion() != null && compareVersions(r.getToVersion(), a.getVersion()) < 0) {
-            return false;
+        private boolean matchesArtifact(DependencyEntity.Artifact a) {
+            if (scheme != null && !scheme.matches("mvn")) {
+                return false;
+            }
+
+            if (groupId != null && !groupId.matches(a.getGroupId())) {
+                return false;
+            }
+
+            return artifactId == null || artifactId.matches(a.getArtifactId());
         }
 
-        return true;
+        private boolean matchesScheme(String s) {
+            return scheme != null && scheme.matches(s);
+        }
     }
 
-    private static boolean matchRule(DependencyRule r, URI directLink) {
-        if (r.getScheme() != null && matches(r.getScheme(), directLink.getScheme())) {
-            return true;
+    /**
+     * Checks the version ranges of the candidate rules. The artifact's
+     * version is parsed only once and only if required.
+     */
+    private static final class VersionMatcher implements Predicate<CompiledRule> {
+
+        private final String version;
+        private ComparableVersion parsed;
+
+        private VersionMatcher(String version) {
+            this.version = version;
         }
 
-        return false;
-    }
+        @Override
+        public boolean test(CompiledRule r) {
+            if (r.fromVersion != null && r.fromVersion.compareTo(parsed()) > 0) {
+                return false;
+            }
 
-    private static int compareVersions(String a, String b) {
-        ComparableVersion v1 = new ComparableVersion(a);
-        ComparableVersion v2 = new ComparableVersion(b);
-        return v1.compareTo(v2);
-    }
+            return r.toVersion == null || r.toVersion.compareTo(parsed()) >= 0;
+        }
 
+        private ComparableVersion parsed() {
+            if (parsed == null) {
+                parsed = new ComparableVersion(version);
+            }
+            return parsed;
+        }
+    }
 }
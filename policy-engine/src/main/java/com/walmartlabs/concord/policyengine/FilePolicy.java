@@ -27,16 +27,32 @@ import java.nio.file.Path;
 import java.nio.file.SimpleFileVisitor;
 import java.nio.file.attribute.BasicFileAttributes;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
 
-import static com.walmartlabs.concord.policyengine.Utils.matchAny;
-
 public class FilePolicy {
 
     private final PolicyRules<FileRule> rules;
 
+    private final List<CompiledRule> allowDirs;
+    private final List<CompiledRule> allowFiles;
+    private final List<CompiledRule> denyFiles;
+    private final List<CompiledRule> warnFiles;
+
     public FilePolicy(PolicyRules<FileRule> rules) {
         this.rules = rules;
+
+        if (rules != null) {
+            this.allowDirs = compile(rules.getAllow(), FileRule.Type.DIR);
+            this.allowFiles = compile(rules.getAllow(), FileRule.Type.FILE);
+            this.denyFiles = compile(rules.getDeny(), FileRule.Type.FILE);
+            this.warnFiles = compile(rules.getWarn(), FileRule.Type.FILE);
+        } else {
+            this.allowDirs = Collections.emptyList();
+            this.allowFiles = Collections.emptyList();
+            this.denyFiles = Collections.emptyList();
+            this.warnFiles = Collections.emptyList();
+        }
     }
 
     public CheckResult<FileRule, Path> check(Path p) throws IOException {
@@ -51,8 +67,13 @@ public class FilePolicy {
 
             @Override
             public FileVisitResult preVisitDirectory(Path dir, BasicFileAttributes attrs) throws IOException {
-                for(FileRule r : rules.getAllow()) {
-                    if (matchRule(dir, r, FileRule.Type.DIR)) {
+                if (allowDirs.isEmpty()) {
+                    return FileVisitResult.CONTINUE;
+                }
+
+                FileInfo info = new FileInfo(dir, attrs);
+                for (CompiledRule r : allowDirs) {
+                    if (r.matches(info)) {
                         return FileVisitResult.SKIP_SUBTREE;
                     }
                 }
@@ -62,22 +83,24 @@ public class FilePolicy {
 
             @Override
             public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) throws IOException {
-                for(FileRule r : rules.getAllow()) {
-                    if (matchRule(file, r, FileRule.Type.FILE)) {
+                FileInfo info = new FileInfo(file, attrs);
+
+                for (CompiledRule r : allowFiles) {
+                    if (r.matches(info)) {
                         return FileVisitResult.CONTINUE;
                     }
                 }
 
-                for(FileRule r : rules.getDeny()) {
-                    if (matchRule(file, r, FileRule.Type.FILE)) {
-                        deny.add(new CheckResult.Item<>(r, file));
+                for (CompiledRule r : denyFiles) {
+                    if (r.matches(info)) {
+                        deny.add(new CheckResult.Item<>(r.rule, file));
                         return FileVisitResult.CONTINUE;
                     }
                 }
 
-                for(FileRule r : rules.getWarn()) {
-                    if (matchRule(file, r, FileRule.Type.FILE)) {
-                        warn.add(new CheckResult.Item<>(r, file));
+                for (CompiledRule r : warnFiles) {
+                    if (r.matches(info)) {
+                        warn.add(new CheckResult.Item<>(r.rule, file));
                         return FileVisitResult.CONTINUE;
                     }
                 }
@@ -89,19 +112,79 @@ public class FilePolicy {
         return new CheckResult<>(warn, deny);
     }
 
-    private boolean matchRule(Path file, FileRule ri, FileRule.Type type) throws IOException {
-        if (ri.getType() != type) {
-            return false;
+    private static List<CompiledRule> compile(List<FileRule> rules, FileRule.Type type) {
+        List<CompiledRule> result = new ArrayList<>();
+        for (FileRule r : rules) {
+            if (r.getType() == type) {
+                result.add(new CompiledRule(r));
+            }
         }
+        return result.isEmpty() ? Collections.emptyList() : result;
+    }
 
-        if (!ri.getNames().isEmpty() && !matchAny(ri.getNames(), file.getFileName().toString())) {
-            return false;
+    private static final class CompiledRule {
+
+        private final FileRule rule;
+        private final List<RulePattern> names;
+        private final long maxSizeInBytes;
+
+        private CompiledRule(FileRule rule) {
+            this.rule = rule;
+
+            List<RulePattern> names = new ArrayList<>(rule.getNames().size());
+            for (String n : rule.getNames()) {
+                names.add(RulePattern.of(n));
+            }
+            this.names = names;
+
+            this.maxSizeInBytes = rule.getMaxSizeInBytes() != null ? rule.getMaxSizeInBytes() : -1;
         }
 
-        if (ri.getMaxSizeInBytes() != null && Files.size(file) < ri.getMaxSizeInBytes()) {
+        private boolean matches(FileInfo f) throws IOException {
+            if (!names.isEmpty() && !matchesAnyName(f.fileName())) {
+                return false;
+            }
+
+            return maxSizeInBytes < 0 || f.size() >= maxSizeInBytes;
+        }
+
+        private boolean matchesAnyName(String fileName) {
+            for (RulePattern p : names) {
+                if (p.matches(fileName)) {
+                    return true;
+                }
+            }
             return false;
         }
+    }
+
+    /**
+     * Lazily computes the file's name and size. The size is taken from the file's
+     * attributes, symlinks are resolved the same way {@link Files#size(Path)} does.
+     */
+    private static final class FileInfo {
+
+        private final Path path;
+        private final BasicFileAttributes attrs;
+        private String fileName;
+
+        private FileInfo(Path path, BasicFileAttributes attrs) {
+            this.path = path;
+            this.attrs = attrs;
+        }
+
+        private String fileName() {
+            if (fileName == null) {
+                fileName = path.getFileName().toString();
+            }
+            return fileName;
+        }
 
-        return true;
+        private long size() throws IOException {
+            if (attrs.isSymbolicLink()) {
+                return Files.size(path);
+            }
+            return attrs.size();
+        }
     }
 }
@@ -38,6 +38,15 @@ public class QueueProcessPolicy {
     }
 
     public CheckResult<ProcessRule, Integer> check(Function<Set<String>, QueueMetrics> c) {
+        return check(c, 1);
+    }
+
+    /**
+     * Checks whether {@code newProcesses} processes can be added at once.
+     * Same as calling {@link #check(Function)} for each of the new processes
+     * while counting the previous ones.
+     */
+    public CheckResult<ProcessRule, Integer> check(Function<Set<String>, QueueMetrics> c, int newProcesses) {
         Set<String> statuses = collectStatuses();
         if (statuses.isEmpty()) {
             return CheckResult.success();
@@ -47,14 +56,14 @@ public class QueueProcessPolicy {
 
         List<Item<ProcessRule, Integer>> errors = new ArrayList<>();
 
-        check(process, m.getProcess(), errors);
-        check(processPerOrg, m.getPerOrg(), errors);
-        check(processPerProject, m.getPerProject(), errors);
+        check(process, m.getProcess(), newProcesses, errors);
+        check(processPerOrg, m.getPerOrg(), newProcesses, errors);
+        check(processPerProject, m.getPerProject(), newProcesses, errors);
 
         return new CheckResult<>(Collections.emptyList(), errors);
     }
 
-    private static void check(QueueProcessRule rule, Map<String, Integer> actual,
+    private static void check(QueueProcessRule rule, Map<String, Integer> actual, int newProcesses,
                               List<Item<ProcessRule, Integer>> errors) {
 
         if (rule == null || rule.getMax() == null) {
@@ -66,7 +75,8 @@ public class QueueProcessPolicy {
             int count = e.getValue();
 
             Integer limit = rule.getMax().get(status);
-            if (limit != null && limit <= count) {
+            // the last of the new processes is checked against the existing ones plus the rest of the new ones
+            if (limit != null && limit <= count + newProcesses - 1) {
                 errors.add(new Item<>(new ProcessRule(rule.getMsg(), status, limit), count));
             }
         }
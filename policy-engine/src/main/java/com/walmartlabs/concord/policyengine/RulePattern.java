@@ -0,0 +1,62 @@
+package com.walmartlabs.concord.policyengine;
+
+/*-
+ * *****
+ * Concord
+ * -----
+ * Copyright (C) 2017 - 2020 Walmart Inc.
+ * -----
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * =====
+ */
+
+import java.util.regex.Pattern;
+
+/**
+ * A precompiled, case-insensitive rule pattern. Invalid patterns are
+ * reported when the pattern is used, the same way as
+ * {@link Utils#matches(String, String)} does.
+ */
+final class RulePattern {
+
+    /**
+     * @return a compiled pattern or {@code null} if {@code pattern} is {@code null}
+     */
+    static RulePattern of(String pattern) {
+        if (pattern == null) {
+            return null;
+        }
+
+        try {
+            return new RulePattern(Utils.compile(pattern), null);
+        } catch (RuntimeException e) {
+            return new RulePattern(null, e);
+        }
+    }
+
+    private final Pattern pattern;
+    private final RuntimeException error;
+
+    private RulePattern(Pattern pattern, RuntimeException error) {
+        this.pattern = pattern;
+        this.error = error;
+    }
+
+    boolean matches(String value) {
+        if (error != null) {
+            throw error;
+        }
+
+        return pattern.matcher(value).matches();
+    }
+}
@@ -22,20 +22,36 @@ package com.walmartlabs.concord.policyengine;
 
 import com.walmartlabs.concord.sdk.Context;
 
-import java.util.Collections;
-import java.util.List;
-import java.util.Map;
-import java.util.Optional;
-import java.util.stream.Collectors;
-
-import static com.walmartlabs.concord.policyengine.Utils.matches;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
 
 public class TaskPolicy {
 
+    private static final int MAX_CACHED_KEYS = 10000;
+
     private final PolicyRules<TaskRule> rules;
 
+    private final List<CompiledRule> allow;
+    private final List<CompiledRule> deny;
+    private final List<CompiledRule> warn;
+
+    /**
+     * Rules applicable to a specific task name.
+     */
+    private final Map<String, Candidates> byTaskName = new ConcurrentHashMap<>();
+
     public TaskPolicy(PolicyRules<TaskRule> rules) {
         this.rules = rules;
+
+        if (rules != null) {
+            this.allow = compile(rules.getAllow());
+            this.deny = compile(rules.getDeny());
+            this.warn = compile(rules.getWarn());
+        } else {
+            this.allow = Collections.emptyList();
+            this.deny = Collections.emptyList();
+            this.warn = Collections.emptyList();
+        }
     }
 
     public CheckResult<TaskRule, String> check(String taskName, String methodName, Object[] params) {
@@ -43,92 +59,167 @@ public class TaskPolicy {
             return CheckResult.success();
         }
 
-        for(TaskRule r : rules.getAllow()) {
-            if (matchRule(taskName, methodName, params, r)) {
+        Candidates c = candidates(taskName);
+
+        for (CompiledRule r : c.allow) {
+            if (r.matches(methodName, params)) {
                 return CheckResult.success();
             }
         }
 
-        for(TaskRule r : rules.getDeny()) {
-            if (matchRule(taskName, methodName, params, r)) {
-                return CheckResult.error(new CheckResult.Item<>(r, methodName));
+        for (CompiledRule r : c.deny) {
+            if (r.matches(methodName, params)) {
+                return CheckResult.error(new CheckResult.Item<>(r.rule, methodName));
             }
         }
 
-        for(TaskRule r : rules.getWarn()) {
-            if (matchRule(taskName, methodName, params, r)) {
-                return CheckResult.warn(new CheckResult.Item<>(r, methodName));
+        for (CompiledRule r : c.warn) {
+            if (r.matches(methodName, params)) {
+                return CheckResult.warn(new CheckResult.Item<>(r.rule, methodName));
             }
         }
 
         return CheckResult.success();
     }
 
-    private boolean matchRule(String taskName, String methodName, Object[] params, TaskRule r) {
-        if (!matches(r.getTaskName(), taskName)) {
-            return false;
+    private Candidates candidates(String taskName) {
+        Candidates c = byTaskName.get(taskName);
+        if (c != null) {
+            return c;
         }
 
-        if (r.getMethod() != null && !matches(r.getMethod(), methodName)) {
-            return false;
+        c = new Candidates(filter(allow, taskName), filter(deny, taskName), filter(warn, taskName));
+        if (byTaskName.size() < MAX_CACHED_KEYS) {
+            byTaskName.put(taskName, c);
         }
+        return c;
+    }
 
-        if (!paramsMatches(r.getParams(), params)) {
-            return false;
+    private static List<CompiledRule> filter(List<CompiledRule> rules, String taskName) {
+        List<CompiledRule> result = new ArrayList<>();
+        for (CompiledRule r : rules) {
+            if (r.taskName != null && r.taskName.matches(taskName)) {
+                result.add(r);
+            }
         }
+        return result.isEmpty() ? Collections.emptyList() : result;
+    }
 
-        return true;
+    private static List<CompiledRule> compile(List<TaskRule> rules) {
+        List<CompiledRule> result = new ArrayList<>(rules.size());
+        for (TaskRule r : rules) {
+            result.add(new CompiledRule(r));
+        }
+        return result;
     }
 
-    private boolean paramsMatches(List<TaskRule.Param> r, Object[] params) {
-        if (params == null) {
-            return false;
+    private static final class Candidates {
+
+        private final List<CompiledRule> allow;
+        private final List<CompiledRule> deny;
+        private final List<CompiledRule> warn;
+
+        private Candidates(List<CompiledRule> allow, List<CompiledRule> deny, List<CompiledRule> warn) {
+            this.allow = allow;
+            this.deny = deny;
+            this.warn = warn;
         }
+    }
+
+    private static final class CompiledRule {
+
+        private final TaskRule rule;
+        private final RulePattern taskName;
+        private final RulePattern method;
+        private final List<CompiledParam> params;
 
-        for (TaskRule.Param p : r) {
-            if (p.getIndex() >= params.length) {
+        private CompiledRule(TaskRule rule) {
+            this.rule = rule;
+            this.taskName = RulePattern.of(rule.getTaskName());
+            this.method = RulePattern.of(rule.getMethod());
+
+            List<CompiledParam> params = new ArrayList<>(rule.getParams().size());
+            for (TaskRule.Param p : rule.getParams()) {
+                params.add(new CompiledParam(p));
+            }
+            this.params = params;
+        }
+
+        private boolean matches(String methodName, Object[] params) {
+            if (method != null && !method.matches(methodName)) {
                 return false;
             }
 
-            if (!paramMatches(
-                    Optional.ofNullable(p.getName()).map(n -> n.split("\\.")).orElse(null),
-                    0,
-                    p.getValues(), params[p.getIndex()],
-                    p.isProtected())) {
+            if (params == null) {
                 return false;
             }
-        }
 
-        return true;
-    }
+            for (CompiledParam p : this.params) {
+                if (p.index >= params.length) {
+                    return false;
+                }
 
-    @SuppressWarnings("unchecked")
-    private static boolean paramMatches(String[] names, int nameIndex, List<Object> values, Object param, boolean isProtected) {
-        if (param == null) {
-            return values.contains(null);
+                if (!p.matches(0, params[p.index])) {
+                    return false;
+                }
+            }
+
+            return true;
         }
+    }
 
-        if (param instanceof Map) {
-            Map<String, Object> m = (Map<String, Object>) param;
-            String name = names[nameIndex];
-            nameIndex += 1;
-            return paramMatches(names, nameIndex, values, m.get(name), isProtected);
-        } else if (param instanceof Context) {
-            Context ctx = (Context) param;
-            String name = names[nameIndex];
-            nameIndex += 1;
-            Object v = isProtected ? ctx.getProtectedVariable(name) : ctx.getVariable(name);
-            return paramMatches(names, nameIndex, values, v, isProtected);
-        } else if (param instanceof String) {
-            return Utils.matchAny(values.stream().map(Object::toString).collect(Collectors.toList()), param.toString());
-        } else {
+    private static final class CompiledParam {
+
+        private final int index;
+        private final String[] names;
+        private final boolean isProtected;
+        private final List<Object> values;
+        private final List<RulePattern> patterns;
+
+        private CompiledParam(TaskRule.Param p) {
+            this.index = p.getIndex();
+            this.names = p.getName() != null ? p.getName().split("\\.") : null;
+            this.isProtected = p.isProtected();
+            this.values = p.getValues();
+
+            List<RulePattern> patterns = new ArrayList<>(values.size());
             for (Object v : values) {
-                if (v != null && v.equals(param)) {
-                    return true;
-                }
+                patterns.add(RulePattern.of(v != null ? v.toString() : null));
             }
+            this.patterns = patterns;
         }
 
-        return false;
+        @SuppressWarnings("unchecked")
+        private boolean matches(int nameIndex, Object param) {
+            if (param == null) {
+                return values.contains(null);
+            }
+
+            if (param instanceof Map) {
+                Map<String, Object> m = (Map<String, Object>) param;
+                String name = names[nameIndex];
+                return matches(nameIndex + 1, m.get(name));
+            } else if (param instanceof Context) {
+                Context ctx = (Context) param;
+                String name = names[nameIndex];
+                Object v = isProtected ? ctx.getProtectedVariable(name) : ctx.getVariable(name);
+                return matches(nameIndex + 1, v);
+            } else if (param instanceof String) {
+                String s = (String) param;
+                for (RulePattern p : patterns) {
+                    if (p != null && p.matches(s)) {
+                        return true;
+                    }
+                }
+            } else {
+                for (Object v : values) {
+                    if (v != null && v.equals(param)) {
+                        return true;
+                    }
+                }
+            }
+
+            return false;
+        }
     }
 }
@@ -27,6 +27,7 @@ import java.util.Collection;
 import java.util.List;
 import java.util.Map;
 import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
@@ -36,6 +37,9 @@ public final class Utils {
 
     private static final Pattern FILE_SIZE_PATTERN = Pattern.compile("([\\d.]+)(.*)");
 
+    private static final int MAX_CACHED_PATTERNS = 10000;
+    private static final Map<String, Pattern> PATTERNS = new ConcurrentHashMap<>();
+
     public static boolean matchAny(List<String> patterns, String value) {
         for (String p : patterns) {
             if (matches(p, value)) {
@@ -47,7 +51,24 @@ public final class Utils {
     }
 
     public static boolean matches(String pattern, String value) {
-        return Pattern.compile(pattern, Pattern.CASE_INSENSITIVE).matcher(value).matches();
+        return compile(pattern).matcher(value).matches();
+    }
+
+    /**
+     * Returns a compiled case-insensitive pattern. Compiled patterns are
+     * cached, up to {@link #MAX_CACHED_PATTERNS} entries.
+     */
+    public static Pattern compile(String pattern) {
+        Pattern p = PATTERNS.get(pattern);
+        if (p != null) {
+            return p;
+        }
+
+        p = Pattern.compile(pattern, Pattern.CASE_INSENSITIVE);
+        if (PATTERNS.size() < MAX_CACHED_PATTERNS) {
+            PATTERNS.put(pattern, p);
+        }
+        return p;
     }
 
     public static boolean matches(Map<String, Object> conditions, Map<String, Object> data) {
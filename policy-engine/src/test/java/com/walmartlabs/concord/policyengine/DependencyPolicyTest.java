@@ -23,9 +23,12 @@ package com.walmartlabs.concord.policyengine;
 import com.walmartlabs.concord.dependencymanager.DependencyEntity;
 import org.junit.Test;
 
+import java.net.URI;
 import java.nio.file.Paths;
+import java.util.Arrays;
 import java.util.Collections;
 
+import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertTrue;
 
@@ -102,6 +105,45 @@ public class DependencyPolicyTest {
         assertDeny(policy, dep4);
     }
 
+    @Test
+    public void testFirstMatchingRuleWins() throws Exception {
+        DependencyRule specific = new DependencyRule("specific", null, "com.walmartlabs.concord.plugins.basic", "ansible-tasks", null, "1.0.0");
+        DependencyRule wildcard = new DependencyRule("wildcard", null, "com\\.walmartlabs\\..*", null, null, null);
+        DependencyRule other = new DependencyRule("other", null, "org.example", null, null, null);
+
+        PolicyRules<DependencyRule> rules = new PolicyRules<>(null, null, Arrays.asList(other, specific, wildcard));
+
+        DependencyPolicy policy = new DependencyPolicy(rules);
+
+        // --- repeat to use the cached candidates
+
+        for (int i = 0; i < 2; i++) {
+            CheckResult<DependencyRule, DependencyEntity> result = policy.check(Arrays.asList(
+                    buildDependency("com.walmartlabs.concord.plugins.basic", "ansible-tasks", "0.9.0"),
+                    buildDependency("com.walmartlabs.concord.plugins.basic", "ansible-tasks", "1.2.0"),
+                    buildDependency("org.example", "foo", "1.0.0"),
+                    buildDependency("net.example", "bar", "1.0.0")));
+
+            assertEquals(3, result.getDeny().size());
+            assertEquals("specific", result.getDeny().get(0).getRule().getMsg());
+            assertEquals("wildcard", result.getDeny().get(1).getRule().getMsg());
+            assertEquals("other", result.getDeny().get(2).getRule().getMsg());
+        }
+    }
+
+    @Test
+    public void testDirectLink() throws Exception {
+        DependencyRule di = new DependencyRule(null, "http", null, null, null, null);
+
+        PolicyRules<DependencyRule> rules = new PolicyRules<>(null, null, Collections.singletonList(di));
+
+        DependencyPolicy policy = new DependencyPolicy(rules);
+
+        // ---
+        assertDeny(policy, new DependencyEntity(Paths.get("/whatever"), new URI("http://example.com/foo.jar")));
+        assertAllow(policy, new DependencyEntity(Paths.get("/whatever"), new URI("https://example.com/foo.jar")));
+    }
+
     private static void assertDeny(DependencyPolicy policy, DependencyEntity entity) {
         CheckResult<DependencyRule, DependencyEntity> result = policy.check(Collections.singletonList(entity));
         assertFalse(result.getDeny().isEmpty());
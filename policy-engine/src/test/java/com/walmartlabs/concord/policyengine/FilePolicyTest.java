@@ -0,0 +1,74 @@
+package com.walmartlabs.concord.policyengine;
+
+/*-
+ * *****
+ * Concord
+ * -----
+ * Copyright (C) 2017 - 2020 Walmart Inc.
+ * -----
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * =====
+ */
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Collections;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class FilePolicyTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void testMaxSize() throws Exception {
+        Path root = folder.getRoot().toPath();
+        Files.write(root.resolve("small.bin"), new byte[10]);
+        Files.write(root.resolve("large.bin"), new byte[2048]);
+
+        FileRule r = new FileRule("too big", "1K", null, Collections.singletonList(".*\\.bin"));
+
+        FilePolicy policy = new FilePolicy(new PolicyRules<>(null, null, Collections.singletonList(r)));
+
+        // ---
+        CheckResult<FileRule, Path> result = policy.check(root);
+        assertEquals(1, result.getDeny().size());
+        assertEquals(root.resolve("large.bin"), result.getDeny().get(0).getEntity());
+    }
+
+    @Test
+    public void testAllowDir() throws Exception {
+        Path root = folder.getRoot().toPath();
+        Path lib = Files.createDirectories(root.resolve("lib"));
+        Files.write(lib.resolve("a.jar"), new byte[10]);
+        Files.write(root.resolve("b.jar"), new byte[10]);
+
+        FileRule allow = new FileRule(null, null, "dir", Collections.singletonList("lib"));
+        FileRule warn = new FileRule("jar", null, null, Arrays.asList(".*\\.zip", ".*\\.JAR"));
+
+        FilePolicy policy = new FilePolicy(new PolicyRules<>(Collections.singletonList(allow), Collections.singletonList(warn), null));
+
+        // ---
+        CheckResult<FileRule, Path> result = policy.check(root);
+        assertTrue(result.getDeny().isEmpty());
+        assertEquals(1, result.getWarn().size());
+        assertEquals(root.resolve("b.jar"), result.getWarn().get(0).getEntity());
+    }
+}
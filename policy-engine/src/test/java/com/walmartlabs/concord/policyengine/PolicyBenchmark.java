@@ -0,0 +1,234 @@
+package com.walmartlabs.concord.policyengine;
+
+/*-
+ * *****
+ * Concord
+ * -----
+ * Copyright (C) 2017 - 2020 Walmart Inc.
+ * -----
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * =====
+ */
+
+import com.walmartlabs.concord.dependencymanager.DependencyEntity;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.io.IOException;
+import java.nio.file.*;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.*;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures {@link DependencyPolicy#check(Collection)}, {@link TaskPolicy#check(String, String, Object[])}
+ * and {@link FilePolicy#check(Path)} using large rule sets. The "new*"
+ * benchmarks create a new policy instance for each check, i.e. include
+ * the cost of compiling the rules.
+ * <p>
+ * Run with {@link #main(String[])}.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(1)
+public class PolicyBenchmark {
+
+    @State(Scope.Benchmark)
+    public static class DependencyState {
+
+        @Param({"100", "1000"})
+        public int ruleCount;
+
+        private PolicyRules<DependencyRule> rules;
+        private DependencyPolicy policy;
+        private List<DependencyEntity> dependencies;
+
+        @Setup
+        public void setUp() {
+            List<DependencyRule> allow = new ArrayList<>();
+            List<DependencyRule> warn = new ArrayList<>();
+            List<DependencyRule> deny = new ArrayList<>();
+            for (int i = 0; i < ruleCount; i++) {
+                String groupId = "com.example.team" + i;
+                switch (i % 4) {
+                    case 0:
+                        allow.add(new DependencyRule(null, null, groupId, "lib-.*", "1.0.0", "2.0.0"));
+                        break;
+                    case 1:
+                        warn.add(new DependencyRule("old version", null, groupId, null, null, "0.9.9"));
+                        break;
+                    case 2:
+                        deny.add(new DependencyRule("banned", null, groupId, "banned-lib", null, null));
+                        break;
+                    default:
+                        deny.add(new DependencyRule("banned group", "mvn", groupId + "\\..*", null, null, null));
+                }
+            }
+            deny.add(new DependencyRule("no direct links", "http", null, null, null, null));
+
+            rules = new PolicyRules<>(allow, warn, deny);
+            policy = new DependencyPolicy(rules);
+
+            // a typical process: ~40 dependencies, most of them are not covered by any rules
+            dependencies = new ArrayList<>();
+            for (int i = 0; i < 40; i++) {
+                int team = (i * 7) % ruleCount;
+                dependencies.add(new DependencyEntity(Paths.get("/tmp/dep" + i + ".jar"),
+                        i % 3 == 0 ? "com.example.team" + team : "org.thirdparty" + i,
+                        "lib-" + i,
+                        "1." + (i % 5) + ".0"));
+            }
+        }
+    }
+
+    @State(Scope.Benchmark)
+    public static class TaskState {
+
+        @Param({"100", "1000"})
+        public int ruleCount;
+
+        private PolicyRules<TaskRule> rules;
+        private TaskPolicy policy;
+        private String[] taskNames;
+        private Object[][] params;
+
+        @Setup
+        public void setUp() {
+            List<TaskRule> allow = new ArrayList<>();
+            List<TaskRule> deny = new ArrayList<>();
+            for (int i = 0; i < ruleCount; i++) {
+                if (i % 2 == 0) {
+                    allow.add(new TaskRule(null, "task" + i, "execute", null));
+                } else {
+                    TaskRule.Param p = new TaskRule.Param(0, "action", false, Arrays.asList("delete.*", "drop.*"));
+                    deny.add(new TaskRule("dangerous action", "task" + i + "|legacyTask" + i, null, Collections.singletonList(p)));
+                }
+            }
+            deny.add(new TaskRule("no debug tasks", "debug.*", null, null));
+
+            rules = new PolicyRules<>(allow, null, deny);
+            policy = new TaskPolicy(rules);
+
+            taskNames = new String[64];
+            params = new Object[64][];
+            for (int i = 0; i < taskNames.length; i++) {
+                taskNames[i] = i % 4 == 0 ? "log" : "task" + ((i * 13) % ruleCount);
+                params[i] = new Object[]{Collections.singletonMap("action", i % 2 == 0 ? "deleteAll" : "list")};
+            }
+        }
+    }
+
+    @State(Scope.Benchmark)
+    public static class FileState {
+
+        @Param({"10", "100"})
+        public int ruleCount;
+
+        private PolicyRules<FileRule> rules;
+        private FilePolicy policy;
+        private Path root;
+
+        @Setup
+        public void setUp() throws IOException {
+            List<FileRule> allow = new ArrayList<>();
+            List<FileRule> warn = new ArrayList<>();
+            List<FileRule> deny = new ArrayList<>();
+            allow.add(new FileRule(null, null, "dir", Collections.singletonList("\\.git")));
+            for (int i = 0; i < ruleCount; i++) {
+                if (i % 2 == 0) {
+                    warn.add(new FileRule("large file", (i + 1) + "M", null, Collections.singletonList(".*\\.ext" + i)));
+                } else {
+                    deny.add(new FileRule("banned file", null, null, Arrays.asList(".*\\.ext" + i, "secret" + i + "\\..*")));
+                }
+            }
+            deny.add(new FileRule("too big", "100M", null, null));
+
+            rules = new PolicyRules<>(allow, warn, deny);
+            policy = new FilePolicy(rules);
+
+            // a typical repository: ~500 small files in a few directories
+            root = Files.createTempDirectory("policy-benchmark");
+            for (int d = 0; d < 10; d++) {
+                Path dir = Files.createDirectories(root.resolve("dir" + d));
+                for (int f = 0; f < 50; f++) {
+                    Files.write(dir.resolve("file" + f + ".ext" + (f % (ruleCount * 2))), new byte[128]);
+                }
+            }
+        }
+
+        @TearDown
+        public void tearDown() throws IOException {
+            Files.walkFileTree(root, new SimpleFileVisitor<Path>() {
+                @Override
+                public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) throws IOException {
+                    Files.delete(file);
+                    return FileVisitResult.CONTINUE;
+                }
+
+                @Override
+                public FileVisitResult postVisitDirectory(Path dir, IOException exc) throws IOException {
+                    Files.delete(dir);
+                    return FileVisitResult.CONTINUE;
+                }
+            });
+        }
+    }
+
+    @Benchmark
+    public void dependencyCheck(DependencyState s, Blackhole bh) {
+        bh.consume(s.policy.check(s.dependencies));
+    }
+
+    @Benchmark
+    public void newDependencyPolicyCheck(DependencyState s, Blackhole bh) {
+        bh.consume(new DependencyPolicy(s.rules).check(s.dependencies));
+    }
+
+    @Benchmark
+    public void taskCheck(TaskState s, Blackhole bh) {
+        for (int i = 0; i < s.taskNames.length; i++) {
+            bh.consume(s.policy.check(s.taskNames[i], "execute", s.params[i]));
+        }
+    }
+
+    @Benchmark
+    public void newTaskPolicyCheck(TaskState s, Blackhole bh) {
+        TaskPolicy policy = new TaskPolicy(s.rules);
+        for (int i = 0; i < s.taskNames.length; i++) {
+            bh.consume(policy.check(s.taskNames[i], "execute", s.params[i]));
+        }
+    }
+
+    @Benchmark
+    public void fileCheck(FileState s, Blackhole bh) throws IOException {
+        bh.consume(s.policy.check(s.root));
+    }
+
+    @Benchmark
+    public void newFilePolicyCheck(FileState s, Blackhole bh) throws IOException {
+        bh.consume(new FilePolicy(s.rules).check(s.root));
+    }
+
+    public static void main(String[] args) throws Exception {
+        Options opt = new OptionsBuilder()
+                .include(PolicyBenchmark.class.getSimpleName())
+                .build();
+
+        new Runner(opt).run();
+    }
+}
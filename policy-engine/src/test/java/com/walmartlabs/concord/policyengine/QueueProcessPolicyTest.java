@@ -0,0 +1,69 @@
+package com.walmartlabs.concord.policyengine;
+
+
+/*-
+ * *****
+ * Concord
+ * -----
+ * Copyright (C) 2017 - 2020 Walmart Inc.
+ * -----
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * =====
+ */
+
+import org.junit.Test;
+
+import java.util.Collections;
+import java.util.Map;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class QueueProcessPolicyTest {
+
+    @Test
+    public void testSingleProcess() {
+        QueueProcessPolicy policy = new QueueProcessPolicy(null, null, rule("ENQUEUED", 3));
+
+        assertTrue(policy.check(s -> metrics("ENQUEUED", 2)).getDeny().isEmpty());
+        assertEquals(1, policy.check(s -> metrics("ENQUEUED", 3)).getDeny().size());
+    }
+
+    @Test
+    public void testMultipleProcesses() {
+        QueueProcessPolicy policy = new QueueProcessPolicy(null, null, rule("ENQUEUED", 10));
+
+        // 7 + 3 <= 10
+        assertTrue(policy.check(s -> metrics("ENQUEUED", 7), 3).getDeny().isEmpty());
+
+        // 8 + 3 > 10
+        CheckResult<QueueProcessPolicy.ProcessRule, Integer> result = policy.check(s -> metrics("ENQUEUED", 8), 3);
+        assertEquals(1, result.getDeny().size());
+        assertEquals(8, (int) result.getDeny().get(0).getEntity());
+        assertEquals(10, result.getDeny().get(0).getRule().getMax());
+
+        // a single bulk request can't exceed the limit either
+        assertEquals(1, policy.check(s -> metrics("ENQUEUED", 0), 11).getDeny().size());
+    }
+
+    private static QueueProcessRule rule(String status, int max) {
+        QueueProcessRule r = new QueueProcessRule(null);
+        r.addMax(status, max);
+        return r;
+    }
+
+    private static QueueProcessPolicy.QueueMetrics metrics(String status, int count) {
+        Map<String, Integer> m = Collections.singletonMap(status, count);
+        return new QueueProcessPolicy.QueueMetrics(m, m, m);
+    }
+}
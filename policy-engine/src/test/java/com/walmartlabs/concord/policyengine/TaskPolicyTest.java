@@ -25,6 +25,7 @@ import org.junit.Test;
 import java.util.Arrays;
 import java.util.Collections;
 
+import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertTrue;
 
@@ -137,6 +138,26 @@ public class TaskPolicyTest {
         assertDeny(policy, "taskName-12", "foo", "xxx", Collections.singletonMap("k1", "v"));
     }
 
+    @Test
+    public void testFirstMatchingRuleWins() {
+        TaskRule other = new TaskRule("other", "http", null, null);
+        TaskRule specific = new TaskRule("specific", "taskName-1234", "foo", null);
+        TaskRule wildcard = new TaskRule("wildcard", "taskName-.*", null, null);
+
+        PolicyRules<TaskRule> rules = new PolicyRules<>(null, Arrays.asList(other, specific, wildcard), null);
+
+        TaskPolicy policy = new TaskPolicy(rules);
+
+        // --- repeat to use the cached candidates
+
+        for (int i = 0; i < 2; i++) {
+            assertEquals("specific", policy.check("taskName-1234", "foo", new Object[0]).getWarn().get(0).getRule().getMsg());
+            assertEquals("wildcard", policy.check("taskName-1234", "bar", new Object[0]).getWarn().get(0).getRule().getMsg());
+            assertEquals("other", policy.check("HTTP", "bar", new Object[0]).getWarn().get(0).getRule().getMsg());
+            assertTrue(policy.check("log", "bar", new Object[0]).getWarn().isEmpty());
+        }
+    }
+
     private static void assertDeny(TaskPolicy policy, String taskName, String methodName, Object...params) {
         CheckResult<TaskRule, String> result = policy.check(taskName, methodName, params);
         assertFalse(result.getDeny().isEmpty());
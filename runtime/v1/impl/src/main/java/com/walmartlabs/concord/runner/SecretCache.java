@@ -0,0 +1,113 @@
+package com.walmartlabs.concord.runner;
+
+/*-
+ * *****
+ * Concord
+ * -----
+ * Copyright (C) 2017 - 2020 Walmart Inc.
+ * -----
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * =====
+ */
+
+import com.walmartlabs.concord.runner.model.RunnerConfiguration;
+import com.walmartlabs.concord.runner.model.SecretCacheConfiguration;
+
+import javax.inject.Inject;
+import javax.inject.Named;
+import javax.inject.Singleton;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Base64;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * In-memory cache of decrypted secrets. Lives only as long as the process'
+ * JVM, the values are never persisted or saved into the process state.
+ * Passwords are not used as keys directly, only their hashes.
+ */
+@Named
+@Singleton
+public class SecretCache {
+
+    private final boolean enabled;
+    private final long ttl;
+    private final int maxSize;
+
+    private final Map<String, Entry> entries = new ConcurrentHashMap<>();
+
+    @Inject
+    public SecretCache(RunnerConfiguration runnerCfg) {
+        SecretCacheConfiguration cfg = runnerCfg.secretCache();
+        this.enabled = cfg.enabled() && cfg.ttl() > 0 && cfg.maxSize() > 0;
+        this.ttl = cfg.ttl();
+        this.maxSize = cfg.maxSize();
+    }
+
+    @SuppressWarnings("unchecked")
+    public <T> T get(String key, Callable<T> loader) throws Exception {
+        if (!enabled) {
+            return loader.call();
+        }
+
+        long now = System.currentTimeMillis();
+
+        Entry e = entries.get(key);
+        if (e != null && e.expiresAt > now) {
+            return (T) e.value;
+        }
+
+        T value = loader.call();
+
+        if (entries.size() >= maxSize) {
+            entries.values().removeIf(i -> i.expiresAt <= now);
+        }
+
+        if (entries.size() < maxSize) {
+            entries.put(key, new Entry(value, now + ttl));
+        }
+
+        return value;
+    }
+
+    public static String key(String... parts) {
+        return String.join("/", parts);
+    }
+
+    public static String hash(String s) {
+        if (s == null) {
+            return "";
+        }
+
+        try {
+            MessageDigest md = MessageDigest.getInstance("SHA-256");
+            return Base64.getEncoder().encodeToString(md.digest(s.getBytes(StandardCharsets.UTF_8)));
+        } catch (NoSuchAlgorithmException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    private static final class Entry {
+
+        private final Object value;
+        private final long expiresAt;
+
+        private Entry(Object value, long expiresAt) {
+            this.value = value;
+            this.expiresAt = expiresAt;
+        }
+    }
+}
@@ -46,6 +46,10 @@ import java.util.Map;
 import java.util.Optional;
 import java.util.UUID;
 
+/**
+ * Decrypted secrets are cached in memory for the duration of the process,
+ * see {@link SecretCache}.
+ */
 @Named
 public class SecretServiceImpl implements SecretService {
 
@@ -54,10 +58,12 @@ public class SecretServiceImpl implements SecretService {
     private static final long RETRY_INTERVAL = 5000;
 
     private final ApiClientFactory clientFactory;
+    private final SecretCache secretCache;
 
     @Inject
-    public SecretServiceImpl(ApiClientFactory clientFactory) {
+    public SecretServiceImpl(ApiClientFactory clientFactory, SecretCache secretCache) {
         this.clientFactory = clientFactory;
+        this.secretCache = secretCache;
     }
 
     @Override
@@ -160,20 +166,24 @@ public class SecretServiceImpl implements SecretService {
             throw new IllegalArgumentException("Invalid encrypted string value, please verify that it was specified/copied correctly: " + e.getMessage());
         }
 
-        ApiClient c = clientFactory.create(ctx);
+        return secretCache.get(SecretCache.key("decrypt", instanceId, SecretCache.hash(s)), () -> {
+            ApiClient c = clientFactory.create(ctx);
 
-        String path = "/api/v1/process/" + instanceId + "/decrypt";
-        ApiResponse<byte[]> r = ClientUtils.withRetry(RETRY_COUNT, RETRY_INTERVAL, () -> {
-            Type returnType = new TypeToken<byte[]>() {
-            }.getType();
-            return ClientUtils.postData(c, path, input, returnType);
-        });
+            String path = "/api/v1/process/" + instanceId + "/decrypt";
+            ApiResponse<byte[]> r = ClientUtils.withRetry(RETRY_COUNT, RETRY_INTERVAL, () -> {
+                Type returnType = new TypeToken<byte[]>() {
+                }.getType();
+                return ClientUtils.postData(c, path, input, returnType);
+            });
 
-        return new String(r.getData());
+            return new String(r.getData());
+        });
     }
 
     private <T extends Secret > T get(Context ctx, String orgName, String secretName, String password, SecretEntry.TypeEnum type) throws Exception {
-        return new SecretClient(clientFactory.create(ctx)).getData(assertOrgName(ctx, orgName), secretName, password, type);
+        String org = assertOrgName(ctx, orgName);
+        String key = SecretCache.key("secret", org, secretName, type.name(), SecretCache.hash(password));
+        return secretCache.get(key, () -> new SecretClient(clientFactory.create(ctx)).getData(org, secretName, password, type));
     }
 
     @SuppressWarnings("unchecked")
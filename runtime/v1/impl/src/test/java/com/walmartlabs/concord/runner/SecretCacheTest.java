@@ -0,0 +1,101 @@
+package com.walmartlabs.concord.runner;
+
+/*-
+ * *****
+ * Concord
+ * -----
+ * Copyright (C) 2017 - 2020 Walmart Inc.
+ * -----
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * =====
+ */
+
+import com.walmartlabs.concord.runner.model.RunnerConfiguration;
+import com.walmartlabs.concord.runner.model.SecretCacheConfiguration;
+import org.junit.Test;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
+
+public class SecretCacheTest {
+
+    @Test
+    public void testCached() throws Exception {
+        SecretCache cache = create(true, 60000, 10);
+        AtomicInteger calls = new AtomicInteger();
+
+        assertEquals("a", cache.get("k", () -> {
+            calls.incrementAndGet();
+            return "a";
+        }));
+        assertEquals("a", cache.get("k", () -> {
+            calls.incrementAndGet();
+            return "b";
+        }));
+        assertEquals(1, calls.get());
+    }
+
+    @Test
+    public void testDisabled() throws Exception {
+        SecretCache cache = create(false, 60000, 10);
+        AtomicInteger calls = new AtomicInteger();
+
+        cache.get("k", calls::incrementAndGet);
+        cache.get("k", calls::incrementAndGet);
+        assertEquals(2, calls.get());
+    }
+
+    @Test
+    public void testExpired() throws Exception {
+        SecretCache cache = create(true, 1, 10);
+        AtomicInteger calls = new AtomicInteger();
+
+        cache.get("k", calls::incrementAndGet);
+        Thread.sleep(10);
+        cache.get("k", calls::incrementAndGet);
+        assertEquals(2, calls.get());
+    }
+
+    @Test
+    public void testMaxSize() throws Exception {
+        SecretCache cache = create(true, 60000, 1);
+        AtomicInteger calls = new AtomicInteger();
+
+        cache.get("a", calls::incrementAndGet);
+        cache.get("b", calls::incrementAndGet);
+        cache.get("b", calls::incrementAndGet);
+        assertEquals(3, calls.get());
+
+        cache.get("a", calls::incrementAndGet);
+        assertEquals(3, calls.get());
+    }
+
+    @Test
+    public void testPasswordHash() {
+        assertEquals(SecretCache.hash("pwd"), SecretCache.hash("pwd"));
+        assertNotEquals(SecretCache.hash("pwd"), SecretCache.hash("pwd2"));
+        assertNotEquals("pwd", SecretCache.hash("pwd"));
+    }
+
+    private static SecretCache create(boolean enabled, long ttl, int maxSize) {
+        return new SecretCache(RunnerConfiguration.builder()
+                .secretCache(SecretCacheConfiguration.builder()
+                        .enabled(enabled)
+                        .ttl(ttl)
+                        .maxSize(maxSize)
+                        .build())
+                .build());
+    }
+}
@@ -105,6 +105,14 @@ public interface RunnerConfiguration {
         return EventConfiguration.builder().build();
     }
 
+    /**
+     * Decrypted secrets cache configuration.
+     */
+    @Value.Default
+    default SecretCacheConfiguration secretCache() {
+        return SecretCacheConfiguration.builder().build();
+    }
+
     static ImmutableRunnerConfiguration.Builder builder() {
         return ImmutableRunnerConfiguration.builder();
     }
@@ -0,0 +1,61 @@
+package com.walmartlabs.concord.runner.model;
+
+/*-
+ * *****
+ * Concord
+ * -----
+ * Copyright (C) 2017 - 2020 Walmart Inc.
+ * -----
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * =====
+ */
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.databind.annotation.JsonDeserialize;
+import com.fasterxml.jackson.databind.annotation.JsonSerialize;
+import org.immutables.value.Value;
+
+@Value.Immutable
+@JsonInclude(JsonInclude.Include.NON_EMPTY)
+@JsonSerialize(as = ImmutableSecretCacheConfiguration.class)
+@JsonDeserialize(as = ImmutableSecretCacheConfiguration.class)
+public interface SecretCacheConfiguration {
+
+    /**
+     * Enable/disable in-memory caching of decrypted secrets.
+     */
+    @Value.Default
+    default boolean enabled() {
+        return true;
+    }
+
+    /**
+     * How long decrypted secrets are cached (ms).
+     */
+    @Value.Default
+    default long ttl() {
+        return 60000;
+    }
+
+    /**
+     * Max number of cached secrets.
+     */
+    @Value.Default
+    default int maxSize() {
+        return 100;
+    }
+
+    static ImmutableSecretCacheConfiguration.Builder builder() {
+        return ImmutableSecretCacheConfiguration.builder();
+    }
+}
@@ -513,6 +513,8 @@ public class Constants {
         public static final String SYNC = "sync";
 
         public static final String META = "meta";
+
+        public static final String INSTANCES = "instances";
     }
 
     public static class Headers {
@@ -0,0 +1,98 @@
+package com.walmartlabs.concord.db;
+
+/*-
+ * *****
+ * Concord
+ * -----
+ * Copyright (C) 2017 - 2020 Walmart Inc.
+ * -----
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * =====
+ */
+
+import org.jooq.Configuration;
+import org.jooq.DSLContext;
+import org.jooq.TransactionContext;
+import org.jooq.TransactionListener;
+import org.jooq.impl.DefaultTransactionListener;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.*;
+
+/**
+ * Runs actions after a transaction is committed, e.g. to invalidate caches
+ * only when the changes are visible to other transactions.
+ * Requires {@link #LISTENER} to be registered in the jOOQ configuration
+ * (see {@link DataSourceUtils#createJooqConfiguration(javax.sql.DataSource)}).
+ * <p>
+ * The actions are also executed if the commit itself fails, so they should
+ * be safe to run without the changes (e.g. cache invalidations).
+ * The actions registered in a nested transaction are executed when
+ * the nested transaction is committed.
+ */
+public final class AfterCommit {
+
+    private static final Logger log = LoggerFactory.getLogger(AfterCommit.class);
+
+    private static final Map<Configuration, List<Runnable>> actions = Collections.synchronizedMap(new IdentityHashMap<>());
+
+    public static final TransactionListener LISTENER = new DefaultTransactionListener() {
+
+        @Override
+        public void beginEnd(TransactionContext ctx) {
+            actions.put(ctx.configuration(), new ArrayList<>());
+        }
+
+        @Override
+        public void commitEnd(TransactionContext ctx) {
+            List<Runnable> l = actions.remove(ctx.configuration());
+            if (l == null) {
+                return;
+            }
+
+            for (Runnable r : l) {
+                try {
+                    r.run();
+                } catch (Exception e) {
+                    log.warn("commitEnd -> error while running an action: {}", e.getMessage(), e);
+                }
+            }
+        }
+
+        @Override
+        public void rollbackEnd(TransactionContext ctx) {
+            actions.remove(ctx.configuration());
+        }
+    };
+
+    /**
+     * Runs the action after the specified transaction is committed. The action is
+     * discarded if the transaction is rolled back. If {@code tx} is not
+     * a transaction, the action is executed immediately.
+     */
+    public static void run(DSLContext tx, Runnable action) {
+        List<Runnable> l = actions.get(tx.configuration());
+        if (l == null) {
+            action.run();
+            return;
+        }
+
+        synchronized (l) {
+            l.add(action);
+        }
+    }
+
+    private AfterCommit() {
+    }
+}
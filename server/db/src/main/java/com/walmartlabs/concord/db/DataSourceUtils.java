@@ -39,6 +39,8 @@ import org.slf4j.LoggerFactory;
 
 import javax.sql.DataSource;
 import java.sql.Connection;
+import java.util.Collections;
+import java.util.Map;
 
 public final class DataSourceUtils {
 
@@ -70,11 +72,15 @@ public final class DataSourceUtils {
     }
 
     public static void migrateDb(DataSource ds, DatabaseChangeLogProvider p) {
+        migrateDb(ds, p, Collections.emptyMap());
+    }
+
+    public static void migrateDb(DataSource ds, DatabaseChangeLogProvider p, Map<String, String> params) {
         int retries = MIGRATION_MAX_RETRIES;
         for (int i = 0; i < retries; i++) {
             try (Connection c = ds.getConnection()) {
                 log.info("get -> performing '{}' migration...", p);
-                migrateDb(c, p.getChangeLogPath(), p.getChangeLogTable(), p.getLockTable());
+                migrateDb(c, p.getChangeLogPath(), p.getChangeLogTable(), p.getLockTable(), params);
                 log.info("get -> done");
                 break;
             } catch (Exception e) {
@@ -93,7 +99,7 @@ public final class DataSourceUtils {
         }
     }
 
-    private static void migrateDb(Connection conn, String logPath, String logTable, String lockTable) throws Exception {
+    private static void migrateDb(Connection conn, String logPath, String logTable, String lockTable, Map<String, String> params) throws Exception {
         LogFactory.getInstance().setDefaultLoggingLevel(LogLevel.WARNING);
 
         Database db = DatabaseFactory.getInstance().findCorrectDatabaseImplementation(new JdbcConnection(conn));
@@ -101,6 +107,7 @@ public final class DataSourceUtils {
         db.setDatabaseChangeLogLockTableName(lockTable);
 
         Liquibase lb = new Liquibase(logPath, new ClassLoaderResourceAccessor(), db);
+        params.forEach(lb::setChangeLogParameter);
         lb.update((String) null);
     }
 
@@ -112,7 +119,8 @@ public final class DataSourceUtils {
         return new DefaultConfiguration()
                 .set(settings)
                 .set(ds)
-                .set(SQLDialect.POSTGRES);
+                .set(SQLDialect.POSTGRES)
+                .set(AfterCommit.LISTENER);
     }
 
     private DataSourceUtils() {
@@ -20,6 +20,9 @@ package com.walmartlabs.concord.db;
  * =====
  */
 
+import java.util.Collections;
+import java.util.Map;
+
 public interface DatabaseConfiguration {
 
     default String driverClassName() {
@@ -35,4 +38,11 @@ public interface DatabaseConfiguration {
     int maxPoolSize();
 
     long maxLifetime();
+
+    /**
+     * Parameters available in the changelogs, e.g. to enable optional changesets.
+     */
+    default Map<String, String> changeLogParameters() {
+        return Collections.emptyMap();
+    }
 }
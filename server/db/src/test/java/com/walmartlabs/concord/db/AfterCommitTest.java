@@ -0,0 +1,109 @@
+package com.walmartlabs.concord.db;
+
+/*-
+ * *****
+ * Concord
+ * -----
+ * Copyright (C) 2017 - 2020 Walmart Inc.
+ * -----
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * =====
+ */
+
+import org.jooq.Configuration;
+import org.jooq.DSLContext;
+import org.jooq.TransactionContext;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+public class AfterCommitTest {
+
+    @Test
+    public void testCommit() {
+        TransactionContext ctx = txContext();
+        DSLContext tx = dsl(ctx.configuration());
+
+        List<String> done = new ArrayList<>();
+
+        AfterCommit.LISTENER.beginEnd(ctx);
+        AfterCommit.run(tx, () -> done.add("a"));
+        AfterCommit.run(tx, () -> {
+            throw new RuntimeException("boom");
+        });
+        AfterCommit.run(tx, () -> done.add("b"));
+        assertTrue(done.isEmpty());
+
+        AfterCommit.LISTENER.commitEnd(ctx);
+        assertEquals(Arrays.asList("a", "b"), done);
+
+        // the transaction is finished, the actions are executed immediately
+        AfterCommit.run(tx, () -> done.add("c"));
+        assertEquals(Arrays.asList("a", "b", "c"), done);
+    }
+
+    @Test
+    public void testRollback() {
+        TransactionContext ctx = txContext();
+        DSLContext tx = dsl(ctx.configuration());
+
+        List<String> done = new ArrayList<>();
+
+        AfterCommit.LISTENER.beginEnd(ctx);
+        AfterCommit.run(tx, () -> done.add("a"));
+        AfterCommit.LISTENER.rollbackEnd(ctx);
+        AfterCommit.LISTENER.commitEnd(ctx);
+
+        assertTrue(done.isEmpty());
+    }
+
+    @Test
+    public void testSeparateTransactions() {
+        TransactionContext ctxA = txContext();
+        TransactionContext ctxB = txContext();
+
+        List<String> done = new ArrayList<>();
+
+        AfterCommit.LISTENER.beginEnd(ctxA);
+        AfterCommit.LISTENER.beginEnd(ctxB);
+        AfterCommit.run(dsl(ctxA.configuration()), () -> done.add("a"));
+        AfterCommit.run(dsl(ctxB.configuration()), () -> done.add("b"));
+
+        AfterCommit.LISTENER.commitEnd(ctxB);
+        assertEquals(Collections.singletonList("b"), done);
+
+        AfterCommit.LISTENER.rollbackEnd(ctxA);
+        assertEquals(Collections.singletonList("b"), done);
+    }
+
+    private static TransactionContext txContext() {
+        Configuration cfg = mock(Configuration.class);
+        TransactionContext ctx = mock(TransactionContext.class);
+        when(ctx.configuration()).thenReturn(cfg);
+        return ctx;
+    }
+
+    private static DSLContext dsl(Configuration cfg) {
+        DSLContext tx = mock(DSLContext.class);
+        when(tx.configuration()).thenReturn(cfg);
+        return tx;
+    }
+}
@@ -86,8 +86,8 @@ public class Listeners {
     }
 
     @WithTimer
-    public void onAuditEvent(AuditEvent event) {
-        auditLogListeners.forEach(l -> auditLogListenerExecutor.submit(() -> l.onEvent(event)));
+    public void onAuditEvents(List<AuditEvent> events) {
+        auditLogListeners.forEach(l -> auditLogListenerExecutor.submit(() -> l.onBatch(events)));
     }
 
     private static ExecutorService createExecutor() {
@@ -188,6 +188,26 @@ public final class MultipartUtils {
         return null;
     }
 
+    @SuppressWarnings("unchecked")
+    public static List<Object> getList(MultipartInput input, String key) {
+        try {
+            for (InputPart p : input.getParts()) {
+                String n = MultipartUtils.extractName(p);
+                if (key.equalsIgnoreCase(n)) {
+                    String v = p.getBodyAsString().trim();
+                    if (v.isEmpty()) {
+                        return Collections.emptyList();
+                    } else {
+                        return objectMapper.readValue(v, List.class);
+                    }
+                }
+            }
+        } catch (IOException e) {
+            throw new ConcordApplicationException("Error parsing the request", e);
+        }
+        return null;
+    }
+
     private MultipartUtils() {
     }
 }
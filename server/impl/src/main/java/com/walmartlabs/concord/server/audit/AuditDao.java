@@ -23,11 +23,15 @@ package com.walmartlabs.concord.server.audit;
 import com.walmartlabs.concord.db.AbstractDao;
 import com.walmartlabs.concord.db.MainDB;
 import com.walmartlabs.concord.server.ConcordObjectMapper;
+import com.walmartlabs.concord.server.jooq.tables.records.AuditLogRecord;
 import org.jooq.Configuration;
-import org.jooq.DSLContext;
+import org.jooq.InsertValuesStep5;
+import org.jooq.JSONB;
 
 import javax.inject.Inject;
 import javax.inject.Named;
+import java.sql.Timestamp;
+import java.util.Collection;
 import java.util.UUID;
 
 import static com.walmartlabs.concord.server.jooq.tables.AuditLog.AUDIT_LOG;
@@ -45,20 +49,27 @@ public class AuditDao extends AbstractDao {
         this.objectMapper = objectMapper;
     }
 
-    public void insert(UUID userId, AuditObject object, AuditAction action, Object details) {
-        tx(tx -> insert(tx, userId, object, action, details));
-    }
+    /**
+     * Inserts multiple entries using a single statement.
+     */
+    public void insert(Collection<AuditLogEntry> entries) {
+        tx(tx -> {
+            InsertValuesStep5<AuditLogRecord, Timestamp, UUID, String, String, JSONB> q = tx.insertInto(AUDIT_LOG)
+                    .columns(AUDIT_LOG.ENTRY_DATE,
+                            AUDIT_LOG.USER_ID,
+                            AUDIT_LOG.ENTRY_OBJECT,
+                            AUDIT_LOG.ENTRY_ACTION,
+                            AUDIT_LOG.ENTRY_DETAILS);
+
+            for (AuditLogEntry e : entries) {
+                q = q.values(Timestamp.from(e.getEntryDate()),
+                        e.getUserId(),
+                        e.getObject().toString(),
+                        e.getAction().toString(),
+                        objectMapper.toJSONB(e.getDetails()));
+            }
 
-    public void insert(DSLContext tx, UUID userId, AuditObject object, AuditAction action, Object details) {
-        tx.insertInto(AUDIT_LOG)
-                .columns(AUDIT_LOG.USER_ID,
-                        AUDIT_LOG.ENTRY_OBJECT,
-                        AUDIT_LOG.ENTRY_ACTION,
-                        AUDIT_LOG.ENTRY_DETAILS)
-                .values(userId,
-                        object.toString(),
-                        action.toString(),
-                        objectMapper.toJSONB(details))
-                .execute();
+            q.execute();
+        });
     }
 }
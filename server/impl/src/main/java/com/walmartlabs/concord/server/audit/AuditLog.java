@@ -20,12 +20,10 @@ package com.walmartlabs.concord.server.audit;
  * =====
  */
 
-import com.walmartlabs.concord.server.Listeners;
 import com.walmartlabs.concord.server.RequestId;
 import com.walmartlabs.concord.server.cfg.AuditConfiguration;
 import com.walmartlabs.concord.server.org.project.DiffUtils;
 import com.walmartlabs.concord.server.process.PartialProcessKey;
-import com.walmartlabs.concord.server.sdk.audit.AuditEvent;
 import com.walmartlabs.concord.server.security.UserPrincipal;
 import com.walmartlabs.concord.server.security.sessionkey.SessionKeyPrincipal;
 import org.slf4j.Logger;
@@ -33,6 +31,7 @@ import org.slf4j.LoggerFactory;
 
 import javax.inject.Inject;
 import javax.inject.Named;
+import java.time.Instant;
 import java.util.HashMap;
 import java.util.Map;
 import java.util.UUID;
@@ -43,14 +42,12 @@ public class AuditLog {
     private static final Logger log = LoggerFactory.getLogger(AuditLog.class);
 
     private final AuditConfiguration cfg;
-    private final AuditDao auditDao;
-    private final Listeners listeners;
+    private final AuditLogWriter writer;
 
     @Inject
-    public AuditLog(AuditConfiguration cfg, AuditDao auditDao, Listeners listeners) {
+    public AuditLog(AuditConfiguration cfg, AuditLogWriter writer) {
         this.cfg = cfg;
-        this.auditDao = auditDao;
-        this.listeners = listeners;
+        this.writer = writer;
     }
 
     public EntryBuilder add(AuditObject object, AuditAction action) {
@@ -137,9 +134,7 @@ public class AuditLog {
                 details.put("changes", changes);
             }
 
-            auditDao.insert(userId, object, action, details);
-
-            listeners.onAuditEvent(new AuditEvent(userId, object.name(), action.name(), details));
+            writer.write(new AuditLogEntry(Instant.now(), userId, object, action, details));
         }
     }
 }
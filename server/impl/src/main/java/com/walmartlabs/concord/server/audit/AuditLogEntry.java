@@ -0,0 +1,71 @@
+package com.walmartlabs.concord.server.audit;
+
+/*-
+ * *****
+ * Concord
+ * -----
+ * Copyright (C) 2017 - 2020 Walmart Inc.
+ * -----
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * =====
+ */
+
+import com.walmartlabs.concord.server.sdk.audit.AuditEvent;
+
+import java.time.Instant;
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * An audit log entry waiting to be written.
+ */
+public class AuditLogEntry {
+
+    private final Instant entryDate;
+    private final UUID userId;
+    private final AuditObject object;
+    private final AuditAction action;
+    private final Map<String, Object> details;
+
+    public AuditLogEntry(Instant entryDate, UUID userId, AuditObject object, AuditAction action, Map<String, Object> details) {
+        this.entryDate = entryDate;
+        this.userId = userId;
+        this.object = object;
+        this.action = action;
+        this.details = details;
+    }
+
+    public Instant getEntryDate() {
+        return entryDate;
+    }
+
+    public UUID getUserId() {
+        return userId;
+    }
+
+    public AuditObject getObject() {
+        return object;
+    }
+
+    public AuditAction getAction() {
+        return action;
+    }
+
+    public Map<String, Object> getDetails() {
+        return details;
+    }
+
+    public AuditEvent toEvent() {
+        return new AuditEvent(userId, object.name(), action.name(), details);
+    }
+}
@@ -0,0 +1,224 @@
+package com.walmartlabs.concord.server.audit;
+
+/*-
+ * *****
+ * Concord
+ * -----
+ * Copyright (C) 2017 - 2020 Walmart Inc.
+ * -----
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * =====
+ */
+
+import com.codahale.metrics.Gauge;
+import com.codahale.metrics.Meter;
+import com.codahale.metrics.MetricRegistry;
+import com.codahale.metrics.Timer;
+import com.walmartlabs.concord.server.Listeners;
+import com.walmartlabs.concord.server.cfg.AuditConfiguration;
+import com.walmartlabs.concord.server.sdk.BackgroundTask;
+import com.walmartlabs.concord.server.sdk.audit.AuditEvent;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.inject.Inject;
+import javax.inject.Named;
+import javax.inject.Singleton;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Writes audit log entries in batches using a background thread.
+ * Entries are written synchronously if the queue is full or if the writer
+ * is not running (e.g. during startup and shutdown). Stopping the writer
+ * flushes all queued entries.
+ */
+@Named
+@Singleton
+public class AuditLogWriter implements BackgroundTask {
+
+    private static final Logger log = LoggerFactory.getLogger(AuditLogWriter.class);
+
+    private static final long POLL_TIMEOUT = TimeUnit.SECONDS.toMillis(1);
+    private static final long STOP_TIMEOUT = TimeUnit.SECONDS.toMillis(30);
+
+    private final AuditDao auditDao;
+    private final Listeners listeners;
+    private final int batchSize;
+
+    private final BlockingQueue<AuditLogEntry> queue;
+
+    private final Meter syncWrites;
+    private final Meter dropped;
+    private final Timer flushTimer;
+
+    private volatile boolean running;
+    private Thread worker;
+
+    @Inject
+    public AuditLogWriter(AuditConfiguration cfg,
+                          AuditDao auditDao,
+                          Listeners listeners,
+                          MetricRegistry metricRegistry) {
+
+        this.auditDao = auditDao;
+        this.listeners = listeners;
+        this.batchSize = Math.max(1, cfg.getBatchSize());
+
+        this.queue = cfg.getQueueSize() > 0 ? new ArrayBlockingQueue<>(cfg.getQueueSize()) : null;
+
+        this.syncWrites = metricRegistry.meter("audit-log-sync-writes");
+        this.dropped = metricRegistry.meter("audit-log-dropped");
+        this.flushTimer = metricRegistry.timer("audit-log-flush");
+        metricRegistry.register("audit-log-queue-size", (Gauge<Integer>) () -> queue != null ? queue.size() : 0);
+    }
+
+    @Override
+    public void start() {
+        if (queue == null) {
+            log.info("start -> the audit log is written synchronously");
+            return;
+        }
+
+        this.running = true;
+        this.worker = new Thread(this::run, "audit-log-writer");
+        this.worker.start();
+    }
+
+    @Override
+    public void stop() {
+        if (worker == null) {
+            return;
+        }
+
+        // new entries are written synchronously from now on
+        this.running = false;
+
+        try {
+            worker.join(STOP_TIMEOUT);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+
+        if (worker.isAlive()) {
+            log.warn("stop -> the writer thread didn't finish in {}ms", STOP_TIMEOUT);
+        }
+        worker = null;
+
+        // flush whatever is left
+        List<AuditLogEntry> batch = new ArrayList<>(batchSize);
+        while (queue.drainTo(batch, batchSize) > 0) {
+            flush(batch);
+            batch.clear();
+        }
+
+        log.info("stop -> done");
+    }
+
+    public void write(AuditLogEntry entry) {
+        if (running && queue.offer(entry)) {
+            // the writer was stopped concurrently and the entry wasn't flushed
+            if (!running && queue.remove(entry)) {
+                writeSync(entry);
+            }
+            return;
+        }
+
+        if (running) {
+            syncWrites.mark();
+        }
+
+        // the queue is full or the writer is not running
+        writeSync(entry);
+    }
+
+    /**
+     * Writes the entry on the caller's thread. Errors are propagated to the caller.
+     */
+    private void writeSync(AuditLogEntry entry) {
+        auditDao.insert(Collections.singletonList(entry));
+        listeners.onAuditEvents(Collections.singletonList(entry.toEvent()));
+    }
+
+    private void run() {
+        List<AuditLogEntry> batch = new ArrayList<>(batchSize);
+
+        while (running || !queue.isEmpty()) {
+            try {
+                AuditLogEntry first = queue.poll(POLL_TIMEOUT, TimeUnit.MILLISECONDS);
+                if (first == null) {
+                    continue;
+                }
+
+                batch.add(first);
+                queue.drainTo(batch, batchSize - 1);
+
+                flush(batch);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                break;
+            } finally {
+                batch.clear();
+            }
+        }
+    }
+
+    private void flush(List<AuditLogEntry> batch) {
+        List<AuditLogEntry> written;
+        try (Timer.Context ignored = flushTimer.time()) {
+            written = insert(batch);
+        }
+
+        if (written.isEmpty()) {
+            return;
+        }
+
+        List<AuditEvent> events = new ArrayList<>(written.size());
+        for (AuditLogEntry e : written) {
+            events.add(e.toEvent());
+        }
+        listeners.onAuditEvents(events);
+    }
+
+    /**
+     * Inserts the batch. If the batch fails, tries to insert the entries
+     * one by one, so a single bad entry doesn't take the whole batch with it.
+     *
+     * @return the entries that were written successfully
+     */
+    private List<AuditLogEntry> insert(List<AuditLogEntry> batch) {
+        try {
+            auditDao.insert(batch);
+            return batch;
+        } catch (Exception e) {
+            log.warn("insert -> error while writing a batch of {} entries, retrying one by one: {}", batch.size(), e.getMessage());
+        }
+
+        List<AuditLogEntry> result = new ArrayList<>(batch.size());
+        for (AuditLogEntry entry : batch) {
+            try {
+                auditDao.insert(Collections.singletonList(entry));
+                result.add(entry);
+            } catch (Exception e) {
+                dropped.mark();
+                log.error("insert -> error while writing an audit log entry ({}, {}), dropping: {}",
+                        entry.getObject(), entry.getAction(), e.getMessage(), e);
+            }
+        }
+        return result;
+    }
+}
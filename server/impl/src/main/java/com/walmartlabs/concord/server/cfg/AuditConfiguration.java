@@ -43,6 +43,14 @@ public class AuditConfiguration implements Serializable {
     @Config("audit.maxLogAge")
     private long maxLogAge;
 
+    @Inject
+    @Config("audit.queueSize")
+    private int queueSize;
+
+    @Inject
+    @Config("audit.batchSize")
+    private int batchSize;
+
     public boolean isEnabled() {
         return enabled;
     }
@@ -54,4 +62,12 @@ public class AuditConfiguration implements Serializable {
     public long getMaxLogAge() {
         return maxLogAge;
     }
+
+    public int getQueueSize() {
+        return queueSize;
+    }
+
+    public int getBatchSize() {
+        return batchSize;
+    }
 }
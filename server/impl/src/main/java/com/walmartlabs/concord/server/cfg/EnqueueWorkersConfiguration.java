@@ -34,14 +34,45 @@ public class EnqueueWorkersConfiguration {
     @Config("queue.enqueueWorkerCount")
     private int workersCount;
 
+    @Inject
+    @Config("queue.enqueueMaxWorkerCount")
+    private int maxWorkersCount;
+
+    @Inject
+    @Config("queue.enqueueWorkerKeepAlive")
+    private long workerKeepAlive;
+
     @Inject
     @Config("queue.enqueuePollInterval")
     private long interval;
 
+    @Inject
+    @Config("queue.enqueueLaneKey")
+    private String laneKey;
+
+    /**
+     * The minimal number of enqueue workers.
+     */
     public int getWorkersCount() {
         return workersCount;
     }
 
+    /**
+     * The maximum number of enqueue workers. The pool grows up to this
+     * number depending on the NEW queue depth and the pipeline latency.
+     */
+    public int getMaxWorkersCount() {
+        return Math.max(workersCount, maxWorkersCount);
+    }
+
+    public long getWorkerKeepAlive() {
+        return workerKeepAlive;
+    }
+
+    public String getLaneKey() {
+        return laneKey;
+    }
+
     public long getInterval() {
         return interval;
     }
@@ -53,6 +53,38 @@ public class GithubConfiguration {
     @Config("github.logEvents")
     private boolean logEvents;
 
+    @Inject
+    @Config("github.inboxEnabled")
+    private boolean inboxEnabled;
+
+    @Inject
+    @Config("github.inboxWorkerThreads")
+    private int inboxWorkerThreads;
+
+    @Inject
+    @Config("github.inboxPollInterval")
+    private long inboxPollInterval;
+
+    @Inject
+    @Config("github.inboxMaxAttempts")
+    private int inboxMaxAttempts;
+
+    @Inject
+    @Config("github.inboxRetryDelay")
+    private long inboxRetryDelay;
+
+    @Inject
+    @Config("github.inboxLeaseTimeout")
+    private long inboxLeaseTimeout;
+
+    @Inject
+    @Config("github.inboxCleanupPeriod")
+    private long inboxCleanupPeriod;
+
+    @Inject
+    @Config("github.inboxMaxAge")
+    private long inboxMaxAge;
+
     public String getSecret() {
         return secret;
     }
@@ -73,4 +105,36 @@ public class GithubConfiguration {
     public boolean isLogEvents() {
         return logEvents;
     }
+
+    public boolean isInboxEnabled() {
+        return inboxEnabled;
+    }
+
+    public int getInboxWorkerThreads() {
+        return inboxWorkerThreads;
+    }
+
+    public long getInboxPollInterval() {
+        return inboxPollInterval;
+    }
+
+    public int getInboxMaxAttempts() {
+        return inboxMaxAttempts;
+    }
+
+    public long getInboxRetryDelay() {
+        return inboxRetryDelay;
+    }
+
+    public long getInboxLeaseTimeout() {
+        return inboxLeaseTimeout;
+    }
+
+    public long getInboxCleanupPeriod() {
+        return inboxCleanupPeriod;
+    }
+
+    public long getInboxMaxAge() {
+        return inboxMaxAge;
+    }
 }
@@ -27,6 +27,8 @@ import com.walmartlabs.ollie.config.Config;
 import javax.inject.Inject;
 import javax.inject.Named;
 import javax.inject.Singleton;
+import java.util.Collections;
+import java.util.Map;
 
 @Named
 @Singleton
@@ -53,6 +55,10 @@ public class MainDBConfiguration implements DatabaseConfiguration {
     @Config("db.maxLifetime")
     private long maxLifetime;
 
+    @Inject
+    @Config("db.processTablePartitioning")
+    private boolean processTablePartitioning;
+
     @Override
     public String url() {
         return url;
@@ -77,4 +83,13 @@ public class MainDBConfiguration implements DatabaseConfiguration {
     public long maxLifetime() {
         return maxLifetime;
     }
+
+    public boolean isProcessTablePartitioning() {
+        return processTablePartitioning;
+    }
+
+    @Override
+    public Map<String, String> changeLogParameters() {
+        return Collections.singletonMap("processTablePartitioning", String.valueOf(processTablePartitioning));
+    }
 }
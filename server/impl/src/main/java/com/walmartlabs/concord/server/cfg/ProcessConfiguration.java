@@ -62,6 +62,15 @@ public class ProcessConfiguration implements Serializable {
     @Inject
     @Config("process.maxStateAge")
     private long maxStateAge;
+
+    @Inject
+    @Config("process.partitionManagerInterval")
+    private long partitionManagerInterval;
+
+    @Inject
+    @Config("process.partitionsAhead")
+    private int partitionsAhead;
+
     @Inject
     @Config("process.secureFiles")
     private List<String> secureFiles;
@@ -86,6 +95,46 @@ public class ProcessConfiguration implements Serializable {
     @Config("process.checkLogPermissions")
     private boolean checkLogPermissions;
 
+    @Inject
+    @Config("process.pipelineProfileThreshold")
+    private long pipelineProfileThreshold;
+
+    @Inject
+    @Config("process.pipelineProfileAllocations")
+    private boolean pipelineProfileAllocations;
+
+    @Inject
+    @Config("process.bulkStartLimit")
+    private int bulkStartLimit;
+
+    @Inject
+    @Config("process.stateImportBatchSize")
+    private int stateImportBatchSize;
+
+    @Inject
+    @Config("process.stateImportBatchBytes")
+    private long stateImportBatchBytes;
+
+    @Inject
+    @Config("process.stateImportParallelism")
+    private int stateImportParallelism;
+
+    @Inject
+    @Config("process.waitMaxIds")
+    private int waitMaxIds;
+
+    @Inject
+    @Config("process.waitMaxTimeout")
+    private long waitMaxTimeout;
+
+    @Inject
+    @Config("process.waitRecheckInterval")
+    private long waitRecheckInterval;
+
+    @Inject
+    @Config("process.statusNotifications")
+    private boolean statusNotifications;
+
     @Inject
     public ProcessConfiguration(@Config("process.signingKeyPath") @Nullable String signingKeyPath) {
         this.signingKeyPath = signingKeyPath != null ? Paths.get(signingKeyPath) : null;
@@ -116,6 +165,14 @@ public class ProcessConfiguration implements Serializable {
         return logsCleanup;
     }
 
+    public long getPartitionManagerInterval() {
+        return partitionManagerInterval;
+    }
+
+    public int getPartitionsAhead() {
+        return partitionsAhead;
+    }
+
     public boolean isCheckpointCleanup() {
         return checkpointCleanup;
     }
@@ -147,4 +204,44 @@ public class ProcessConfiguration implements Serializable {
     public boolean isCheckLogPermissions() {
         return checkLogPermissions;
     }
+
+    public long getPipelineProfileThreshold() {
+        return pipelineProfileThreshold;
+    }
+
+    public boolean isPipelineProfileAllocations() {
+        return pipelineProfileAllocations;
+    }
+
+    public int getBulkStartLimit() {
+        return bulkStartLimit;
+    }
+
+    public int getStateImportBatchSize() {
+        return stateImportBatchSize;
+    }
+
+    public long getStateImportBatchBytes() {
+        return stateImportBatchBytes;
+    }
+
+    public int getStateImportParallelism() {
+        return stateImportParallelism;
+    }
+
+    public int getWaitMaxIds() {
+        return waitMaxIds;
+    }
+
+    public long getWaitMaxTimeout() {
+        return waitMaxTimeout;
+    }
+
+    public long getWaitRecheckInterval() {
+        return waitRecheckInterval;
+    }
+
+    public boolean isStatusNotifications() {
+        return statusNotifications;
+    }
 }
@@ -39,6 +39,10 @@ public class ProcessWaitWatchdogConfiguration implements Serializable {
     @Config("process.waitCheckPollLimit")
     private int pollLimit;
 
+    @Inject
+    @Config("process.waitCheckStaleAfter")
+    private long staleAfter;
+
     public long getPeriod() {
         return period;
     }
@@ -46,4 +50,8 @@ public class ProcessWaitWatchdogConfiguration implements Serializable {
     public int getPollLimit() {
         return pollLimit;
     }
+
+    public long getStaleAfter() {
+        return staleAfter;
+    }
 }
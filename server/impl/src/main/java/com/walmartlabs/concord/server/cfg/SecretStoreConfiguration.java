@@ -51,6 +51,14 @@ public class SecretStoreConfiguration implements Serializable {
     @Config("secretStore.keySize")
     private int keySize;
 
+    @Inject
+    @Config("secretStore.cacheTtl")
+    private long cacheTtl;
+
+    @Inject
+    @Config("secretStore.cacheMaxSize")
+    private long cacheMaxSize;
+
     public byte[] getServerPwd() {
         return serverPwd;
     }
@@ -70,4 +78,12 @@ public class SecretStoreConfiguration implements Serializable {
     public int getKeySize() {
         return keySize;
     }
+
+    public long getCacheTtl() {
+        return cacheTtl;
+    }
+
+    public long getCacheMaxSize() {
+        return cacheMaxSize;
+    }
 }
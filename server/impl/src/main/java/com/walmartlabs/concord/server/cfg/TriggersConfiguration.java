@@ -48,6 +48,22 @@ public class TriggersConfiguration {
     @Config("triggers.defaultConfiguration")
     private Map<String, Object> defaultConfiguration;
 
+    @Inject
+    @Config("triggers.indexReloadInterval")
+    private long indexReloadInterval;
+
+    @Inject
+    @Config("triggers.cronPollInterval")
+    private long cronPollInterval;
+
+    @Inject
+    @Config("triggers.cronBatchSize")
+    private int cronBatchSize;
+
+    @Inject
+    @Config("triggers.cronWorkerThreads")
+    private int cronWorkerThreads;
+
     public boolean isDisableAll() {
         return disableAll;
     }
@@ -64,4 +80,20 @@ public class TriggersConfiguration {
         return defaultConfiguration;
     }
 
+    public long getIndexReloadInterval() {
+        return indexReloadInterval;
+    }
+
+    public long getCronPollInterval() {
+        return cronPollInterval;
+    }
+
+    public int getCronBatchSize() {
+        return cronBatchSize;
+    }
+
+    public int getCronWorkerThreads() {
+        return cronWorkerThreads;
+    }
+
 }
@@ -24,9 +24,8 @@ import com.google.common.util.concurrent.SettableFuture;
 import com.walmartlabs.concord.sdk.Constants;
 import com.walmartlabs.concord.server.cfg.ExternalEventsConfiguration;
 import com.walmartlabs.concord.server.cfg.TriggersConfiguration;
-import com.walmartlabs.concord.server.org.project.ProjectDao;
-import com.walmartlabs.concord.server.org.project.RepositoryDao;
 import com.walmartlabs.concord.server.org.triggers.TriggerEntry;
+import com.walmartlabs.concord.server.org.triggers.TriggerIndex;
 import com.walmartlabs.concord.server.org.triggers.TriggerUtils;
 import com.walmartlabs.concord.server.process.*;
 import com.walmartlabs.concord.server.sdk.ConcordApplicationException;
@@ -52,24 +51,21 @@ public abstract class AbstractEventResource {
 
     private final ExternalEventsConfiguration eventsCfg;
     private final ProcessManager processManager;
-    private final ProjectDao projectDao;
-    private final RepositoryDao repositoryDao;
+    private final TriggerIndex triggerIndex;
     private final TriggersConfiguration triggersCfg;
     private final UserManager userManager;
     private final ProcessSecurityContext processSecurityContext;
 
     public AbstractEventResource(ExternalEventsConfiguration eventsCfg,
                                  ProcessManager processManager,
-                                 ProjectDao projectDao,
-                                 RepositoryDao repositoryDao,
+                                 TriggerIndex triggerIndex,
                                  TriggersConfiguration triggersCfg,
                                  UserManager userManager,
                                  ProcessSecurityContext processSecurityContext) {
 
         this.eventsCfg = eventsCfg;
         this.processManager = processManager;
-        this.projectDao = projectDao;
-        this.repositoryDao = repositoryDao;
+        this.triggerIndex = triggerIndex;
         this.processSecurityContext = processSecurityContext;
         this.triggersCfg = triggersCfg;
         this.userManager = userManager;
@@ -84,6 +80,24 @@ public abstract class AbstractEventResource {
                                               Map<String, Object> event,
                                               List<TriggerEntry> triggers,
                                               ProcessConfigurationEnricher cfgEnricher) {
+
+        return process(eventId, eventName, event, triggers, cfgEnricher, null);
+    }
+
+    /**
+     * Starts a new process for each of the specified triggers.
+     * <p>
+     * Without a {@code tracker} the triggers that failed to start are logged and skipped.
+     * With a {@code tracker} the triggers that were already started are skipped, each
+     * successful start is recorded and, after all triggers are processed, any failure
+     * is re-thrown. I.e. the event can be retried without starting the same trigger twice.
+     */
+    protected List<PartialProcessKey> process(String eventId,
+                                              String eventName,
+                                              Map<String, Object> event,
+                                              List<TriggerEntry> triggers,
+                                              ProcessConfigurationEnricher cfgEnricher,
+                                              TriggerStartTracker tracker) {
         if (isDisabled(eventName)) {
             log.warn("process ['{}'] event '{}' disabled", eventId, eventName);
             return Collections.emptyList();
@@ -91,21 +105,41 @@ public abstract class AbstractEventResource {
 
         assertRoles(eventName);
 
-        return triggers.stream()
-                .filter(t -> !isRepositoryDisabled(t))
-                .map(t -> process(eventId, eventName, t, event, cfgEnricher))
-                .collect(Collectors.toList()) // collect all "futures"
-                .stream()
-                .map(AbstractEventResource::resolve)
-                .filter(Objects::nonNull)
-                .collect(Collectors.toList());
+        List<Future<PartialProcessKey>> futures = triggers.stream()
+                .filter(t -> !triggerIndex.isRepositoryDisabled(t.getRepositoryId()))
+                .filter(t -> tracker == null || !tracker.isStarted(t))
+                .map(t -> process(eventId, eventName, t, event, cfgEnricher, tracker))
+                .collect(Collectors.toList()); // collect all "futures"
+
+        List<PartialProcessKey> result = new ArrayList<>();
+        List<Throwable> errors = new ArrayList<>();
+        for (Future<PartialProcessKey> f : futures) {
+            try {
+                result.add(f.get());
+            } catch (ExecutionException e) {
+                // already logged
+                errors.add(e.getCause());
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new RuntimeException(e);
+            }
+        }
+
+        if (tracker != null && !errors.isEmpty()) {
+            RuntimeException e = new RuntimeException("Failed to start " + errors.size() + " of " + futures.size() + " process(es), first error: " + errors.get(0).getMessage());
+            errors.forEach(e::addSuppressed);
+            throw e;
+        }
+
+        return result;
     }
 
     private Future<PartialProcessKey> process(String eventId,
                                               String eventName,
                                               TriggerEntry t,
                                               Map<String, Object> event,
-                                              ProcessConfigurationEnricher cfgEnricher) {
+                                              ProcessConfigurationEnricher cfgEnricher,
+                                              TriggerStartTracker tracker) {
 
         UserEntry initiator;
         try {
@@ -113,7 +147,7 @@ public abstract class AbstractEventResource {
         } catch (Exception e) {
             log.error("process ['{}', '{}', '{}'] -> error", eventId, eventName, t.getId(), e);
             SettableFuture<PartialProcessKey> f = SettableFuture.create();
-            f.set(null);
+            f.setException(e);
             return f;
         }
 
@@ -141,21 +175,21 @@ public abstract class AbstractEventResource {
                 cfg = cfgEnricher.enrich(t, cfg);
             }
 
+            PartialProcessKey pk;
             try {
-                UUID orgId = projectDao.getOrgId(t.getProjectId());
-
-                PartialProcessKey pk = startProcess(eventId, orgId, t, cfg, initiator);
+                pk = startProcess(eventId, t.getOrgId(), t, cfg, initiator);
                 log.info("process ['{}'] -> new process ('{}') triggered by {}", eventId, pk, t);
-                return pk;
             } catch (Exception e) {
                 log.error("process ['{}', '{}', '{}'] -> error", eventId, eventName, t.getId(), e);
-                return null;
+                throw e;
             }
-        });
-    }
 
-    private boolean isRepositoryDisabled(TriggerEntry t) {
-        return repositoryDao.get(t.getRepositoryId()).isDisabled();
+            if (tracker != null) {
+                tracker.onStart(t, pk);
+            }
+
+            return pk;
+        });
     }
 
     private void assertRoles(String eventName) {
@@ -226,14 +260,6 @@ public abstract class AbstractEventResource {
         return processKey;
     }
 
-    private static <T> T resolve(Future<T> f) {
-        try {
-            return f.get();
-        } catch (InterruptedException | ExecutionException e) {
-            throw new RuntimeException(e);
-        }
-    }
-
     private static ExecutorService createExecutor(int poolSize) {
         ThreadPoolExecutor p = new ThreadPoolExecutor(1, poolSize, 30, TimeUnit.SECONDS, new SynchronousQueue<>());
         p.setRejectedExecutionHandler(new ThreadPoolExecutor.CallerRunsPolicy());
@@ -243,4 +269,14 @@ public abstract class AbstractEventResource {
     public interface ProcessConfigurationEnricher {
         Map<String, Object> enrich(TriggerEntry t, Map<String, Object> cfg);
     }
+
+    /**
+     * Keeps track of the triggers started for an event.
+     */
+    public interface TriggerStartTracker {
+
+        boolean isStarted(TriggerEntry t);
+
+        void onStart(TriggerEntry t, PartialProcessKey processKey);
+    }
 }
@@ -20,7 +20,9 @@ package com.walmartlabs.concord.server.events;
  * =====
  */
 
-import com.walmartlabs.concord.common.MapMatcher;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.walmartlabs.concord.common.CompiledMapMatcher;
 import com.walmartlabs.concord.server.org.triggers.TriggerEntry;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -31,15 +33,30 @@ public final class DefaultEventFilter {
 
     private static final Logger log = LoggerFactory.getLogger(DefaultEventFilter.class);
 
+    private static final int MATCHER_CACHE_SIZE = 10000;
+
+    // trigger conditions -> compiled matcher
+    private static final Cache<Map<String, Object>, CompiledMapMatcher> matchers = CacheBuilder.newBuilder()
+            .maximumSize(MATCHER_CACHE_SIZE)
+            .build();
+
     public static boolean filter(Map<String, Object> conditions, TriggerEntry t) {
         try {
-            return MapMatcher.matches(conditions, t.getConditions());
+            return getMatcher(t.getConditions()).matches(conditions);
         } catch (Exception e) {
             log.warn("filter [{}, {}] -> error while matching events: {}", conditions, t, e.getMessage());
             return false;
         }
     }
 
+    private static CompiledMapMatcher getMatcher(Map<String, Object> triggerConditions) throws Exception {
+        if (triggerConditions == null || triggerConditions.isEmpty()) {
+            return CompiledMapMatcher.compile(triggerConditions);
+        }
+
+        return matchers.get(triggerConditions, () -> CompiledMapMatcher.compile(triggerConditions));
+    }
+
     private DefaultEventFilter() {
     }
 }
@@ -22,10 +22,8 @@ package com.walmartlabs.concord.server.events;
 
 import com.walmartlabs.concord.server.cfg.ExternalEventsConfiguration;
 import com.walmartlabs.concord.server.cfg.TriggersConfiguration;
-import com.walmartlabs.concord.server.org.project.ProjectDao;
-import com.walmartlabs.concord.server.org.project.RepositoryDao;
 import com.walmartlabs.concord.server.org.triggers.TriggerEntry;
-import com.walmartlabs.concord.server.org.triggers.TriggersDao;
+import com.walmartlabs.concord.server.org.triggers.TriggerIndex;
 import com.walmartlabs.concord.server.process.PartialProcessKey;
 import com.walmartlabs.concord.server.process.ProcessManager;
 import com.walmartlabs.concord.server.process.ProcessSecurityContext;
@@ -62,21 +60,19 @@ public class ExternalEventResource extends AbstractEventResource implements Reso
 
     private static final Logger log = LoggerFactory.getLogger(ExternalEventResource.class);
 
-    private final TriggersDao triggersDao;
+    private final TriggerIndex triggerIndex;
 
     @Inject
     public ExternalEventResource(ExternalEventsConfiguration cfg,
                                  ProcessManager processManager,
-                                 TriggersDao triggersDao,
-                                 ProjectDao projectDao,
-                                 RepositoryDao repositoryDao,
+                                 TriggerIndex triggerIndex,
                                  TriggersConfiguration triggersCfg,
                                  UserManager userManager,
                                  ProcessSecurityContext processSecurityContext) {
 
-        super(cfg, processManager, projectDao, repositoryDao, triggersCfg, userManager, processSecurityContext);
+        super(cfg, processManager, triggerIndex, triggersCfg, userManager, processSecurityContext);
 
-        this.triggersDao = triggersDao;
+        this.triggerIndex = triggerIndex;
     }
 
     @POST
@@ -96,7 +92,7 @@ public class ExternalEventResource extends AbstractEventResource implements Reso
 
         String eventId = (String) event.computeIfAbsent("id", s -> UUID.randomUUID().toString());
 
-        List<TriggerEntry> triggers = triggersDao.list(eventName).stream()
+        List<TriggerEntry> triggers = triggerIndex.list(eventName).stream()
                 .filter(t -> DefaultEventFilter.filter(event, t))
                 .collect(Collectors.toList());
 
@@ -0,0 +1,465 @@
+package com.walmartlabs.concord.server.events;
+
+/*-
+ * *****
+ * Concord
+ * -----
+ * Copyright (C) 2017 - 2020 Walmart Inc.
+ * -----
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * =====
+ */
+
+import com.codahale.metrics.Gauge;
+import com.codahale.metrics.Meter;
+import com.codahale.metrics.MetricRegistry;
+import com.codahale.metrics.Timer;
+import com.walmartlabs.concord.db.AbstractDao;
+import com.walmartlabs.concord.db.MainDB;
+import com.walmartlabs.concord.sdk.MapUtils;
+import com.walmartlabs.concord.server.ConcordObjectMapper;
+import com.walmartlabs.concord.server.PeriodicTask;
+import com.walmartlabs.concord.server.cfg.GithubConfiguration;
+import com.walmartlabs.concord.server.org.triggers.TriggerEntry;
+import com.walmartlabs.concord.server.process.PartialProcessKey;
+import com.walmartlabs.concord.server.sdk.ScheduledTask;
+import org.jooq.Configuration;
+import org.jooq.Field;
+import org.jooq.JSONB;
+import org.jooq.Record7;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.inject.Inject;
+import javax.inject.Named;
+import javax.inject.Provider;
+import javax.inject.Singleton;
+import java.sql.Timestamp;
+import java.util.*;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+
+import static com.walmartlabs.concord.db.PgUtils.interval;
+import static com.walmartlabs.concord.server.events.github.Constants.EVENT_SOURCE;
+import static com.walmartlabs.concord.server.jooq.tables.EventInbox.EVENT_INBOX;
+import static com.walmartlabs.concord.server.jooq.tables.EventInboxStarts.EVENT_INBOX_STARTS;
+import static org.jooq.impl.DSL.*;
+
+/**
+ * Durable inbox for GitHub webhook events.
+ * <p>
+ * When enabled, {@link GithubEventResource} only saves the incoming events
+ * (deduplicated by the {@code X-GitHub-Delivery} header) and the events are
+ * processed asynchronously by a bounded pool of workers. Failed events are
+ * retried with an exponential delay up to {@link GithubConfiguration#getInboxMaxAttempts()} times.
+ * An event fails if any of its triggers failed to start. The triggers started
+ * by the previous attempts are recorded and skipped when the event is retried.
+ */
+@Named
+@Singleton
+public class GithubEventInbox extends PeriodicTask {
+
+    private static final Logger log = LoggerFactory.getLogger(GithubEventInbox.class);
+
+    private static final long ERROR_DELAY = 10000;
+    private static final int MAX_ERROR_LENGTH = 4096;
+
+    private static final String STATUS_NEW = "NEW";
+    private static final String STATUS_DONE = "DONE";
+    private static final String STATUS_FAILED = "FAILED";
+
+    private final GithubConfiguration cfg;
+    private final Dao dao;
+    private final Provider<GithubEventResource> resource;
+
+    private final ThreadPoolExecutor executor;
+    private final AtomicInteger inFlight = new AtomicInteger();
+    private volatile int depth;
+
+    private final Meter duplicates;
+    private final Meter retries;
+    private final Meter failures;
+    private final Timer latency;
+
+    @Inject
+    public GithubEventInbox(GithubConfiguration cfg,
+                            Dao dao,
+                            Provider<GithubEventResource> resource,
+                            MetricRegistry metricRegistry) {
+
+        super(cfg.isInboxEnabled() ? cfg.getInboxPollInterval() : 0, ERROR_DELAY);
+
+        this.cfg = cfg;
+        this.dao = dao;
+        this.resource = resource;
+
+        int workers = Math.max(1, cfg.getInboxWorkerThreads());
+        this.executor = new ThreadPoolExecutor(workers, workers, 0, TimeUnit.MILLISECONDS, new LinkedBlockingQueue<>());
+
+        this.duplicates = metricRegistry.meter("github-inbox-duplicates");
+        this.retries = metricRegistry.meter("github-inbox-retries");
+        this.failures = metricRegistry.meter("github-inbox-failures");
+        this.latency = metricRegistry.timer("github-inbox-event-to-start");
+        metricRegistry.register("github-inbox-depth", (Gauge<Integer>) () -> depth);
+        metricRegistry.register("github-inbox-in-flight", (Gauge<Integer>) inFlight::get);
+    }
+
+    public boolean isEnabled() {
+        return cfg.isInboxEnabled();
+    }
+
+    /**
+     * Saves the event into the inbox.
+     *
+     * @return {@code false} if an event with the same delivery ID was already received
+     */
+    public boolean add(String deliveryId, String eventName, Map<String, Object> data, Context ctx) {
+        if (deliveryId == null) {
+            // can't deduplicate, but the event must be accepted anyway
+            deliveryId = UUID.randomUUID().toString();
+        }
+
+        boolean added = dao.insert(deliveryId, eventName, data, ctx);
+        if (!added) {
+            duplicates.mark();
+        }
+        return added;
+    }
+
+    @Override
+    public void stop() {
+        super.stop();
+        executor.shutdown();
+    }
+
+    @Override
+    protected boolean performTask() {
+        depth = dao.countPending();
+
+        int capacity = executor.getMaximumPoolSize() - inFlight.get();
+        if (capacity <= 0) {
+            return false;
+        }
+
+        List<Entry> entries = dao.poll(capacity, cfg.getInboxLeaseTimeout());
+        for (Entry e : entries) {
+            inFlight.incrementAndGet();
+            executor.submit(() -> handle(e));
+        }
+
+        // more events could be waiting, don't sleep
+        return entries.size() == capacity;
+    }
+
+    private void handle(Entry e) {
+        try {
+            int started = resource.get().processInboxEvent(e.deliveryId, e.eventName, e.data, e.ctx, new StartTracker(e.id));
+            dao.success(e.id);
+
+            if (started > 0) {
+                latency.update(System.currentTimeMillis() - e.receivedAt.getTime(), TimeUnit.MILLISECONDS);
+            }
+
+            log.info("handle ['{}', '{}'] -> done, {} process(es) started", e.deliveryId, e.eventName, started);
+        } catch (Exception ex) {
+            String error = truncate(ex.toString());
+
+            if (e.attempts >= cfg.getInboxMaxAttempts()) {
+                log.error("handle ['{}', '{}'] -> failed after {} attempt(s)", e.deliveryId, e.eventName, e.attempts, ex);
+                failures.mark();
+                dao.fail(e.id, error);
+            } else {
+                long delay = cfg.getInboxRetryDelay() * (1L << Math.min(e.attempts - 1, 16));
+                log.warn("handle ['{}', '{}'] -> error (attempt {}), retrying in {}ms: {}", e.deliveryId, e.eventName, e.attempts, delay, ex.getMessage());
+                retries.mark();
+                dao.retry(e.id, delay, error);
+            }
+        } finally {
+            inFlight.decrementAndGet();
+        }
+    }
+
+    /**
+     * Records the triggers started for an inbox event, so the retries of
+     * partially failed events don't start the same triggers again.
+     */
+    private class StartTracker implements AbstractEventResource.TriggerStartTracker {
+
+        private final UUID inboxId;
+        private final Set<UUID> started;
+
+        private StartTracker(UUID inboxId) {
+            this.inboxId = inboxId;
+            this.started = dao.getStartedTriggers(inboxId);
+        }
+
+        @Override
+        public boolean isStarted(TriggerEntry t) {
+            return started.contains(t.getId());
+        }
+
+        @Override
+        public void onStart(TriggerEntry t, PartialProcessKey processKey) {
+            dao.markStarted(inboxId, t.getId(), processKey.getInstanceId());
+        }
+    }
+
+    private static String truncate(String s) {
+        if (s == null || s.length() <= MAX_ERROR_LENGTH) {
+            return s;
+        }
+        return s.substring(0, MAX_ERROR_LENGTH);
+    }
+
+    @Named("github-inbox-cleaner")
+    @Singleton
+    public static class Cleaner implements ScheduledTask {
+
+        private final GithubConfiguration cfg;
+        private final Dao dao;
+
+        @Inject
+        public Cleaner(GithubConfiguration cfg, Dao dao) {
+            this.cfg = cfg;
+            this.dao = dao;
+        }
+
+        @Override
+        public long getIntervalInSec() {
+            return cfg.getInboxCleanupPeriod();
+        }
+
+        @Override
+        public void performTask() {
+            Timestamp cutoff = new Timestamp(System.currentTimeMillis() - cfg.getInboxMaxAge());
+            int deleted = dao.deleteOld(cutoff);
+            log.info("performTask -> removed {} event(s) older than {}", deleted, cutoff);
+        }
+    }
+
+    /**
+     * Request data required to process an event outside of the original HTTP request.
+     */
+    public static class Context {
+
+        private static final String PROJECT_ID_KEY = "projectId";
+        private static final String USER_ID_KEY = "userId";
+        private static final String QUERY_PARAMS_KEY = "queryParams";
+
+        private final UUID hookProjectId;
+        private final UUID userId;
+        private final Map<String, String> queryParams;
+
+        public Context(UUID hookProjectId, UUID userId, Map<String, String> queryParams) {
+            this.hookProjectId = hookProjectId;
+            this.userId = userId;
+            this.queryParams = queryParams;
+        }
+
+        public UUID getHookProjectId() {
+            return hookProjectId;
+        }
+
+        public UUID getUserId() {
+            return userId;
+        }
+
+        public Map<String, String> getQueryParams() {
+            return queryParams;
+        }
+
+        private Map<String, Object> toMap() {
+            Map<String, Object> m = new HashMap<>();
+            if (hookProjectId != null) {
+                m.put(PROJECT_ID_KEY, hookProjectId.toString());
+            }
+            m.put(USER_ID_KEY, userId.toString());
+            m.put(QUERY_PARAMS_KEY, queryParams);
+            return m;
+        }
+
+        @SuppressWarnings("unchecked")
+        private static Context fromMap(Map<String, Object> m) {
+            String projectId = MapUtils.getString(m, PROJECT_ID_KEY);
+            String userId = MapUtils.getString(m, USER_ID_KEY);
+            Map<String, String> queryParams = (Map<String, String>) m.getOrDefault(QUERY_PARAMS_KEY, Collections.emptyMap());
+            return new Context(projectId != null ? UUID.fromString(projectId) : null, UUID.fromString(userId), queryParams);
+        }
+    }
+
+    private static final class Entry {
+
+        private final UUID id;
+        private final String deliveryId;
+        private final String eventName;
+        private final Map<String, Object> data;
+        private final Context ctx;
+        private final Timestamp receivedAt;
+        private final int attempts;
+
+        private Entry(UUID id, String deliveryId, String eventName, Map<String, Object> data, Context ctx, Timestamp receivedAt, int attempts) {
+            this.id = id;
+            this.deliveryId = deliveryId;
+            this.eventName = eventName;
+            this.data = data;
+            this.ctx = ctx;
+            this.receivedAt = receivedAt;
+            this.attempts = attempts;
+        }
+    }
+
+    @Named
+    private static class Dao extends AbstractDao {
+
+        private final ConcordObjectMapper objectMapper;
+
+        @Inject
+        public Dao(@MainDB Configuration cfg, ConcordObjectMapper objectMapper) {
+            super(cfg);
+            this.objectMapper = objectMapper;
+        }
+
+        public boolean insert(String deliveryId, String eventName, Map<String, Object> data, Context ctx) {
+            return txResult(tx -> tx.insertInto(EVENT_INBOX)
+                    .columns(EVENT_INBOX.EVENT_SOURCE,
+                            EVENT_INBOX.DELIVERY_ID,
+                            EVENT_INBOX.EVENT_NAME,
+                            EVENT_INBOX.EVENT_DATA,
+                            EVENT_INBOX.EVENT_CONTEXT,
+                            EVENT_INBOX.INBOX_STATUS)
+                    .values(EVENT_SOURCE, deliveryId, eventName, objectMapper.toJSONB(data), objectMapper.toJSONB(ctx.toMap()), STATUS_NEW)
+                    .onConflictDoNothing()
+                    .execute()) > 0;
+        }
+
+        public int countPending() {
+            return txResult(tx -> tx.selectCount()
+                    .from(EVENT_INBOX)
+                    .where(EVENT_INBOX.EVENT_SOURCE.eq(EVENT_SOURCE)
+                            .and(EVENT_INBOX.INBOX_STATUS.eq(STATUS_NEW)))
+                    .fetchOne(0, int.class));
+        }
+
+        /**
+         * Picks up to {@code limit} events ready to be processed. The events are "leased"
+         * for the specified amount of time, if an event wasn't processed in time
+         * (e.g. the server was restarted) it is picked up again.
+         */
+        public List<Entry> poll(int limit, long leaseTimeout) {
+            return txResult(tx -> {
+                List<Entry> entries = tx.select(
+                        EVENT_INBOX.INBOX_ID,
+                        EVENT_INBOX.DELIVERY_ID,
+                        EVENT_INBOX.EVENT_NAME,
+                        EVENT_INBOX.EVENT_DATA,
+                        EVENT_INBOX.EVENT_CONTEXT,
+                        EVENT_INBOX.RECEIVED_AT,
+                        EVENT_INBOX.ATTEMPTS)
+                        .from(EVENT_INBOX)
+                        .where(EVENT_INBOX.EVENT_SOURCE.eq(EVENT_SOURCE)
+                                .and(EVENT_INBOX.INBOX_STATUS.eq(STATUS_NEW))
+                                .and(EVENT_INBOX.NEXT_ATTEMPT_AT.lessOrEqual(currentTimestamp())))
+                        .orderBy(EVENT_INBOX.NEXT_ATTEMPT_AT)
+                        .limit(limit)
+                        .forUpdate()
+                        .skipLocked()
+                        .fetch(this::toEntry);
+
+                if (entries.isEmpty()) {
+                    return entries;
+                }
+
+                List<UUID> ids = entries.stream()
+                        .map(e -> e.id)
+                        .collect(Collectors.toList());
+
+                tx.update(EVENT_INBOX)
+                        .set(EVENT_INBOX.ATTEMPTS, EVENT_INBOX.ATTEMPTS.plus(1))
+                        .set(EVENT_INBOX.NEXT_ATTEMPT_AT, after(leaseTimeout))
+                        .where(EVENT_INBOX.INBOX_ID.in(ids))
+                        .execute();
+
+                return entries;
+            });
+        }
+
+        public void success(UUID id) {
+            tx(tx -> tx.update(EVENT_INBOX)
+                    .set(EVENT_INBOX.INBOX_STATUS, STATUS_DONE)
+                    .set(EVENT_INBOX.PROCESSED_AT, currentTimestamp())
+                    .set(EVENT_INBOX.LAST_ERROR, (String) null)
+                    .where(EVENT_INBOX.INBOX_ID.eq(id))
+                    .execute());
+        }
+
+        public void retry(UUID id, long delay, String error) {
+            tx(tx -> tx.update(EVENT_INBOX)
+                    .set(EVENT_INBOX.NEXT_ATTEMPT_AT, after(delay))
+                    .set(EVENT_INBOX.LAST_ERROR, error)
+                    .where(EVENT_INBOX.INBOX_ID.eq(id))
+                    .execute());
+        }
+
+        public void fail(UUID id, String error) {
+            tx(tx -> tx.update(EVENT_INBOX)
+                    .set(EVENT_INBOX.INBOX_STATUS, STATUS_FAILED)
+                    .set(EVENT_INBOX.PROCESSED_AT, currentTimestamp())
+                    .set(EVENT_INBOX.LAST_ERROR, error)
+                    .where(EVENT_INBOX.INBOX_ID.eq(id))
+                    .execute());
+        }
+
+        public Set<UUID> getStartedTriggers(UUID inboxId) {
+            return txResult(tx -> tx.select(EVENT_INBOX_STARTS.TRIGGER_ID)
+                    .from(EVENT_INBOX_STARTS)
+                    .where(EVENT_INBOX_STARTS.INBOX_ID.eq(inboxId))
+                    .fetchSet(EVENT_INBOX_STARTS.TRIGGER_ID));
+        }
+
+        public void markStarted(UUID inboxId, UUID triggerId, UUID instanceId) {
+            tx(tx -> tx.insertInto(EVENT_INBOX_STARTS)
+                    .columns(EVENT_INBOX_STARTS.INBOX_ID, EVENT_INBOX_STARTS.TRIGGER_ID, EVENT_INBOX_STARTS.INSTANCE_ID)
+                    .values(inboxId, triggerId, instanceId)
+                    .onConflictDoNothing()
+                    .execute());
+        }
+
+        /**
+         * Removes processed (or failed) events older than the specified cutoff date.
+         * Note that redeliveries of removed events are no longer deduplicated.
+         */
+        public int deleteOld(Timestamp cutoff) {
+            return txResult(tx -> tx.deleteFrom(EVENT_INBOX)
+                    .where(EVENT_INBOX.RECEIVED_AT.lessThan(cutoff)
+                            .and(EVENT_INBOX.INBOX_STATUS.in(STATUS_DONE, STATUS_FAILED)))
+                    .execute());
+        }
+
+        private Entry toEntry(Record7<UUID, String, String, JSONB, JSONB, Timestamp, Integer> r) {
+            return new Entry(r.value1(), r.value2(), r.value3(),
+                    objectMapper.fromJSONB(r.value4()),
+                    Context.fromMap(objectMapper.fromJSONB(r.value5())),
+                    r.value6(),
+                    // the attempts counter is incremented when the entry is picked up
+                    r.value7() + 1);
+        }
+
+        @SuppressWarnings("unchecked")
+        private static Field<Timestamp> after(long ms) {
+            return currentTimestamp().plus((Field<? extends Number>) interval(ms + " milliseconds"));
+        }
+    }
+}
@@ -30,12 +30,15 @@ import com.walmartlabs.concord.server.cfg.GithubConfiguration;
 import com.walmartlabs.concord.server.cfg.TriggersConfiguration;
 import com.walmartlabs.concord.server.events.github.GithubTriggerProcessor;
 import com.walmartlabs.concord.server.events.github.Payload;
-import com.walmartlabs.concord.server.org.project.ProjectDao;
-import com.walmartlabs.concord.server.org.project.RepositoryDao;
+import com.walmartlabs.concord.server.org.triggers.TriggerIndex;
 import com.walmartlabs.concord.server.org.triggers.TriggerUtils;
+import com.walmartlabs.concord.server.process.PartialProcessKey;
 import com.walmartlabs.concord.server.process.ProcessManager;
 import com.walmartlabs.concord.server.process.ProcessSecurityContext;
 import com.walmartlabs.concord.server.sdk.metrics.WithTimer;
+import com.walmartlabs.concord.server.security.GithubAuthenticatingFilter;
+import com.walmartlabs.concord.server.security.UserPrincipal;
+import com.walmartlabs.concord.server.security.github.GithubKey;
 import com.walmartlabs.concord.server.security.ldap.LdapManager;
 import com.walmartlabs.concord.server.security.ldap.LdapPrincipal;
 import com.walmartlabs.concord.server.user.UserEntry;
@@ -44,6 +47,7 @@ import com.walmartlabs.concord.server.user.UserType;
 import io.swagger.annotations.Api;
 import io.swagger.annotations.ApiOperation;
 import io.swagger.annotations.ApiParam;
+import org.apache.shiro.util.ThreadContext;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.sonatype.siesta.Resource;
@@ -54,10 +58,9 @@ import javax.inject.Singleton;
 import javax.ws.rs.*;
 import javax.ws.rs.core.Context;
 import javax.ws.rs.core.MediaType;
+import javax.ws.rs.core.MultivaluedMap;
 import javax.ws.rs.core.UriInfo;
-import java.util.ArrayList;
-import java.util.List;
-import java.util.Map;
+import java.util.*;
 
 import static com.walmartlabs.concord.server.events.github.Constants.COMMIT_ID_KEY;
 import static com.walmartlabs.concord.server.events.github.Constants.EVENT_SOURCE;
@@ -75,11 +78,12 @@ public class GithubEventResource extends AbstractEventResource implements Resour
     private final UserManager userManager;
     private final AuditLog auditLog;
     private final List<GithubTriggerProcessor> processors;
+    private final ProcessSecurityContext processSecurityContext;
+    private final GithubEventInbox inbox;
 
     @Inject
     public GithubEventResource(ExternalEventsConfiguration cfg,
-                               ProjectDao projectDao,
-                               RepositoryDao repositoryDao,
+                               TriggerIndex triggerIndex,
                                ProcessManager processManager,
                                TriggersConfiguration triggersConfiguration,
                                GithubConfiguration githubCfg,
@@ -87,15 +91,18 @@ public class GithubEventResource extends AbstractEventResource implements Resour
                                UserManager userManager,
                                ProcessSecurityContext processSecurityContext,
                                AuditLog auditLog,
-                               List<GithubTriggerProcessor> processors) {
+                               List<GithubTriggerProcessor> processors,
+                               GithubEventInbox inbox) {
 
-        super(cfg, processManager, projectDao, repositoryDao, triggersConfiguration, userManager, processSecurityContext);
+        super(cfg, processManager, triggerIndex, triggersConfiguration, userManager, processSecurityContext);
 
         this.githubCfg = githubCfg;
         this.ldapManager = ldapManager;
         this.userManager = userManager;
         this.auditLog = auditLog;
         this.processors = processors;
+        this.processSecurityContext = processSecurityContext;
+        this.inbox = inbox;
     }
 
     @POST
@@ -120,10 +127,44 @@ public class GithubEventResource extends AbstractEventResource implements Resour
             return "ok";
         }
 
+        GithubKey githubKey = GithubKey.getCurrent();
+        UserPrincipal currentUser = UserPrincipal.assertCurrent();
+        GithubEventInbox.Context ctx = new GithubEventInbox.Context(githubKey.getProjectId(), currentUser.getId(), getQueryParams(uriInfo));
+
+        if (inbox.isEnabled()) {
+            if (!inbox.add(deliveryId, eventName, data, ctx)) {
+                log.info("onEvent ['{}', '{}'] -> duplicate delivery, ignoring", deliveryId, eventName);
+            }
+            return "ok";
+        }
+
+        process(deliveryId, eventName, data, ctx, null);
+        return "ok";
+    }
+
+    /**
+     * Processes an event saved by {@link GithubEventInbox}, i.e. outside of
+     * the original HTTP request, using the original request's user.
+     *
+     * Triggers already started by the previous attempts (according to the {@code tracker})
+     * are skipped. Throws an exception if any of the triggers failed to start.
+     *
+     * @return the number of started processes
+     */
+    int processInboxEvent(String deliveryId, String eventName, Map<String, Object> data, GithubEventInbox.Context ctx, TriggerStartTracker tracker) throws Exception {
+        try {
+            return processSecurityContext.runAs(ctx.getUserId(), () -> process(deliveryId, eventName, data, ctx, tracker));
+        } finally {
+            ThreadContext.unbindSubject();
+            ThreadContext.unbindSecurityManager();
+        }
+    }
+
+    private int process(String deliveryId, String eventName, Map<String, Object> data, GithubEventInbox.Context ctx, TriggerStartTracker tracker) {
         Payload payload = Payload.from(eventName, data);
         if (payload == null) {
             log.warn("event ['{}', '{}'] -> can't parse payload: '{}'", deliveryId, eventName, data);
-            return "ok";
+            return 0;
         }
 
         if (githubCfg.isLogEvents()) {
@@ -136,20 +177,59 @@ public class GithubEventResource extends AbstractEventResource implements Resour
         }
 
         List<GithubTriggerProcessor.Result> results = new ArrayList<>();
-        processors.forEach(p -> p.process(eventName, payload, uriInfo, results));
+        processors.forEach(p -> p.process(eventName, payload, ctx.getHookProjectId(), ctx.getQueryParams(), results));
 
+        int started = 0;
+        RuntimeException error = null;
         for (GithubTriggerProcessor.Result r : results) {
-            process(deliveryId, EVENT_SOURCE, r.event(), r.triggers(), (t, cfg) -> {
-                // if `useEventCommitId` is true then the process is forced to use the specified commit ID
-                String commitId = MapUtils.getString(r.event(), COMMIT_ID_KEY);
-                if (commitId != null && TriggerUtils.isUseEventCommitId(t)) {
-                    cfg.put(Constants.Request.REPO_COMMIT_ID, commitId);
+            try {
+                List<PartialProcessKey> processKeys = process(deliveryId, EVENT_SOURCE, r.event(), r.triggers(), (t, cfg) -> {
+                    // if `useEventCommitId` is true then the process is forced to use the specified commit ID
+                    String commitId = MapUtils.getString(r.event(), COMMIT_ID_KEY);
+                    if (commitId != null && TriggerUtils.isUseEventCommitId(t)) {
+                        cfg.put(Constants.Request.REPO_COMMIT_ID, commitId);
+                    }
+                    return cfg;
+                }, tracker);
+                started += processKeys.size();
+            } catch (RuntimeException e) {
+                // process the rest of the results anyway, report the error after
+                if (error == null) {
+                    error = e;
+                } else {
+                    error.addSuppressed(e);
                 }
-                return cfg;
-            });
+            }
         }
 
-        return "ok";
+        if (error != null) {
+            throw error;
+        }
+
+        return started;
+    }
+
+    /**
+     * Returns the request's query parameters (the first value of each parameter),
+     * without the webhook's authentication parameters.
+     */
+    private static Map<String, String> getQueryParams(UriInfo uriInfo) {
+        if (uriInfo == null) {
+            return Collections.emptyMap();
+        }
+
+        MultivaluedMap<String, String> qp = uriInfo.getQueryParameters();
+        if (qp == null || qp.isEmpty()) {
+            return Collections.emptyMap();
+        }
+
+        Map<String, String> result = new HashMap<>();
+        qp.keySet().forEach(k -> result.put(k, qp.getFirst(k)));
+
+        result.remove(GithubAuthenticatingFilter.HOOK_PROJECT_ID);
+        result.remove(GithubAuthenticatingFilter.HOOK_REPO_TOKEN);
+
+        return result;
     }
 
     @Override
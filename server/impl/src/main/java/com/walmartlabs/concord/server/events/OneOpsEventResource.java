@@ -23,10 +23,8 @@ package com.walmartlabs.concord.server.events;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.walmartlabs.concord.server.cfg.ExternalEventsConfiguration;
 import com.walmartlabs.concord.server.cfg.TriggersConfiguration;
-import com.walmartlabs.concord.server.org.project.ProjectDao;
-import com.walmartlabs.concord.server.org.project.RepositoryDao;
 import com.walmartlabs.concord.server.org.triggers.TriggerEntry;
-import com.walmartlabs.concord.server.org.triggers.TriggersDao;
+import com.walmartlabs.concord.server.org.triggers.TriggerIndex;
 import com.walmartlabs.concord.server.process.PartialProcessKey;
 import com.walmartlabs.concord.server.process.ProcessManager;
 import com.walmartlabs.concord.server.process.ProcessSecurityContext;
@@ -76,23 +74,21 @@ public class OneOpsEventResource extends AbstractEventResource implements Resour
     private static final String IPS_KEY = "ips";
     private static final String AUTHOR_KEY = "author";
 
-    private final TriggersDao triggersDao;
+    private final TriggerIndex triggerIndex;
     private final ObjectMapper objectMapper;
 
     @Inject
     public OneOpsEventResource(ExternalEventsConfiguration cfg,
                                ProcessManager processManager,
-                               TriggersDao triggersDao,
-                               ProjectDao projectDao,
-                               RepositoryDao repositoryDao,
+                               TriggerIndex triggerIndex,
                                TriggersConfiguration triggersCfg,
                                UserManager userManager,
                                ProcessSecurityContext processSecurityContext,
                                ObjectMapper objectMapper) {
 
-        super(cfg, processManager, projectDao, repositoryDao, triggersCfg, userManager, processSecurityContext);
+        super(cfg, processManager, triggerIndex, triggersCfg, userManager, processSecurityContext);
 
-        this.triggersDao = triggersDao;
+        this.triggerIndex = triggerIndex;
         this.objectMapper = objectMapper;
     }
 
@@ -115,7 +111,7 @@ public class OneOpsEventResource extends AbstractEventResource implements Resour
 
         String eventId = String.valueOf(event.get("cmsId"));
 
-        List<TriggerEntry> triggers = triggersDao.list(EVENT_SOURCE).stream()
+        List<TriggerEntry> triggers = triggerIndex.list(EVENT_SOURCE).stream()
                 .filter(t -> DefaultEventFilter.filter(triggerConditions, t))
                 .collect(Collectors.toList());
 
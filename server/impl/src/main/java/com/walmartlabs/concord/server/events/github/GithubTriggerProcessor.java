@@ -22,14 +22,18 @@ package com.walmartlabs.concord.server.events.github;
 
 import com.walmartlabs.concord.server.org.triggers.TriggerEntry;
 
-import javax.ws.rs.core.UriInfo;
 import java.util.Collections;
 import java.util.List;
 import java.util.Map;
+import java.util.UUID;
 
 public interface GithubTriggerProcessor {
 
-    void process(String eventName, Payload payload, UriInfo uriInfo, List<Result> result);
+    /**
+     * @param hookProjectId if not {@code null} the webhook is restricted to the specified project
+     * @param queryParams   the webhook request's query parameters
+     */
+    void process(String eventName, Payload payload, UUID hookProjectId, Map<String, String> queryParams, List<Result> result);
 
     class Result {
 
@@ -26,15 +26,11 @@ import com.walmartlabs.concord.server.org.project.ProjectDao;
 import com.walmartlabs.concord.server.org.project.ProjectEntry;
 import com.walmartlabs.concord.server.org.project.RepositoryDao;
 import com.walmartlabs.concord.server.org.triggers.TriggerEntry;
-import com.walmartlabs.concord.server.org.triggers.TriggersDao;
-import com.walmartlabs.concord.server.security.GithubAuthenticatingFilter;
-import com.walmartlabs.concord.server.security.github.GithubKey;
+import com.walmartlabs.concord.server.org.triggers.TriggerIndex;
 
 import javax.inject.Inject;
 import javax.inject.Named;
 import javax.inject.Singleton;
-import javax.ws.rs.core.MultivaluedMap;
-import javax.ws.rs.core.UriInfo;
 import java.util.*;
 import java.util.stream.Collectors;
 
@@ -56,30 +52,26 @@ public class GithubTriggerV1Processor implements GithubTriggerProcessor {
 
     private final RepositoryDao repositoryDao;
     private final ProjectDao projectDao;
-    private final TriggersDao triggersDao;
+    private final TriggerIndex triggerIndex;
     private final GithubConfiguration githubCfg;
     private final GithubTriggerDefinitionEnricher triggerDefinitionEnricher;
 
     @Inject
     public GithubTriggerV1Processor(RepositoryDao repositoryDao,
                                     ProjectDao projectDao,
-                                    TriggersDao triggersDao,
+                                    TriggerIndex triggerIndex,
                                     GithubConfiguration githubCfg,
                                     GithubTriggerDefinitionEnricher triggerDefinitionEnricher) {
 
         this.repositoryDao = repositoryDao;
         this.projectDao = projectDao;
-        this.triggersDao = triggersDao;
+        this.triggerIndex = triggerIndex;
         this.githubCfg = githubCfg;
         this.triggerDefinitionEnricher = triggerDefinitionEnricher;
     }
 
     @Override
-    public void process(String eventName, Payload payload, UriInfo uriInfo, List<Result> result) {
-        // support for hooks restricted to a specific repository
-        GithubKey githubKey = GithubKey.getCurrent();
-        UUID hookProjectId = githubKey.getProjectId();
-
+    public void process(String eventName, Payload payload, UUID hookProjectId, Map<String, String> queryParams, List<Result> result) {
         String eventBranch = payload.getBranch();
         List<RepositoryItem> repos = findRepos(payload.getFullRepoName(), eventBranch, hookProjectId);
         boolean unknownRepo = repos.isEmpty();
@@ -89,7 +81,7 @@ public class GithubTriggerV1Processor implements GithubTriggerProcessor {
 
         for (RepositoryItem r : repos) {
             Map<String, Object> conditions = buildConditions(payload, r.repositoryName, eventBranch, r.project, eventName);
-            conditions = enrich(conditions, uriInfo);
+            conditions = enrich(conditions, queryParams);
 
             Map<String, Object> triggerConditions = conditions;
             Map<String, Object> triggerEvent = buildTriggerEvent(payload, r.id, r.project, conditions);
@@ -106,7 +98,7 @@ public class GithubTriggerV1Processor implements GithubTriggerProcessor {
     }
 
     private List<TriggerEntry> listTriggers(UUID projectId) {
-        return triggersDao.list(projectId, EVENT_SOURCE, VERSION_ID, null);
+        return triggerIndex.list(projectId, EVENT_SOURCE, VERSION_ID, null);
     }
 
     private List<RepositoryItem> findRepos(String repoName, String branch, UUID hookProjectId) {
@@ -133,22 +125,13 @@ public class GithubTriggerV1Processor implements GithubTriggerProcessor {
         return repoBranch.equals(eventBranch);
     }
 
-    private static Map<String, Object> enrich(Map<String, Object> event, UriInfo uriInfo) {
-        if (uriInfo == null) {
-            return event;
-        }
-
-        MultivaluedMap<String, String> qp = uriInfo.getQueryParameters();
-        if (qp == null || qp.isEmpty()) {
+    private static Map<String, Object> enrich(Map<String, Object> event, Map<String, String> queryParams) {
+        if (queryParams == null || queryParams.isEmpty()) {
             return event;
         }
 
         Map<String, Object> m = new HashMap<>(event);
-        qp.keySet().forEach(k -> m.put(k, qp.getFirst(k)));
-
-        m.remove(GithubAuthenticatingFilter.HOOK_PROJECT_ID);
-        m.remove(GithubAuthenticatingFilter.HOOK_REPO_TOKEN);
-
+        m.putAll(queryParams);
         return m;
     }
 
@@ -26,13 +26,11 @@ import com.walmartlabs.concord.server.events.DefaultEventFilter;
 import com.walmartlabs.concord.server.org.project.RepositoryDao;
 import com.walmartlabs.concord.server.org.project.RepositoryEntry;
 import com.walmartlabs.concord.server.org.triggers.TriggerEntry;
-import com.walmartlabs.concord.server.org.triggers.TriggersDao;
-import com.walmartlabs.concord.server.security.github.GithubKey;
+import com.walmartlabs.concord.server.org.triggers.TriggerIndex;
 
 import javax.inject.Inject;
 import javax.inject.Named;
 import javax.inject.Singleton;
-import javax.ws.rs.core.UriInfo;
 import java.util.*;
 
 import static com.walmartlabs.concord.server.events.github.Constants.*;
@@ -43,21 +41,18 @@ public class GithubTriggerV2Processor implements GithubTriggerProcessor {
 
     private static final int VERSION_ID = 2;
 
-    private final TriggersDao dao;
+    private final TriggerIndex triggerIndex;
     private final List<EventEnricher> eventEnrichers;
 
     @Inject
-    public GithubTriggerV2Processor(TriggersDao dao, List<EventEnricher> eventEnrichers) {
-        this.dao = dao;
+    public GithubTriggerV2Processor(TriggerIndex triggerIndex, List<EventEnricher> eventEnrichers) {
+        this.triggerIndex = triggerIndex;
         this.eventEnrichers = eventEnrichers;
     }
 
     @Override
-    public void process(String eventName, Payload payload, UriInfo uriInfo, List<Result> result) {
-        GithubKey githubKey = GithubKey.getCurrent();
-        UUID projectId = githubKey.getProjectId();
-
-        List<TriggerEntry> triggers = listTriggers(projectId, payload.getOrg(), payload.getRepo());
+    public void process(String eventName, Payload payload, UUID hookProjectId, Map<String, String> queryParams, List<Result> result) {
+        List<TriggerEntry> triggers = listTriggers(hookProjectId, payload.getOrg(), payload.getRepo(), eventName);
         for (TriggerEntry t : triggers) {
             Map<String, Object> event = buildEvent(eventName, payload);
             enrichEventConditions(payload, t, event);
@@ -74,11 +69,12 @@ public class GithubTriggerV2Processor implements GithubTriggerProcessor {
         }
     }
 
-    private List<TriggerEntry> listTriggers(UUID projectId, String org, String repo) {
+    private List<TriggerEntry> listTriggers(UUID projectId, String org, String repo, String eventName) {
         Map<String, String> conditions = new HashMap<>();
         conditions.put(GITHUB_ORG_KEY, org);
         conditions.put(GITHUB_REPO_KEY, repo);
-        return dao.list(projectId, EVENT_SOURCE, VERSION_ID, conditions);
+        conditions.put(TYPE_KEY, eventName);
+        return triggerIndex.list(projectId, EVENT_SOURCE, VERSION_ID, conditions);
     }
 
     private Map<String, Object> buildEvent(String eventName, Payload payload) {
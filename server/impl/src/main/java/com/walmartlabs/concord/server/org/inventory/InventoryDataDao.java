@@ -25,6 +25,8 @@ import com.walmartlabs.concord.db.MainDB;
 import com.walmartlabs.concord.server.ConcordObjectMapper;
 import com.walmartlabs.concord.server.jooq.tables.JsonStoreData;
 import com.walmartlabs.concord.server.jooq.tables.JsonStores;
+import com.walmartlabs.concord.server.jooq.tables.records.JsonStoreDataRecord;
+import com.walmartlabs.concord.server.org.jsonstore.JsonStoreStatsDao;
 import org.jooq.*;
 import org.jooq.impl.DSL;
 
@@ -44,13 +46,16 @@ import static org.jooq.impl.DSL.*;
 public class InventoryDataDao extends AbstractDao {
 
     private final ConcordObjectMapper objectMapper;
+    private final JsonStoreStatsDao statsDao;
 
     // TODO shouldn't it be @InventoryDB?
     @Inject
     public InventoryDataDao(@MainDB Configuration cfg,
-                            ConcordObjectMapper objectMapper) {
+                            ConcordObjectMapper objectMapper,
+                            JsonStoreStatsDao statsDao) {
         super(cfg);
         this.objectMapper = objectMapper;
+        this.statsDao = statsDao;
     }
 
     public Object getSingleItem(UUID id, String itemPath) {
@@ -118,19 +123,54 @@ public class InventoryDataDao extends AbstractDao {
     }
 
     private void merge(DSLContext tx, UUID inventoryId, String itemPath, Object data) {
+        // waits for a concurrent insert of the same item, so the new item is counted only once
+        int inserted = tx.insertInto(JSON_STORE_DATA)
+                .columns(JSON_STORE_DATA.JSON_STORE_ID, JSON_STORE_DATA.ITEM_PATH, JSON_STORE_DATA.ITEM_DATA)
+                .values(inventoryId, itemPath, objectMapper.toJSONB(data))
+                .onConflictDoNothing()
+                .execute();
+
+        // inventory items don't have sizes
+        if (inserted > 0) {
+            statsDao.update(tx, inventoryId, 1, 0);
+            return;
+        }
+
+        // locks the existing item
+        Record1<Long> prev = tx.select(JSON_STORE_DATA.ITEM_DATA_SIZE)
+                .from(JSON_STORE_DATA)
+                .where(JSON_STORE_DATA.JSON_STORE_ID.eq(inventoryId)
+                        .and(JSON_STORE_DATA.ITEM_PATH.eq(itemPath)))
+                .forUpdate()
+                .fetchOne();
+
         tx.insertInto(JSON_STORE_DATA)
                 .columns(JSON_STORE_DATA.JSON_STORE_ID, JSON_STORE_DATA.ITEM_PATH, JSON_STORE_DATA.ITEM_DATA)
                 .values(inventoryId, itemPath, objectMapper.toJSONB(data))
                 .onDuplicateKeyUpdate()
                 .set(JSON_STORE_DATA.ITEM_DATA, objectMapper.toJSONB(data))
+                .set(JSON_STORE_DATA.ITEM_DATA_SIZE, (Long) null)
                 .execute();
+
+        if (prev == null) {
+            // removed by a concurrent transaction
+            statsDao.update(tx, inventoryId, 1, 0);
+        } else if (prev.value1() != null) {
+            statsDao.update(tx, inventoryId, 0, -prev.value1());
+        }
     }
 
     private void delete(DSLContext tx, UUID inventoryId, String itemPath) {
-        tx.deleteFrom(JSON_STORE_DATA)
+        JsonStoreDataRecord deleted = tx.deleteFrom(JSON_STORE_DATA)
                 .where(JSON_STORE_DATA.JSON_STORE_ID.eq(inventoryId)
                         .and(JSON_STORE_DATA.ITEM_PATH.eq(itemPath)))
-                .execute();
+                .returning(JSON_STORE_DATA.ITEM_DATA_SIZE)
+                .fetchOne();
+
+        if (deleted != null) {
+            Long size = deleted.getItemDataSize();
+            statsDao.update(tx, inventoryId, -1, size != null ? -size : 0);
+        }
     }
 
     private InventoryDataItem toEntry(Record3<String, JSONB, Integer> r) {
@@ -0,0 +1,54 @@
+package com.walmartlabs.concord.server.org.jsonstore;
+
+/*-
+ * *****
+ * Concord
+ * -----
+ * Copyright (C) 2017 - 2020 Walmart Inc.
+ * -----
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * =====
+ */
+
+import com.fasterxml.jackson.databind.annotation.JsonDeserialize;
+import com.fasterxml.jackson.databind.annotation.JsonSerialize;
+import org.immutables.value.Value;
+
+import java.io.Serializable;
+
+@Value.Immutable
+@JsonSerialize(as = ImmutableJsonStoreBulkResult.class)
+@JsonDeserialize(as = ImmutableJsonStoreBulkResult.class)
+public interface JsonStoreBulkResult extends Serializable {
+
+    long serialVersionUID = 1L;
+
+    @Value.Default
+    default int created() {
+        return 0;
+    }
+
+    @Value.Default
+    default int updated() {
+        return 0;
+    }
+
+    @Value.Default
+    default int deleted() {
+        return 0;
+    }
+
+    static ImmutableJsonStoreBulkResult.Builder builder() {
+        return ImmutableJsonStoreBulkResult.builder();
+    }
+}
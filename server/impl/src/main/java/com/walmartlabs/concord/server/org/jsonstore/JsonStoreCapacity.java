@@ -35,6 +35,8 @@ public interface JsonStoreCapacity {
 
     long size();
 
+    long itemCount();
+
     @Nullable
     Long maxSize();
 
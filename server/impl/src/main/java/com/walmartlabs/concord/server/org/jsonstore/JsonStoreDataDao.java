@@ -24,30 +24,30 @@ import com.walmartlabs.concord.db.AbstractDao;
 import com.walmartlabs.concord.db.MainDB;
 import com.walmartlabs.concord.server.ConcordObjectMapper;
 import com.walmartlabs.concord.server.jooq.tables.JsonStoreData;
+import com.walmartlabs.concord.server.jooq.tables.records.JsonStoreDataRecord;
 import org.jooq.*;
 import org.jooq.impl.DSL;
 
 import javax.inject.Inject;
 import javax.inject.Named;
-import java.math.BigDecimal;
-import java.util.List;
-import java.util.UUID;
+import java.util.*;
 
 import static com.walmartlabs.concord.server.jooq.tables.JsonStoreData.JSON_STORE_DATA;
-import static org.jooq.impl.DSL.coalesce;
-import static org.jooq.impl.DSL.sum;
 
 @Named
 public class JsonStoreDataDao extends AbstractDao {
 
     private final ConcordObjectMapper objectMapper;
+    private final JsonStoreStatsDao statsDao;
 
     @Inject
     public JsonStoreDataDao(@MainDB Configuration cfg,
-                            ConcordObjectMapper objectMapper) {
+                            ConcordObjectMapper objectMapper,
+                            JsonStoreStatsDao statsDao) {
 
         super(cfg);
         this.objectMapper = objectMapper;
+        this.statsDao = statsDao;
     }
 
     public Long getItemSize(UUID storeId, String itemPath) {
@@ -103,27 +103,175 @@ public class JsonStoreDataDao extends AbstractDao {
     }
 
     public void upsert(UUID storeId, String itemPath, String data) {
-        tx(tx -> tx.insertInto(JSON_STORE_DATA)
-                        .columns(JSON_STORE_DATA.JSON_STORE_ID, JSON_STORE_DATA.ITEM_PATH, JSON_STORE_DATA.ITEM_DATA, JSON_STORE_DATA.ITEM_DATA_SIZE)
-                        .values(storeId, itemPath, objectMapper.jsonStringToJSONB(data), (long) data.length())
-                        .onDuplicateKeyUpdate()
-                        .set(JSON_STORE_DATA.ITEM_DATA, objectMapper.jsonStringToJSONB(data))
-                        .set(JSON_STORE_DATA.ITEM_DATA_SIZE, (long) data.length())
-                        .execute());
+        upsert(storeId, Collections.singletonMap(itemPath, data));
     }
 
-    public Long getSize(UUID storeId) {
-        return txResult(tx -> tx.select(coalesce(sum(JSON_STORE_DATA.ITEM_DATA_SIZE), BigDecimal.ZERO))
-                        .from(JSON_STORE_DATA)
-                        .where(JSON_STORE_DATA.JSON_STORE_ID.eq(storeId))
-                        .fetchOne(r -> r.value1().longValue()));
+    public boolean delete(UUID storeId, String itemPath) {
+        return txResult(tx -> {
+            JsonStoreDataRecord deleted = tx.deleteFrom(JSON_STORE_DATA)
+                    .where(JSON_STORE_DATA.JSON_STORE_ID.eq(storeId)
+                            .and(JSON_STORE_DATA.ITEM_PATH.eq(itemPath)))
+                    .returning(JSON_STORE_DATA.ITEM_DATA_SIZE)
+                    .fetchOne();
+
+            if (deleted == null) {
+                return false;
+            }
+
+            statsDao.update(tx, storeId, -1, -nullToZero(deleted.getItemDataSize()));
+            return true;
+        });
     }
 
-    public boolean delete(UUID storeId, String itemPath) {
-        return txResult(tx -> tx.deleteFrom(JSON_STORE_DATA)
+    /**
+     * Returns the sizes of the existing items.
+     *
+     * @return item path -> item size
+     */
+    public Map<String, Long> getItemSizes(UUID storeId, Collection<String> itemPaths) {
+        try (DSLContext tx = DSL.using(cfg)) {
+            return getItemSizes(tx, storeId, itemPaths);
+        }
+    }
+
+    public List<JsonStoreDataEntry> get(UUID storeId, Collection<String> itemPaths) {
+        try (DSLContext tx = DSL.using(cfg)) {
+            return tx.select(JSON_STORE_DATA.ITEM_PATH, JSON_STORE_DATA.ITEM_DATA)
+                    .from(JSON_STORE_DATA)
+                    .where(JSON_STORE_DATA.JSON_STORE_ID.eq(storeId)
+                            .and(JSON_STORE_DATA.ITEM_PATH.in(itemPaths)))
+                    .orderBy(JSON_STORE_DATA.ITEM_PATH)
+                    .fetch(this::toDataEntry);
+        }
+    }
+
+    /**
+     * Inserts or updates multiple items. Only the affected items are locked,
+     * concurrent writes of other items in the same store are not blocked.
+     *
+     * @param items item path -> JSON data
+     * @return the number of created items
+     */
+    public int upsert(UUID storeId, Map<String, String> items) {
+        // the same order in all transactions, avoids deadlocks
+        SortedMap<String, String> sorted = new TreeMap<>(items);
+
+        return txResult(tx -> {
+            InsertValuesStep4<JsonStoreDataRecord, UUID, String, JSONB, Long> q = tx.insertInto(JSON_STORE_DATA)
+                    .columns(JSON_STORE_DATA.JSON_STORE_ID, JSON_STORE_DATA.ITEM_PATH, JSON_STORE_DATA.ITEM_DATA, JSON_STORE_DATA.ITEM_DATA_SIZE);
+
+            for (Map.Entry<String, String> e : sorted.entrySet()) {
+                q = q.values(storeId, e.getKey(), objectMapper.jsonStringToJSONB(e.getValue()), (long) e.getValue().length());
+            }
+
+            // waits for concurrent inserts of the same items, so each new item is counted only once
+            Set<String> inserted = new HashSet<>(q.onConflictDoNothing()
+                    .returning(JSON_STORE_DATA.ITEM_PATH)
+                    .fetch(JSON_STORE_DATA.ITEM_PATH));
+
+            int created = inserted.size();
+            long sizeDelta = 0;
+
+            SortedMap<String, String> existing = new TreeMap<>();
+            for (Map.Entry<String, String> e : sorted.entrySet()) {
+                if (inserted.contains(e.getKey())) {
+                    sizeDelta += e.getValue().length();
+                } else {
+                    existing.put(e.getKey(), e.getValue());
+                }
+            }
+
+            if (!existing.isEmpty()) {
+                Map<String, Long> prevSizes = lockItems(tx, storeId, existing.keySet());
+
+                q = tx.insertInto(JSON_STORE_DATA)
+                        .columns(JSON_STORE_DATA.JSON_STORE_ID, JSON_STORE_DATA.ITEM_PATH, JSON_STORE_DATA.ITEM_DATA, JSON_STORE_DATA.ITEM_DATA_SIZE);
+
+                for (Map.Entry<String, String> e : existing.entrySet()) {
+                    long size = e.getValue().length();
+                    q = q.values(storeId, e.getKey(), objectMapper.jsonStringToJSONB(e.getValue()), size);
+
+                    // the item might've been removed by a concurrent transaction
+                    if (!prevSizes.containsKey(e.getKey())) {
+                        created++;
+                    }
+                    sizeDelta += size - nullToZero(prevSizes.get(e.getKey()));
+                }
+
+                q.onConflict(JSON_STORE_DATA.JSON_STORE_ID, JSON_STORE_DATA.ITEM_PATH)
+                        .doUpdate()
+                        .set(JSON_STORE_DATA.ITEM_DATA, excluded(JSON_STORE_DATA.ITEM_DATA))
+                        .set(JSON_STORE_DATA.ITEM_DATA_SIZE, excluded(JSON_STORE_DATA.ITEM_DATA_SIZE))
+                        .execute();
+            }
+
+            statsDao.update(tx, storeId, created, sizeDelta);
+            return created;
+        });
+    }
+
+    /**
+     * Removes multiple items using a single statement.
+     *
+     * @return paths of the removed items
+     */
+    public List<String> delete(UUID storeId, Collection<String> itemPaths) {
+        return txResult(tx -> {
+            lockItems(tx, storeId, itemPaths);
+
+            Result<JsonStoreDataRecord> deleted = tx.deleteFrom(JSON_STORE_DATA)
+                    .where(JSON_STORE_DATA.JSON_STORE_ID.eq(storeId)
+                            .and(JSON_STORE_DATA.ITEM_PATH.in(itemPaths)))
+                    .returning(JSON_STORE_DATA.ITEM_PATH, JSON_STORE_DATA.ITEM_DATA_SIZE)
+                    .fetch();
+
+            long sizeDelta = 0;
+            List<String> result = new ArrayList<>(deleted.size());
+            for (JsonStoreDataRecord r : deleted) {
+                sizeDelta -= nullToZero(r.getItemDataSize());
+                result.add(r.getItemPath());
+            }
+
+            statsDao.update(tx, storeId, -deleted.size(), sizeDelta);
+            return result;
+        });
+    }
+
+    private static Map<String, Long> getItemSizes(DSLContext tx, UUID storeId, Collection<String> itemPaths) {
+        return getItemSizes(tx, storeId, itemPaths, false);
+    }
+
+    /**
+     * Locks the existing items until the end of the transaction. The items
+     * are locked in the same order in all transactions, avoids deadlocks.
+     *
+     * @return item path -> item size
+     */
+    private static Map<String, Long> lockItems(DSLContext tx, UUID storeId, Collection<String> itemPaths) {
+        return getItemSizes(tx, storeId, itemPaths, true);
+    }
+
+    private static Map<String, Long> getItemSizes(DSLContext tx, UUID storeId, Collection<String> itemPaths, boolean lock) {
+        SelectForUpdateStep<Record2<String, Long>> q = tx.select(JSON_STORE_DATA.ITEM_PATH, JSON_STORE_DATA.ITEM_DATA_SIZE)
+                .from(JSON_STORE_DATA)
                 .where(JSON_STORE_DATA.JSON_STORE_ID.eq(storeId)
-                        .and(JSON_STORE_DATA.ITEM_PATH.eq(itemPath)))
-                .execute() > 0);
+                        .and(JSON_STORE_DATA.ITEM_PATH.in(itemPaths)))
+                .orderBy(JSON_STORE_DATA.ITEM_PATH);
+
+        Map<String, Long> result = new HashMap<>();
+        (lock ? q.forUpdate() : q).forEach(r -> result.put(r.value1(), r.value2()));
+        return result;
+    }
+
+    /**
+     * The proposed value in "INSERT ... ON CONFLICT DO UPDATE" statements.
+     */
+    private static <T> Field<T> excluded(Field<T> f) {
+        return DSL.field(DSL.name("excluded", f.getName()), f.getDataType());
+    }
+
+    private static long nullToZero(Long l) {
+        return l != null ? l : 0;
     }
 
     private JsonStoreDataEntry toDataEntry(Record2<String, JSONB> r) {
@@ -28,6 +28,7 @@ import com.walmartlabs.concord.server.OperationResult;
 import com.walmartlabs.concord.server.audit.AuditAction;
 import com.walmartlabs.concord.server.audit.AuditLog;
 import com.walmartlabs.concord.server.audit.AuditObject;
+import com.walmartlabs.concord.server.cfg.JsonStoreConfiguration;
 import com.walmartlabs.concord.server.org.OrganizationEntry;
 import com.walmartlabs.concord.server.org.OrganizationManager;
 import com.walmartlabs.concord.server.org.ResourceAccessLevel;
@@ -36,15 +37,13 @@ import com.walmartlabs.concord.server.policy.EntityType;
 import com.walmartlabs.concord.server.policy.PolicyManager;
 import com.walmartlabs.concord.server.sdk.ConcordApplicationException;
 import com.walmartlabs.concord.server.security.UserPrincipal;
+import org.sonatype.siesta.ValidationErrorsException;
 
 import javax.inject.Inject;
 import javax.inject.Named;
 import javax.inject.Singleton;
 import java.text.MessageFormat;
-import java.util.HashMap;
-import java.util.List;
-import java.util.Map;
-import java.util.UUID;
+import java.util.*;
 
 @Named
 @Singleton
@@ -57,14 +56,18 @@ public class JsonStoreDataManager {
     private final OrganizationManager orgManager;
     private final JsonStoreAccessManager jsonStoreAccessManager;
     private final JsonStoreDataDao storeDataDao;
+    private final JsonStoreStatsDao statsDao;
     private final AuditLog auditLog;
+    private final int maxBulkItems;
 
     @Inject
-    public JsonStoreDataManager(ConcordObjectMapper objectMapper,
+    public JsonStoreDataManager(JsonStoreConfiguration cfg,
+                                ConcordObjectMapper objectMapper,
                                 PolicyManager policyManager,
                                 OrganizationManager orgManager,
                                 JsonStoreAccessManager jsonStoreAccessManager,
                                 JsonStoreDataDao storeDataDao,
+                                JsonStoreStatsDao statsDao,
                                 AuditLog auditLog) {
 
         this.objectMapper = objectMapper;
@@ -72,7 +75,9 @@ public class JsonStoreDataManager {
         this.orgManager = orgManager;
         this.jsonStoreAccessManager = jsonStoreAccessManager;
         this.storeDataDao = storeDataDao;
+        this.statsDao = statsDao;
         this.auditLog = auditLog;
+        this.maxBulkItems = cfg.getMaxBulkItems();
     }
 
     public Object getItem(String orgName, String storeName, String itemPath) {
@@ -117,7 +122,112 @@ public class JsonStoreDataManager {
         return deleted;
     }
 
+    public List<JsonStoreDataEntry> getItems(String orgName, String storeName, List<String> itemPaths) {
+        assertBulkSize(itemPaths);
+
+        OrganizationEntry org = orgManager.assertAccess(orgName, true);
+        JsonStoreEntry store = jsonStoreAccessManager.assertAccess(org.getId(), null, storeName, ResourceAccessLevel.READER, true);
+
+        if (itemPaths == null || itemPaths.isEmpty()) {
+            return Collections.emptyList();
+        }
+
+        return storeDataDao.get(store.id(), itemPaths);
+    }
+
+    /**
+     * Creates or updates multiple items at once. The storage policy is
+     * checked once for the whole batch.
+     */
+    public JsonStoreBulkResult createOrUpdate(String orgName, String storeName, List<JsonStoreDataEntry> items) {
+        assertBulkSize(items);
+
+        OrganizationEntry org = orgManager.assertAccess(orgName, true);
+        JsonStoreEntry store = jsonStoreAccessManager.assertAccess(org.getId(), null, storeName, ResourceAccessLevel.WRITER, true);
+
+        if (items == null || items.isEmpty()) {
+            return JsonStoreBulkResult.builder().build();
+        }
+
+        // if the same path is specified multiple times, the last item wins
+        Map<String, String> jsonItems = new LinkedHashMap<>();
+        for (JsonStoreDataEntry i : items) {
+            assertItemPath(i.path());
+            String jsonData = objectMapper.toString(i.data());
+            policyManager.checkEntity(org.getId(), null, EntityType.STORAGE_ITEM, EntityAction.UPDATE, null, toMap(org, store, i.path(), jsonData));
+            jsonItems.put(i.path(), jsonData);
+        }
+
+        long currentSize = 0;
+        for (Long size : storeDataDao.getItemSizes(store.id(), jsonItems.keySet()).values()) {
+            currentSize += size != null ? size : 0;
+        }
+
+        long newSize = 0;
+        for (String jsonData : jsonItems.values()) {
+            newSize += jsonData.length();
+        }
+
+        assertStorageDataPolicy(org.getId(), store.id(), currentSize, newSize);
+
+        int created = storeDataDao.upsert(store.id(), jsonItems);
+        int updated = jsonItems.size() - created;
+
+        auditLog.add(AuditObject.JSON_STORE_DATA, AuditAction.UPDATE)
+                .field("orgId", org.getId())
+                .field("storeId", store.id())
+                .field("itemPaths", new ArrayList<>(jsonItems.keySet()))
+                .field("created", created)
+                .field("updated", updated)
+                .log();
+
+        return JsonStoreBulkResult.builder()
+                .created(created)
+                .updated(updated)
+                .build();
+    }
+
+    public JsonStoreBulkResult delete(String orgName, String storeName, List<String> itemPaths) {
+        assertBulkSize(itemPaths);
+
+        OrganizationEntry org = orgManager.assertAccess(orgName, true);
+        JsonStoreEntry store = jsonStoreAccessManager.assertAccess(org.getId(), null, storeName, ResourceAccessLevel.WRITER, true);
+
+        if (itemPaths == null || itemPaths.isEmpty()) {
+            return JsonStoreBulkResult.builder().build();
+        }
+
+        List<String> deleted = storeDataDao.delete(store.id(), itemPaths);
+        if (!deleted.isEmpty()) {
+            auditLog.add(AuditObject.JSON_STORE_DATA, AuditAction.DELETE)
+                    .field("orgId", org.getId())
+                    .field("storeId", store.id())
+                    .field("itemPaths", deleted)
+                    .log();
+        }
+
+        return JsonStoreBulkResult.builder()
+                .deleted(deleted.size())
+                .build();
+    }
+
+    private void assertBulkSize(List<?> items) {
+        if (items != null && items.size() > maxBulkItems) {
+            throw new ValidationErrorsException("Too many items in a single request: " + items.size() + ", max: " + maxBulkItems);
+        }
+    }
+
+    private static void assertItemPath(String itemPath) {
+        if (itemPath == null || itemPath.trim().isEmpty()) {
+            throw new ValidationErrorsException("Item path cannot be empty");
+        }
+    }
+
     private void assertStorageDataPolicy(UUID orgId, UUID storeId, long currentItemSize, String jsonData) {
+        assertStorageDataPolicy(orgId, storeId, currentItemSize, jsonData.length());
+    }
+
+    private void assertStorageDataPolicy(UUID orgId, UUID storeId, long currentItemsSize, long newItemsSize) {
         PolicyEngine policy = policyManager.get(orgId, null,  UserPrincipal.assertCurrent().getUser().getId());
         if (policy == null) {
             return;
@@ -125,7 +235,7 @@ public class JsonStoreDataManager {
 
         CheckResult<JsonStoreRule.StoreDataRule, Long> result;
         try {
-            result = policy.getJsonStoragePolicy().checkStorageData(() -> storeDataDao.getSize(storeId) - currentItemSize + jsonData.length());
+            result = policy.getJsonStoragePolicy().checkStorageData(() -> statsDao.get(storeId).getDataSize() - currentItemsSize + newItemsSize);
         } catch (Exception e) {
             throw new RuntimeException(e);
         }
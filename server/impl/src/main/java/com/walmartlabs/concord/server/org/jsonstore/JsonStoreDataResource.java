@@ -130,4 +130,64 @@ public class JsonStoreDataResource implements Resource {
         boolean deleted = storeDataManager.delete(orgName, storeName, itemPath);
         return new GenericOperationResult(deleted ? OperationResult.DELETED : OperationResult.NOT_FOUND);
     }
+
+    /**
+     * Returns multiple items from a store. Missing items are skipped.
+     *
+     * @param orgName   organization's name
+     * @param storeName store's name
+     * @param itemPaths paths of the items
+     * @return
+     */
+    @POST
+    @ApiOperation(value = "Get multiple items from a store", responseContainer = "list", response = JsonStoreDataEntry.class)
+    @Path("/{orgName}/jsonstore/{storeName}/bulk/get")
+    @Consumes(MediaType.APPLICATION_JSON)
+    @Produces(MediaType.APPLICATION_JSON)
+    public List<JsonStoreDataEntry> bulkGet(@ApiParam @PathParam("orgName") String orgName,
+                                           @ApiParam @PathParam("storeName") String storeName,
+                                           @ApiParam List<String> itemPaths) {
+
+        return storeDataManager.getItems(orgName, storeName, itemPaths);
+    }
+
+    /**
+     * Creates or updates multiple items in a store.
+     *
+     * @param orgName   organization's name
+     * @param storeName store's name
+     * @param items     items to create or update
+     * @return
+     */
+    @POST
+    @ApiOperation("Create or update multiple items in a store")
+    @Path("/{orgName}/jsonstore/{storeName}/bulk/put")
+    @Consumes(MediaType.APPLICATION_JSON)
+    @Produces(MediaType.APPLICATION_JSON)
+    public JsonStoreBulkResult bulkPut(@ApiParam @PathParam("orgName") String orgName,
+                                       @ApiParam @PathParam("storeName") String storeName,
+                                       @ApiParam List<JsonStoreDataEntry> items) {
+
+        return storeDataManager.createOrUpdate(orgName, storeName, items);
+    }
+
+    /**
+     * Removes multiple items from a store.
+     *
+     * @param orgName   organization's name
+     * @param storeName store's name
+     * @param itemPaths paths of the items
+     * @return
+     */
+    @POST
+    @ApiOperation("Remove multiple items from a store")
+    @Path("/{orgName}/jsonstore/{storeName}/bulk/delete")
+    @Consumes(MediaType.APPLICATION_JSON)
+    @Produces(MediaType.APPLICATION_JSON)
+    public JsonStoreBulkResult bulkDelete(@ApiParam @PathParam("orgName") String orgName,
+                                          @ApiParam @PathParam("storeName") String storeName,
+                                          @ApiParam List<String> itemPaths) {
+
+        return storeDataManager.delete(orgName, storeName, itemPaths);
+    }
 }
@@ -59,7 +59,8 @@ public class JsonStoreManager {
     private final UserManager userManager;
     private final AuditLog auditLog;
     private final JsonStoreDao storeDao;
-    private final JsonStoreDataDao storeDataDao;
+    private final JsonStoreStatsDao statsDao;
+    private final JsonStoreQueryCache queryCache;
     private final OrganizationDao orgDao;
     private final TeamDao teamDao;
 
@@ -70,7 +71,8 @@ public class JsonStoreManager {
                             UserManager userManager,
                             AuditLog auditLog,
                             JsonStoreDao storeDao,
-                            JsonStoreDataDao storeDataDao,
+                            JsonStoreStatsDao statsDao,
+                            JsonStoreQueryCache queryCache,
                             OrganizationDao orgDao,
                             TeamDao teamDao) {
 
@@ -80,7 +82,8 @@ public class JsonStoreManager {
         this.userManager = userManager;
         this.auditLog = auditLog;
         this.storeDao = storeDao;
-        this.storeDataDao = storeDataDao;
+        this.statsDao = statsDao;
+        this.queryCache = queryCache;
         this.orgDao = orgDao;
         this.teamDao = teamDao;
     }
@@ -107,7 +110,7 @@ public class JsonStoreManager {
         OrganizationEntry org = orgManager.assertAccess(orgName, false);
         JsonStoreEntry store = jsonStoreAccessManager.assertAccess(org.getId(), null, storeName, ResourceAccessLevel.READER, true);
 
-        long currentSize = storeDataDao.getSize(store.id());
+        JsonStoreStatsDao.Stats stats = statsDao.get(store.id());
 
         PolicyEngine policy = policyManager.get(store.id(), null, UserPrincipal.assertCurrent().getId());
         Long maxSize = null;
@@ -116,7 +119,8 @@ public class JsonStoreManager {
         }
 
         return JsonStoreCapacity.builder()
-                .size(currentSize)
+                .size(stats.getDataSize())
+                .itemCount(stats.getItemCount())
                 .maxSize(maxSize)
                 .build();
     }
@@ -127,6 +131,7 @@ public class JsonStoreManager {
         JsonStoreEntry store = jsonStoreAccessManager.assertAccess(org.getId(), null, storeName, ResourceAccessLevel.OWNER, true);
 
         storeDao.delete(store.id());
+        queryCache.invalidate(store.id());
 
         addAuditLog(AuditAction.DELETE, org.getId(), store.id(), store.name());
     }
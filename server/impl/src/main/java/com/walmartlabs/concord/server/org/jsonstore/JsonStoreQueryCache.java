@@ -0,0 +1,102 @@
+package com.walmartlabs.concord.server.org.jsonstore;
+
+/*-
+ * *****
+ * Concord
+ * -----
+ * Copyright (C) 2017 - 2020 Walmart Inc.
+ * -----
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * =====
+ */
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.walmartlabs.concord.server.cfg.JsonStoreConfiguration;
+
+import javax.inject.Inject;
+import javax.inject.Named;
+import javax.inject.Singleton;
+import java.util.Objects;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Named queries, parsed and rewritten into SQL, per store. Changes made by
+ * this server instance invalidate the affected entries; changes made by other
+ * instances become visible after {@link JsonStoreConfiguration#getQueryCacheTtl()}.
+ */
+@Named
+@Singleton
+public class JsonStoreQueryCache {
+
+    private final Cache<Key, String> queries;
+
+    @Inject
+    public JsonStoreQueryCache(JsonStoreConfiguration cfg) {
+        this.queries = CacheBuilder.newBuilder()
+                .expireAfterWrite(cfg.getQueryCacheTtl(), TimeUnit.MILLISECONDS)
+                .maximumSize(cfg.getQueryCacheMaxSize())
+                .build();
+    }
+
+    /**
+     * @return the prepared SQL or {@code null} if the query is not cached
+     */
+    public String get(UUID storeId, String queryName) {
+        return queries.getIfPresent(new Key(storeId, queryName));
+    }
+
+    public void put(UUID storeId, String queryName, String sql) {
+        queries.put(new Key(storeId, queryName), sql);
+    }
+
+    public void invalidate(UUID storeId, String queryName) {
+        queries.invalidate(new Key(storeId, queryName));
+    }
+
+    /**
+     * Invalidates all queries of the specified store.
+     */
+    public void invalidate(UUID storeId) {
+        queries.asMap().keySet().removeIf(k -> k.storeId.equals(storeId));
+    }
+
+    private static final class Key {
+
+        private final UUID storeId;
+        private final String queryName;
+
+        private Key(UUID storeId, String queryName) {
+            this.storeId = storeId;
+            this.queryName = queryName;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (o == null || getClass() != o.getClass()) {
+                return false;
+            }
+            Key key = (Key) o;
+            return storeId.equals(key.storeId) && queryName.equals(key.queryName);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(storeId, queryName);
+        }
+    }
+}
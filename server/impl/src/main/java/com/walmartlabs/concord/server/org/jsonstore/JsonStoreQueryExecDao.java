@@ -42,7 +42,9 @@ import net.sf.jsqlparser.statement.select.PlainSelect;
 import net.sf.jsqlparser.statement.select.Select;
 import net.sf.jsqlparser.statement.select.SelectVisitorAdapter;
 import org.jooq.Configuration;
+import org.jooq.Cursor;
 import org.jooq.DSLContext;
+import org.jooq.JSONB;
 import org.jooq.QueryPart;
 import org.jooq.Record;
 import org.jooq.impl.DSL;
@@ -50,6 +52,7 @@ import org.sonatype.siesta.ValidationErrorsException;
 
 import javax.inject.Inject;
 import javax.inject.Named;
+import java.io.IOException;
 import java.util.List;
 import java.util.Map;
 import java.util.UUID;
@@ -61,44 +64,108 @@ import static org.jooq.impl.DSL.val;
 @Named
 public class JsonStoreQueryExecDao extends AbstractDao {
 
+    /**
+     * Number of rows fetched at once when results are streamed.
+     */
+    private static final int STREAM_FETCH_SIZE = 500;
+
     private final ConcordObjectMapper objectMapper;
     private final JsonStoreQueryDao storeQueryDao;
+    private final JsonStoreQueryCache queryCache;
 
     @Inject
     public JsonStoreQueryExecDao(@JsonStorageDB Configuration cfg,
                                  ConcordObjectMapper objectMapper,
-                                 JsonStoreQueryDao storeQueryDao) {
+                                 JsonStoreQueryDao storeQueryDao,
+                                 JsonStoreQueryCache queryCache) {
 
         super(cfg);
         this.objectMapper = objectMapper;
         this.storeQueryDao = storeQueryDao;
+        this.queryCache = queryCache;
     }
 
     public List<Object> exec(UUID storeId, String queryName, Map<String, Object> params) {
-        JsonStoreQueryEntry q = storeQueryDao.get(storeId, queryName);
-        if (q == null) {
-            throw new ValidationErrorsException("Query not found: " + queryName);
+        String sql = prepare(storeId, queryName);
+
+        try (DSLContext tx = DSL.using(cfg)) {
+            return tx.resultQuery(sql, args(storeId, params))
+                    .fetch(this::toExecResult);
         }
+    }
+
+    /**
+     * Prepares a named query for streaming. Fails immediately if the query
+     * doesn't exist. The query is executed when {@link QueryStream#forEach(RowHandler)}
+     * is called, each row is passed to the handler as a single line of JSON.
+     * Rows are fetched from the DB in small batches, so the whole result is
+     * never kept in memory.
+     */
+    public QueryStream stream(UUID storeId, String queryName, Map<String, Object> params) {
+        String sql = prepare(storeId, queryName);
+
+        // PostgreSQL uses cursors (i.e. respects the fetch size) only inside a transaction
+        return h -> tx(tx -> {
+            try (Cursor<Record> cursor = tx.resultQuery(sql, args(storeId, params))
+                    .fetchSize(STREAM_FETCH_SIZE)
+                    .fetchLazy()) {
 
-        return execSql(q.storeId(), q.text(), params);
+                for (Record r : cursor) {
+                    h.handle(toJsonLine(r));
+                }
+            }
+        });
     }
 
     public List<Object> execSql(UUID storeId, String query, Map<String, Object> params) {
         String sql = createQuery(query);
 
         try (DSLContext tx = DSL.using(cfg)) {
-            // TODO we should probably inspect the query to determine whether we need to bind the params or not
+            return tx.resultQuery(sql, args(storeId, params))
+                    .fetch(this::toExecResult);
+        }
+    }
 
-            QueryPart[] args;
-            if (params == null) {
-                args = new QueryPart[]{val(storeId)};
-            } else {
-                args = new QueryPart[]{val(objectMapper.toString(params)), val(storeId)};
-            }
+    /**
+     * Returns the SQL of the specified named query, parsed and rewritten to
+     * include the store's ID.
+     */
+    private String prepare(UUID storeId, String queryName) {
+        String sql = queryCache.get(storeId, queryName);
+        if (sql != null) {
+            return sql;
+        }
 
-            return tx.resultQuery(sql, args)
-                    .fetch(this::toExecResult);
+        JsonStoreQueryEntry q = storeQueryDao.get(storeId, queryName);
+        if (q == null) {
+            throw new ValidationErrorsException("Query not found: " + queryName);
+        }
+
+        sql = createQuery(q.text());
+        queryCache.put(storeId, queryName, sql);
+        return sql;
+    }
+
+    private QueryPart[] args(UUID storeId, Map<String, Object> params) {
+        // TODO we should probably inspect the query to determine whether we need to bind the params or not
+        if (params == null) {
+            return new QueryPart[]{val(storeId)};
         }
+        return new QueryPart[]{val(objectMapper.toString(params)), val(storeId)};
+    }
+
+    private String toJsonLine(Record record) {
+        Object value = record.get(0);
+        if (value == null) {
+            return "null";
+        }
+
+        // JSONB values are already serialized as a single line
+        if (value instanceof JSONB) {
+            return ((JSONB) value).data();
+        }
+
+        return objectMapper.toString(toExecResult(record));
     }
 
     private Object toExecResult(Record record) {
@@ -177,4 +244,14 @@ public class JsonStoreQueryExecDao extends AbstractDao {
             throw new IllegalArgumentException("Query parse error: " + t.getMessage(), t);
         }
     }
+
+    public interface RowHandler {
+
+        void handle(String json) throws IOException;
+    }
+
+    public interface QueryStream {
+
+        void forEach(RowHandler h);
+    }
 }
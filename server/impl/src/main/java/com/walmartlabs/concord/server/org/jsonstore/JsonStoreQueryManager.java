@@ -48,6 +48,7 @@ public class JsonStoreQueryManager {
     private final JsonStoreAccessManager jsonStoreAccessManager;
     private final JsonStoreQueryDao queryDao;
     private final JsonStoreQueryExecDao execDao;
+    private final JsonStoreQueryCache queryCache;
     private final AuditLog auditLog;
 
     @Inject
@@ -56,6 +57,7 @@ public class JsonStoreQueryManager {
                                  JsonStoreAccessManager jsonStoreAccessManager,
                                  JsonStoreQueryDao queryDao,
                                  JsonStoreQueryExecDao execDao,
+                                 JsonStoreQueryCache queryCache,
                                  AuditLog auditLog) {
 
         this.policyManager = policyManager;
@@ -63,6 +65,7 @@ public class JsonStoreQueryManager {
         this.jsonStoreAccessManager = jsonStoreAccessManager;
         this.queryDao = queryDao;
         this.execDao = execDao;
+        this.queryCache = queryCache;
         this.auditLog = auditLog;
     }
 
@@ -109,6 +112,7 @@ public class JsonStoreQueryManager {
             }
 
             queryDao.update(queryId, text);
+            queryCache.invalidate(store.id(), prevEntry.name());
             addAuditLog(AuditAction.UPDATE, org.getId(), store.id(), queryName, prevEntry.text(), text);
 
             return OperationResult.UPDATED;
@@ -125,6 +129,7 @@ public class JsonStoreQueryManager {
         }
 
         queryDao.delete(store.id(), queryName);
+        queryCache.invalidate(store.id(), queryName);
 
         addAuditLog(AuditAction.DELETE, org.getId(), store.id(), queryName);
     }
@@ -135,6 +140,16 @@ public class JsonStoreQueryManager {
         return execDao.exec(store.id(), queryName, params);
     }
 
+    /**
+     * Checks the access and the query's existence immediately, the query itself
+     * is executed when the returned stream is consumed.
+     */
+    public JsonStoreQueryExecDao.QueryStream stream(String orgName, String storeName, String queryName, Map<String, Object> params) {
+        OrganizationEntry org = orgManager.assertAccess(orgName, true);
+        JsonStoreEntry store = jsonStoreAccessManager.assertAccess(org.getId(), null, storeName, ResourceAccessLevel.READER, true);
+        return execDao.stream(store.id(), queryName, params);
+    }
+
     public List<Object> exec(String orgName, String storeName, String text) {
         OrganizationEntry org = orgManager.assertAccess(orgName, true);
         JsonStoreEntry store = jsonStoreAccessManager.assertAccess(org.getId(), null, storeName, ResourceAccessLevel.READER, true);
@@ -38,6 +38,13 @@ import javax.inject.Singleton;
 import javax.validation.Valid;
 import javax.ws.rs.*;
 import javax.ws.rs.core.MediaType;
+import javax.ws.rs.core.Response;
+import javax.ws.rs.core.StreamingOutput;
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
 import java.util.List;
 import java.util.Map;
 
@@ -47,6 +54,8 @@ import java.util.Map;
 @Path("/api/v1/org")
 public class JsonStoreQueryResource implements Resource {
 
+    private static final String JSON_LINES = "application/x-ndjson";
+
     private final JsonStoreQueryManager storeQueryManager;
 
     @Inject
@@ -163,6 +172,42 @@ public class JsonStoreQueryResource implements Resource {
         }
     }
 
+    /**
+     * Executes an existing JSON store query and streams the results as
+     * JSON lines (one result row per line). Suitable for large results.
+     *
+     * @param orgName   organization's name
+     * @param storeName store's name
+     * @param queryName query's name
+     * @param params    query params
+     * @return query result
+     */
+    @POST
+    @ApiOperation(value = "Execute an existing JSON store query and stream the results as JSON lines", response = File.class)
+    @Consumes(MediaType.APPLICATION_JSON)
+    @Produces(JSON_LINES)
+    @Path("/{orgName}/jsonstore/{storeName}/query/{queryName}/stream")
+    @WithTimer
+    public Response execStream(@ApiParam @PathParam("orgName") @ConcordKey String orgName,
+                               @ApiParam @PathParam("storeName") @ConcordKey String storeName,
+                               @ApiParam @PathParam("queryName") @ConcordKey String queryName,
+                               @ApiParam @Valid Map<String, Object> params) {
+
+        // fail before the response is committed
+        JsonStoreQueryExecDao.QueryStream rows = storeQueryManager.stream(orgName, storeName, queryName, params);
+
+        StreamingOutput out = output -> {
+            Writer w = new BufferedWriter(new OutputStreamWriter(output, StandardCharsets.UTF_8));
+            rows.forEach(json -> {
+                w.write(json);
+                w.write('\n');
+            });
+            w.flush();
+        };
+
+        return Response.ok(out, JSON_LINES).build();
+    }
+
     /**
      * Executes a JSON store query.
      *
@@ -0,0 +1,86 @@
+package com.walmartlabs.concord.server.org.jsonstore;
+
+/*-
+ * *****
+ * Concord
+ * -----
+ * Copyright (C) 2017 - 2020 Walmart Inc.
+ * -----
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * =====
+ */
+
+import com.walmartlabs.concord.server.sdk.ScheduledTask;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.inject.Inject;
+import javax.inject.Named;
+import javax.inject.Singleton;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Folds JSON store counter deltas into the counters, keeps the number of
+ * delta rows (which are summed on each capacity check) small.
+ */
+@Named("json-store-stats-compactor")
+@Singleton
+public class JsonStoreStatsCompactor implements ScheduledTask {
+
+    private static final Logger log = LoggerFactory.getLogger(JsonStoreStatsCompactor.class);
+
+    private static final long COMPACT_INTERVAL = 60;
+    private static final int BATCH_SIZE = 100;
+
+    private final JsonStoreStatsDao statsDao;
+
+    @Inject
+    public JsonStoreStatsCompactor(JsonStoreStatsDao statsDao) {
+        this.statsDao = statsDao;
+    }
+
+    @Override
+    public long getIntervalInSec() {
+        return COMPACT_INTERVAL;
+    }
+
+    @Override
+    public void performTask() {
+        int stores = 0;
+
+        UUID after = null;
+        while (true) {
+            List<UUID> ids = statsDao.listUncompacted(after, BATCH_SIZE);
+            if (ids.isEmpty()) {
+                break;
+            }
+
+            for (UUID id : ids) {
+                try {
+                    statsDao.compact(id);
+                } catch (Exception e) {
+                    // e.g. the store was removed in the meantime
+                    log.warn("performTask -> error while compacting the counters of the store {}: {}", id, e.getMessage());
+                }
+            }
+
+            stores += ids.size();
+            after = ids.get(ids.size() - 1);
+        }
+
+        if (stores > 0) {
+            log.debug("performTask -> compacted {} store(s)", stores);
+        }
+    }
+}
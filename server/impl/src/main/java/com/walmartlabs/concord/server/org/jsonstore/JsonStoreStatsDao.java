@@ -0,0 +1,212 @@
+package com.walmartlabs.concord.server.org.jsonstore;
+
+/*-
+ * *****
+ * Concord
+ * -----
+ * Copyright (C) 2017 - 2020 Walmart Inc.
+ * -----
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * =====
+ */
+
+import com.walmartlabs.concord.db.AbstractDao;
+import com.walmartlabs.concord.db.MainDB;
+import org.jooq.*;
+import org.jooq.impl.DSL;
+
+import javax.inject.Inject;
+import javax.inject.Named;
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.UUID;
+
+import static com.walmartlabs.concord.server.jooq.Tables.*;
+import static org.jooq.impl.DSL.*;
+
+/**
+ * Maintains per-store item counts and data sizes.
+ * <p/>
+ * Writers don't update the store's {@code JSON_STORE_STATS} row directly.
+ * Instead, each write inserts a delta row in the same transaction as
+ * the data, so concurrent writes into the same store don't wait for each
+ * other. The deltas are periodically folded into {@code JSON_STORE_STATS}
+ * (see {@link #compact(UUID)}).
+ */
+@Named
+public class JsonStoreStatsDao extends AbstractDao {
+
+    @Inject
+    public JsonStoreStatsDao(@MainDB Configuration cfg) {
+        super(cfg);
+    }
+
+    /**
+     * Records a change of the store's counters. Must be called in the same
+     * transaction as the data change.
+     */
+    public void update(DSLContext tx, UUID storeId, long itemCountDelta, long dataSizeDelta) {
+        if (itemCountDelta == 0 && dataSizeDelta == 0) {
+            return;
+        }
+
+        tx.insertInto(JSON_STORE_STATS_DELTAS)
+                .columns(JSON_STORE_STATS_DELTAS.JSON_STORE_ID, JSON_STORE_STATS_DELTAS.ITEM_COUNT, JSON_STORE_STATS_DELTAS.DATA_SIZE)
+                .values(storeId, itemCountDelta, dataSizeDelta)
+                .execute();
+    }
+
+    public Stats get(UUID storeId) {
+        try (DSLContext tx = DSL.using(cfg)) {
+            Table<Record2<BigDecimal, BigDecimal>> deltas = deltas(storeId);
+            return tx.select(JSON_STORE_STATS.ITEM_COUNT, JSON_STORE_STATS.DATA_SIZE, deltas.field(0, BigDecimal.class), deltas.field(1, BigDecimal.class))
+                    .from(deltas)
+                    .leftJoin(JSON_STORE_STATS).on(JSON_STORE_STATS.JSON_STORE_ID.eq(storeId))
+                    .fetchOne(r -> new Stats(add(r.value1(), r.value3()), add(r.value2(), r.value4())));
+        }
+    }
+
+    public List<UUID> listStoreIds(UUID after, int limit) {
+        try (DSLContext tx = DSL.using(cfg)) {
+            return tx.select(JSON_STORES.JSON_STORE_ID)
+                    .from(JSON_STORES)
+                    .where(after != null ? JSON_STORES.JSON_STORE_ID.gt(after) : noCondition())
+                    .orderBy(JSON_STORES.JSON_STORE_ID)
+                    .limit(limit)
+                    .fetch(JSON_STORES.JSON_STORE_ID);
+        }
+    }
+
+    /**
+     * @return IDs of the stores with changes that are not folded into
+     * the counters yet
+     */
+    public List<UUID> listUncompacted(UUID after, int limit) {
+        try (DSLContext tx = DSL.using(cfg)) {
+            return tx.selectDistinct(JSON_STORE_STATS_DELTAS.JSON_STORE_ID)
+                    .from(JSON_STORE_STATS_DELTAS)
+                    .where(after != null ? JSON_STORE_STATS_DELTAS.JSON_STORE_ID.gt(after) : noCondition())
+                    .orderBy(JSON_STORE_STATS_DELTAS.JSON_STORE_ID)
+                    .limit(limit)
+                    .fetch(JSON_STORE_STATS_DELTAS.JSON_STORE_ID);
+        }
+    }
+
+    /**
+     * Folds the store's committed deltas into the counters. Deltas of
+     * transactions that are still in progress are left for the next run.
+     */
+    public void compact(UUID storeId) {
+        tx(tx -> {
+            long itemCount = 0;
+            long dataSize = 0;
+
+            Result<? extends Record> deleted = tx.deleteFrom(JSON_STORE_STATS_DELTAS)
+                    .where(JSON_STORE_STATS_DELTAS.JSON_STORE_ID.eq(storeId))
+                    .returning(JSON_STORE_STATS_DELTAS.ITEM_COUNT, JSON_STORE_STATS_DELTAS.DATA_SIZE)
+                    .fetch();
+
+            if (deleted.isEmpty()) {
+                return;
+            }
+
+            for (Record r : deleted) {
+                itemCount += r.get(JSON_STORE_STATS_DELTAS.ITEM_COUNT);
+                dataSize += r.get(JSON_STORE_STATS_DELTAS.DATA_SIZE);
+            }
+
+            tx.insertInto(JSON_STORE_STATS)
+                    .columns(JSON_STORE_STATS.JSON_STORE_ID, JSON_STORE_STATS.ITEM_COUNT, JSON_STORE_STATS.DATA_SIZE)
+                    .values(storeId, itemCount, dataSize)
+                    .onConflict(JSON_STORE_STATS.JSON_STORE_ID)
+                    .doUpdate()
+                    .set(JSON_STORE_STATS.ITEM_COUNT, JSON_STORE_STATS.ITEM_COUNT.plus(itemCount))
+                    .set(JSON_STORE_STATS.DATA_SIZE, JSON_STORE_STATS.DATA_SIZE.plus(dataSize))
+                    .set(JSON_STORE_STATS.LAST_UPDATED_AT, currentTimestamp())
+                    .execute();
+        });
+    }
+
+    /**
+     * Recalculates the store's counters using the actual data. The counters
+     * and the data are read using a single statement (i.e. the same snapshot)
+     * and the difference is recorded as a delta, so concurrent writes are not
+     * blocked.
+     *
+     * @return {@code true} if the counters were out of sync
+     */
+    public boolean reconcile(UUID storeId) {
+        return txResult(tx -> {
+            Table<Record2<BigDecimal, BigDecimal>> deltas = deltas(storeId);
+
+            Field<Integer> actualCount = field(select(count())
+                    .from(JSON_STORE_DATA)
+                    .where(JSON_STORE_DATA.JSON_STORE_ID.eq(storeId)));
+
+            Field<BigDecimal> actualSize = field(select(sum(JSON_STORE_DATA.ITEM_DATA_SIZE))
+                    .from(JSON_STORE_DATA)
+                    .where(JSON_STORE_DATA.JSON_STORE_ID.eq(storeId)));
+
+            Record6<Long, Long, BigDecimal, BigDecimal, Integer, BigDecimal> r = tx.select(JSON_STORE_STATS.ITEM_COUNT, JSON_STORE_STATS.DATA_SIZE,
+                    deltas.field(0, BigDecimal.class), deltas.field(1, BigDecimal.class),
+                    actualCount, actualSize)
+                    .from(deltas)
+                    .leftJoin(JSON_STORE_STATS).on(JSON_STORE_STATS.JSON_STORE_ID.eq(storeId))
+                    .fetchOne();
+
+            long itemCountDelta = r.value5() - add(r.value1(), r.value3());
+            long dataSizeDelta = add(null, r.value6()) - add(r.value2(), r.value4());
+
+            update(tx, storeId, itemCountDelta, dataSizeDelta);
+
+            return itemCountDelta != 0 || dataSizeDelta != 0;
+        });
+    }
+
+    /**
+     * Sums of the store's deltas. Always returns a single row.
+     */
+    private static Table<Record2<BigDecimal, BigDecimal>> deltas(UUID storeId) {
+        return select(sum(JSON_STORE_STATS_DELTAS.ITEM_COUNT), sum(JSON_STORE_STATS_DELTAS.DATA_SIZE))
+                .from(JSON_STORE_STATS_DELTAS)
+                .where(JSON_STORE_STATS_DELTAS.JSON_STORE_ID.eq(storeId))
+                .asTable("d", "ITEM_COUNT", "DATA_SIZE");
+    }
+
+    private static long add(Long value, BigDecimal delta) {
+        return (value != null ? value : 0) + (delta != null ? delta.longValue() : 0);
+    }
+
+    public static class Stats {
+
+        private final long itemCount;
+        private final long dataSize;
+
+        public Stats(long itemCount, long dataSize) {
+            this.itemCount = itemCount;
+            this.dataSize = dataSize;
+        }
+
+        public long getItemCount() {
+            return itemCount;
+        }
+
+        /**
+         * @return the total size of the store's items (in bytes)
+         */
+        public long getDataSize() {
+            return dataSize;
+        }
+    }
+
+}
@@ -0,0 +1,84 @@
+package com.walmartlabs.concord.server.org.jsonstore;
+
+/*-
+ * *****
+ * Concord
+ * -----
+ * Copyright (C) 2017 - 2020 Walmart Inc.
+ * -----
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * =====
+ */
+
+import com.walmartlabs.concord.server.sdk.ScheduledTask;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.inject.Inject;
+import javax.inject.Named;
+import javax.inject.Singleton;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Periodically recalculates JSON store counters, just in case they drift
+ * (e.g. after manual changes in the DB).
+ */
+@Named("json-store-stats-reconciler")
+@Singleton
+public class JsonStoreStatsReconciler implements ScheduledTask {
+
+    private static final Logger log = LoggerFactory.getLogger(JsonStoreStatsReconciler.class);
+
+    private static final long RECONCILE_INTERVAL = TimeUnit.HOURS.toSeconds(1);
+    private static final int BATCH_SIZE = 100;
+
+    private final JsonStoreStatsDao statsDao;
+
+    @Inject
+    public JsonStoreStatsReconciler(JsonStoreStatsDao statsDao) {
+        this.statsDao = statsDao;
+    }
+
+    @Override
+    public long getIntervalInSec() {
+        return RECONCILE_INTERVAL;
+    }
+
+    @Override
+    public void performTask() {
+        int stores = 0;
+        int fixed = 0;
+
+        UUID after = null;
+        while (true) {
+            List<UUID> ids = statsDao.listStoreIds(after, BATCH_SIZE);
+            if (ids.isEmpty()) {
+                break;
+            }
+
+            for (UUID id : ids) {
+                if (statsDao.reconcile(id)) {
+                    log.warn("performTask -> fixed out-of-sync counters of the store {}", id);
+                    fixed++;
+                }
+            }
+
+            stores += ids.size();
+            after = ids.get(ids.size() - 1);
+        }
+
+        log.info("performTask -> checked {} store(s), fixed {}", stores, fixed);
+    }
+}
@@ -20,6 +20,7 @@ package com.walmartlabs.concord.server.org.project;
  * =====
  */
 
+import com.walmartlabs.concord.db.AfterCommit;
 import com.walmartlabs.concord.repository.Repository;
 import com.walmartlabs.concord.server.audit.AuditAction;
 import com.walmartlabs.concord.server.audit.AuditLog;
@@ -29,6 +30,7 @@ import com.walmartlabs.concord.server.events.ExternalEventResource;
 import com.walmartlabs.concord.server.org.ResourceAccessLevel;
 import com.walmartlabs.concord.server.org.secret.SecretDao;
 import com.walmartlabs.concord.server.org.secret.SecretManager;
+import com.walmartlabs.concord.server.org.triggers.TriggerIndex;
 import com.walmartlabs.concord.server.process.ImportsNormalizerFactory;
 import com.walmartlabs.concord.server.process.loader.ProjectLoader;
 import com.walmartlabs.concord.server.process.loader.model.ProjectDefinition;
@@ -55,6 +57,7 @@ public class ProjectRepositoryManager {
     private final AuditLog auditLog;
     private final ProjectLoader projectLoader;
     private final ImportsNormalizerFactory importsNormalizerFactory;
+    private final TriggerIndex triggerIndex;
 
     @Inject
     public ProjectRepositoryManager(ProjectAccessManager projectAccessManager,
@@ -65,7 +68,8 @@ public class ProjectRepositoryManager {
                                     ExternalEventResource externalEventResource,
                                     AuditLog auditLog,
                                     ProjectLoader projectLoader,
-                                    ImportsNormalizerFactory importsNormalizerFactory) {
+                                    ImportsNormalizerFactory importsNormalizerFactory,
+                                    TriggerIndex triggerIndex) {
 
         this.projectAccessManager = projectAccessManager;
         this.secretManager = secretManager;
@@ -76,6 +80,7 @@ public class ProjectRepositoryManager {
         this.auditLog = auditLog;
         this.projectLoader = projectLoader;
         this.importsNormalizerFactory = importsNormalizerFactory;
+        this.triggerIndex = triggerIndex;
     }
 
     public void createOrUpdate(UUID projectId, RepositoryEntry entry) {
@@ -111,6 +116,7 @@ public class ProjectRepositoryManager {
         }
 
         repositoryDao.delete(repoId);
+        triggerIndex.refresh(repoId);
         addAuditLog(
                 projEntry.getOrgId(),
                 projEntry.getOrgName(),
@@ -131,6 +137,9 @@ public class ProjectRepositoryManager {
                 trim(entry.getBranch()), trim(entry.getCommitId()),
                 trim(entry.getPath()), secretId, entry.isDisabled(), entry.getMeta());
 
+        // pick up the repository's changes (e.g. the "disabled" flag) after the commit
+        AfterCommit.run(tx, () -> triggerIndex.refresh(repoId));
+
         Map<String, Object> ev = Events.Repository.repositoryCreated(projectId, repoId, entry.getName());
         externalEventResource.event(Events.CONCORD_EVENT, ev);
 
@@ -160,6 +169,8 @@ public class ProjectRepositoryManager {
                 trim(entry.getBranch()), trim(entry.getCommitId()),
                 trim(entry.getPath()), secretId, entry.isDisabled());
 
+        AfterCommit.run(tx, () -> triggerIndex.refresh(repoId));
+
         Map<String, Object> ev = Events.Repository.repositoryUpdated(projectId, repoId, entry.getName());
         externalEventResource.event(Events.CONCORD_EVENT, ev);
 
@@ -0,0 +1,64 @@
+package com.walmartlabs.concord.server.org.secret;
+
+/*-
+ * *****
+ * Concord
+ * -----
+ * Copyright (C) 2017 - 2020 Walmart Inc.
+ * -----
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * =====
+ */
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.walmartlabs.concord.server.cfg.SecretStoreConfiguration;
+
+import javax.inject.Inject;
+import javax.inject.Named;
+import javax.inject.Singleton;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Caches the encrypted data of secrets, so repeated decryptions of the same
+ * secret don't have to read it from the secret store every time.
+ * The data is kept encrypted, i.e. the caller must still provide a valid
+ * password to use it.
+ */
+@Named
+@Singleton
+public class SecretDataCache {
+
+    private final Cache<UUID, byte[]> cache;
+
+    @Inject
+    public SecretDataCache(SecretStoreConfiguration cfg) {
+        this.cache = CacheBuilder.newBuilder()
+                .expireAfterWrite(cfg.getCacheTtl(), TimeUnit.MILLISECONDS)
+                .maximumSize(cfg.getCacheMaxSize())
+                .build();
+    }
+
+    public byte[] get(UUID secretId) {
+        return cache.getIfPresent(secretId);
+    }
+
+    public void put(UUID secretId, byte[] data) {
+        cache.put(secretId, data);
+    }
+
+    public void invalidate(UUID secretId) {
+        cache.invalidate(secretId);
+    }
+}
@@ -78,6 +78,7 @@ public class SecretManager {
     private final SecretStoreProvider secretStoreProvider;
     private final UserDao userDao;
     private final ProjectAccessManager projectAccessManager;
+    private final SecretDataCache dataCache;
 
     @Inject
     public SecretManager(PolicyManager policyManager,
@@ -88,7 +89,8 @@ public class SecretManager {
                          SecretStoreConfiguration secretCfg,
                          SecretStoreProvider secretStoreProvider,
                          UserDao userDao,
-                         ProjectAccessManager projectAccessManager) {
+                         ProjectAccessManager projectAccessManager,
+                         SecretDataCache dataCache) {
 
         this.policyManager = policyManager;
         this.processQueueManager = processQueueManager;
@@ -99,6 +101,7 @@ public class SecretManager {
         this.secretStoreProvider = secretStoreProvider;
         this.auditLog = auditLog;
         this.projectAccessManager = projectAccessManager;
+        this.dataCache = dataCache;
     }
 
     @WithTimer
@@ -309,6 +312,7 @@ public class SecretManager {
         }
 
         secretDao.update(e.getId(), req.name(), newData, req.visibility(), projectId);
+        dataCache.invalidate(e.getId());
 
         Map<String, Object> changes = DiffUtils.compare(e, secretDao.get(e.getId()));
         changes.put("updated", updated);
@@ -331,6 +335,7 @@ public class SecretManager {
         getSecretStore(e.getStoreType()).delete(e.getId());
         // now delete secret information from secret table
         secretDao.delete(e.getId());
+        dataCache.invalidate(e.getId());
 
         auditLog.add(AuditObject.SECRET, AuditAction.DELETE)
                 .field("id", e.getId())
@@ -354,9 +359,13 @@ public class SecretManager {
     }
 
     private byte[] decryptData(UUID secretId, String storeType, String password) {
-        byte[] data = getSecretStore(storeType).get(secretId);
+        byte[] data = dataCache.get(secretId);
         if (data == null) {
-            throw new IllegalStateException("Can't find the secret's data in the store " + storeType + " : " + secretId);
+            data = getSecretStore(storeType).get(secretId);
+            if (data == null) {
+                throw new IllegalStateException("Can't find the secret's data in the store " + storeType + " : " + secretId);
+            }
+            dataCache.put(secretId, data);
         }
 
         byte[] pwd = getPwd(password);
@@ -32,6 +32,8 @@ import java.time.chrono.ChronoZonedDateTime;
 
 public final class CronUtils {
 
+    private static final CronParser PARSER = new CronParser(CronDefinitionBuilder.instanceDefinitionFor(CronType.UNIX));
+
     public static Instant nextExecution(Instant now, String expression, ZoneId zone) {
         if (zone == null) {
             zone = ZoneId.systemDefault();
@@ -46,10 +48,23 @@ public final class CronUtils {
         return nextExecution(ZonedDateTime.now(zone), expression);
     }
 
+    /**
+     * Parses the specified cron expression. The result can be reused
+     * to calculate multiple execution times.
+     */
+    public static ExecutionTime parse(String expression) {
+        return ExecutionTime.forCron(PARSER.parse(expression));
+    }
+
+    public static Instant nextExecution(Instant now, ExecutionTime executionTime, ZoneId zone) {
+        if (zone == null) {
+            zone = ZoneId.systemDefault();
+        }
+        return executionTime.nextExecution(ZonedDateTime.ofInstant(now, zone)).map(ChronoZonedDateTime::toInstant).orElse(null);
+    }
+
     private static Instant nextExecution(ZonedDateTime now, String expression) {
-        CronParser parser = new CronParser(CronDefinitionBuilder.instanceDefinitionFor(CronType.UNIX));
-        ExecutionTime executionTime = ExecutionTime.forCron(parser.parse(expression));
-        return executionTime.nextExecution(now).map(ChronoZonedDateTime::toInstant).orElse(null);
+        return parse(expression).nextExecution(now).map(ChronoZonedDateTime::toInstant).orElse(null);
     }
 
     private CronUtils() {
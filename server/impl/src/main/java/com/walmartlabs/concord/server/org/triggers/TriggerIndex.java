@@ -0,0 +1,626 @@
+package com.walmartlabs.concord.server.org.triggers;
+
+/*-
+ * *****
+ * Concord
+ * -----
+ * Copyright (C) 2017 - 2020 Walmart Inc.
+ * -----
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * =====
+ */
+
+import com.walmartlabs.concord.db.AbstractDao;
+import com.walmartlabs.concord.db.MainDB;
+import com.walmartlabs.concord.server.cfg.TriggersConfiguration;
+import com.walmartlabs.concord.server.jooq.tables.Organizations;
+import com.walmartlabs.concord.server.jooq.tables.Projects;
+import com.walmartlabs.concord.server.jooq.tables.Repositories;
+import com.walmartlabs.concord.server.process.queue.ProcessStatusListener;
+import com.walmartlabs.concord.server.sdk.BackgroundTask;
+import com.walmartlabs.concord.server.sdk.ConcordApplicationException;
+import org.jooq.Configuration;
+import org.jooq.Record6;
+import org.jooq.impl.DSL;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.inject.Inject;
+import javax.inject.Named;
+import javax.inject.Singleton;
+import javax.ws.rs.core.Response.Status;
+import java.util.*;
+import java.util.regex.Pattern;
+import java.util.regex.PatternSyntaxException;
+
+import static com.walmartlabs.concord.server.events.github.Constants.*;
+import static com.walmartlabs.concord.server.jooq.Tables.*;
+import static com.walmartlabs.concord.server.jooq.tables.Triggers.TRIGGERS;
+
+/**
+ * In-memory index of all triggers. Used to route external events (GitHub webhooks,
+ * generic events, etc) without querying the DB.
+ * <p/>
+ * The index is kept up to date by re-reading only the repositories whose triggers
+ * (or the repository itself) have changed. Local changes are applied immediately
+ * (see {@link #refresh(UUID)}) and sent to other nodes using PostgreSQL's NOTIFY
+ * (see {@link ProcessStatusListener}, the trigger changes are sent regardless of
+ * {@code process.statusNotifications}).
+ * The whole index is periodically re-checked as a safety net, e.g. for
+ * the changes made while the notifications weren't received.
+ * <p/>
+ * Trigger conditions are matched using precompiled regular expressions. Unlike
+ * the original SQL query (which used partial matching) the conditions must match
+ * the whole value, same as in {@link com.walmartlabs.concord.server.events.DefaultEventFilter}.
+ */
+@Named
+@Singleton
+public class TriggerIndex implements BackgroundTask {
+
+    private static final Logger log = LoggerFactory.getLogger(TriggerIndex.class);
+
+    private static final long ERROR_DELAY = 10000;
+    private static final long STOP_TIMEOUT = 10000;
+    private static final int RELOAD_BATCH_SIZE = 500;
+
+    private final TriggersConfiguration cfg;
+    private final TriggersDao triggersDao;
+    private final Dao dao;
+
+    private final Object lock = new Object();
+    private final Set<UUID> pendingRepos = new HashSet<>();
+    private boolean pendingFullSync;
+
+    private volatile Snapshot snapshot;
+    private Thread loader;
+
+    @Inject
+    public TriggerIndex(TriggersConfiguration cfg, TriggersDao triggersDao, Dao dao) {
+        this.cfg = cfg;
+        this.triggersDao = triggersDao;
+        this.dao = dao;
+    }
+
+    @Override
+    public void start() {
+        try {
+            sync(null);
+        } catch (Exception e) {
+            log.warn("start -> error while loading the trigger index, will retry later: {}", e.getMessage());
+            requestFullSync();
+        }
+
+        this.loader = new Thread(this::run, "trigger-index-loader");
+        this.loader.setDaemon(true);
+        this.loader.start();
+    }
+
+    @Override
+    public void stop() {
+        Thread t = loader;
+        if (t == null) {
+            return;
+        }
+
+        t.interrupt();
+        try {
+            t.join(STOP_TIMEOUT);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        loader = null;
+    }
+
+    /**
+     * Re-reads the triggers of the specified repository and notifies other nodes.
+     * Must be called after the repository's triggers are rewritten (and
+     * the transaction is committed).
+     */
+    public void refresh(UUID repoId) {
+        if (repoId == null) {
+            return;
+        }
+
+        try {
+            sync(Collections.singleton(repoId));
+        } catch (Exception e) {
+            log.warn("refresh ['{}'] -> error, will retry later: {}", repoId, e.getMessage());
+            onRemoteChange(repoId);
+        }
+
+        try {
+            dao.notifyChanged(repoId);
+        } catch (Exception e) {
+            // the periodic reload will pick up the changes
+            log.warn("refresh ['{}'] -> error while notifying other nodes: {}", repoId, e.getMessage());
+        }
+    }
+
+    /**
+     * Schedules a re-read of the triggers of the specified repository,
+     * e.g. after a change made on another node. Doesn't block.
+     */
+    public void onRemoteChange(UUID repoId) {
+        synchronized (lock) {
+            pendingRepos.add(repoId);
+            lock.notifyAll();
+        }
+    }
+
+    /**
+     * Schedules a re-check of the whole index, e.g. after some of
+     * the notifications were lost. Doesn't block.
+     */
+    public void onResync() {
+        requestFullSync();
+    }
+
+    /**
+     * Returns all triggers of the specified event source.
+     */
+    public List<TriggerEntry> list(String eventSource) {
+        EventSourceTriggers ts = getSnapshot().byEventSource.get(eventSource);
+        if (ts == null) {
+            return Collections.emptyList();
+        }
+
+        List<TriggerEntry> result = new ArrayList<>(ts.all.size());
+        for (IndexedTrigger t : ts.all) {
+            result.add(t.entry);
+        }
+        return result;
+    }
+
+    /**
+     * Returns the triggers of the specified event source that have matching
+     * (or don't have at all) the specified conditions.
+     *
+     * @param projectId  if not {@code null} only the triggers of the specified project are returned
+     * @param version    the trigger's version. Triggers without an explicit version are considered v1
+     * @param conditions the condition values to match
+     */
+    public List<TriggerEntry> list(UUID projectId, String eventSource, Integer version, Map<String, String> conditions) {
+        EventSourceTriggers ts = getSnapshot().byEventSource.get(eventSource);
+        if (ts == null) {
+            return Collections.emptyList();
+        }
+
+        Map<String, String> c = conditions != null ? conditions : Collections.emptyMap();
+
+        List<TriggerEntry> result = new ArrayList<>();
+        for (IndexedTrigger t : ts.candidates(c)) {
+            if (projectId != null && !projectId.equals(t.entry.getProjectId())) {
+                continue;
+            }
+
+            if (version != null && !t.isVersion(version)) {
+                continue;
+            }
+
+            if (t.matches(c)) {
+                result.add(t.entry);
+            }
+        }
+        return result;
+    }
+
+    public boolean isRepositoryDisabled(UUID repoId) {
+        RepositoryTriggers r = getSnapshot().repositories.get(repoId);
+        return r != null && r.disabled;
+    }
+
+    private Snapshot getSnapshot() {
+        Snapshot s = snapshot;
+        if (s != null) {
+            return s;
+        }
+
+        // the initial load failed, the loader will retry it
+        // don't block the request threads
+        throw new ConcordApplicationException("The trigger index is not loaded yet, please retry later", Status.SERVICE_UNAVAILABLE);
+    }
+
+    private void requestFullSync() {
+        synchronized (lock) {
+            pendingFullSync = true;
+            lock.notifyAll();
+        }
+    }
+
+    private void run() {
+        long interval = cfg.getIndexReloadInterval();
+        long nextFullSync = interval > 0 ? System.currentTimeMillis() + interval : Long.MAX_VALUE;
+
+        while (!Thread.currentThread().isInterrupted()) {
+            Set<UUID> repoIds;
+            boolean full;
+
+            try {
+                synchronized (lock) {
+                    long delay;
+                    while (pendingRepos.isEmpty() && !pendingFullSync
+                            && (delay = nextFullSync - System.currentTimeMillis()) > 0) {
+                        lock.wait(delay);
+                    }
+
+                    full = pendingFullSync || System.currentTimeMillis() >= nextFullSync;
+                    repoIds = full ? null : new HashSet<>(pendingRepos);
+
+                    pendingRepos.clear();
+                    pendingFullSync = false;
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                break;
+            }
+
+            try {
+                sync(repoIds);
+
+                if (full && interval > 0) {
+                    nextFullSync = System.currentTimeMillis() + interval;
+                }
+            } catch (Exception e) {
+                log.warn("run -> error, retrying in {}ms: {}", ERROR_DELAY, e.getMessage());
+
+                synchronized (lock) {
+                    if (full) {
+                        pendingFullSync = true;
+                    } else {
+                        pendingRepos.addAll(repoIds);
+                    }
+                }
+
+                try {
+                    Thread.sleep(ERROR_DELAY);
+                } catch (InterruptedException ex) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+        }
+    }
+
+    /**
+     * Synchronizes the index with the DB.
+     *
+     * @param repoIds the repositories to check or {@code null} to check all repositories
+     */
+    private synchronized void sync(Collection<UUID> repoIds) {
+        Snapshot current = snapshot;
+        if (current == null) {
+            // the initial load must include all repositories
+            repoIds = null;
+        }
+
+        Map<UUID, RepositoryState> states = dao.listStates(repoIds);
+
+        Map<UUID, RepositoryTriggers> prev = current != null ? current.repositories : Collections.emptyMap();
+        Map<UUID, RepositoryTriggers> next = new HashMap<>(prev);
+
+        boolean modified = current == null;
+
+        Collection<UUID> scope = repoIds != null ? repoIds : prev.keySet();
+        for (UUID repoId : scope) {
+            if (!states.containsKey(repoId) && next.remove(repoId) != null) {
+                modified = true;
+            }
+        }
+
+        List<UUID> changed = new ArrayList<>();
+        for (Map.Entry<UUID, RepositoryState> e : states.entrySet()) {
+            RepositoryTriggers r = prev.get(e.getKey());
+            if (r == null || !r.fingerprint.equals(e.getValue().fingerprint)) {
+                changed.add(e.getKey());
+            }
+        }
+
+        if (!changed.isEmpty()) {
+            Map<UUID, List<IndexedTrigger>> triggers = new HashMap<>();
+            for (int i = 0; i < changed.size(); i += RELOAD_BATCH_SIZE) {
+                List<UUID> batch = changed.subList(i, Math.min(i + RELOAD_BATCH_SIZE, changed.size()));
+                for (TriggerEntry t : triggersDao.list(batch)) {
+                    triggers.computeIfAbsent(t.getRepositoryId(), k -> new ArrayList<>())
+                            .add(new IndexedTrigger(t));
+                }
+            }
+
+            for (UUID repoId : changed) {
+                RepositoryState s = states.get(repoId);
+                List<IndexedTrigger> l = triggers.getOrDefault(repoId, Collections.emptyList());
+                next.put(repoId, new RepositoryTriggers(s.fingerprint, s.disabled, l));
+            }
+
+            modified = true;
+        }
+
+        if (modified) {
+            this.snapshot = new Snapshot(next);
+            log.info("sync -> done, {} repositories updated, {} repositories total", changed.size(), next.size());
+        }
+    }
+
+    private static final class Snapshot {
+
+        private final Map<UUID, RepositoryTriggers> repositories;
+        private final Map<String, EventSourceTriggers> byEventSource;
+
+        private Snapshot(Map<UUID, RepositoryTriggers> repositories) {
+            this.repositories = repositories;
+
+            Map<String, EventSourceTriggers> m = new HashMap<>();
+            for (RepositoryTriggers r : repositories.values()) {
+                for (IndexedTrigger t : r.triggers) {
+                    m.computeIfAbsent(t.entry.getEventSource(), k -> new EventSourceTriggers())
+                            .add(t);
+                }
+            }
+            this.byEventSource = m;
+        }
+    }
+
+    /**
+     * Triggers of a single event source. GitHub triggers are additionally indexed
+     * by the organization/repository names and the event type, but only if the
+     * corresponding conditions are plain strings (not regular expressions).
+     */
+    private static final class EventSourceTriggers {
+
+        private final List<IndexedTrigger> all = new ArrayList<>();
+        private final Map<String, GithubRepoTriggers> byGithubRepo = new HashMap<>();
+        private final List<IndexedTrigger> githubRepoWildcard = new ArrayList<>();
+
+        private void add(IndexedTrigger t) {
+            all.add(t);
+
+            if (t.githubRepoKey == null) {
+                githubRepoWildcard.add(t);
+                return;
+            }
+
+            GithubRepoTriggers r = byGithubRepo.computeIfAbsent(t.githubRepoKey, k -> new GithubRepoTriggers());
+            if (t.type == null) {
+                r.anyType.add(t);
+            } else {
+                r.byType.computeIfAbsent(t.type, k -> new ArrayList<>()).add(t);
+            }
+        }
+
+        private List<IndexedTrigger> candidates(Map<String, String> conditions) {
+            String org = conditions.get(GITHUB_ORG_KEY);
+            String repo = conditions.get(GITHUB_REPO_KEY);
+            if (org == null || repo == null) {
+                return all;
+            }
+
+            List<IndexedTrigger> result = new ArrayList<>(githubRepoWildcard);
+
+            GithubRepoTriggers r = byGithubRepo.get(githubRepoKey(org, repo));
+            if (r == null) {
+                return result;
+            }
+
+            result.addAll(r.anyType);
+
+            String type = conditions.get(TYPE_KEY);
+            if (type == null) {
+                r.byType.values().forEach(result::addAll);
+            } else {
+                result.addAll(r.byType.getOrDefault(type, Collections.emptyList()));
+            }
+
+            return result;
+        }
+    }
+
+    private static final class GithubRepoTriggers {
+
+        private final Map<String, List<IndexedTrigger>> byType = new HashMap<>();
+        private final List<IndexedTrigger> anyType = new ArrayList<>();
+    }
+
+    private static final class RepositoryTriggers {
+
+        private final String fingerprint;
+        private final boolean disabled;
+        private final List<IndexedTrigger> triggers;
+
+        private RepositoryTriggers(String fingerprint, boolean disabled, List<IndexedTrigger> triggers) {
+            this.fingerprint = fingerprint;
+            this.disabled = disabled;
+            this.triggers = triggers;
+        }
+    }
+
+    private static final class IndexedTrigger {
+
+        private static final Pattern NEVER = Pattern.compile("(?!)");
+
+        private final TriggerEntry entry;
+        private final String version;
+
+        /**
+         * Precompiled patterns of the top-level scalar conditions.
+         * Non-scalar conditions are evaluated by the event filters.
+         */
+        private final Map<String, Pattern> patterns;
+
+        /**
+         * Non-null if both the GitHub organization and repository conditions are plain strings.
+         */
+        private final String githubRepoKey;
+
+        /**
+         * Non-null if the event type condition is a plain string.
+         */
+        private final String type;
+
+        private IndexedTrigger(TriggerEntry entry) {
+            this.entry = entry;
+
+            Map<String, Object> conditions = entry.getConditions() != null ? entry.getConditions() : Collections.emptyMap();
+
+            Object v = conditions.get(VERSION_KEY);
+            this.version = v != null ? v.toString() : null;
+
+            Map<String, Pattern> patterns = new HashMap<>();
+            for (Map.Entry<String, Object> e : conditions.entrySet()) {
+                Object value = e.getValue();
+                if (value == null || value instanceof Map || value instanceof Collection) {
+                    continue;
+                }
+
+                try {
+                    patterns.put(e.getKey(), Pattern.compile(value.toString()));
+                } catch (PatternSyntaxException ex) {
+                    log.warn("index ['{}'] -> invalid '{}' condition, the trigger will be ignored: {}", entry.getId(), e.getKey(), ex.getMessage());
+                    patterns.put(e.getKey(), NEVER);
+                }
+            }
+            this.patterns = patterns;
+
+            String org = literal(conditions.get(GITHUB_ORG_KEY));
+            String repo = literal(conditions.get(GITHUB_REPO_KEY));
+            this.githubRepoKey = org != null && repo != null ? githubRepoKey(org, repo) : null;
+            this.type = literal(conditions.get(TYPE_KEY));
+        }
+
+        private boolean isVersion(int v) {
+            if (version == null) {
+                return v == 1;
+            }
+            return version.equals(String.valueOf(v));
+        }
+
+        private boolean matches(Map<String, String> conditions) {
+            for (Map.Entry<String, String> e : conditions.entrySet()) {
+                Pattern p = patterns.get(e.getKey());
+                if (p == null) {
+                    continue;
+                }
+
+                String value = e.getValue();
+                if (value == null || !p.matcher(value).matches()) {
+                    return false;
+                }
+            }
+            return true;
+        }
+    }
+
+    private static String githubRepoKey(String org, String repo) {
+        return org + "/" + repo;
+    }
+
+    /**
+     * Returns the value if it is a string without any regex special characters.
+     */
+    private static String literal(Object v) {
+        if (!(v instanceof String)) {
+            return null;
+        }
+
+        String s = (String) v;
+        for (int i = 0; i < s.length(); i++) {
+            if ("\\.[]{}()*+?^$|".indexOf(s.charAt(i)) >= 0) {
+                return null;
+            }
+        }
+        return s;
+    }
+
+    static final class RepositoryState {
+
+        private final String fingerprint;
+        private final boolean disabled;
+
+        RepositoryState(String fingerprint, boolean disabled) {
+            this.fingerprint = fingerprint;
+            this.disabled = disabled;
+        }
+    }
+
+    @Named
+    static class Dao extends AbstractDao {
+
+        @Inject
+        public Dao(@MainDB Configuration cfg) {
+            super(cfg);
+        }
+
+        /**
+         * Returns the "fingerprints" of the repositories' triggers. A fingerprint
+         * changes when triggers are added or removed (triggers are never updated
+         * in place) or when the repository, the project or the organization are
+         * modified (renamed, disabled, etc).
+         */
+        public Map<UUID, RepositoryState> listStates(Collection<UUID> repoIds) {
+            Organizations o = ORGANIZATIONS.as("o");
+            Projects p = PROJECTS.as("p");
+            Repositories r = REPOSITORIES.as("r");
+
+            List<Record6<UUID, UUID, Boolean, String, String, String>> rows = txResult(tx -> tx.select(
+                    TRIGGERS.REPO_ID,
+                    TRIGGERS.TRIGGER_ID,
+                    r.IS_DISABLED,
+                    r.REPO_NAME,
+                    p.PROJECT_NAME,
+                    o.ORG_NAME)
+                    .from(TRIGGERS)
+                    .join(r).on(r.REPO_ID.eq(TRIGGERS.REPO_ID))
+                    .join(p).on(p.PROJECT_ID.eq(TRIGGERS.PROJECT_ID))
+                    .join(o).on(o.ORG_ID.eq(p.ORG_ID))
+                    .where(repoIds != null ? TRIGGERS.REPO_ID.in(repoIds) : DSL.noCondition())
+                    .orderBy(TRIGGERS.REPO_ID, TRIGGERS.TRIGGER_ID)
+                    .fetch());
+
+            Map<UUID, RepositoryState> result = new HashMap<>();
+
+            UUID currentRepoId = null;
+            boolean disabled = false;
+            StringBuilder fingerprint = new StringBuilder();
+
+            for (Record6<UUID, UUID, Boolean, String, String, String> row : rows) {
+                UUID repoId = row.value1();
+                if (!repoId.equals(currentRepoId)) {
+                    if (currentRepoId != null) {
+                        result.put(currentRepoId, new RepositoryState(fingerprint.toString(), disabled));
+                    }
+
+                    currentRepoId = repoId;
+                    disabled = Boolean.TRUE.equals(row.value3());
+
+                    fingerprint.setLength(0);
+                    fingerprint.append(disabled).append('/')
+                            .append(row.value6()).append('/')
+                            .append(row.value5()).append('/')
+                            .append(row.value4());
+                }
+
+                fingerprint.append('/').append(row.value2());
+            }
+
+            if (currentRepoId != null) {
+                result.put(currentRepoId, new RepositoryState(fingerprint.toString(), disabled));
+            }
+
+            return result;
+        }
+
+        /**
+         * Notifies other nodes about the repository's changes.
+         */
+        public void notifyChanged(UUID repoId) {
+            tx(tx -> tx.fetch("select pg_notify(?, ?)", ProcessStatusListener.TRIGGERS_CHANNEL, repoId.toString()));
+        }
+    }
+}
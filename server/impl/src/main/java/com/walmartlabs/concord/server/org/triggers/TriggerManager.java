@@ -54,6 +54,7 @@ public class TriggerManager extends AbstractDao {
 
     private final ProjectDao projectDao;
     private final TriggersDao triggersDao;
+    private final TriggerIndex triggerIndex;
     private final PolicyManager policyManager;
     private final TriggersConfiguration triggersCfg;
 
@@ -64,6 +65,7 @@ public class TriggerManager extends AbstractDao {
     public TriggerManager(@MainDB Configuration cfg,
                           ProjectDao projectDao,
                           TriggersDao triggersDao,
+                          TriggerIndex triggerIndex,
                           PolicyManager policyManager,
                           TriggersConfiguration triggersCfg,
                           CronTriggerProcessor cronTriggerProcessor,
@@ -73,6 +75,7 @@ public class TriggerManager extends AbstractDao {
 
         this.projectDao = projectDao;
         this.triggersDao = triggersDao;
+        this.triggerIndex = triggerIndex;
         this.policyManager = policyManager;
         this.triggersCfg = triggersCfg;
 
@@ -117,6 +120,8 @@ public class TriggerManager extends AbstractDao {
             }
         });
 
+        triggerIndex.refresh(repoId);
+
         log.info("refresh ['{}', '{}'] -> done, triggers count: {}", projectId, repoId, pd.triggers().size());
     }
 
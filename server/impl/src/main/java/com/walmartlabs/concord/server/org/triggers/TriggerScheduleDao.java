@@ -20,6 +20,7 @@ package com.walmartlabs.concord.server.org.triggers;
  * =====
  */
 
+import com.cronutils.model.time.ExecutionTime;
 import com.walmartlabs.concord.db.AbstractDao;
 import com.walmartlabs.concord.db.MainDB;
 import com.walmartlabs.concord.sdk.Constants;
@@ -29,6 +30,8 @@ import com.walmartlabs.concord.server.jooq.tables.Projects;
 import com.walmartlabs.concord.server.jooq.tables.Repositories;
 import com.walmartlabs.concord.server.jooq.tables.Triggers;
 import org.jooq.*;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
 import javax.inject.Inject;
 import javax.inject.Named;
@@ -45,6 +48,8 @@ import static org.jooq.impl.DSL.*;
 @Named
 public class TriggerScheduleDao extends AbstractDao {
 
+    private static final Logger log = LoggerFactory.getLogger(TriggerScheduleDao.class);
+
     private final ConcordObjectMapper objectMapper;
 
     @Inject
@@ -55,34 +60,24 @@ public class TriggerScheduleDao extends AbstractDao {
         this.objectMapper = objectMapper;
     }
 
-    public TriggerSchedulerEntry findNext() {
+    /**
+     * Claims the schedule entries that are due and moves their {@code FIRE_AT}
+     * to the next execution time. The entries locked by other servers are skipped.
+     * <p>
+     * Only the entries that are already due are claimed, so the claimed entries
+     * can be started right away. See also {@link #release(Collection)}.
+     */
+    public DueEntries claimDue(int limit) {
         return txResult(tx -> {
-            // TODO fetch everything in a single request?
-            Map<String, Object> e = tx.select(TRIGGER_SCHEDULE.TRIGGER_ID, TRIGGER_SCHEDULE.FIRE_AT)
-                    .from(TRIGGER_SCHEDULE)
-                    .where(TRIGGER_SCHEDULE.FIRE_AT.le(currentTimestamp()))
-                    .limit(1)
-                    .forUpdate()
-                    .skipLocked()
-                    .fetchOneMap();
-
-            if (e == null) {
-                return null;
-            }
-
-            UUID id = (UUID) e.get(TRIGGER_SCHEDULE.TRIGGER_ID.getName());
-            Date fireAt = (Date) e.get(TRIGGER_SCHEDULE.FIRE_AT.getName());
-
             Triggers t = TRIGGERS.as("t");
             Projects p = PROJECTS.as("p");
             Repositories r = REPOSITORIES.as("r");
             Organizations o = ORGANIZATIONS.as("o");
 
-            Field<UUID> orgIdField = select(p.ORG_ID).from(p).where(p.PROJECT_ID.eq(t.PROJECT_ID)).asField();
-
-            Record13<UUID, UUID, String, UUID, String, UUID, String, String[], JSONB, JSONB, JSONB, Timestamp, String> record = tx.select(
+            Result<Record14<Timestamp, UUID, UUID, String, UUID, String, UUID, String, String[], JSONB, JSONB, JSONB, Timestamp, String>> records = tx.select(
+                    TRIGGER_SCHEDULE.FIRE_AT,
                     t.TRIGGER_ID,
-                    orgIdField,
+                    p.ORG_ID,
                     o.ORG_NAME,
                     t.PROJECT_ID,
                     p.PROJECT_NAME,
@@ -94,55 +89,102 @@ public class TriggerScheduleDao extends AbstractDao {
                     t.CONDITIONS,
                     currentTimestamp(),
                     t.EVENT_SOURCE)
-                    .from(t, p, r, o)
-                    .where(t.TRIGGER_ID.eq(id).
-                            and(t.PROJECT_ID.eq(p.PROJECT_ID)).
-                            and(p.PROJECT_ID.eq(r.PROJECT_ID)).
-                            and(p.ORG_ID.eq(o.ORG_ID)).
-                            and(t.REPO_ID.eq(r.REPO_ID)))
-                    .fetchOne();
-
-            if (record == null) {
-                return null;
+                    .from(TRIGGER_SCHEDULE)
+                    .join(t).on(t.TRIGGER_ID.eq(TRIGGER_SCHEDULE.TRIGGER_ID))
+                    .join(p).on(p.PROJECT_ID.eq(t.PROJECT_ID))
+                    .join(r).on(r.REPO_ID.eq(t.REPO_ID))
+                    .join(o).on(o.ORG_ID.eq(p.ORG_ID))
+                    .where(TRIGGER_SCHEDULE.FIRE_AT.le(currentTimestamp()))
+                    .orderBy(TRIGGER_SCHEDULE.FIRE_AT)
+                    .limit(limit)
+                    .forUpdate().of(TRIGGER_SCHEDULE)
+                    .skipLocked()
+                    .fetch();
+
+            if (records.isEmpty()) {
+                return new DueEntries(null, Collections.emptyList());
             }
 
-            UUID triggerId = record.value1();
-            UUID orgId = record.value2();
-            String organizationName = record.value3();
-            UUID projectId = record.value4();
-            String projectName = record.value5();
-            UUID repoId = record.value6();
-            String repositoryName = record.value7();
-            List<String> activeProfiles = toList(record.value8());
-            Map<String, Object> arguments = objectMapper.fromJSONB(record.value9());
-            Map<String, Object> cfg = objectMapper.fromJSONB(record.value10());
-            Map<String, Object> conditions = objectMapper.fromJSONB(record.value11());
-            Instant now = record.value12().toInstant();
-            String eventSource = record.value13();
-
-            TriggerSchedulerEntry result = new TriggerSchedulerEntry(
-                    fireAt,
-                    triggerId,
-                    orgId,
-                    organizationName,
-                    projectId,
-                    projectName,
-                    repoId,
-                    repositoryName,
-                    conditions,
-                    cfg,
-                    activeProfiles,
-                    arguments,
-                    eventSource);
-
-            ZoneId zoneId = null;
-            if (conditions.get(Constants.Trigger.CRON_TIMEZONE) != null) {
-                zoneId = TimeZone.getTimeZone((String) conditions.get(Constants.Trigger.CRON_TIMEZONE)).toZoneId();
+            Instant now = records.get(0).value13().toInstant();
+
+            List<Claim> result = new ArrayList<>(records.size());
+            List<Query> updates = new ArrayList<>(records.size());
+            Map<String, ExecutionTime> executionTimes = new HashMap<>();
+
+            for (Record14<Timestamp, UUID, UUID, String, UUID, String, UUID, String, String[], JSONB, JSONB, JSONB, Timestamp, String> record : records) {
+                Timestamp fireAt = record.value1();
+                UUID triggerId = record.value2();
+                Map<String, Object> conditions = objectMapper.fromJSONB(record.value12());
+
+                Instant nextFireAt;
+                try {
+                    nextFireAt = nextExecution(now, conditions, executionTimes);
+                } catch (Exception e) {
+                    log.error("claimDue ['{}'] -> can't calculate the next execution time, removing: {}", triggerId, e.getMessage());
+                    updates.add(tx.deleteFrom(TRIGGER_SCHEDULE).where(TRIGGER_SCHEDULE.TRIGGER_ID.eq(triggerId)));
+                    continue;
+                }
+
+                if (nextFireAt == null) {
+                    log.warn("claimDue ['{}'] -> no next execution time, removing", triggerId);
+                    updates.add(tx.deleteFrom(TRIGGER_SCHEDULE).where(TRIGGER_SCHEDULE.TRIGGER_ID.eq(triggerId)));
+                } else {
+                    updates.add(tx.update(TRIGGER_SCHEDULE)
+                            .set(TRIGGER_SCHEDULE.FIRE_AT, Timestamp.from(nextFireAt))
+                            .where(TRIGGER_SCHEDULE.TRIGGER_ID.eq(triggerId)));
+                }
+
+                TriggerSchedulerEntry entry = new TriggerSchedulerEntry(
+                        fireAt,
+                        triggerId,
+                        record.value3(),
+                        record.value4(),
+                        record.value5(),
+                        record.value6(),
+                        record.value7(),
+                        record.value8(),
+                        conditions,
+                        objectMapper.fromJSONB(record.value11()),
+                        toList(record.value9()),
+                        objectMapper.fromJSONB(record.value10()),
+                        record.value14());
+
+                result.add(new Claim(entry, nextFireAt != null ? Timestamp.from(nextFireAt) : null));
             }
 
-            updateFireAt(tx, id, CronUtils.nextExecution(now, (String) conditions.get(Constants.Trigger.CRON_SPEC), zoneId));
+            tx.batch(updates).execute();
+
+            return new DueEntries(now, result);
+        });
+    }
+
+    /**
+     * Reverts the specified claims, e.g. if the processes weren't started because
+     * the server is shutting down. The entries that were changed since they were
+     * claimed are left as is.
+     */
+    public void release(Collection<Claim> claims) {
+        if (claims.isEmpty()) {
+            return;
+        }
+
+        tx(tx -> {
+            List<Query> updates = new ArrayList<>(claims.size());
+            for (Claim c : claims) {
+                if (c.nextFireAt == null) {
+                    // the entry was removed, nothing to revert
+                    continue;
+                }
+
+                updates.add(tx.update(TRIGGER_SCHEDULE)
+                        .set(TRIGGER_SCHEDULE.FIRE_AT, new Timestamp(c.entry.getFireAt().getTime()))
+                        .where(TRIGGER_SCHEDULE.TRIGGER_ID.eq(c.entry.getTriggerId())
+                                .and(TRIGGER_SCHEDULE.FIRE_AT.eq(c.nextFireAt))));
+            }
 
-            return result;
+            if (!updates.isEmpty()) {
+                tx.batch(updates).execute();
+            }
         });
     }
 
@@ -159,11 +201,15 @@ public class TriggerScheduleDao extends AbstractDao {
                 .execute();
     }
 
-    private void updateFireAt(DSLContext tx, UUID triggerId, Instant fireAt) {
-        tx.update(TRIGGER_SCHEDULE)
-                .set(TRIGGER_SCHEDULE.FIRE_AT, Timestamp.from(fireAt))
-                .where(TRIGGER_SCHEDULE.TRIGGER_ID.eq(triggerId))
-                .execute();
+    private static Instant nextExecution(Instant now, Map<String, Object> conditions, Map<String, ExecutionTime> cache) {
+        ZoneId zoneId = null;
+        if (conditions.get(Constants.Trigger.CRON_TIMEZONE) != null) {
+            zoneId = TimeZone.getTimeZone((String) conditions.get(Constants.Trigger.CRON_TIMEZONE)).toZoneId();
+        }
+
+        String spec = (String) conditions.get(Constants.Trigger.CRON_SPEC);
+        ExecutionTime executionTime = cache.computeIfAbsent(spec, CronUtils::parse);
+        return CronUtils.nextExecution(now, executionTime, zoneId);
     }
 
     private static <E> List<E> toList(E[] arr) {
@@ -172,4 +218,45 @@ public class TriggerScheduleDao extends AbstractDao {
         }
         return Arrays.asList(arr);
     }
+
+    public static final class Claim {
+
+        private final TriggerSchedulerEntry entry;
+
+        /**
+         * The entry's new {@code FIRE_AT}, {@code null} if the entry was removed.
+         */
+        private final Timestamp nextFireAt;
+
+        Claim(TriggerSchedulerEntry entry, Timestamp nextFireAt) {
+            this.entry = entry;
+            this.nextFireAt = nextFireAt;
+        }
+
+        public TriggerSchedulerEntry getEntry() {
+            return entry;
+        }
+    }
+
+    public static final class DueEntries {
+
+        private final Instant now;
+        private final List<Claim> entries;
+
+        DueEntries(Instant now, List<Claim> entries) {
+            this.now = now;
+            this.entries = entries;
+        }
+
+        /**
+         * The DB's current time, {@code null} if there are no entries.
+         */
+        public Instant getNow() {
+            return now;
+        }
+
+        public List<Claim> getEntries() {
+            return entries;
+        }
+    }
 }
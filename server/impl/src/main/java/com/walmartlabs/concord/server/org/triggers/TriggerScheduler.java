@@ -20,11 +20,13 @@ package com.walmartlabs.concord.server.org.triggers;
  * =====
  */
 
+import com.codahale.metrics.Gauge;
+import com.codahale.metrics.MetricRegistry;
+import com.codahale.metrics.Timer;
 import com.walmartlabs.concord.sdk.Constants;
 import com.walmartlabs.concord.server.cfg.TriggersConfiguration;
-import com.walmartlabs.concord.server.org.project.RepositoryDao;
 import com.walmartlabs.concord.server.process.*;
-import com.walmartlabs.concord.server.sdk.ScheduledTask;
+import com.walmartlabs.concord.server.sdk.BackgroundTask;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -32,12 +34,20 @@ import javax.inject.Inject;
 import javax.inject.Named;
 import javax.inject.Singleton;
 import javax.xml.bind.DatatypeConverter;
+import java.time.Instant;
 import java.util.*;
-import java.util.concurrent.TimeUnit;
+import java.util.concurrent.*;
 
+/**
+ * Starts processes for "cron" triggers.
+ * <p>
+ * The due {@code TRIGGER_SCHEDULE} entries are claimed in batches and the processes
+ * are started using a bounded pool of workers. The claims that weren't started
+ * (e.g. because the server is shutting down) are released back.
+ */
 @Named("trigger-scheduler")
 @Singleton
-public class TriggerScheduler implements ScheduledTask {
+public class TriggerScheduler implements BackgroundTask {
 
     private static final Logger log = LoggerFactory.getLogger(TriggerScheduler.class);
 
@@ -46,46 +56,156 @@ public class TriggerScheduler implements ScheduledTask {
 
     private static final String EVENT_SOURCE = "cron";
 
+    private static final long ERROR_DELAY = 10000;
+    private static final long STOP_TIMEOUT = 10000;
+
     private final Date startedAt;
     private final TriggerScheduleDao scheduleDao;
-    private final RepositoryDao repositoryDao;
+    private final TriggerIndex triggerIndex;
     private final ProcessManager processManager;
     private final ProcessSecurityContext processSecurityContext;
     private final TriggersConfiguration triggerCfg;
 
+    private final Timer startDelay;
+
+    private volatile ThreadPoolExecutor executor;
+    private Thread poller;
+
     @Inject
     public TriggerScheduler(TriggerScheduleDao scheduleDao,
-                            RepositoryDao repositoryDao,
+                            TriggerIndex triggerIndex,
                             ProcessManager processManager,
                             ProcessSecurityContext processSecurityContext,
-                            TriggersConfiguration triggerCfg) {
+                            TriggersConfiguration triggerCfg,
+                            MetricRegistry metricRegistry) {
 
         this.startedAt = new Date();
         this.scheduleDao = scheduleDao;
-        this.repositoryDao = repositoryDao;
+        this.triggerIndex = triggerIndex;
         this.processManager = processManager;
         this.processSecurityContext = processSecurityContext;
         this.triggerCfg = triggerCfg;
+
+        this.startDelay = metricRegistry.timer("cron-trigger-start-delay");
+        metricRegistry.register("cron-trigger-scheduled", (Gauge<Integer>) () -> {
+            ThreadPoolExecutor e = executor;
+            return e != null ? e.getQueue().size() : 0;
+        });
     }
 
     @Override
-    public long getIntervalInSec() {
-        return TimeUnit.MINUTES.toSeconds(1);
+    public void start() {
+        if (triggerCfg.getCronPollInterval() <= 0) {
+            log.warn("start -> cron triggers are disabled");
+            return;
+        }
+
+        int workers = Math.max(1, triggerCfg.getCronWorkerThreads());
+        this.executor = new ThreadPoolExecutor(workers, workers, 0, TimeUnit.MILLISECONDS, new ArrayBlockingQueue<>(workers));
+        // apply back pressure to the poller when all workers are busy
+        this.executor.setRejectedExecutionHandler((r, e) -> {
+            if (e.isShutdown()) {
+                throw new RejectedExecutionException("The executor is shut down");
+            }
+            r.run();
+        });
+
+        this.poller = new Thread(this::poll, "trigger-scheduler-poller");
+        this.poller.start();
     }
 
     @Override
-    public void performTask() {
+    public void stop() {
+        if (poller != null) {
+            poller.interrupt();
+            try {
+                poller.join(STOP_TIMEOUT);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            poller = null;
+        }
+
+        if (executor != null) {
+            executor.shutdown();
+
+            List<Runnable> pending = new ArrayList<>();
+            executor.getQueue().drainTo(pending);
+
+            List<TriggerScheduleDao.Claim> claims = new ArrayList<>(pending.size());
+            for (Runnable r : pending) {
+                claims.add(((StartTask) r).claim);
+            }
+            release(claims);
+        }
+    }
+
+    private void poll() {
+        long pollInterval = triggerCfg.getCronPollInterval();
+        int batchSize = triggerCfg.getCronBatchSize();
+
         while (!Thread.currentThread().isInterrupted()) {
-            TriggerSchedulerEntry e = scheduleDao.findNext();
-            if (e == null) {
-                break;
+            try {
+                TriggerScheduleDao.DueEntries due = scheduleDao.claimDue(batchSize);
+
+                List<TriggerScheduleDao.Claim> claims = due.getEntries();
+                if (!claims.isEmpty()) {
+                    log.info("poll -> {} entries claimed", claims.size());
+                    submit(due.getNow(), claims);
+                }
+
+                if (claims.size() < batchSize) {
+                    Thread.sleep(pollInterval);
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            } catch (Exception e) {
+                log.warn("poll -> error, retrying in {}ms", ERROR_DELAY, e);
+
+                try {
+                    Thread.sleep(ERROR_DELAY);
+                } catch (InterruptedException ex) {
+                    Thread.currentThread().interrupt();
+                }
             }
-            if (e.getFireAt().after(startedAt)) {
-                startProcess(e);
+        }
+    }
+
+    private void submit(Instant now, List<TriggerScheduleDao.Claim> claims) {
+        // use the DB's time to calculate the delays
+        long clockOffset = now != null ? now.toEpochMilli() - System.currentTimeMillis() : 0;
+
+        for (int i = 0; i < claims.size(); i++) {
+            TriggerScheduleDao.Claim c = claims.get(i);
+            if (!c.getEntry().getFireAt().after(startedAt)) {
+                continue;
+            }
+
+            try {
+                if (Thread.currentThread().isInterrupted()) {
+                    throw new RejectedExecutionException("The scheduler is stopping");
+                }
+                executor.execute(new StartTask(c, clockOffset));
+            } catch (RejectedExecutionException e) {
+                release(claims.subList(i, claims.size()));
+                return;
             }
         }
     }
 
+    private void release(List<TriggerScheduleDao.Claim> claims) {
+        if (claims.isEmpty()) {
+            return;
+        }
+
+        try {
+            scheduleDao.release(claims);
+            log.info("release -> {} claimed entries released", claims.size());
+        } catch (Exception e) {
+            log.warn("release -> error, {} scheduled process(es) won't be started", claims.size(), e);
+        }
+    }
+
     private void startProcess(TriggerSchedulerEntry t) {
         if (isDisabled(EVENT_SOURCE)) {
             log.warn("startProcess ['{}'] -> disabled, skipping", t);
@@ -148,7 +268,7 @@ public class TriggerScheduler implements ScheduledTask {
     }
 
     private boolean isRepositoryDisabled(TriggerSchedulerEntry t) {
-        return repositoryDao.get(t.getRepositoryId()).isDisabled();
+        return triggerIndex.isRepositoryDisabled(t.getRepositoryId());
     }
 
     private boolean isDisabled(String eventName) {
@@ -164,4 +284,24 @@ public class TriggerScheduler implements ScheduledTask {
         m.put(Constants.Trigger.CRON_EVENT_FIREAT, DatatypeConverter.printDateTime(c));
         return m;
     }
+
+    private final class StartTask implements Runnable {
+
+        private final TriggerScheduleDao.Claim claim;
+        private final long clockOffset;
+
+        private StartTask(TriggerScheduleDao.Claim claim, long clockOffset) {
+            this.claim = claim;
+            this.clockOffset = clockOffset;
+        }
+
+        @Override
+        public void run() {
+            TriggerSchedulerEntry e = claim.getEntry();
+            long delay = System.currentTimeMillis() + clockOffset - e.getFireAt().getTime();
+            startDelay.update(Math.max(0, delay), TimeUnit.MILLISECONDS);
+
+            startProcess(e);
+        }
+    }
 }
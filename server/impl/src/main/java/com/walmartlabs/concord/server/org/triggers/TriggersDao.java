@@ -22,7 +22,6 @@ package com.walmartlabs.concord.server.org.triggers;
 
 import com.walmartlabs.concord.db.AbstractDao;
 import com.walmartlabs.concord.db.MainDB;
-import com.walmartlabs.concord.db.PgUtils;
 import com.walmartlabs.concord.server.ConcordObjectMapper;
 import com.walmartlabs.concord.server.Utils;
 import com.walmartlabs.concord.server.jooq.tables.Organizations;
@@ -34,15 +33,14 @@ import org.jooq.impl.DSL;
 import javax.inject.Inject;
 import javax.inject.Named;
 import java.util.Arrays;
+import java.util.Collection;
 import java.util.List;
 import java.util.Map;
 import java.util.UUID;
 
-import static com.walmartlabs.concord.db.PgUtils.jsonbText;
 import static com.walmartlabs.concord.server.jooq.Tables.*;
 import static com.walmartlabs.concord.server.jooq.tables.Triggers.TRIGGERS;
 import static org.jooq.impl.DSL.select;
-import static org.jooq.impl.DSL.value;
 
 @Named
 public class TriggersDao extends AbstractDao {
@@ -100,36 +98,13 @@ public class TriggersDao extends AbstractDao {
                 .fetch(this::toEntity);
     }
 
-    public List<TriggerEntry> list(String eventSource) {
+    public List<TriggerEntry> list(Collection<UUID> repositoryIds) {
         try (DSLContext tx = DSL.using(cfg)) {
-            return list(tx, null, eventSource, null, null);
-        }
-    }
-
-    public List<TriggerEntry> list(UUID projectId, String eventSource, Integer version, Map<String, String> conditions) {
-        try (DSLContext tx = DSL.using(cfg)) {
-            return list(tx, projectId, eventSource, version, conditions);
-        }
-    }
-
-    private List<TriggerEntry> list(DSLContext tx, UUID projectId, String eventSource, Integer version, Map<String, String> conditions) {
-        SelectJoinStep<Record12<UUID, UUID, String, UUID, String, UUID, String, String, String[], JSONB, JSONB, JSONB>> query = selectTriggers(tx);
-
-        Condition w = TRIGGERS.EVENT_SOURCE.eq(eventSource);
-        if (projectId != null) {
-            w = w.and(TRIGGERS.PROJECT_ID.eq(projectId));
-        }
+            SelectJoinStep<Record12<UUID, UUID, String, UUID, String, UUID, String, String, String[], JSONB, JSONB, JSONB>> query = selectTriggers(tx);
 
-        if (version != null) {
-            Condition v = jsonbText(TRIGGERS.CONDITIONS, "version").eq(String.valueOf(version));
-            if (version == 1) {
-                v = v.or(PgUtils.jsonbText(TRIGGERS.CONDITIONS, "version").isNull());
-            }
-            w = w.and(v);
+            return query.where(TRIGGERS.REPO_ID.in(repositoryIds))
+                    .fetch(this::toEntity);
         }
-
-        return query.where(appendConditionClause(conditions, w))
-                .fetch(this::toEntity);
     }
 
     public List<TriggerEntry> list(UUID orgId, UUID projectId, UUID repositoryId, String type) {
@@ -184,20 +159,6 @@ public class TriggersDao extends AbstractDao {
                 .leftJoin(r).on(r.REPO_ID.eq(TRIGGERS.REPO_ID));
     }
 
-    private Condition appendConditionClause(Map<String, String> conditions, Condition w) {
-        if (conditions == null) {
-            return w;
-        }
-
-        for (Map.Entry<String, String> e : conditions.entrySet()) {
-            w = w.and(
-                    jsonbText(TRIGGERS.CONDITIONS, e.getKey()).isNull()
-                            .or(
-                                    value(e.getValue()).likeRegex(jsonbText(TRIGGERS.CONDITIONS, e.getKey()).cast(String.class))));
-        }
-        return w;
-    }
-
     private TriggerEntry toEntity(Record12<UUID, UUID, String, UUID, String, UUID, String, String, String[], JSONB, JSONB, JSONB> item) {
         List<String> activeProfiles = null;
         if (item.value9() != null) {
@@ -39,14 +39,21 @@ import javax.inject.Inject;
 import javax.inject.Named;
 import javax.inject.Singleton;
 import java.util.*;
-import java.util.concurrent.locks.Lock;
-import java.util.concurrent.locks.ReadWriteLock;
-import java.util.concurrent.locks.ReentrantReadWriteLock;
 import java.util.stream.Collectors;
 
 import static com.walmartlabs.concord.server.jooq.Tables.POLICIES;
 import static com.walmartlabs.concord.server.jooq.Tables.POLICY_LINKS;
-
+import static org.jooq.impl.DSL.md5;
+
+/**
+ * Keeps {@link PolicyEngine} instances for all policy links.
+ * <p>
+ * Lookups are lock-free: readers use an immutable {@link Snapshot} which
+ * is replaced as a whole after each reload. Reloads are incremental: only
+ * policy hashes and links are fetched on each iteration, the rules are
+ * fetched only for new or modified policies and only the engines
+ * of the modified policies (or policies with modified parents) are rebuilt.
+ */
 @Named
 @Singleton
 public class PolicyCache implements BackgroundTask {
@@ -55,17 +62,18 @@ public class PolicyCache implements BackgroundTask {
     private static final long ERROR_DELAY = 10000;
 
     private final ObjectMapper objectMapper;
-    private final ReadWriteLock rwLock = new ReentrantReadWriteLock();
     private final Object refreshMutex = new Object();
 
     private final PolicyCacheConfiguration cacheCfg;
     private final Dao dao;
 
-    private PolicyEngine defaultPolicy;
-    private Map<UUID, PolicyEngine> byOrg = Collections.emptyMap();
-    private Map<UUID, PolicyEngine> byProject = Collections.emptyMap();
-    private Map<UUID, PolicyEngine> byUser = Collections.emptyMap();
-    private List<PolicyItem> otherUserPolicies = Collections.emptyList();
+    private volatile Snapshot snapshot = Snapshot.EMPTY;
+
+    // the state of the last reload, guarded by "this"
+    private List<PolicyLink> lastLinks = Collections.emptyList();
+    private Map<UUID, PolicyState> lastStates = Collections.emptyMap();
+    private Map<UUID, Map<String, Object>> lastRules = Collections.emptyMap();
+    private Map<UUID, CompiledPolicy> lastCompiled = Collections.emptyMap();
 
     private volatile long lastRefreshRequestAt = -1;
     private Thread loader;
@@ -103,62 +111,52 @@ public class PolicyCache implements BackgroundTask {
     }
 
     public PolicyEngine get(UUID orgId, UUID projectId, UUID userId) {
-        Lock l = rwLock.readLock();
-        l.lock();
-        try {
-            return getUnsafe(orgId, projectId, userId);
-        } finally {
-            l.unlock();
-        }
-    }
+        Snapshot s = snapshot;
 
-    private PolicyEngine getUnsafe(UUID orgId, UUID projectId, UUID userId) {
         if (userId != null) {
             if (projectId != null) {
-                PolicyEngine result = otherUserPolicies.stream()
-                        .filter(p -> userId.equals(p.link().userId()))
-                        .filter(p -> projectId.equals(p.link().projectId()))
-                        .findAny()
-                        .map(PolicyItem::engine)
-                        .orElse(null);
+                PolicyEngine result = get(s.byUserProject, userId, projectId);
                 if (result != null) {
                     return result;
                 }
             }
 
             if (orgId != null) {
-                PolicyEngine result = otherUserPolicies.stream()
-                        .filter(p -> userId.equals(p.link().userId()))
-                        .filter(p -> orgId.equals(p.link().orgId()))
-                        .findAny()
-                        .map(PolicyItem::engine)
-                        .orElse(null);
+                PolicyEngine result = get(s.byUserOrg, userId, orgId);
                 if (result != null) {
                     return result;
                 }
             }
 
-            PolicyEngine result = byUser.get(userId);
+            PolicyEngine result = s.byUser.get(userId);
             if (result != null) {
                 return result;
             }
         }
 
         if (projectId != null) {
-            PolicyEngine result = byProject.get(projectId);
+            PolicyEngine result = s.byProject.get(projectId);
             if (result != null) {
                 return result;
             }
         }
 
         if (orgId != null) {
-            PolicyEngine result = byOrg.get(orgId);
+            PolicyEngine result = s.byOrg.get(orgId);
             if (result != null) {
                 return result;
             }
         }
 
-        return defaultPolicy;
+        return s.defaultPolicy;
+    }
+
+    private static PolicyEngine get(Map<UUID, Map<UUID, PolicyEngine>> m, UUID userId, UUID entityId) {
+        Map<UUID, PolicyEngine> byEntity = m.get(userId);
+        if (byEntity == null) {
+            return null;
+        }
+        return byEntity.get(entityId);
     }
 
     private void run() {
@@ -188,109 +186,172 @@ public class PolicyCache implements BackgroundTask {
         }
     }
 
-    private void reloadPolicies() {
-        PolicyEngine defaultPolicy = null;
-        Map<UUID, PolicyEngine> byOrg = new HashMap<>();
-        Map<UUID, PolicyEngine> byProject = new HashMap<>();
-        Map<UUID, PolicyEngine> byUser = new HashMap<>();
-        List<PolicyItem> otherUserPolicies = new ArrayList<>();
-
+    private synchronized void reloadPolicies() {
         List<PolicyLink> links = dao.listLinks();
-        if (links.isEmpty()) {
-            setPolicies(defaultPolicy, byOrg, byProject, byUser, otherUserPolicies);
+        Map<UUID, PolicyState> states = new HashMap<>();
+        for (PolicyState s : dao.listStates()) {
+            states.put(s.id(), s);
+        }
+
+        if (links.equals(lastLinks) && states.equals(lastStates)) {
+            // nothing's changed
             return;
         }
 
-        Map<UUID, Policy> policies = mergePolicies(dao.listPolicies());
+        // fetch the rules of new or modified policies only
+        Set<UUID> modified = new HashSet<>();
+        for (PolicyState s : states.values()) {
+            PolicyState prev = lastStates.get(s.id());
+            if (prev == null || !Objects.equals(prev.rulesHash(), s.rulesHash()) || !lastRules.containsKey(s.id())) {
+                modified.add(s.id());
+            }
+        }
+
+        Map<UUID, Map<String, Object>> rules = new HashMap<>();
+        if (!modified.isEmpty()) {
+            rules.putAll(dao.listRules(modified));
+        }
+        for (UUID id : states.keySet()) {
+            if (!rules.containsKey(id)) {
+                Map<String, Object> r = lastRules.get(id);
+                if (r != null) {
+                    rules.put(id, r);
+                }
+            }
+        }
+
+        // (re)build the engines of the linked policies, reuse the engines
+        // if neither the policy nor its parents were modified
+        Map<UUID, CompiledPolicy> compiled = new HashMap<>();
+        int rebuilt = 0;
+        for (PolicyLink l : links) {
+            UUID policyId = l.policyId();
+            if (compiled.containsKey(policyId) || !states.containsKey(policyId)) {
+                continue;
+            }
+
+            List<PolicyState> chain = combinePolicies(states.get(policyId), states);
+
+            CompiledPolicy prev = lastCompiled.get(policyId);
+            if (prev != null && prev.chain().equals(chain)) {
+                compiled.put(policyId, prev);
+                continue;
+            }
+
+            compiled.put(policyId, CompiledPolicy.of(chain, compile(chain, rules)));
+            rebuilt++;
+        }
+
+        Snapshot.Builder b = new Snapshot.Builder();
         for (PolicyLink l : links) {
-            Policy policy = policies.get(l.policyId());
-            if (policy == null) {
+            CompiledPolicy cp = compiled.get(l.policyId());
+            if (cp == null) {
                 continue;
             }
-            PolicyEngine pe = new PolicyEngine(policy.policyNames(), policy.rules());
+
+            PolicyEngine pe = cp.engine();
             if (l.orgId() == null && l.projectId() == null && l.userId() == null) {
-                defaultPolicy = pe;
+                b.defaultPolicy = pe;
             } else if (l.orgId() != null && l.projectId() == null && l.userId() == null) {
-                byOrg.put(l.orgId(), pe);
+                b.byOrg.put(l.orgId(), pe);
             } else if (l.orgId() == null && l.projectId() != null && l.userId() == null) {
-                byProject.put(l.projectId(), pe);
+                b.byProject.put(l.projectId(), pe);
             } else if (l.orgId() == null && l.projectId() == null && l.userId() != null) {
-                byUser.put(l.userId(), pe);
+                b.byUser.put(l.userId(), pe);
             } else if (l.userId() != null) {
-                otherUserPolicies.add(PolicyItem.of(l, pe));
+                if (l.projectId() != null) {
+                    b.byUserProject.computeIfAbsent(l.userId(), k -> new HashMap<>()).putIfAbsent(l.projectId(), pe);
+                }
+                if (l.orgId() != null) {
+                    b.byUserOrg.computeIfAbsent(l.userId(), k -> new HashMap<>()).putIfAbsent(l.orgId(), pe);
+                }
             } else {
                 log.warn("Unexpected policy link: {}", l);
             }
         }
 
-        setPolicies(defaultPolicy, byOrg, byProject, byUser, otherUserPolicies);
-    }
+        this.snapshot = b.build();
 
-    private void setPolicies(PolicyEngine defaultPolicy,
-                             Map<UUID, PolicyEngine> byOrg,
-                             Map<UUID, PolicyEngine> byProject,
-                             Map<UUID, PolicyEngine> byUser,
-                             List<PolicyItem> otherUserPolicies) {
+        this.lastLinks = links;
+        this.lastStates = states;
+        this.lastRules = rules;
+        this.lastCompiled = compiled;
 
-        Lock l = rwLock.writeLock();
-        l.lock();
-        try {
-            this.defaultPolicy = defaultPolicy;
-            this.byOrg = byOrg;
-            this.byProject = byProject;
-            this.byUser = byUser;
-            this.otherUserPolicies = otherUserPolicies;
-        } finally {
-            l.unlock();
-        }
+        log.info("reloadPolicies -> done, {} link(s), {} policies fetched, {} engine(s) rebuilt", links.size(), modified.size(), rebuilt);
     }
 
-    private Map<UUID, Policy> mergePolicies(List<PolicyRules> policies) {
-        Map<UUID, Policy> result = new HashMap<>();
-        for (PolicyRules p : policies) {
-            List<PolicyRules> rules = combinePolicies(p, policies);
-            Map<String, Object> mergedRules = mergeRules(rules);
-
-            result.put(p.id(), ImmutablePolicy.builder()
-                    .id(p.id())
-                    .addAllPolicyNames(rules.stream().map(PolicyRules::name).collect(Collectors.toList()))
-                    .rules(objectMapper.convertValue(mergedRules, PolicyEngineRules.class))
-                    .build());
+    private PolicyEngine compile(List<PolicyState> chain, Map<UUID, Map<String, Object>> rules) {
+        Map<String, Object> mergedRules = new HashMap<>();
+        for (int i = chain.size() - 1; i >= 0; i--) {
+            Map<String, Object> r = rules.get(chain.get(i).id());
+            if (r != null) {
+                mergedRules = ConfigurationUtils.deepMerge(mergedRules, r);
+            }
         }
-        return result;
-    }
 
-    private static Map<String, Object> mergeRules(List<PolicyRules> rules) {
-        Map<String, Object> result = new HashMap<>();
-        for (int i = rules.size() - 1; i >= 0; i--) {
-            result = ConfigurationUtils.deepMerge(result, rules.get(i).rules());
-        }
-        return result;
+        List<String> policyNames = chain.stream().map(PolicyState::name).collect(Collectors.toList());
+        return new PolicyEngine(policyNames, objectMapper.convertValue(mergedRules, PolicyEngineRules.class));
     }
 
-    private static List<PolicyRules> combinePolicies(PolicyRules p, List<PolicyRules> policies) {
-        List<PolicyRules> result = new ArrayList<>();
+    /**
+     * Returns the specified policy and all its parents, starting from the policy itself.
+     */
+    private static List<PolicyState> combinePolicies(PolicyState p, Map<UUID, PolicyState> states) {
+        List<PolicyState> result = new ArrayList<>();
         result.add(p);
 
-        PolicyRules current = p;
-        while (current != null) {
-            UUID parentId = current.parentId();
-            if (parentId == null) {
-                return result;
-            }
-            PolicyRules parent = policies.stream()
-                    .filter(r -> r.id().equals(parentId))
-                    .findAny().orElse(null);
-            if (parent != null) {
-                result.add(parent);
+        Set<UUID> visited = new HashSet<>();
+        visited.add(p.id());
+
+        PolicyState current = p;
+        while (current.parentId() != null) {
+            PolicyState parent = states.get(current.parentId());
+            if (parent == null || !visited.add(parent.id())) {
+                break;
             }
+            result.add(parent);
             current = parent;
         }
         return result;
     }
 
+    private static final class Snapshot {
+
+        private static final Snapshot EMPTY = new Builder().build();
+
+        private final PolicyEngine defaultPolicy;
+        private final Map<UUID, PolicyEngine> byOrg;
+        private final Map<UUID, PolicyEngine> byProject;
+        private final Map<UUID, PolicyEngine> byUser;
+        private final Map<UUID, Map<UUID, PolicyEngine>> byUserProject;
+        private final Map<UUID, Map<UUID, PolicyEngine>> byUserOrg;
+
+        private Snapshot(Builder b) {
+            this.defaultPolicy = b.defaultPolicy;
+            this.byOrg = b.byOrg;
+            this.byProject = b.byProject;
+            this.byUser = b.byUser;
+            this.byUserProject = b.byUserProject;
+            this.byUserOrg = b.byUserOrg;
+        }
+
+        private static final class Builder {
+
+            private PolicyEngine defaultPolicy;
+            private final Map<UUID, PolicyEngine> byOrg = new HashMap<>();
+            private final Map<UUID, PolicyEngine> byProject = new HashMap<>();
+            private final Map<UUID, PolicyEngine> byUser = new HashMap<>();
+            private final Map<UUID, Map<UUID, PolicyEngine>> byUserProject = new HashMap<>();
+            private final Map<UUID, Map<UUID, PolicyEngine>> byUserOrg = new HashMap<>();
+
+            private Snapshot build() {
+                return new Snapshot(this);
+            }
+        }
+    }
+
     @Named
-    private static class Dao extends AbstractDao {
+    static class Dao extends AbstractDao {
 
         private final ConcordObjectMapper objectMapper;
 
@@ -312,15 +373,32 @@ public class PolicyCache implements BackgroundTask {
                             .build()));
         }
 
-        public List<PolicyRules> listPolicies() {
-            return txResult(tx -> tx.selectFrom(POLICIES)
-                    .fetch(r -> ImmutablePolicyRules.builder()
-                            .id(r.getPolicyId())
-                            .parentId(r.getParentPolicyId())
-                            .name(r.getPolicyName())
-                            .rules(objectMapper.fromJSONB(r.getRules()))
+        /**
+         * Returns all policies without their rules. The rules are represented by their hashes.
+         */
+        public List<PolicyState> listStates() {
+            return txResult(tx -> tx.select(POLICIES.POLICY_ID,
+                    POLICIES.PARENT_POLICY_ID,
+                    POLICIES.POLICY_NAME,
+                    md5(POLICIES.RULES.cast(String.class)))
+                    .from(POLICIES)
+                    .fetch(r -> ImmutablePolicyState.builder()
+                            .id(r.value1())
+                            .parentId(r.value2())
+                            .name(r.value3())
+                            .rulesHash(r.value4())
                             .build()));
         }
+
+        public Map<UUID, Map<String, Object>> listRules(Collection<UUID> policyIds) {
+            Map<UUID, Map<String, Object>> result = new HashMap<>();
+            tx(tx -> tx.select(POLICIES.POLICY_ID, POLICIES.RULES)
+                    .from(POLICIES)
+                    .where(POLICIES.POLICY_ID.in(policyIds))
+                    .fetch()
+                    .forEach(r -> result.put(r.value1(), objectMapper.fromJSONB(r.value2()))));
+            return result;
+        }
     }
 
     @Value.Immutable
@@ -339,7 +417,7 @@ public class PolicyCache implements BackgroundTask {
     }
 
     @Value.Immutable
-    interface PolicyRules {
+    interface PolicyState {
 
         UUID id();
 
@@ -348,30 +426,21 @@ public class PolicyCache implements BackgroundTask {
 
         String name();
 
-        Map<String, Object> rules();
+        @Nullable
+        String rulesHash();
     }
 
     @Value.Immutable
-    interface PolicyItem {
+    interface CompiledPolicy {
 
         @Value.Parameter
-        PolicyLink link();
+        List<PolicyState> chain();
 
         @Value.Parameter
         PolicyEngine engine();
 
-        static PolicyItem of(PolicyLink link, PolicyEngine engine) {
-            return ImmutablePolicyItem.of(link, engine);
+        static CompiledPolicy of(List<PolicyState> chain, PolicyEngine engine) {
+            return ImmutableCompiledPolicy.of(chain, engine);
         }
     }
-
-    @Value.Immutable
-    interface Policy {
-
-        UUID id();
-
-        List<String> policyNames();
-
-        PolicyEngineRules rules();
-    }
 }
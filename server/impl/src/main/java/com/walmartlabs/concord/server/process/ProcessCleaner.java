@@ -29,6 +29,7 @@ import org.jooq.Configuration;
 import org.jooq.Record1;
 import org.jooq.SelectConditionStep;
 import org.jooq.SelectJoinStep;
+import org.jooq.Table;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -36,6 +37,7 @@ import javax.inject.Inject;
 import javax.inject.Named;
 import javax.inject.Singleton;
 import java.sql.Timestamp;
+import java.util.Set;
 import java.util.UUID;
 
 import static com.walmartlabs.concord.server.jooq.tables.ProcessCheckpoints.PROCESS_CHECKPOINTS;
@@ -58,11 +60,13 @@ public class ProcessCleaner implements ScheduledTask {
 
     private final ProcessConfiguration cfg;
     private final CleanerDao cleanerDao;
+    private final ProcessPartitionManager partitionManager;
 
     @Inject
-    public ProcessCleaner(ProcessConfiguration cfg, CleanerDao cleanerDao) {
+    public ProcessCleaner(ProcessConfiguration cfg, CleanerDao cleanerDao, ProcessPartitionManager partitionManager) {
         this.cfg = cfg;
         this.cleanerDao = cleanerDao;
+        this.partitionManager = partitionManager;
     }
 
     @Override
@@ -73,8 +77,12 @@ public class ProcessCleaner implements ScheduledTask {
     @Override
     public void performTask() {
         Timestamp cutoff = new Timestamp(System.currentTimeMillis() - cfg.getMaxStateAge());
+
+        // drop whole partitions first, the rest is deleted row by row
+        Set<Table<?>> partitioned = partitionManager.dropOldPartitions(cutoff);
+
         cleanerDao.deleteOldState(cutoff, cfg);
-        cleanerDao.deleteOrphans(cfg);
+        cleanerDao.deleteOrphans(cfg, partitioned);
     }
 
     @Named
@@ -89,6 +97,7 @@ public class ProcessCleaner implements ScheduledTask {
             long t1 = System.currentTimeMillis();
 
             tx(tx -> {
+                // LAST_UPDATED_AT < cutoff implies CREATED_AT < cutoff, the latter is used to prune the partitions
                 SelectConditionStep<Record1<UUID>> ids = tx.select(PROCESS_QUEUE.INSTANCE_ID)
                         .from(PROCESS_QUEUE)
                         .where(PROCESS_QUEUE.LAST_UPDATED_AT.lessThan(cutoff)
@@ -104,28 +113,32 @@ public class ProcessCleaner implements ScheduledTask {
                 int stateRecords = 0;
                 if (jobCfg.isStateCleanup()) {
                     stateRecords = tx.deleteFrom(PROCESS_STATE)
-                            .where(PROCESS_STATE.INSTANCE_ID.in(ids))
+                            .where(PROCESS_STATE.INSTANCE_ID.in(ids)
+                                    .and(PROCESS_STATE.INSTANCE_CREATED_AT.lessThan(cutoff)))
                             .execute();
                 }
 
                 int events = 0;
                 if (jobCfg.isEventsCleanup()) {
                     events = tx.deleteFrom(PROCESS_EVENTS)
-                            .where(PROCESS_EVENTS.INSTANCE_ID.in(ids))
+                            .where(PROCESS_EVENTS.INSTANCE_ID.in(ids)
+                                    .and(PROCESS_EVENTS.INSTANCE_CREATED_AT.lessThan(cutoff)))
                             .execute();
                 }
 
                 int logEntries = 0;
                 if (jobCfg.isLogsCleanup()) {
                     logEntries = tx.deleteFrom(PROCESS_LOGS)
-                            .where(PROCESS_LOGS.INSTANCE_ID.in(ids))
+                            .where(PROCESS_LOGS.INSTANCE_ID.in(ids)
+                                    .and(PROCESS_LOGS.INSTANCE_CREATED_AT.lessThan(cutoff)))
                             .execute();
                 }
 
                 int checkpoints = 0;
                 if (jobCfg.isCheckpointCleanup()) {
                     checkpoints = tx.deleteFrom(PROCESS_CHECKPOINTS)
-                            .where(PROCESS_CHECKPOINTS.INSTANCE_ID.in(ids))
+                            .where(PROCESS_CHECKPOINTS.INSTANCE_ID.in(ids)
+                                    .and(PROCESS_CHECKPOINTS.INSTANCE_CREATED_AT.lessThan(cutoff)))
                             .execute();
                 }
 
@@ -137,28 +150,33 @@ public class ProcessCleaner implements ScheduledTask {
             log.info("deleteOldState -> took {}ms", (t2 - t1));
         }
 
-        void deleteOrphans(ProcessConfiguration jobCfg) {
+        /**
+         * Removes the data of processes which are no longer in the queue.
+         * Partitioned tables are skipped, the orphaned data is removed
+         * along with the old partitions.
+         */
+        void deleteOrphans(ProcessConfiguration jobCfg, Set<Table<?>> partitioned) {
             long t1 = System.currentTimeMillis();
 
             tx(tx -> {
                 SelectJoinStep<Record1<UUID>> alive = tx.select(PROCESS_QUEUE.INSTANCE_ID).from(PROCESS_QUEUE);
 
                 int stateRecords = 0;
-                if (jobCfg.isStateCleanup()) {
+                if (jobCfg.isStateCleanup() && !partitioned.contains(PROCESS_STATE)) {
                     stateRecords = tx.deleteFrom(PROCESS_STATE)
                             .where(PROCESS_STATE.INSTANCE_ID.notIn(alive))
                             .execute();
                 }
 
                 int events = 0;
-                if (jobCfg.isEventsCleanup()) {
+                if (jobCfg.isEventsCleanup() && !partitioned.contains(PROCESS_EVENTS)) {
                     events = tx.deleteFrom(PROCESS_EVENTS)
                             .where(PROCESS_EVENTS.INSTANCE_ID.notIn(alive))
                             .execute();
                 }
 
                 int logEntries = 0;
-                if (jobCfg.isLogsCleanup()) {
+                if (jobCfg.isLogsCleanup() && !partitioned.contains(PROCESS_LOGS)) {
                     logEntries = tx.deleteFrom(PROCESS_LOGS)
                             .where(PROCESS_LOGS.INSTANCE_ID.notIn(alive))
                             .execute();
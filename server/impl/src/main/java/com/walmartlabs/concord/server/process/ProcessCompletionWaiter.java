@@ -0,0 +1,309 @@
+package com.walmartlabs.concord.server.process;
+
+/*-
+ * *****
+ * Concord
+ * -----
+ * Copyright (C) 2017 - 2020 Walmart Inc.
+ * -----
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * =====
+ */
+
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import com.walmartlabs.concord.server.cfg.ProcessConfiguration;
+import com.walmartlabs.concord.server.process.queue.ProcessQueueDao;
+import com.walmartlabs.concord.server.process.queue.ProcessQueueManager;
+import com.walmartlabs.concord.server.process.queue.ProcessStatusNotifier;
+import com.walmartlabs.concord.server.sdk.ConcordApplicationException;
+import com.walmartlabs.concord.server.sdk.ProcessStatus;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.inject.Inject;
+import javax.inject.Named;
+import javax.inject.Singleton;
+import javax.ws.rs.container.AsyncResponse;
+import javax.ws.rs.container.CompletionCallback;
+import javax.ws.rs.core.Response;
+import javax.ws.rs.core.Response.Status;
+import java.util.*;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.stream.Collectors;
+
+/**
+ * Completes suspended requests when their processes reach a final status.
+ * The waiting requests don't occupy any threads and don't query the DB
+ * until a status change notification is received.
+ *
+ * @see ProcessStatusNotifier
+ */
+@Named
+@Singleton
+public class ProcessCompletionWaiter {
+
+    private static final Logger log = LoggerFactory.getLogger(ProcessCompletionWaiter.class);
+
+    private static final int WORKER_THREADS = 4;
+
+    private static final Set<ProcessStatus> FINAL_STATUSES = EnumSet.of(
+            ProcessStatus.FINISHED,
+            ProcessStatus.FAILED,
+            ProcessStatus.CANCELLED,
+            ProcessStatus.TIMED_OUT);
+
+    private final ProcessQueueManager queueManager;
+    private final ProcessQueueDao queueDao;
+    private final ProcessStatusNotifier statusNotifier;
+    private final boolean statusNotifications;
+    private final long recheckInterval;
+    private final ScheduledExecutorService executor;
+
+    @Inject
+    public ProcessCompletionWaiter(ProcessConfiguration processCfg,
+                                   ProcessQueueManager queueManager,
+                                   ProcessQueueDao queueDao,
+                                   ProcessStatusNotifier statusNotifier) {
+
+        this.queueManager = queueManager;
+        this.queueDao = queueDao;
+        this.statusNotifier = statusNotifier;
+        this.statusNotifications = processCfg.isStatusNotifications();
+        this.recheckInterval = processCfg.getWaitRecheckInterval();
+
+        this.executor = Executors.newScheduledThreadPool(WORKER_THREADS,
+                new ThreadFactoryBuilder()
+                        .setNameFormat("process-completion-waiter-%d")
+                        .setDaemon(true)
+                        .build());
+    }
+
+    /**
+     * Resumes the response with the process' {@link ProcessEntry} once the process
+     * is finished. Responds with {@code 408} if the process is still running
+     * after the specified timeout (ms). Non-positive timeout values mean "wait forever".
+     */
+    public void waitForCompletion(UUID instanceId, long timeout, AsyncResponse response) {
+        new SingleWaiter(instanceId, timeout, response).start();
+    }
+
+    /**
+     * Resumes the response with the list of {@link ProcessEntry} once any or all
+     * (depending on {@code mode}) of the specified processes are finished. Responds
+     * with the current entries if the processes are still running after
+     * the specified timeout (ms). The caller is expected to check the access
+     * to the processes before calling this method.
+     */
+    public void waitForStatus(Set<UUID> instanceIds, ProcessWaitMode mode, long timeout, AsyncResponse response) {
+        new BulkWaiter(instanceIds, mode, timeout, response).start();
+    }
+
+    static boolean isDone(ProcessWaitMode mode, Collection<ProcessStatus> statuses) {
+        switch (mode) {
+            case ANY:
+                return statuses.stream().anyMatch(FINAL_STATUSES::contains);
+            case ALL:
+                return statuses.stream().allMatch(FINAL_STATUSES::contains);
+            default:
+                throw new IllegalArgumentException("Unknown wait mode: " + mode);
+        }
+    }
+
+    private abstract class Waiter implements ProcessStatusNotifier.Listener {
+
+        private final Set<UUID> instanceIds;
+        private final long timeout;
+        protected final AsyncResponse response;
+        private final AtomicBoolean checkPending = new AtomicBoolean();
+
+        private ProcessStatusNotifier.Subscription subscription;
+        private ScheduledFuture<?> recheck;
+        private boolean closed;
+
+        private Waiter(Set<UUID> instanceIds, long timeout, AsyncResponse response) {
+            this.instanceIds = instanceIds;
+            this.timeout = timeout;
+            this.response = response;
+        }
+
+        /**
+         * Resumes the response if the processes are finished. Called on subscription,
+         * on status changes, on resyncs and periodically (if the notifications are disabled).
+         */
+        protected abstract void check() throws Exception;
+
+        /**
+         * Resumes the response when the timeout expires.
+         */
+        protected abstract void onTimeout() throws Exception;
+
+        protected void start() {
+            response.register((CompletionCallback) t -> close());
+
+            response.setTimeoutHandler(r -> {
+                try {
+                    onTimeout();
+                } catch (Exception e) {
+                    response.resume(e);
+                }
+            });
+
+            if (timeout > 0) {
+                response.setTimeout(timeout, TimeUnit.MILLISECONDS);
+            } else {
+                // non-positive values suspend the request indefinitely,
+                // overrides the container's default async timeout (e.g. 30s in Jetty)
+                response.setTimeout(0, TimeUnit.MILLISECONDS);
+            }
+
+            synchronized (this) {
+                if (closed) {
+                    return;
+                }
+
+                // subscribe before checking the current status, so no changes are missed
+                subscription = statusNotifier.subscribe(instanceIds, this);
+
+                if (!statusNotifications) {
+                    // no notifications from other server instances, have to re-check periodically
+                    recheck = executor.scheduleWithFixedDelay(this::safeCheck, recheckInterval, recheckInterval, TimeUnit.MILLISECONDS);
+                }
+            }
+
+            safeCheck();
+        }
+
+        @Override
+        public void onStatusChange(UUID instanceId, ProcessStatus status) {
+            if (FINAL_STATUSES.contains(status)) {
+                scheduleCheck();
+            }
+        }
+
+        @Override
+        public void onResync() {
+            scheduleCheck();
+        }
+
+        private void scheduleCheck() {
+            // the notifications can arrive on the DB listener's thread or inside of a transaction,
+            // fetch the process data elsewhere
+            if (checkPending.compareAndSet(false, true)) {
+                executor.execute(() -> {
+                    checkPending.set(false);
+                    safeCheck();
+                });
+            }
+        }
+
+        private void safeCheck() {
+            if (response.isDone()) {
+                return;
+            }
+
+            try {
+                check();
+            } catch (Exception e) {
+                log.warn("check {} -> error: {}", instanceIds, e.getMessage());
+                response.resume(e);
+            }
+        }
+
+        private synchronized void close() {
+            if (closed) {
+                return;
+            }
+            closed = true;
+
+            if (recheck != null) {
+                recheck.cancel(false);
+            }
+
+            if (subscription != null) {
+                subscription.close();
+            }
+        }
+    }
+
+    private final class SingleWaiter extends Waiter {
+
+        private final UUID instanceId;
+        private final long timeout;
+
+        private SingleWaiter(UUID instanceId, long timeout, AsyncResponse response) {
+            super(Collections.singleton(instanceId), timeout, response);
+            this.instanceId = instanceId;
+            this.timeout = timeout;
+        }
+
+        @Override
+        protected void check() {
+            ProcessEntry e = queueManager.get(PartialProcessKey.from(instanceId));
+            if (e == null) {
+                log.warn("waitForCompletion ['{}'] -> not found", instanceId);
+                response.resume(new ConcordApplicationException("Process instance not found", Status.NOT_FOUND));
+                return;
+            }
+
+            if (FINAL_STATUSES.contains(e.status())) {
+                response.resume(e);
+            }
+        }
+
+        @Override
+        protected void onTimeout() {
+            ProcessEntry e = queueManager.get(PartialProcessKey.from(instanceId));
+            if (e != null && FINAL_STATUSES.contains(e.status())) {
+                response.resume(e);
+                return;
+            }
+
+            log.warn("waitForCompletion ['{}', {}] -> timeout, last status: {}", instanceId, timeout, e != null ? e.status() : null);
+            response.resume(new ConcordApplicationException(Response.status(Status.REQUEST_TIMEOUT).entity(e).build()));
+        }
+    }
+
+    private final class BulkWaiter extends Waiter {
+
+        private final Set<UUID> instanceIds;
+        private final List<PartialProcessKey> keys;
+        private final ProcessWaitMode mode;
+
+        private BulkWaiter(Set<UUID> instanceIds, ProcessWaitMode mode, long timeout, AsyncResponse response) {
+            super(instanceIds, timeout, response);
+            this.instanceIds = instanceIds;
+            this.keys = instanceIds.stream()
+                    .map(PartialProcessKey::from)
+                    .collect(Collectors.toList());
+            this.mode = mode;
+        }
+
+        @Override
+        protected void check() {
+            // only the statuses are fetched until the processes are done
+            if (isDone(mode, queueDao.getStatuses(instanceIds).values())) {
+                response.resume(queueDao.get(keys));
+            }
+        }
+
+        @Override
+        protected void onTimeout() {
+            // the caller is expected to check the statuses and repeat the request
+            response.resume(queueDao.get(keys));
+        }
+    }
+}
@@ -28,8 +28,10 @@ import com.walmartlabs.concord.server.org.project.RepositoryDao;
 import com.walmartlabs.concord.server.org.project.RepositoryEntry;
 import com.walmartlabs.concord.server.process.logs.ProcessLogManager;
 import com.walmartlabs.concord.server.process.pipelines.ForkPipeline;
+import com.walmartlabs.concord.server.process.pipelines.NewProcessBulkPipeline;
 import com.walmartlabs.concord.server.process.pipelines.NewProcessPipeline;
 import com.walmartlabs.concord.server.process.pipelines.ResumePipeline;
+import com.walmartlabs.concord.server.process.pipelines.processors.BulkStartProcessor;
 import com.walmartlabs.concord.server.process.pipelines.processors.Chain;
 import com.walmartlabs.concord.server.process.queue.AbstractWaitCondition;
 import com.walmartlabs.concord.server.process.queue.ProcessQueueDao;
@@ -76,6 +78,7 @@ public class ProcessManager {
     private final Chain processPipeline;
     private final Chain resumePipeline;
     private final Chain forkPipeline;
+    private final Chain bulkPipeline;
 
     private static final List<ProcessStatus> SERVER_PROCESS_STATUSES = Arrays.asList(
             ProcessStatus.NEW,
@@ -113,7 +116,8 @@ public class ProcessManager {
                           ProcessQueueManager processQueueManager,
                           NewProcessPipeline processPipeline,
                           ResumePipeline resumePipeline,
-                          ForkPipeline forkPipeline) {
+                          ForkPipeline forkPipeline,
+                          NewProcessBulkPipeline bulkPipeline) {
 
         this.queueDao = queueDao;
         this.stateManager = stateManager;
@@ -129,12 +133,38 @@ public class ProcessManager {
         this.processPipeline = processPipeline;
         this.resumePipeline = resumePipeline;
         this.forkPipeline = forkPipeline;
+        this.bulkPipeline = bulkPipeline;
     }
 
     public ProcessResult start(Payload payload) {
         return start(processPipeline, payload);
     }
 
+    /**
+     * Starts a new process for each of the specified argument maps. All processes
+     * share the same payload.
+     *
+     * @return IDs of the started processes, in the same order as {@code instances}
+     */
+    public List<UUID> startBulk(Payload payload, List<Map<String, Object>> instances) {
+        assertRepositoryDisabled(payload);
+
+        ProcessKey processKey = payload.getProcessKey();
+
+        try {
+            payload = bulkPipeline.process(payload.putHeader(BulkStartProcessor.INSTANCE_ARGUMENTS, instances));
+        } catch (ProcessException e) {
+            throw e;
+        } catch (Exception e) {
+            log.error("startBulk ['{}'] -> error starting the processes", processKey, e);
+            throw new ProcessException(processKey, "Error starting the processes", e, Status.INTERNAL_SERVER_ERROR);
+        }
+
+        return payload.getHeader(BulkStartProcessor.PROCESS_KEYS).stream()
+                .map(ProcessKey::getInstanceId)
+                .collect(Collectors.toList());
+    }
+
     public ProcessResult startFork(Payload payload) {
         return start(forkPipeline, payload);
     }
@@ -0,0 +1,308 @@
+package com.walmartlabs.concord.server.process;
+
+/*-
+ * *****
+ * Concord
+ * -----
+ * Copyright (C) 2017 - 2020 Walmart Inc.
+ * -----
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * =====
+ */
+
+import com.walmartlabs.concord.db.AbstractDao;
+import com.walmartlabs.concord.db.MainDB;
+import com.walmartlabs.concord.server.cfg.MainDBConfiguration;
+import com.walmartlabs.concord.server.cfg.ProcessConfiguration;
+import com.walmartlabs.concord.server.sdk.BackgroundTask;
+import com.walmartlabs.concord.server.sdk.ProcessStatus;
+import com.walmartlabs.concord.server.sdk.ScheduledTask;
+import org.jooq.Condition;
+import org.jooq.Configuration;
+import org.jooq.DSLContext;
+import org.jooq.Table;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.inject.Inject;
+import javax.inject.Named;
+import javax.inject.Singleton;
+import java.sql.Date;
+import java.sql.Timestamp;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.*;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import static com.walmartlabs.concord.server.jooq.tables.ProcessEvents.PROCESS_EVENTS;
+import static com.walmartlabs.concord.server.jooq.tables.ProcessLogs.PROCESS_LOGS;
+import static com.walmartlabs.concord.server.jooq.tables.ProcessQueue.PROCESS_QUEUE;
+import static com.walmartlabs.concord.server.jooq.tables.ProcessState.PROCESS_STATE;
+import static org.jooq.impl.DSL.*;
+
+/**
+ * Maintains daily partitions of the process tables partitioned by
+ * {@code INSTANCE_CREATED_AT} (see {@code db.processTablePartitioning}).
+ * Creates partitions in advance and drops the partitions that contain only
+ * the data of old, finished processes.
+ * <p>
+ * The partitions are also created on startup, so the new processes can be
+ * inserted even if the server was down longer than {@code process.partitionsAhead} days.
+ */
+@Named("process-partition-manager")
+@Singleton
+public class ProcessPartitionManager implements ScheduledTask, BackgroundTask {
+
+    private static final Logger log = LoggerFactory.getLogger(ProcessPartitionManager.class);
+
+    private static final List<Table<?>> TABLES = Arrays.asList(PROCESS_EVENTS, PROCESS_LOGS, PROCESS_STATE);
+
+    private static final String[] ACTIVE_STATUSES = {
+            ProcessStatus.STARTING.toString(),
+            ProcessStatus.RUNNING.toString(),
+            ProcessStatus.RESUMING.toString()
+    };
+
+    private final ProcessConfiguration cfg;
+    private final MainDBConfiguration dbCfg;
+    private final PartitionDao dao;
+
+    @Inject
+    public ProcessPartitionManager(ProcessConfiguration cfg, MainDBConfiguration dbCfg, PartitionDao dao) {
+        this.cfg = cfg;
+        this.dbCfg = dbCfg;
+        this.dao = dao;
+    }
+
+    @Override
+    public long getIntervalInSec() {
+        // depends on the actual tables, not on db.processTablePartitioning: once the tables
+        // are converted, new partitions are required even if the option is turned off
+        return TABLES.stream().anyMatch(dao::isPartitioned) ? cfg.getPartitionManagerInterval() : 0;
+    }
+
+    @Override
+    public void start() {
+        try {
+            performTask();
+        } catch (Exception e) {
+            log.error("start -> error while creating partitions, new processes might fail to start", e);
+        }
+    }
+
+    @Override
+    public void performTask() {
+        LocalDate today = dao.today();
+        LocalDate last = today.plusDays(cfg.getPartitionsAhead());
+
+        for (Table<?> t : TABLES) {
+            if (!dao.isPartitioned(t)) {
+                if (dbCfg.isProcessTablePartitioning()) {
+                    log.warn("performTask -> {} is not partitioned. Partitioning requires PostgreSQL 11+", t.getName());
+                }
+                continue;
+            }
+
+            // continue after the last partition, fills the gaps if the task wasn't running for a while
+            LocalDate from = dao.listPartitions(t).stream()
+                    .map(Partition::upperBound)
+                    .filter(Objects::nonNull)
+                    .max(Comparator.naturalOrder())
+                    .map(ProcessPartitionManager::ceilToDay)
+                    .orElse(today);
+
+            for (LocalDate d = from; !d.isAfter(last); d = d.plusDays(1)) {
+                String name = dao.createPartition(t, d);
+                log.info("performTask -> created {}", name);
+            }
+        }
+    }
+
+    /**
+     * Drops the partitions that are entirely older than the specified cutoff.
+     * Partitions are kept if any of their processes are still active or were
+     * updated after the cutoff, the data of such partitions is removed row
+     * by row by the {@link ProcessCleaner}.
+     *
+     * @return the tables which are partitioned
+     */
+    public Set<Table<?>> dropOldPartitions(Timestamp cutoff) {
+        Set<Table<?>> result = new HashSet<>();
+
+        for (Table<?> t : TABLES) {
+            if (!dao.isPartitioned(t)) {
+                continue;
+            }
+
+            result.add(t);
+
+            if (!isCleanupEnabled(t)) {
+                continue;
+            }
+
+            for (Partition p : dao.listPartitions(t)) {
+                if (p.upperBound() == null || p.upperBound().isAfter(cutoff.toLocalDateTime())) {
+                    continue;
+                }
+
+                if (dao.hasRecentProcesses(p, cutoff)) {
+                    log.info("dropOldPartitions -> {} contains active or recently updated processes, skipping", p.name());
+                    continue;
+                }
+
+                dao.dropPartition(p);
+                log.info("dropOldPartitions -> dropped {}", p.name());
+            }
+        }
+
+        return result;
+    }
+
+    private boolean isCleanupEnabled(Table<?> t) {
+        if (t == PROCESS_EVENTS) {
+            return cfg.isEventsCleanup();
+        } else if (t == PROCESS_LOGS) {
+            return cfg.isLogsCleanup();
+        } else if (t == PROCESS_STATE) {
+            return cfg.isStateCleanup();
+        }
+        return false;
+    }
+
+    private static LocalDate ceilToDay(LocalDateTime t) {
+        LocalDate d = t.toLocalDate();
+        return t.equals(d.atStartOfDay()) ? d : d.plusDays(1);
+    }
+
+    static final class Partition {
+
+        private final String name;
+        private final LocalDateTime lowerBound;
+        private final LocalDateTime upperBound;
+
+        Partition(String name, LocalDateTime lowerBound, LocalDateTime upperBound) {
+            this.name = name;
+            this.lowerBound = lowerBound;
+            this.upperBound = upperBound;
+        }
+
+        String name() {
+            return name;
+        }
+
+        /**
+         * @return the inclusive lower bound or {@code null} if unbounded
+         */
+        LocalDateTime lowerBound() {
+            return lowerBound;
+        }
+
+        /**
+         * @return the exclusive upper bound or {@code null} if unbounded
+         */
+        LocalDateTime upperBound() {
+            return upperBound;
+        }
+    }
+
+    @Named
+    static class PartitionDao extends AbstractDao {
+
+        private static final Pattern BOUNDS_PATTERN = Pattern.compile("FOR VALUES FROM \\((.+)\\) TO \\((.+)\\)");
+        private static final DateTimeFormatter SUFFIX_FORMAT = DateTimeFormatter.ofPattern("yyyyMMdd");
+        private static final DateTimeFormatter BOUND_FORMAT = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss");
+
+        @Inject
+        PartitionDao(@MainDB Configuration cfg) {
+            super(cfg);
+        }
+
+        LocalDate today() {
+            try (DSLContext tx = using(cfg)) {
+                return tx.select(field("current_date", Date.class))
+                        .fetchOne(r -> r.value1().toLocalDate());
+            }
+        }
+
+        boolean isPartitioned(Table<?> t) {
+            try (DSLContext tx = using(cfg)) {
+                return tx.fetchExists(selectOne()
+                        .from(table("pg_class"))
+                        .where(field("relname").eq(relName(t))
+                                .and(field("relkind").eq(inline("p")))));
+            }
+        }
+
+        List<Partition> listPartitions(Table<?> t) {
+            try (DSLContext tx = using(cfg)) {
+                return tx.resultQuery("select c.relname, pg_get_expr(c.relpartbound, c.oid) " +
+                        "from pg_inherits i " +
+                        "join pg_class c on c.oid = i.inhrelid " +
+                        "join pg_class p on p.oid = i.inhparent " +
+                        "where p.relname = {0}", relName(t))
+                        .fetch(r -> toPartition(r.get(0, String.class), r.get(1, String.class)));
+            }
+        }
+
+        String createPartition(Table<?> t, LocalDate d) {
+            String name = relName(t) + "_p" + d.format(SUFFIX_FORMAT);
+            // partition bounds must be plain literals
+            tx(tx -> tx.execute("create table if not exists {0} partition of {1} for values from ({2}) to ({3})",
+                    name(name), name(relName(t)),
+                    inline(d.atStartOfDay().format(BOUND_FORMAT)),
+                    inline(d.plusDays(1).atStartOfDay().format(BOUND_FORMAT))));
+            return name;
+        }
+
+        boolean hasRecentProcesses(Partition p, Timestamp cutoff) {
+            try (DSLContext tx = using(cfg)) {
+                // inlined bounds, so the planner can use the index on CREATED_AT
+                Condition range = PROCESS_QUEUE.CREATED_AT.lessThan(inline(Timestamp.valueOf(p.upperBound())));
+                if (p.lowerBound() != null) {
+                    range = range.and(PROCESS_QUEUE.CREATED_AT.greaterOrEqual(inline(Timestamp.valueOf(p.lowerBound()))));
+                }
+
+                return tx.fetchExists(selectOne()
+                        .from(PROCESS_QUEUE)
+                        .where(range.and(PROCESS_QUEUE.LAST_UPDATED_AT.greaterOrEqual(cutoff)
+                                .or(PROCESS_QUEUE.CURRENT_STATUS.in(ACTIVE_STATUSES)))));
+            }
+        }
+
+        void dropPartition(Partition p) {
+            tx(tx -> tx.execute("drop table if exists {0}", name(p.name())));
+        }
+
+        private static String relName(Table<?> t) {
+            return t.getName().toLowerCase();
+        }
+
+        static Partition toPartition(String name, String bounds) {
+            Matcher m = BOUNDS_PATTERN.matcher(bounds);
+            if (!m.matches()) {
+                throw new IllegalStateException("Unexpected partition bounds of '" + name + "': " + bounds);
+            }
+            return new Partition(name, parseBound(m.group(1)), parseBound(m.group(2)));
+        }
+
+        private static LocalDateTime parseBound(String s) {
+            if ("MINVALUE".equals(s) || "MAXVALUE".equals(s)) {
+                return null;
+            }
+            // e.g. '2020-03-01 00:00:00'
+            return Timestamp.valueOf(s.replace("'", "")).toLocalDateTime();
+        }
+    }
+}
@@ -69,6 +69,8 @@ import javax.servlet.http.HttpServletRequest;
 import javax.validation.constraints.NotNull;
 import javax.validation.constraints.Size;
 import javax.ws.rs.*;
+import javax.ws.rs.container.AsyncResponse;
+import javax.ws.rs.container.Suspended;
 import javax.ws.rs.core.*;
 import javax.ws.rs.core.Response.Status;
 import java.io.*;
@@ -103,6 +105,7 @@ public class ProcessResource implements Resource {
     private final ProcessConfiguration processCfg;
     private final ProcessLogManager logManager;
     private final ProcessEventDao processEventDao;
+    private final ProcessCompletionWaiter completionWaiter;
 
     private final ProcessResourceV2 v2;
 
@@ -121,6 +124,7 @@ public class ProcessResource implements Resource {
                            ProcessConfiguration processCfg,
                            ProcessLogManager logManager,
                            ProcessEventDao processEventDao,
+                           ProcessCompletionWaiter completionWaiter,
                            ProcessResourceV2 v2) {
 
         this.processManager = processManager;
@@ -137,6 +141,7 @@ public class ProcessResource implements Resource {
         this.processCfg = processCfg;
         this.logManager = logManager;
         this.processEventDao = processEventDao;
+        this.completionWaiter = completionWaiter;
 
         this.v2 = v2;
     }
@@ -292,6 +297,47 @@ public class ProcessResource implements Resource {
         return toResponse(processManager.start(payload));
     }
 
+    /**
+     * Starts multiple process instances using the same multipart request data.
+     * The {@code instances} part must contain a JSON list of objects, one for each
+     * process. Each object is used as the process' {@code arguments}.
+     *
+     * @param input
+     * @return
+     */
+    @POST
+    @ApiOperation("Start multiple processes using the same multipart request data")
+    @javax.ws.rs.Path("/bulk")
+    @Consumes(MediaType.MULTIPART_FORM_DATA)
+    @Produces(MediaType.APPLICATION_JSON)
+    @WithTimer
+    public StartBulkProcessResponse startBulk(@ApiParam MultipartInput input,
+                                              @Context HttpServletRequest request) {
+
+        boolean sync = MultipartUtils.getBoolean(input, Constants.Multipart.SYNC, false);
+        if (sync) {
+            throw syncIsForbidden();
+        }
+
+        List<Map<String, Object>> instances = getInstances(input);
+
+        Payload payload;
+        try {
+            payload = payloadManager.createPayload(input, parseRequestInfo(request));
+        } catch (IOException e) {
+            log.error("startBulk -> error creating a payload: {}", e.getMessage());
+            throw new ConcordApplicationException("Error creating a payload", e);
+        }
+
+        // the list of instances is not a part of the process configuration or attachments
+        Map<String, Object> cfg = new HashMap<>(payload.getHeader(Payload.CONFIGURATION, Collections.emptyMap()));
+        cfg.remove(Constants.Multipart.INSTANCES);
+        payload = payload.putHeader(Payload.CONFIGURATION, cfg)
+                .removeAttachment(Constants.Multipart.INSTANCES);
+
+        return new StartBulkProcessResponse(processManager.startBulk(payload, instances));
+    }
+
     /**
      * Starts a new process instance using the specified entry point and multipart request data.
      *
@@ -474,47 +520,18 @@ public class ProcessResource implements Resource {
      *
      * @param instanceId
      * @param timeout
-     * @return
+     * @param asyncResponse
      */
     @GET
-    @ApiOperation("Wait for a process to finish")
+    @ApiOperation(value = "Wait for a process to finish", response = ProcessEntry.class)
     @Produces(MediaType.APPLICATION_JSON)
     @javax.ws.rs.Path("/{id}/waitForCompletion")
-    public ProcessEntry waitForCompletion(@ApiParam @PathParam("id") UUID instanceId,
-                                          @ApiParam @QueryParam("timeout") @DefaultValue("-1") long timeout) {
+    public void waitForCompletion(@ApiParam @PathParam("id") UUID instanceId,
+                                  @ApiParam @QueryParam("timeout") @DefaultValue("-1") long timeout,
+                                  @Suspended AsyncResponse asyncResponse) {
 
         log.info("waitForCompletion ['{}', {}] -> waiting...", instanceId, timeout);
-
-        long t1 = System.currentTimeMillis();
-
-        ProcessEntry r;
-        while (true) {
-            r = get(instanceId);
-
-            ProcessStatus s = r.status();
-            if (s == ProcessStatus.FINISHED ||
-                    s == ProcessStatus.FAILED ||
-                    s == ProcessStatus.CANCELLED ||
-                    s == ProcessStatus.TIMED_OUT) {
-                return r;
-            }
-
-            if (timeout > 0) {
-                long t2 = System.currentTimeMillis();
-                if (t2 - t1 >= timeout) {
-                    log.warn("waitForCompletion ['{}', {}] -> timeout, last status: {}", instanceId, timeout, s);
-                    throw new ConcordApplicationException(Response.status(Status.REQUEST_TIMEOUT).entity(r).build());
-                }
-            }
-
-            try {
-                Thread.sleep(1000);
-            } catch (InterruptedException e) { // NOSONAR
-                throw new ConcordApplicationException(Response.status(Status.INTERNAL_SERVER_ERROR)
-                        .entity("Request was interrputed")
-                        .build());
-            }
-        }
+        completionWaiter.waitForCompletion(instanceId, timeout, asyncResponse);
     }
 
     /**
@@ -1147,6 +1164,31 @@ public class ProcessResource implements Resource {
         return p;
     }
 
+    @SuppressWarnings("unchecked")
+    private List<Map<String, Object>> getInstances(MultipartInput input) {
+        List<Object> l = MultipartUtils.getList(input, Constants.Multipart.INSTANCES);
+        if (l == null || l.isEmpty()) {
+            throw new ValidationErrorsException("'" + Constants.Multipart.INSTANCES + "' must be a non-empty list");
+        }
+
+        int limit = processCfg.getBulkStartLimit();
+        if (l.size() > limit) {
+            throw new ValidationErrorsException("Too many instances: " + l.size() + ", the limit is " + limit);
+        }
+
+        List<Map<String, Object>> result = new ArrayList<>(l.size());
+        for (Object o : l) {
+            if (o == null) {
+                result.add(Collections.emptyMap());
+            } else if (o instanceof Map) {
+                result.add((Map<String, Object>) o);
+            } else {
+                throw new ValidationErrorsException("'" + Constants.Multipart.INSTANCES + "' must be a list of objects, got: " + o);
+            }
+        }
+        return result;
+    }
+
     private StartProcessResponse toResponse(ProcessResult r) {
         return new StartProcessResponse(r.getInstanceId());
     }
@@ -21,6 +21,7 @@ package com.walmartlabs.concord.server.process;
  */
 
 import com.walmartlabs.concord.server.IsoDateParam;
+import com.walmartlabs.concord.server.cfg.ProcessConfiguration;
 import com.walmartlabs.concord.server.org.OrganizationEntry;
 import com.walmartlabs.concord.server.org.OrganizationManager;
 import com.walmartlabs.concord.server.org.ResourceAccessLevel;
@@ -31,6 +32,7 @@ import com.walmartlabs.concord.server.process.queue.ProcessFilter;
 import com.walmartlabs.concord.server.process.queue.ProcessFilter.MetadataFilter;
 import com.walmartlabs.concord.server.process.queue.ProcessQueueDao;
 import com.walmartlabs.concord.server.process.queue.ProcessQueueManager;
+import com.walmartlabs.concord.server.process.queue.ProcessRequirementsEntry;
 import com.walmartlabs.concord.server.sdk.ConcordApplicationException;
 import com.walmartlabs.concord.server.sdk.ProcessStatus;
 import com.walmartlabs.concord.server.sdk.metrics.WithTimer;
@@ -42,6 +44,7 @@ import io.swagger.annotations.Api;
 import io.swagger.annotations.ApiOperation;
 import io.swagger.annotations.ApiParam;
 import io.swagger.annotations.Authorization;
+import org.apache.shiro.authz.UnauthorizedException;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.sonatype.siesta.Resource;
@@ -51,6 +54,8 @@ import javax.inject.Inject;
 import javax.inject.Named;
 import javax.inject.Singleton;
 import javax.ws.rs.*;
+import javax.ws.rs.container.AsyncResponse;
+import javax.ws.rs.container.Suspended;
 import javax.ws.rs.core.Context;
 import javax.ws.rs.core.MediaType;
 import javax.ws.rs.core.Response;
@@ -58,6 +63,8 @@ import javax.ws.rs.core.Response.Status;
 import javax.ws.rs.core.UriInfo;
 import java.sql.Timestamp;
 import java.util.*;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
 
 @Named
 @Singleton
@@ -67,27 +74,34 @@ public class ProcessResourceV2 implements Resource {
 
     private static final Logger log = LoggerFactory.getLogger(ProcessResourceV2.class);
 
+
+    private final ProcessConfiguration processCfg;
     private final ProcessQueueDao queueDao;
     private final ProcessQueueManager processQueueManager;
     private final ProjectDao projectDao;
     private final UserDao userDao;
     private final OrganizationManager orgManager;
     private final ProjectAccessManager projectAccessManager;
+    private final ProcessCompletionWaiter completionWaiter;
 
     @Inject
-    public ProcessResourceV2(ProcessQueueDao queueDao,
+    public ProcessResourceV2(ProcessConfiguration processCfg,
+                             ProcessQueueDao queueDao,
                              ProcessQueueManager processQueueManager,
                              ProjectDao projectDao,
                              UserDao userDao,
                              OrganizationManager orgManager,
-                             ProjectAccessManager projectAccessManager) {
+                             ProjectAccessManager projectAccessManager,
+                             ProcessCompletionWaiter completionWaiter) {
 
+        this.processCfg = processCfg;
         this.queueDao = queueDao;
         this.processQueueManager = processQueueManager;
         this.projectDao = projectDao;
         this.userDao = userDao;
         this.orgManager = orgManager;
         this.projectAccessManager = projectAccessManager;
+        this.completionWaiter = completionWaiter;
     }
 
     /**
@@ -182,6 +196,102 @@ public class ProcessResourceV2 implements Resource {
         return queueDao.count(filter);
     }
 
+    /**
+     * Waits for the specified processes to reach a final status (FINISHED,
+     * FAILED, CANCELLED or TIMED_OUT). Returns as soon as any or all of the
+     * processes are finished (depending on {@code mode}) or when the timeout
+     * expires. The result contains all requested processes, the caller is
+     * expected to check their statuses and repeat the request if needed.
+     * The request is suspended while waiting, see {@link ProcessCompletionWaiter}.
+     */
+    @POST
+    @ApiOperation(value = "Wait for processes to finish", responseContainer = "list", response = ProcessEntry.class)
+    @Path("/wait")
+    @Consumes(MediaType.APPLICATION_JSON)
+    @Produces(MediaType.APPLICATION_JSON)
+    @WithTimer
+    public void waitForStatus(@ApiParam List<UUID> instanceIds,
+                              @ApiParam @QueryParam("mode") @DefaultValue("ALL") ProcessWaitMode mode,
+                              @ApiParam @QueryParam("timeout") @DefaultValue("-1") long timeout,
+                              @Suspended AsyncResponse asyncResponse) {
+
+        if (instanceIds == null || instanceIds.isEmpty()) {
+            throw new ValidationErrorsException("'instanceIds' must be a non-empty list");
+        }
+
+        int limit = processCfg.getWaitMaxIds();
+        if (instanceIds.size() > limit) {
+            throw new ValidationErrorsException("Too many instances: " + instanceIds.size() + ", the limit is " + limit);
+        }
+
+        long maxTimeout = processCfg.getWaitMaxTimeout();
+        if (timeout <= 0 || timeout > maxTimeout) {
+            timeout = maxTimeout;
+        }
+
+        Set<UUID> ids = new HashSet<>(instanceIds);
+        List<PartialProcessKey> keys = ids.stream()
+                .map(PartialProcessKey::from)
+                .collect(Collectors.toList());
+
+        List<ProcessEntry> entries = queueDao.get(keys);
+        assertWaitAccess(ids, entries);
+
+        if (ProcessCompletionWaiter.isDone(mode, entries.stream().map(ProcessEntry::status).collect(Collectors.toList()))) {
+            asyncResponse.resume(entries);
+            return;
+        }
+
+        completionWaiter.waitForStatus(ids, mode, timeout, asyncResponse);
+    }
+
+    /**
+     * Returns the number of processes in the specified status grouped by
+     * their requirements. Used by the agent pool autoscalers.
+     * <p>
+     * If {@code statsPeriod} is specified, the result also includes the number
+     * of running processes, the number of processes created during the
+     * period (sec), the number of processes finished during the period and
+     * their average run time.
+     */
+    @GET
+    @ApiOperation(value = "Count processes by their requirements", responseContainer = "list", response = ProcessRequirementsEntry.class)
+    @Path("/requirements")
+    @Produces(MediaType.APPLICATION_JSON)
+    @WithTimer
+    public List<ProcessRequirementsEntry> countByRequirements(@ApiParam @QueryParam("status") @DefaultValue("ENQUEUED") ProcessStatus status,
+                                                              @ApiParam @QueryParam("statsPeriod") Integer statsPeriod) {
+        // the result includes processes of all orgs
+        if (!Roles.isAdmin() && !Permission.isPermitted(Permission.GET_PROCESS_QUEUE_ALL_ORGS)) {
+            throw new UnauthorizedException("Only admins and users with the 'getProcessQueueAllOrgs' permission can do that");
+        }
+
+        if (statsPeriod != null) {
+            if (statsPeriod <= 0) {
+                throw new ValidationErrorsException("'statsPeriod' must be a positive number");
+            }
+
+            Timestamp since = new Timestamp(System.currentTimeMillis() - TimeUnit.SECONDS.toMillis(statsPeriod));
+            return queueDao.getRequirementsStats(status, since);
+        }
+
+        return queueDao.countByRequirements(status);
+    }
+
+    private void assertWaitAccess(Set<UUID> instanceIds, List<ProcessEntry> entries) {
+        if (entries.size() < instanceIds.size()) {
+            Set<UUID> missing = new HashSet<>(instanceIds);
+            entries.forEach(e -> missing.remove(e.instanceId()));
+            throw new ConcordApplicationException("Process instance(s) not found: " + missing, Status.NOT_FOUND);
+        }
+
+        for (ProcessEntry e : entries) {
+            if (e.projectId() != null) {
+                projectAccessManager.assertAccess(e.orgId(), e.projectId(), null, ResourceAccessLevel.READER, false);
+            }
+        }
+    }
+
     private ProcessFilter createProcessFilter(UUID orgId,
                                               String orgName,
                                               UUID projectId,
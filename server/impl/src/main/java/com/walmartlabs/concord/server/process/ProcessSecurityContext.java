@@ -37,6 +37,7 @@ import org.apache.shiro.subject.PrincipalCollection;
 import org.apache.shiro.subject.SimplePrincipalCollection;
 import org.apache.shiro.subject.Subject;
 import org.apache.shiro.util.ThreadContext;
+import org.jooq.DSLContext;
 
 import javax.inject.Inject;
 import javax.inject.Named;
@@ -67,6 +68,19 @@ public class ProcessSecurityContext {
     }
 
     public void storeCurrentSubject(ProcessKey processKey) {
+        stateManager.replace(processKey, PRINCIPAL_FILE_PATH, serializeCurrentSubject());
+    }
+
+    /**
+     * Stores the current subject for each of the specified (new) processes
+     * using the specified transaction.
+     */
+    public void storeCurrentSubject(DSLContext tx, Collection<ProcessKey> processKeys) {
+        byte[] data = serializeCurrentSubject();
+        stateManager.insert(tx, processKeys, PRINCIPAL_FILE_PATH, k -> data);
+    }
+
+    private static byte[] serializeCurrentSubject() {
         Subject s = SecurityUtils.getSubject();
 
         PrincipalCollection src = s.getPrincipals();
@@ -84,7 +98,7 @@ public class ProcessSecurityContext {
             }
         }
 
-        stateManager.replace(processKey, PRINCIPAL_FILE_PATH, PrincipalUtils.serialize(dst));
+        return PrincipalUtils.serialize(dst);
     }
 
     public PrincipalCollection getPrincipals(PartialProcessKey processKey) {
@@ -36,9 +36,11 @@ import org.jooq.impl.DSL;
 import javax.inject.Inject;
 import javax.inject.Named;
 import java.sql.PreparedStatement;
+import java.sql.ResultSet;
 import java.sql.Statement;
 import java.sql.Timestamp;
 import java.time.Instant;
+import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
 import java.util.Map;
@@ -67,6 +69,11 @@ public class ProcessEventDao extends AbstractDao {
         super.tx(t);
     }
 
+    @Override
+    protected <T> T txResult(TxResult<T> t) {
+        return super.txResult(t);
+    }
+
     public List<ProcessEventEntry> list(ProcessEventFilter filter) {
         try (DSLContext tx = DSL.using(cfg)) {
 
@@ -141,9 +148,12 @@ public class ProcessEventDao extends AbstractDao {
         });
     }
 
-    public void insert(DSLContext tx, List<ProcessEvent> events) {
+    /**
+     * Inserts the events and returns their sequence numbers in the same order.
+     */
+    public List<Long> insert(DSLContext tx, List<ProcessEvent> events) {
         if (events == null || events.isEmpty()) {
-            return;
+            return Collections.emptyList();
         }
 
         if (events.size() == 1) {
@@ -153,14 +163,17 @@ public class ProcessEventDao extends AbstractDao {
             Field<Timestamp> ts = e.getEventDate() != null ? value(Timestamp.from(e.getEventDate().toInstant())) : currentTimestamp();
             Map<String, Object> m = e.getData() != null ? e.getData() : Collections.emptyMap();
 
-            tx.insertInto(PROCESS_EVENTS)
+            Long eventSeq = tx.insertInto(PROCESS_EVENTS)
                     .set(PROCESS_EVENTS.INSTANCE_ID, processKey.getInstanceId())
                     .set(PROCESS_EVENTS.INSTANCE_CREATED_AT, processKey.getCreatedAt())
                     .set(PROCESS_EVENTS.EVENT_TYPE, e.getEventType())
                     .set(PROCESS_EVENTS.EVENT_DATE, ts)
                     .set(PROCESS_EVENTS.EVENT_DATA, objectMapper.toJSONB(m))
-                    .execute();
-            return;
+                    .returning(PROCESS_EVENTS.EVENT_SEQ)
+                    .fetchOne()
+                    .getEventSeq();
+
+            return Collections.singletonList(eventSeq);
         }
 
         String sql = tx.insertInto(PROCESS_EVENTS)
@@ -172,6 +185,7 @@ public class ProcessEventDao extends AbstractDao {
                 .returning(PROCESS_EVENTS.EVENT_SEQ)
                 .getSQL();
 
+        List<Long> result = new ArrayList<>(events.size());
         tx.connection(conn -> {
             try (PreparedStatement ps = conn.prepareStatement(sql, Statement.RETURN_GENERATED_KEYS)) {
                 for (ProcessEvent e : events) {
@@ -188,8 +202,15 @@ public class ProcessEventDao extends AbstractDao {
                 }
 
                 ps.executeBatch();
+
+                try (ResultSet rs = ps.getGeneratedKeys()) {
+                    while (rs.next()) {
+                        result.add(rs.getLong(1));
+                    }
+                }
             }
         });
+        return result;
     }
 
     public List<ProcessEntry.ProcessWaitHistoryEntry> getWaitHistory(ProcessKey processKey, int limit, int offset) {
@@ -36,6 +36,7 @@ import org.jooq.DSLContext;
 import javax.inject.Inject;
 import javax.inject.Named;
 import javax.inject.Singleton;
+import java.util.ArrayList;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
@@ -90,21 +91,51 @@ public class ProcessEventManager {
         event(tx, events);
     }
 
+    @WithTimer
     public void event(List<ProcessEvent> events) {
-        eventDao.tx(tx -> event(tx, events));
+        if (events.isEmpty()) {
+            return;
+        }
+
+        List<ProcessEvent> inserted = eventDao.txResult(tx -> insert(tx, events));
+
+        // the listeners are notified only after the events are committed
+        listeners.onProcessEvent(inserted);
     }
 
+    /**
+     * Inserts the events using the specified transaction. The listeners are
+     * notified before the transaction is committed, so they must be prepared
+     * to receive events that are not visible yet (or rolled back later).
+     */
     @WithTimer
     public void event(DSLContext tx, List<ProcessEvent> events) {
         if (events.isEmpty()) {
             return;
         }
 
-        eventDao.insert(tx, events);
+        listeners.onProcessEvent(insert(tx, events));
+    }
+
+    private List<ProcessEvent> insert(DSLContext tx, List<ProcessEvent> events) {
+        List<Long> eventSeqs = eventDao.insert(tx, events);
 
         eventsReceived.mark(events.size());
         batchInsertHistogram.update(events.size());
 
-        listeners.onProcessEvent(events);
+        return withEventSeqs(events, eventSeqs);
+    }
+
+    private static List<ProcessEvent> withEventSeqs(List<ProcessEvent> events, List<Long> eventSeqs) {
+        if (events.size() != eventSeqs.size()) {
+            return events;
+        }
+
+        List<ProcessEvent> result = new ArrayList<>(events.size());
+        for (int i = 0; i < events.size(); i++) {
+            ProcessEvent e = events.get(i);
+            result.add(new ProcessEvent(e.getProcessKey(), e.getEventType(), e.getEventDate(), e.getData(), eventSeqs.get(i)));
+        }
+        return result;
     }
 }
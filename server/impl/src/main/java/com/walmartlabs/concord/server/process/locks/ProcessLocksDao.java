@@ -25,6 +25,8 @@ import com.walmartlabs.concord.db.MainDB;
 import com.walmartlabs.concord.server.jooq.enums.ProcessLockScope;
 import com.walmartlabs.concord.server.jooq.tables.ProcessLocks;
 import com.walmartlabs.concord.server.jooq.tables.records.ProcessLocksRecord;
+import com.walmartlabs.concord.server.process.queue.ProcessStatusListener;
+import com.walmartlabs.concord.server.process.queue.ProcessWaitIndex;
 import org.jooq.Configuration;
 import org.jooq.DSLContext;
 import org.jooq.SelectConditionStep;
@@ -71,8 +73,23 @@ public class ProcessLocksDao extends AbstractDao {
         return txResult(tx -> insert(tx, instanceId, orgId, projectId, scope, lockName));
     }
 
+    /**
+     * Releases the lock. Other server instances are notified about the release
+     * once the transaction is committed.
+     */
     public void delete(UUID instanceId, UUID orgId, UUID projectId, ProcessLockScope scope, String lockName) {
-        tx(tx -> delete(tx, instanceId, orgId, projectId, scope, lockName));
+        tx(tx -> {
+            if (delete(tx, instanceId, orgId, projectId, scope, lockName)) {
+                notifyReleased(tx, scope, ProcessWaitIndex.scopeId(scope, orgId, projectId), lockName);
+            }
+        });
+    }
+
+    /**
+     * Sends the lock release notification to all {@link ProcessStatusListener}s.
+     */
+    public void notifyReleased(DSLContext tx, ProcessLockScope scope, UUID scopeId, String lockName) {
+        tx.fetch("select pg_notify(?, ?)", ProcessStatusListener.LOCKS_CHANNEL, ProcessStatusListener.lockPayload(scope, scopeId, lockName));
     }
 
     private boolean insert(DSLContext tx, UUID instanceId, UUID orgId, UUID projectId, ProcessLockScope scope, String lockName) {
@@ -109,14 +126,14 @@ public class ProcessLocksDao extends AbstractDao {
                 .build());
     }
 
-    private void delete(DSLContext tx, UUID instanceId, UUID orgId, UUID projectId, ProcessLockScope scope, String lockName) {
+    private boolean delete(DSLContext tx, UUID instanceId, UUID orgId, UUID projectId, ProcessLockScope scope, String lockName) {
         ProcessLocks l = PROCESS_LOCKS.as("l");
-        tx.deleteFrom(l)
+        return tx.deleteFrom(l)
                 .where(l.INSTANCE_ID.eq(instanceId)
                         .and(l.ORG_ID.eq(orgId))
                         .and(l.PROJECT_ID.eq(projectId))
                         .and(l.LOCK_SCOPE.eq(scope))
                         .and(l.LOCK_NAME.eq(lockName)))
-                .execute();
+                .execute() > 0;
     }
 }
@@ -25,6 +25,7 @@ import com.walmartlabs.concord.db.MainDB;
 import com.walmartlabs.concord.server.Utils;
 import com.walmartlabs.concord.server.jooq.tables.ProcessLocks;
 import com.walmartlabs.concord.server.jooq.tables.ProcessQueue;
+import com.walmartlabs.concord.server.process.queue.ProcessWaitIndex;
 import com.walmartlabs.concord.server.sdk.ProcessStatus;
 import com.walmartlabs.concord.server.sdk.ScheduledTask;
 import org.jooq.Configuration;
@@ -36,6 +37,7 @@ import org.slf4j.LoggerFactory;
 import javax.inject.Inject;
 import javax.inject.Named;
 import javax.inject.Singleton;
+import java.util.List;
 import java.util.UUID;
 
 import static com.walmartlabs.concord.server.jooq.Tables.PROCESS_LOCKS;
@@ -52,10 +54,12 @@ public class ProcessLocksWatchdog implements ScheduledTask {
     private static final Logger log = LoggerFactory.getLogger(ProcessLocksWatchdog.class);
 
     private final WatchdogDao dao;
+    private final ProcessWaitIndex waitIndex;
 
     @Inject
-    public ProcessLocksWatchdog(WatchdogDao dao) {
+    public ProcessLocksWatchdog(WatchdogDao dao, ProcessWaitIndex waitIndex) {
         this.dao = dao;
+        this.waitIndex = waitIndex;
     }
 
     @Override
@@ -66,8 +70,12 @@ public class ProcessLocksWatchdog implements ScheduledTask {
 
     @Override
     public void performTask() {
-        int count = dao.deleteStalledLocks();
-        log.debug("performTask -> {} locks deleted", count);
+        List<LockEntry> locks = dao.deleteStalledLocks();
+        log.debug("performTask -> {} locks deleted", locks.size());
+
+        for (LockEntry l : locks) {
+            waitIndex.onLockReleased(l.scope(), ProcessWaitIndex.scopeId(l.scope(), l.orgId(), l.projectId()), l.name());
+        }
     }
 
     @Named
@@ -80,12 +88,15 @@ public class ProcessLocksWatchdog implements ScheduledTask {
                 ProcessStatus.TIMED_OUT
         };
 
+        private final ProcessLocksDao locksDao;
+
         @Inject
-        public WatchdogDao(@MainDB Configuration cfg) {
+        public WatchdogDao(@MainDB Configuration cfg, ProcessLocksDao locksDao) {
             super(cfg);
+            this.locksDao = locksDao;
         }
 
-        public int deleteStalledLocks() {
+        public List<LockEntry> deleteStalledLocks() {
             return txResult(tx -> {
                 ProcessQueue q = PROCESS_QUEUE.as("q");
                 ProcessLocks l = PROCESS_LOCKS.as("l");
@@ -95,9 +106,22 @@ public class ProcessLocksWatchdog implements ScheduledTask {
                         .where(q.INSTANCE_ID.eq(l.INSTANCE_ID)
                                 .and(q.CURRENT_STATUS.in(Utils.toString(FINISHED_STATUSES))));
 
-                return tx.deleteFrom(l)
+                List<LockEntry> result = tx.deleteFrom(l)
                         .where(l.INSTANCE_ID.in(finishedProcesses))
-                        .execute();
+                        .returning(l.INSTANCE_ID, l.ORG_ID, l.PROJECT_ID, l.LOCK_SCOPE, l.LOCK_NAME)
+                        .fetch(r -> LockEntry.builder()
+                                .instanceId(r.getInstanceId())
+                                .orgId(r.getOrgId())
+                                .projectId(r.getProjectId())
+                                .scope(r.getLockScope())
+                                .name(r.getLockName())
+                                .build());
+
+                for (LockEntry e : result) {
+                    locksDao.notifyReleased(tx, e.scope(), ProcessWaitIndex.scopeId(e.scope(), e.orgId(), e.projectId()), e.name());
+                }
+
+                return result;
             });
         }
     }
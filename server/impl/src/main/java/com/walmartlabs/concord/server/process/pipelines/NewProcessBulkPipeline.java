@@ -0,0 +1,55 @@
+package com.walmartlabs.concord.server.process.pipelines;
+
+/*-
+ * *****
+ * Concord
+ * -----
+ * Copyright (C) 2017 - 2020 Walmart Inc.
+ * -----
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * =====
+ */
+
+import com.google.inject.Injector;
+import com.walmartlabs.concord.server.process.pipelines.processors.*;
+
+import javax.inject.Inject;
+import javax.inject.Named;
+
+/**
+ * Same as {@link NewProcessPipeline}, but creates multiple queue entries
+ * from a single payload. See {@link BulkStartProcessor}.
+ */
+@Named
+public class NewProcessBulkPipeline extends Pipeline {
+
+    private final FinalizerProcessor finalizerProcessor;
+
+    @Inject
+    public NewProcessBulkPipeline(Injector injector) {
+        super(injector,
+                LoggingMDCProcessor.class,
+                AuthorizationProcessor.class,
+                AssertWorkspaceArchiveProcessor.class,
+                PolicyExportProcessor.class,
+                QueuePolicyProcessor.class,
+                BulkStartProcessor.class);
+
+        this.finalizerProcessor = injector.getInstance(CleanupProcessor.class);
+    }
+
+    @Override
+    protected FinalizerProcessor getFinalizerProcessor() {
+        return finalizerProcessor;
+    }
+}
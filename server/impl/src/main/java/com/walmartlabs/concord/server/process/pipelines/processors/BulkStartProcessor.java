@@ -0,0 +1,135 @@
+package com.walmartlabs.concord.server.process.pipelines.processors;
+
+/*-
+ * *****
+ * Concord
+ * -----
+ * Copyright (C) 2017 - 2020 Walmart Inc.
+ * -----
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * =====
+ */
+
+import com.walmartlabs.concord.common.ConfigurationUtils;
+import com.walmartlabs.concord.sdk.Constants;
+import com.walmartlabs.concord.server.process.Payload;
+import com.walmartlabs.concord.server.process.ProcessException;
+import com.walmartlabs.concord.server.process.ProcessKey;
+import com.walmartlabs.concord.server.process.ProcessSecurityContext;
+import com.walmartlabs.concord.server.process.keys.HeaderKey;
+import com.walmartlabs.concord.server.process.queue.ProcessQueueDao;
+import com.walmartlabs.concord.server.process.queue.ProcessQueueManager;
+import com.walmartlabs.concord.server.process.state.ProcessStateManager;
+import com.walmartlabs.concord.server.sdk.ProcessStatus;
+import com.walmartlabs.concord.server.sdk.metrics.WithTimer;
+
+import javax.inject.Inject;
+import javax.inject.Named;
+import javax.ws.rs.core.Response.Status;
+import java.nio.file.Path;
+import java.util.*;
+
+/**
+ * Creates multiple NEW processes from a single payload. Each process gets
+ * its own copy of the payload's headers with the instance's arguments merged in.
+ * The attachments are imported once and then copied to the rest of the processes
+ * by the DB. All records are created in a single transaction.
+ */
+@Named
+public class BulkStartProcessor implements PayloadProcessor {
+
+    /**
+     * Per-instance process arguments. One process is created for each element.
+     */
+    public static final HeaderKey<List<Map<String, Object>>> INSTANCE_ARGUMENTS = HeaderKey.registerList("_bulkInstanceArguments");
+
+    /**
+     * Keys of the created processes, in the same order as {@link #INSTANCE_ARGUMENTS}.
+     */
+    public static final HeaderKey<List<ProcessKey>> PROCESS_KEYS = HeaderKey.registerList("_bulkProcessKeys");
+
+    private final ProcessQueueDao queueDao;
+    private final ProcessQueueManager queueManager;
+    private final ProcessStateManager stateManager;
+    private final ProcessSecurityContext securityContext;
+    private final PayloadStoreProcessor payloadStore;
+
+    @Inject
+    public BulkStartProcessor(ProcessQueueDao queueDao,
+                              ProcessQueueManager queueManager,
+                              ProcessStateManager stateManager,
+                              ProcessSecurityContext securityContext,
+                              PayloadStoreProcessor payloadStore) {
+
+        this.queueDao = queueDao;
+        this.queueManager = queueManager;
+        this.stateManager = stateManager;
+        this.securityContext = securityContext;
+        this.payloadStore = payloadStore;
+    }
+
+    @Override
+    @WithTimer
+    public Payload process(Chain chain, Payload payload) {
+        ProcessKey processKey = payload.getProcessKey();
+
+        List<Map<String, Object>> instances = payload.getHeader(INSTANCE_ARGUMENTS);
+        if (instances == null || instances.isEmpty()) {
+            throw new ProcessException(processKey, "At least one instance is required", Status.BAD_REQUEST);
+        }
+
+        // the payload's key is used for the first instance, the rest share its creation timestamp
+        List<ProcessKey> keys = new ArrayList<>(instances.size());
+        keys.add(processKey);
+        for (int i = 1; i < instances.size(); i++) {
+            keys.add(new ProcessKey(UUID.randomUUID(), processKey.getCreatedAt()));
+        }
+
+        Map<String, Object> headers = new HashMap<>(payload.getHeaders());
+        headers.remove(INSTANCE_ARGUMENTS.name());
+
+        Map<String, Object> cfg = payload.getHeader(Payload.CONFIGURATION, Collections.emptyMap());
+
+        Map<ProcessKey, byte[]> serializedHeaders = new HashMap<>(keys.size());
+        for (int i = 0; i < keys.size(); i++) {
+            Map<String, Object> args = instances.get(i);
+
+            Map<String, Object> h = headers;
+            if (args != null && !args.isEmpty()) {
+                h = new HashMap<>(headers);
+                h.put(Payload.CONFIGURATION.name(), ConfigurationUtils.deepMerge(cfg, Collections.<String, Object>singletonMap(Constants.Request.ARGUMENTS_KEY, args)));
+            }
+
+            serializedHeaders.put(keys.get(i), payloadStore.serialize(h));
+        }
+
+        Path baseDir = payload.getHeader(Payload.BASE_DIR);
+        Collection<Path> attachments = payload.getAttachments().values();
+        List<ProcessKey> copies = keys.subList(1, keys.size());
+
+        queueDao.tx(tx -> {
+            stateManager.insert(tx, keys, PayloadStoreProcessor.PAYLOAD_PATH, serializedHeaders::get);
+
+            stateManager.importPath(tx, processKey, PayloadStoreProcessor.ATTACHMENTS_PATH, baseDir, (p, attrs) -> attachments.contains(p));
+            if (!copies.isEmpty()) {
+                stateManager.copyPath(tx, processKey, copies, PayloadStoreProcessor.ATTACHMENTS_PATH);
+            }
+
+            securityContext.storeCurrentSubject(tx, keys);
+
+            queueManager.insert(tx, keys, payload, ProcessStatus.NEW);
+        });
+
+        return chain.process(payload.putHeader(PROCESS_KEYS, keys));
+    }
+}
@@ -26,6 +26,7 @@ public class Chain {
 
     private final PayloadProcessor[] processors;
     private final int current;
+    private final Chain next;
 
     public Chain(PayloadProcessor... processors) {
         this(processors, 0);
@@ -34,6 +35,8 @@ public class Chain {
     private Chain(PayloadProcessor[] processors, int current) { // NOSONAR
         this.processors = processors;
         this.current = current;
+        // the links are created once and reused for every payload
+        this.next = current < processors.length ? new Chain(processors, current + 1) : null;
     }
 
     public Payload process(Payload payload) {
@@ -42,8 +45,21 @@ public class Chain {
         }
 
         PayloadProcessor p = processors[current];
-        Chain next = new Chain(processors, current + 1);
 
-        return p.process(next, payload);
+        PipelineProfile profile = PipelineProfile.current();
+        if (profile == null) {
+            return p.process(next, payload);
+        }
+
+        profile.enter(current);
+        try {
+            return p.process(next, payload);
+        } finally {
+            profile.exit(current);
+        }
+    }
+
+    protected PayloadProcessor[] getProcessors() {
+        return processors;
     }
 }
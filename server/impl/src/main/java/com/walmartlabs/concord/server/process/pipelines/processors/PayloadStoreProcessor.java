@@ -38,6 +38,9 @@ import java.util.stream.Collectors;
 @Named
 public class PayloadStoreProcessor implements PayloadProcessor {
 
+    static final String PAYLOAD_PATH = "_initial/payload.json";
+    static final String ATTACHMENTS_PATH = "_initial/attachments/";
+
     private final ObjectMapper objectMapper;
     private final ProcessStateManager stateManager;
 
@@ -57,23 +60,27 @@ public class PayloadStoreProcessor implements PayloadProcessor {
     public Payload process(Chain chain, Payload payload) {
         ProcessKey processKey = payload.getProcessKey();
 
-        Map<String, Object> headers = payload.getHeaders().entrySet().stream()
-                .filter(e -> !(e.getValue() instanceof Path))
-                .filter(e -> !(e.getKey().equals(Payload.POLICY.name())))
-                .collect(Collectors.toMap(Map.Entry::getKey, Map.Entry::getValue));
-
-        String serializedHeaders = serialize(headers);
+        byte[] serializedHeaders = serialize(payload.getHeaders());
 
-        stateManager.insert(processKey.getInstanceId(), processKey.getCreatedAt(), "_initial/payload.json", serializedHeaders.getBytes());
+        stateManager.insert(processKey.getInstanceId(), processKey.getCreatedAt(), PAYLOAD_PATH, serializedHeaders);
 
-        stateManager.importPath(processKey, "_initial/attachments/", payload.getHeader(Payload.BASE_DIR), (path, basicFileAttributes) -> payload.getAttachments().containsValue(path));
+        stateManager.importPath(processKey, ATTACHMENTS_PATH, payload.getHeader(Payload.BASE_DIR), (path, basicFileAttributes) -> payload.getAttachments().containsValue(path));
 
         return chain.process(payload);
     }
 
-    private String serialize(Map<String, Object> in) {
+    /**
+     * Serializes the specified payload headers, skipping the values that
+     * can't be restored on the other side (paths, policies, etc).
+     */
+    byte[] serialize(Map<String, Object> headers) {
+        Map<String, Object> m = headers.entrySet().stream()
+                .filter(e -> !(e.getValue() instanceof Path))
+                .filter(e -> !(e.getKey().equals(Payload.POLICY.name())))
+                .collect(Collectors.toMap(Map.Entry::getKey, Map.Entry::getValue));
+
         try {
-            return objectMapper.writeValueAsString(in);
+            return objectMapper.writeValueAsString(m).getBytes();
         } catch (Exception e) {
             throw new RuntimeException(e);
         }
@@ -20,6 +20,7 @@ package com.walmartlabs.concord.server.process.pipelines.processors;
  * =====
  */
 
+import com.codahale.metrics.Timer;
 import com.google.inject.Injector;
 import com.walmartlabs.concord.server.process.Payload;
 
@@ -27,6 +28,9 @@ import java.util.stream.Stream;
 
 public abstract class Pipeline extends Chain {
 
+    private final PipelineProfiler profiler;
+    private final Timer[] timers;
+
     @SafeVarargs
     public Pipeline(
             Injector injector,
@@ -34,10 +38,15 @@ public abstract class Pipeline extends Chain {
         super(Stream.of(processors)
                 .map(injector::getInstance)
                 .toArray(PayloadProcessor[]::new));
+
+        this.profiler = injector.getInstance(PipelineProfiler.class);
+        this.timers = profiler.timers(getClass(), getProcessors());
     }
 
     @Override
     public Payload process(Payload payload) {
+        PipelineProfile profile = profiler.start(timers.length);
+        PipelineProfile prevProfile = PipelineProfile.set(profile);
         try {
             return super.process(payload);
         } catch (Exception e) {
@@ -47,10 +56,14 @@ public abstract class Pipeline extends Chain {
             }
             throw e;
         } finally {
+            PipelineProfile.set(prevProfile);
+
             FinalizerProcessor p = getFinalizerProcessor();
             if (p != null) {
                 p.process(payload);
             }
+
+            profiler.report(getClass(), getProcessors(), timers, payload, profile);
         }
     }
 
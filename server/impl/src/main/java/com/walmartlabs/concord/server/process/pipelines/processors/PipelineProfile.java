@@ -0,0 +1,149 @@
+package com.walmartlabs.concord.server.process.pipelines.processors;
+
+
+/*-
+ * *****
+ * Concord
+ * -----
+ * Copyright (C) 2017 - 2020 Walmart Inc.
+ * -----
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * =====
+ */
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+
+/**
+ * Collects the execution time (and, optionally, the number of allocated bytes)
+ * of each processor in a pipeline during a single {@link Pipeline#process} call.
+ * <p>
+ * The values are collected for the current thread only. Processors call
+ * the rest of the chain from their {@code process} methods, so the collected
+ * values are "inclusive". Use {@link #getSelfNanos(int)} and
+ * {@link #getSelfAllocatedBytes(int)} to get the processor's own values.
+ */
+public class PipelineProfile {
+
+    private static final ThreadLocal<PipelineProfile> CURRENT = new ThreadLocal<>();
+
+    private static final com.sun.management.ThreadMXBean threadMXBean = allocationMXBean();
+
+    public static PipelineProfile current() {
+        return CURRENT.get();
+    }
+
+    static PipelineProfile set(PipelineProfile profile) {
+        PipelineProfile prev = CURRENT.get();
+        if (profile == null) {
+            CURRENT.remove();
+        } else {
+            CURRENT.set(profile);
+        }
+        return prev;
+    }
+
+    private final long[] startedAt;
+    private final long[] inclusiveNanos;
+    private final long[] allocationsAt;
+    private final long[] inclusiveAllocations;
+    private final boolean trackAllocations;
+
+    private int lastCalled = -1;
+
+    public PipelineProfile(int processorsCount, boolean trackAllocations) {
+        this.startedAt = new long[processorsCount];
+        this.inclusiveNanos = new long[processorsCount];
+        this.trackAllocations = trackAllocations && threadMXBean != null;
+        this.allocationsAt = this.trackAllocations ? new long[processorsCount] : null;
+        this.inclusiveAllocations = this.trackAllocations ? new long[processorsCount] : null;
+    }
+
+    void enter(int idx) {
+        lastCalled = Math.max(lastCalled, idx);
+        if (trackAllocations) {
+            allocationsAt[idx] = allocatedBytes();
+        }
+        startedAt[idx] = System.nanoTime();
+    }
+
+    void exit(int idx) {
+        inclusiveNanos[idx] = System.nanoTime() - startedAt[idx];
+        if (trackAllocations) {
+            inclusiveAllocations[idx] = allocatedBytes() - allocationsAt[idx];
+        }
+    }
+
+    public int size() {
+        return inclusiveNanos.length;
+    }
+
+    /**
+     * @return {@code true} if the processor was called during the pipeline execution.
+     */
+    public boolean isCalled(int idx) {
+        return idx <= lastCalled;
+    }
+
+    public long getTotalNanos() {
+        return inclusiveNanos.length > 0 ? inclusiveNanos[0] : 0;
+    }
+
+    public long getSelfNanos(int idx) {
+        return self(inclusiveNanos, idx);
+    }
+
+    public boolean isTrackAllocations() {
+        return trackAllocations;
+    }
+
+    public long getTotalAllocatedBytes() {
+        if (!trackAllocations || inclusiveAllocations.length == 0) {
+            return -1;
+        }
+        return inclusiveAllocations[0];
+    }
+
+    public long getSelfAllocatedBytes(int idx) {
+        if (!trackAllocations) {
+            return -1;
+        }
+        return self(inclusiveAllocations, idx);
+    }
+
+    private static long self(long[] inclusive, int idx) {
+        long v = inclusive[idx];
+        if (idx + 1 < inclusive.length) {
+            v -= inclusive[idx + 1];
+        }
+        return Math.max(v, 0);
+    }
+
+    private static long allocatedBytes() {
+        return threadMXBean.getThreadAllocatedBytes(Thread.currentThread().getId());
+    }
+
+    private static com.sun.management.ThreadMXBean allocationMXBean() {
+        ThreadMXBean b = ManagementFactory.getThreadMXBean();
+        if (!(b instanceof com.sun.management.ThreadMXBean)) {
+            return null;
+        }
+
+        com.sun.management.ThreadMXBean result = (com.sun.management.ThreadMXBean) b;
+        if (!result.isThreadAllocatedMemorySupported() || !result.isThreadAllocatedMemoryEnabled()) {
+            return null;
+        }
+
+        return result;
+    }
+}
@@ -0,0 +1,166 @@
+package com.walmartlabs.concord.server.process.pipelines.processors;
+
+
+/*-
+ * *****
+ * Concord
+ * -----
+ * Copyright (C) 2017 - 2020 Walmart Inc.
+ * -----
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * =====
+ */
+
+import com.codahale.metrics.MetricRegistry;
+import com.codahale.metrics.Timer;
+import com.walmartlabs.concord.server.cfg.ProcessConfiguration;
+import com.walmartlabs.concord.server.metrics.MetricUtils;
+import com.walmartlabs.concord.server.process.Payload;
+import com.walmartlabs.concord.server.process.ProcessKey;
+import com.walmartlabs.concord.server.process.logs.ProcessLogManager;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.inject.Inject;
+import javax.inject.Named;
+import javax.inject.Singleton;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Records the per-processor execution time of pipelines.
+ * <p>
+ * Each processor gets its own timer (the processor's "self" time, without
+ * the time spent in the rest of the chain). If the whole pipeline takes
+ * longer than {@link ProcessConfiguration#getPipelineProfileThreshold()},
+ * the per-processor breakdown is written into the process log.
+ */
+@Named
+@Singleton
+public class PipelineProfiler {
+
+    private static final Logger log = LoggerFactory.getLogger(PipelineProfiler.class);
+
+    private static final long MIN_REPORTED_NANOS = TimeUnit.MILLISECONDS.toNanos(1);
+
+    private final MetricRegistry metricRegistry;
+    private final ProcessLogManager logManager;
+    private final long thresholdNanos;
+    private final boolean trackAllocations;
+
+    @Inject
+    public PipelineProfiler(MetricRegistry metricRegistry,
+                            ProcessLogManager logManager,
+                            ProcessConfiguration cfg) {
+
+        this.metricRegistry = metricRegistry;
+        this.logManager = logManager;
+        this.thresholdNanos = TimeUnit.MILLISECONDS.toNanos(cfg.getPipelineProfileThreshold());
+        this.trackAllocations = cfg.isPipelineProfileAllocations();
+    }
+
+    /**
+     * Creates the per-processor timers for the specified pipeline.
+     */
+    public Timer[] timers(Class<? extends Pipeline> pipelineClass, PayloadProcessor[] processors) {
+        Timer[] result = new Timer[processors.length];
+        for (int i = 0; i < processors.length; i++) {
+            String name = MetricUtils.createFqn("timer", unwrap(pipelineClass), processorName(processors[i]), null);
+            result[i] = metricRegistry.timer(name);
+        }
+        return result;
+    }
+
+    public PipelineProfile start(int processorsCount) {
+        return new PipelineProfile(processorsCount, thresholdNanos > 0 && trackAllocations);
+    }
+
+    public void report(Class<? extends Pipeline> pipelineClass, PayloadProcessor[] processors, Timer[] timers,
+                       Payload payload, PipelineProfile profile) {
+
+        for (int i = 0; i < profile.size(); i++) {
+            if (profile.isCalled(i)) {
+                timers[i].update(profile.getSelfNanos(i), TimeUnit.NANOSECONDS);
+            }
+        }
+
+        if (thresholdNanos <= 0 || profile.getTotalNanos() < thresholdNanos) {
+            return;
+        }
+
+        ProcessKey processKey = payload.getProcessKey();
+        if (processKey == null) {
+            return;
+        }
+
+        try {
+            logManager.info(processKey, format(unwrap(pipelineClass).getSimpleName(), processors, profile));
+        } catch (Exception e) {
+            log.warn("report ['{}'] -> error while saving the pipeline profile: {}", processKey, e.getMessage());
+        }
+    }
+
+    private static String format(String pipelineName, PayloadProcessor[] processors, PipelineProfile profile) {
+        List<Integer> called = new ArrayList<>();
+        for (int i = 0; i < profile.size(); i++) {
+            if (profile.isCalled(i) && profile.getSelfNanos(i) >= MIN_REPORTED_NANOS) {
+                called.add(i);
+            }
+        }
+
+        // slowest first
+        called.sort(Comparator.comparingLong(profile::getSelfNanos).reversed());
+
+        StringBuilder sb = new StringBuilder();
+        sb.append(pipelineName).append(" took ").append(toMillis(profile.getTotalNanos())).append("ms");
+        if (profile.isTrackAllocations()) {
+            sb.append(", allocated ").append(toKb(profile.getTotalAllocatedBytes())).append("KB");
+        }
+        sb.append(":");
+
+        for (int i : called) {
+            sb.append("\n\t").append(processorName(processors[i]))
+                    .append(": ").append(toMillis(profile.getSelfNanos(i))).append("ms");
+
+            if (profile.isTrackAllocations()) {
+                sb.append(", ").append(toKb(profile.getSelfAllocatedBytes(i))).append("KB");
+            }
+        }
+
+        return sb.toString();
+    }
+
+    private static String processorName(PayloadProcessor p) {
+        return unwrap(p.getClass()).getSimpleName();
+    }
+
+    /**
+     * Returns the original class for classes enhanced by Guice (e.g. for {@code @WithTimer}).
+     */
+    private static Class<?> unwrap(Class<?> c) {
+        if (c.getName().contains("$$") && c.getSuperclass() != null) {
+            return c.getSuperclass();
+        }
+        return c;
+    }
+
+    private static long toMillis(long nanos) {
+        return TimeUnit.NANOSECONDS.toMillis(nanos);
+    }
+
+    private static long toKb(long bytes) {
+        return bytes / 1024;
+    }
+}
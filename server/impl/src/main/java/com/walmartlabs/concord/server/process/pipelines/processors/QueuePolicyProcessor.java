@@ -73,10 +73,14 @@ public class QueuePolicyProcessor implements PayloadProcessor {
         UUID orgId = payload.getHeader(Payload.ORGANIZATION_ID);
         UUID prjId = payload.getHeader(Payload.PROJECT_ID);
 
+        // bulk requests create multiple processes at once
+        List<Map<String, Object>> instances = payload.getHeader(BulkStartProcessor.INSTANCE_ARGUMENTS);
+        int newProcesses = instances != null ? Math.max(1, instances.size()) : 1;
+
         CheckResult<ProcessRule, Integer> result;
         try {
             result = policy.getQueueProcessPolicy()
-                    .check(statuses -> dao.metrics(orgId, prjId, statuses));
+                    .check(statuses -> dao.metrics(orgId, prjId, statuses), newProcesses);
         } catch (Exception e) {
             log.error("process -> error", e);
             throw new ProcessException(processKey, "Error while processing queue policies", e);
@@ -0,0 +1,225 @@
+package com.walmartlabs.concord.server.process.queue;
+
+
+/*-
+ * *****
+ * Concord
+ * -----
+ * Copyright (C) 2017 - 2020 Walmart Inc.
+ * -----
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * =====
+ */
+
+import com.walmartlabs.concord.server.process.ProcessKey;
+import com.walmartlabs.concord.server.process.ProcessKind;
+
+import java.sql.Timestamp;
+import java.util.*;
+
+/**
+ * Selects NEW processes for the enqueue workers using "lanes":
+ * <ul>
+ *     <li>priority lanes - process handlers (onFailure, onCancel, onTimeout);</li>
+ *     <li>fair lanes - all other processes, including child processes.</li>
+ * </ul>
+ * There's one lane of each type per org or project. Priority lanes are
+ * served first. Lanes of the same type are served in a round-robin fashion,
+ * so a single project can't starve the others.
+ * Not thread-safe, expected to be called from a single thread.
+ */
+public class EnqueueLanes {
+
+    public static final String PRIORITY_LANE = "priority";
+    public static final String DEFAULT_LANE = "default";
+
+    public static final Set<ProcessKind> PRIORITY_KINDS = Collections.unmodifiableSet(EnumSet.of(
+            ProcessKind.FAILURE_HANDLER,
+            ProcessKind.CANCEL_HANDLER,
+            ProcessKind.TIMEOUT_HANDLER));
+
+    private static final Object NO_PROJECT_LANE = new Object();
+
+    private final LaneKey laneKey;
+
+    /**
+     * The "tick" when a lane was served last time. Used to rotate the lanes
+     * between the polls.
+     */
+    private final Map<Object, Long> lastServed = new HashMap<>();
+    private final Map<Object, Long> priorityLastServed = new HashMap<>();
+    private long tick = 0;
+
+    private volatile Stats stats = new Stats(0, 0, 0, 0);
+
+    public EnqueueLanes(LaneKey laneKey) {
+        this.laneKey = laneKey;
+    }
+
+    /**
+     * Selects up to {@code limit} candidates. The priority lanes are served first,
+     * the remaining slots are distributed between the fair lanes one candidate
+     * at the time.
+     *
+     * @param candidates the list of candidates sorted by the "last updated" date
+     */
+    public List<Candidate> select(List<Candidate> candidates, int limit) {
+        tick++;
+
+        List<Candidate> result = new ArrayList<>(Math.min(limit, candidates.size()));
+
+        Map<Object, Deque<Candidate>> priority = new LinkedHashMap<>();
+        Map<Object, Deque<Candidate>> lanes = new LinkedHashMap<>();
+        for (Candidate c : candidates) {
+            Map<Object, Deque<Candidate>> m = c.isPriority() ? priority : lanes;
+            m.computeIfAbsent(laneOf(c), k -> new ArrayDeque<>()).add(c);
+        }
+
+        updateStats(priority, lanes);
+
+        roundRobin(priority, priorityLastServed, result, limit);
+        roundRobin(lanes, lastServed, result, limit);
+
+        return result;
+    }
+
+    /**
+     * @return the stats of the last selection, i.e. of the candidates
+     * visible to the last poll and not of the whole queue.
+     */
+    public Stats getStats() {
+        return stats;
+    }
+
+    private Object laneOf(Candidate c) {
+        UUID id = laneKey == LaneKey.ORG ? c.getOrgId() : c.getProjectId();
+        return id != null ? id : NO_PROJECT_LANE;
+    }
+
+    private void roundRobin(Map<Object, Deque<Candidate>> lanes, Map<Object, Long> lastServed, List<Candidate> result, int limit) {
+        // forget about the lanes that are currently empty
+        lastServed.keySet().retainAll(lanes.keySet());
+
+        // lanes that weren't served for the longest time go first
+        // ties are resolved using the "age" of the lane's oldest entry (the insertion order)
+        List<Object> order = new ArrayList<>(lanes.keySet());
+        order.sort(Comparator.comparingLong(k -> lastServed.getOrDefault(k, 0L)));
+
+        while (result.size() < limit && !order.isEmpty()) {
+            for (Iterator<Object> it = order.iterator(); it.hasNext() && result.size() < limit; ) {
+                Object k = it.next();
+
+                Deque<Candidate> q = lanes.get(k);
+                result.add(q.poll());
+                lastServed.put(k, tick);
+
+                if (q.isEmpty()) {
+                    it.remove();
+                }
+            }
+        }
+    }
+
+    private void updateStats(Map<Object, Deque<Candidate>> priority, Map<Object, Deque<Candidate>> lanes) {
+        int priorityDepth = 0;
+        for (Deque<Candidate> q : priority.values()) {
+            priorityDepth += q.size();
+        }
+
+        int defaultDepth = 0;
+        int maxLaneDepth = 0;
+        for (Deque<Candidate> q : lanes.values()) {
+            defaultDepth += q.size();
+            maxLaneDepth = Math.max(maxLaneDepth, q.size());
+        }
+
+        this.stats = new Stats(priorityDepth, defaultDepth, lanes.size(), maxLaneDepth);
+    }
+
+    public enum LaneKey {
+        ORG,
+        PROJECT
+    }
+
+    public static class Candidate {
+
+        private final ProcessKey key;
+        private final UUID orgId;
+        private final UUID projectId;
+        private final ProcessKind kind;
+        private final Timestamp lastUpdatedAt;
+
+        public Candidate(ProcessKey key, UUID orgId, UUID projectId, ProcessKind kind, Timestamp lastUpdatedAt) {
+            this.key = key;
+            this.orgId = orgId;
+            this.projectId = projectId;
+            this.kind = kind;
+            this.lastUpdatedAt = lastUpdatedAt;
+        }
+
+        public ProcessKey getKey() {
+            return key;
+        }
+
+        public UUID getOrgId() {
+            return orgId;
+        }
+
+        public UUID getProjectId() {
+            return projectId;
+        }
+
+        public Timestamp getLastUpdatedAt() {
+            return lastUpdatedAt;
+        }
+
+        public boolean isPriority() {
+            return kind != null && PRIORITY_KINDS.contains(kind);
+        }
+
+        public String getLane() {
+            return isPriority() ? PRIORITY_LANE : DEFAULT_LANE;
+        }
+    }
+
+    public static class Stats {
+
+        private final int priorityDepth;
+        private final int defaultDepth;
+        private final int lanesCount;
+        private final int maxLaneDepth;
+
+        Stats(int priorityDepth, int defaultDepth, int lanesCount, int maxLaneDepth) {
+            this.priorityDepth = priorityDepth;
+            this.defaultDepth = defaultDepth;
+            this.lanesCount = lanesCount;
+            this.maxLaneDepth = maxLaneDepth;
+        }
+
+        public int getPriorityDepth() {
+            return priorityDepth;
+        }
+
+        public int getDefaultDepth() {
+            return defaultDepth;
+        }
+
+        public int getLanesCount() {
+            return lanesCount;
+        }
+
+        public int getMaxLaneDepth() {
+            return maxLaneDepth;
+        }
+    }
+}
@@ -20,31 +20,49 @@ package com.walmartlabs.concord.server.process.queue;
  * =====
  */
 
+import com.codahale.metrics.CachedGauge;
+import com.codahale.metrics.Gauge;
+import com.codahale.metrics.MetricRegistry;
+import com.codahale.metrics.Timer;
 import com.walmartlabs.concord.db.AbstractDao;
 import com.walmartlabs.concord.db.MainDB;
 import com.walmartlabs.concord.server.PeriodicTask;
 import com.walmartlabs.concord.server.cfg.EnqueueWorkersConfiguration;
-import com.walmartlabs.concord.server.process.PartialProcessKey;
 import com.walmartlabs.concord.server.process.Payload;
 import com.walmartlabs.concord.server.process.PayloadBuilder;
 import com.walmartlabs.concord.server.process.ProcessKey;
+import com.walmartlabs.concord.server.process.ProcessKind;
 import com.walmartlabs.concord.server.process.pipelines.EnqueueProcessPipeline;
 import com.walmartlabs.concord.server.process.pipelines.processors.Pipeline;
+import com.walmartlabs.concord.server.process.queue.EnqueueLanes.Candidate;
 import com.walmartlabs.concord.server.sdk.ProcessStatus;
-import org.jooq.Configuration;
+import org.jooq.*;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import javax.inject.Inject;
 import javax.inject.Named;
-import java.util.List;
+import java.sql.Timestamp;
+import java.util.*;
 import java.util.concurrent.*;
 import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+import java.util.function.ToIntFunction;
 import java.util.stream.Collectors;
 
 import static com.walmartlabs.concord.server.jooq.tables.ProcessQueue.PROCESS_QUEUE;
-import static org.jooq.impl.DSL.value;
-
+import static com.walmartlabs.concord.server.jooq.tables.Projects.PROJECTS;
+import static org.jooq.impl.DSL.*;
+
+/**
+ * Handles NEW processes using an elastic pool of workers.
+ * <p>
+ * The pool size is kept between {@link EnqueueWorkersConfiguration#getWorkersCount()}
+ * and {@link EnqueueWorkersConfiguration#getMaxWorkersCount()} and calculated from
+ * the number of NEW processes and the average enqueue pipeline latency.
+ * The pool shrinks only after {@link EnqueueWorkersConfiguration#getWorkerKeepAlive()}
+ * without the extra load. The processes are picked using {@link EnqueueLanes}.
+ */
 @Named
 public class EnqueuedTask extends PeriodicTask {
 
@@ -52,27 +70,77 @@ public class EnqueuedTask extends PeriodicTask {
 
     private static long ERROR_RETRY_INTERVAL = TimeUnit.SECONDS.toMillis(5);
 
-    private final EnqueueWorkersConfiguration cfg;
+    /**
+     * How many NEW processes to look at (per each max worker) to fill the lanes.
+     * The heads of all lanes are fetched first, see {@link Dao#poll(EnqueueLanes.LaneKey, int, int, Function)}.
+     */
+    private static final int LOOKAHEAD_FACTOR = 10;
+
+    /**
+     * How many of the oldest NEW processes (per each lookahead slot) to rank
+     * into the lanes. Keeps the polling query bounded regardless of the queue's size.
+     */
+    private static final int SCAN_FACTOR = 10;
 
+    private static final long DEPTH_GAUGE_TTL = TimeUnit.SECONDS.toMillis(15);
+
+    private final EnqueueWorkersConfiguration cfg;
     private final Dao dao;
+    private final Pipeline pipeline;
+    private final EnqueueLanes.LaneKey laneKey;
+    private final EnqueueLanes lanes;
+
+    private final ThreadPoolExecutor executor;
+    private final AtomicInteger inFlight = new AtomicInteger();
 
-    private final ExecutorService executor;
-    private final BlockingQueue<ProcessKey> queue;
+    /**
+     * The last time the current number of workers was needed.
+     * Accessed only from the task's thread.
+     */
+    private long lastNeededAt;
 
-    private final AtomicInteger freeWorkersCount;
+    private final Timer pipelineTimer;
+    private final MetricRegistry metricRegistry;
 
     @Inject
-    public EnqueuedTask(EnqueueWorkersConfiguration cfg, Dao dao, EnqueueProcessPipeline pipeline) {
+    public EnqueuedTask(EnqueueWorkersConfiguration cfg,
+                        Dao dao,
+                        EnqueueProcessPipeline pipeline,
+                        MetricRegistry metricRegistry) {
+
         super(cfg.getInterval(), ERROR_RETRY_INTERVAL);
         this.cfg = cfg;
         this.dao = dao;
-        this.queue = new ArrayBlockingQueue<>(cfg.getWorkersCount());
-        this.freeWorkersCount = new AtomicInteger(cfg.getWorkersCount());
+        this.pipeline = pipeline;
+        this.laneKey = parseLaneKey(cfg.getLaneKey());
+        this.lanes = new EnqueueLanes(laneKey);
+
+        this.executor = new ThreadPoolExecutor(cfg.getWorkersCount(), cfg.getWorkersCount(),
+                cfg.getWorkerKeepAlive(), TimeUnit.MILLISECONDS,
+                new LinkedBlockingQueue<>());
 
-        executor = Executors.newFixedThreadPool(cfg.getWorkersCount());
-        for (int i = 0; i < cfg.getWorkersCount(); i++) {
-            executor.submit(new Worker(pipeline, queue));
+        // the pool's size is managed by resize(), the threads themselves are re-created on demand
+        if (cfg.getWorkerKeepAlive() > 0) {
+            this.executor.allowCoreThreadTimeOut(true);
         }
+
+        this.metricRegistry = metricRegistry;
+        this.pipelineTimer = metricRegistry.timer("process-queue-enqueue-pipeline");
+
+        metricRegistry.gauge("process-queue-enqueue-workers", () -> (Gauge<Integer>) executor::getCorePoolSize);
+        metricRegistry.gauge("process-queue-enqueue-in-flight", () -> (Gauge<Integer>) inFlight::get);
+
+        // the depths of the whole queue, not just of the polled window
+        Gauge<EnqueueLanes.Stats> depth = new CachedGauge<EnqueueLanes.Stats>(DEPTH_GAUGE_TTL, TimeUnit.MILLISECONDS) {
+            @Override
+            protected EnqueueLanes.Stats loadValue() {
+                return dao.depth(laneKey);
+            }
+        };
+        registerGauge(metricRegistry, depth, "process-queue-enqueue-lane-priority-depth", EnqueueLanes.Stats::getPriorityDepth);
+        registerGauge(metricRegistry, depth, "process-queue-enqueue-lane-default-depth", EnqueueLanes.Stats::getDefaultDepth);
+        registerGauge(metricRegistry, depth, "process-queue-enqueue-lanes", EnqueueLanes.Stats::getLanesCount);
+        registerGauge(metricRegistry, depth, "process-queue-enqueue-lane-max-depth", EnqueueLanes.Stats::getMaxLaneDepth);
     }
 
     @Override
@@ -83,96 +151,270 @@ public class EnqueuedTask extends PeriodicTask {
 
     @Override
     protected boolean performTask() {
-        if (freeWorkersCount.get() == 0) {
+        if (inFlight.get() >= cfg.getMaxWorkersCount()) {
             return false;
         }
 
-        int limit = Math.min(freeWorkersCount.get(), cfg.getWorkersCount());
-        List<ProcessKey> keys = dao.poll(limit);
-        log.debug("performTask ['{}'] -> size: {}", limit, keys.size());
-        if (keys.isEmpty()) {
+        int lookahead = cfg.getMaxWorkersCount() * LOOKAHEAD_FACTOR;
+        List<Candidate> picked = dao.poll(laneKey, lookahead, lookahead * SCAN_FACTOR, this::pick);
+        log.debug("performTask ['{}'] -> size: {}", lookahead, picked.size());
+        if (picked.isEmpty()) {
             return false;
         }
 
-        for(int i = 0; i< keys.size(); i++) {
-            freeWorkersCount.decrementAndGet();
+        List<ProcessKey> rejected = new ArrayList<>();
+        for (Candidate c : picked) {
+            inFlight.incrementAndGet();
+            try {
+                executor.execute(() -> startProcess(c));
+            } catch (RejectedExecutionException e) {
+                inFlight.decrementAndGet();
+                rejected.add(c.getKey());
+            }
         }
 
-        queue.addAll(keys);
+        if (!rejected.isEmpty()) {
+            // most likely the task is stopping, return the processes back to the queue
+            log.warn("performTask -> {} process(es) rejected, returning them to the queue", rejected.size());
+            dao.release(rejected);
+            return false;
+        }
 
-        return keys.size() >= limit;
+        // continue immediately if there are free workers and more NEW processes
+        return inFlight.get() < executor.getCorePoolSize()
+                && lanes.getStats().getPriorityDepth() + lanes.getStats().getDefaultDepth() > picked.size();
     }
 
-    private void onWorkerFree() {
-        freeWorkersCount.incrementAndGet();
+    /**
+     * Resizes the pool according to the current depth of the queue and
+     * selects the candidates for the free workers.
+     */
+    private List<Candidate> pick(List<Candidate> candidates) {
+        resize(candidates.size());
+
+        int free = executor.getCorePoolSize() - inFlight.get();
+        if (free <= 0) {
+            return Collections.emptyList();
+        }
+
+        return lanes.select(candidates, free);
     }
 
-    private class Worker implements Runnable {
+    private void resize(int depth) {
+        int busy = inFlight.get();
+
+        // the number of workers needed to process the visible part of the queue within a single poll interval
+        double latency = pipelineTimer.getSnapshot().getMean() / TimeUnit.MILLISECONDS.toNanos(1);
+        int needed = busy + (int) Math.ceil(depth * Math.max(latency, 1.0) / Math.max(cfg.getInterval(), 1));
 
-        private final Pipeline pipeline;
+        int target = Math.max(cfg.getWorkersCount(), Math.min(cfg.getMaxWorkersCount(), needed));
 
-        private final BlockingQueue<ProcessKey> queue;
+        int current = executor.getCorePoolSize();
 
-        private Worker(Pipeline pipeline, BlockingQueue<ProcessKey> queue) {
-            this.pipeline = pipeline;
-            this.queue = queue;
+        long now = System.currentTimeMillis();
+        if (target >= current) {
+            lastNeededAt = now;
+        } else if (now - lastNeededAt < cfg.getWorkerKeepAlive()) {
+            // keep the workers for a while, the load might come back
+            return;
         }
 
-        @Override
-        public void run() {
-            while (!Thread.currentThread().isInterrupted()) {
-                try {
-                    ProcessKey key = queue.take();
-                    startProcess(key);
-                } catch (Exception e) {
-                    log.error("run -> error", e);
-                    sleep(ERROR_RETRY_INTERVAL);
-                } finally {
-                    onWorkerFree();
-                }
-            }
+        if (target > current) {
+            executor.setMaximumPoolSize(target);
+            executor.setCorePoolSize(target);
+        } else if (target < current) {
+            // idle workers above the new size are stopped immediately
+            executor.setCorePoolSize(target);
+            executor.setMaximumPoolSize(target);
+        } else {
+            return;
         }
 
-        private void startProcess(ProcessKey key) {
-            try {
-                Payload payload = PayloadBuilder.start(key).build();
-                pipeline.process(payload);
-            } catch (Exception e) {
-                log.error("startProcess ['{}'] -> error", key, e);
-            }
+        log.debug("resize ['{}'] -> workers: {} -> {}", depth, current, target);
+    }
+
+    private void startProcess(Candidate c) {
+        ProcessKey key = c.getKey();
+
+        Timer.Context laneTimer = metricRegistry.timer("process-queue-enqueue-preparing-time-" + c.getLane()).time();
+        Timer.Context t = pipelineTimer.time();
+        try {
+            Payload payload = PayloadBuilder.start(key).build();
+            pipeline.process(payload);
+        } catch (Exception e) {
+            log.error("startProcess ['{}'] -> error", key, e);
+        } finally {
+            t.stop();
+            laneTimer.stop();
+            inFlight.decrementAndGet();
+        }
+    }
+
+    private static void registerGauge(MetricRegistry registry, Gauge<EnqueueLanes.Stats> base, String name, ToIntFunction<EnqueueLanes.Stats> f) {
+        registry.gauge(name, () -> (Gauge<Integer>) () -> f.applyAsInt(base.getValue()));
+    }
+
+    private static EnqueueLanes.LaneKey parseLaneKey(String s) {
+        if (s == null) {
+            return EnqueueLanes.LaneKey.PROJECT;
+        }
+
+        try {
+            return EnqueueLanes.LaneKey.valueOf(s.trim().toUpperCase());
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("Invalid queue.enqueueLaneKey value: " + s + ". Allowed values: project, org");
         }
     }
 
     @Named
     private static class Dao extends AbstractDao {
 
+        private static final List<String> PRIORITY_KINDS = EnqueueLanes.PRIORITY_KINDS.stream()
+                .map(Enum::name)
+                .collect(Collectors.toList());
+
         @Inject
         public Dao(@MainDB Configuration cfg) {
             super(cfg);
         }
 
-        public List<ProcessKey> poll(int limit) {
+        /**
+         * Fetches and locks up to {@code lookahead} NEW processes. The processes
+         * are taken from all lanes: the first process of each lane, then the second
+         * one, etc. So a single project with lots of NEW processes can't fill the
+         * whole lookahead and starve the other projects.
+         * <p>
+         * Only the {@code scanLimit} oldest processes of each lane type are ranked,
+         * so the cost of a poll doesn't depend on the size of the queue.
+         */
+        public List<Candidate> poll(EnqueueLanes.LaneKey laneKey, int lookahead, int scanLimit, Function<List<Candidate>, List<Candidate>> selector) {
             return txResult(tx -> {
-                List<ProcessKey> result = tx.select(PROCESS_QUEUE.INSTANCE_ID, PROCESS_QUEUE.CREATED_AT)
+                // the oldest NEW processes, fetched using IDX_PROC_Q_NEW_LAST_UPD
+                Table<Record4<UUID, UUID, Timestamp, Integer>> oldest = selectFrom(oldestNew(PROCESS_QUEUE.PROCESS_KIND.in(PRIORITY_KINDS), 1, scanLimit).asTable("p"))
+                        .unionAll(selectFrom(oldestNew(PROCESS_QUEUE.PROCESS_KIND.notIn(PRIORITY_KINDS).or(PROCESS_QUEUE.PROCESS_KIND.isNull()), 0, scanLimit).asTable("d")))
+                        .asTable("oldest");
+
+                Field<UUID> instanceIdField = oldest.field(PROCESS_QUEUE.INSTANCE_ID);
+                Field<UUID> projectIdField = oldest.field(PROCESS_QUEUE.PROJECT_ID);
+                Field<Timestamp> lastUpdatedAtField = oldest.field(PROCESS_QUEUE.LAST_UPDATED_AT);
+                Field<Integer> priorityField = oldest.field("PRIORITY", Integer.class);
+                Field<UUID> laneField = laneKey == EnqueueLanes.LaneKey.ORG ? PROJECTS.ORG_ID : projectIdField;
+
+                Table<Record4<UUID, Integer, Integer, Timestamp>> heads = select(instanceIdField,
+                        priorityField,
+                        rowNumber().over(partitionBy(priorityField, laneField).orderBy(lastUpdatedAtField)).as("LANE_POS"),
+                        lastUpdatedAtField)
+                        .from(oldest)
+                        .leftJoin(PROJECTS).on(PROJECTS.PROJECT_ID.eq(projectIdField))
+                        .asTable("heads");
+
+                List<UUID> ids = tx.select(heads.field(PROCESS_QUEUE.INSTANCE_ID))
+                        .from(heads)
+                        .orderBy(heads.field("PRIORITY", Integer.class).desc(),
+                                heads.field("LANE_POS", Integer.class),
+                                heads.field(PROCESS_QUEUE.LAST_UPDATED_AT))
+                        .limit(lookahead)
+                        .fetch(Record1::value1);
+
+                if (ids.isEmpty()) {
+                    return Collections.emptyList();
+                }
+
+                // the processes might've been picked up by another instance in the meantime
+                Field<UUID> orgIdField = select(PROJECTS.ORG_ID).from(PROJECTS).where(PROJECTS.PROJECT_ID.eq(PROCESS_QUEUE.PROJECT_ID)).asField();
+                List<Candidate> candidates = tx.select(PROCESS_QUEUE.INSTANCE_ID,
+                        PROCESS_QUEUE.CREATED_AT,
+                        orgIdField,
+                        PROCESS_QUEUE.PROJECT_ID,
+                        PROCESS_QUEUE.PROCESS_KIND,
+                        PROCESS_QUEUE.LAST_UPDATED_AT)
                         .from(PROCESS_QUEUE)
-                        .where(PROCESS_QUEUE.CURRENT_STATUS.eq(ProcessStatus.NEW.name()))
+                        .where(PROCESS_QUEUE.INSTANCE_ID.in(ids)
+                                .and(PROCESS_QUEUE.CURRENT_STATUS.eq(ProcessStatus.NEW.name())))
                         .orderBy(PROCESS_QUEUE.LAST_UPDATED_AT)
-                        .limit(limit)
                         .forUpdate()
+                        .of(PROCESS_QUEUE)
                         .skipLocked()
-                        .fetch(r -> new ProcessKey(r.value1(), r.value2()));
+                        .fetch(r -> new Candidate(new ProcessKey(r.value1(), r.value2()),
+                                r.value3(),
+                                r.value4(),
+                                r.value5() != null ? ProcessKind.valueOf(r.value5()) : ProcessKind.DEFAULT,
+                                r.value6()));
+
+                if (candidates.isEmpty()) {
+                    return candidates;
+                }
 
+                List<Candidate> result = selector.apply(candidates);
                 if (result.isEmpty()) {
                     return result;
                 }
 
                 tx.update(PROCESS_QUEUE)
                         .set(PROCESS_QUEUE.CURRENT_STATUS, value(ProcessStatus.PREPARING.name()))
-                        .where(PROCESS_QUEUE.INSTANCE_ID.in(result.stream().map(PartialProcessKey::getInstanceId).collect(Collectors.toList())))
+                        .where(PROCESS_QUEUE.INSTANCE_ID.in(result.stream().map(c -> c.getKey().getInstanceId()).collect(Collectors.toList())))
                         .execute();
 
                 return result;
             });
         }
+
+        /**
+         * Returns the processes back to the queue.
+         */
+        public void release(List<ProcessKey> keys) {
+            tx(tx -> tx.update(PROCESS_QUEUE)
+                    .set(PROCESS_QUEUE.CURRENT_STATUS, value(ProcessStatus.NEW.name()))
+                    .where(PROCESS_QUEUE.INSTANCE_ID.in(keys.stream().map(ProcessKey::getInstanceId).collect(Collectors.toList()))
+                            .and(PROCESS_QUEUE.CURRENT_STATUS.eq(ProcessStatus.PREPARING.name())))
+                    .execute());
+        }
+
+        /**
+         * Calculates the depth of all lanes.
+         */
+        public EnqueueLanes.Stats depth(EnqueueLanes.LaneKey laneKey) {
+            return txResult(tx -> {
+                Field<UUID> laneField = laneKey == EnqueueLanes.LaneKey.ORG ? PROJECTS.ORG_ID : PROCESS_QUEUE.PROJECT_ID;
+                Field<Integer> priorityField = when(PROCESS_QUEUE.PROCESS_KIND.in(PRIORITY_KINDS), inline(1)).otherwise(inline(0));
+
+                int priorityDepth = 0;
+                int defaultDepth = 0;
+                int lanesCount = 0;
+                int maxLaneDepth = 0;
+
+                Result<Record2<Integer, Integer>> rows = tx.select(priorityField, count())
+                        .from(PROCESS_QUEUE)
+                        .leftJoin(PROJECTS).on(PROJECTS.PROJECT_ID.eq(PROCESS_QUEUE.PROJECT_ID))
+                        .where(PROCESS_QUEUE.CURRENT_STATUS.eq(ProcessStatus.NEW.name()))
+                        .groupBy(priorityField, laneField)
+                        .fetch();
+
+                for (Record2<Integer, Integer> r : rows) {
+                    int n = r.value2();
+                    if (r.value1() == 1) {
+                        priorityDepth += n;
+                    } else {
+                        defaultDepth += n;
+                        lanesCount++;
+                        maxLaneDepth = Math.max(maxLaneDepth, n);
+                    }
+                }
+
+                return new EnqueueLanes.Stats(priorityDepth, defaultDepth, lanesCount, maxLaneDepth);
+            });
+        }
+
+        private static Select<Record4<UUID, UUID, Timestamp, Integer>> oldestNew(Condition kind, int priority, int limit) {
+            return select(PROCESS_QUEUE.INSTANCE_ID,
+                    PROCESS_QUEUE.PROJECT_ID,
+                    PROCESS_QUEUE.LAST_UPDATED_AT,
+                    inline(priority).as("PRIORITY"))
+                    .from(PROCESS_QUEUE)
+                    .where(PROCESS_QUEUE.CURRENT_STATUS.eq(ProcessStatus.NEW.name())
+                            .and(kind))
+                    .orderBy(PROCESS_QUEUE.LAST_UPDATED_AT)
+                    .limit(limit);
+        }
     }
 }
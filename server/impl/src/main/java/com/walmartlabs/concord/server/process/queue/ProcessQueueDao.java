@@ -74,6 +74,15 @@ public class ProcessQueueDao extends AbstractDao {
 
     private static final Field<?>[] PROCESS_QUEUE_FIELDS = allFieldsWithFixedMeta();
 
+    private static final int MULTI_ROW_INSERT_SIZE = 500;
+
+    private static final String[] FINAL_STATUSES = {
+            ProcessStatus.FINISHED.name(),
+            ProcessStatus.FAILED.name(),
+            ProcessStatus.CANCELLED.name(),
+            ProcessStatus.TIMED_OUT.name()
+    };
+
     private final ConcordObjectMapper objectMapper;
 
     @Inject
@@ -120,6 +129,45 @@ public class ProcessQueueDao extends AbstractDao {
                 .execute();
     }
 
+    /**
+     * Inserts multiple queue entries with the same attributes using multi-row INSERTs.
+     */
+    public void insert(DSLContext tx, List<ProcessKey> processKeys, ProcessStatus status, ProcessKind kind,
+                       UUID parentInstanceId, UUID projectId, UUID repoId, UUID initiatorId,
+                       Map<String, Object> meta, TriggeredByEntry triggeredBy) {
+
+        JSONB metaValue = objectMapper.toJSONB(meta);
+        JSONB triggeredByValue = objectMapper.toJSONB(triggeredBy);
+
+        for (int i = 0; i < processKeys.size(); i += MULTI_ROW_INSERT_SIZE) {
+            List<ProcessKey> chunk = processKeys.subList(i, Math.min(processKeys.size(), i + MULTI_ROW_INSERT_SIZE));
+
+            InsertSetStep<ProcessQueueRecord> step = tx.insertInto(PROCESS_QUEUE);
+            InsertSetMoreStep<ProcessQueueRecord> q = null;
+            for (ProcessKey processKey : chunk) {
+                if (q != null) {
+                    step = q.newRecord();
+                }
+
+                q = step.set(PROCESS_QUEUE.INSTANCE_ID, processKey.getInstanceId())
+                        .set(PROCESS_QUEUE.PROCESS_KIND, kind.toString())
+                        .set(PROCESS_QUEUE.PARENT_INSTANCE_ID, parentInstanceId)
+                        .set(PROCESS_QUEUE.PROJECT_ID, projectId)
+                        .set(PROCESS_QUEUE.REPO_ID, repoId)
+                        .set(PROCESS_QUEUE.CREATED_AT, processKey.getCreatedAt())
+                        .set(PROCESS_QUEUE.INITIATOR_ID, initiatorId)
+                        .set(PROCESS_QUEUE.CURRENT_STATUS, status.toString())
+                        .set(PROCESS_QUEUE.LAST_UPDATED_AT, currentTimestamp())
+                        .set(PROCESS_QUEUE.META, metaValue)
+                        .set(PROCESS_QUEUE.TRIGGERED_BY, triggeredByValue);
+            }
+
+            if (q != null) {
+                q.execute();
+            }
+        }
+    }
+
     public void updateAgentId(DSLContext tx, ProcessKey processKey, String agentId, ProcessStatus status) {
         UUID instanceId = processKey.getInstanceId();
 
@@ -251,6 +299,14 @@ public class ProcessQueueDao extends AbstractDao {
         return i == 1;
     }
 
+    /**
+     * Sends the process status to all {@link ProcessStatusListener}s. The notification
+     * is delivered only if and when the transaction is committed.
+     */
+    public void notifyStatus(DSLContext tx, UUID instanceId, ProcessStatus status) {
+        tx.fetch("select pg_notify(?, ?)", ProcessStatusListener.CHANNEL, ProcessStatusListener.payload(instanceId, status));
+    }
+
     public boolean updateMeta(PartialProcessKey processKey, Map<String, Object> meta) {
         UUID instanceId = processKey.getInstanceId();
 
@@ -357,6 +413,21 @@ public class ProcessQueueDao extends AbstractDao {
         }
     }
 
+    /**
+     * Returns the current statuses of the specified processes.
+     * Unknown processes are not included into the result.
+     */
+    public Map<UUID, ProcessStatus> getStatuses(Collection<UUID> instanceIds) {
+        try (DSLContext tx = DSL.using(cfg)) {
+            Map<UUID, ProcessStatus> result = new HashMap<>(instanceIds.size());
+            tx.select(PROCESS_QUEUE.INSTANCE_ID, PROCESS_QUEUE.CURRENT_STATUS)
+                    .from(PROCESS_QUEUE)
+                    .where(PROCESS_QUEUE.INSTANCE_ID.in(instanceIds))
+                    .forEach(r -> result.put(r.value1(), ProcessStatus.valueOf(r.value2())));
+            return result;
+        }
+    }
+
     public List<ProcessEntry> get(List<PartialProcessKey> processKeys) {
         try (DSLContext tx = DSL.using(cfg)) {
             List<UUID> instanceIds = processKeys.stream()
@@ -442,6 +513,60 @@ public class ProcessQueueDao extends AbstractDao {
         }
     }
 
+    /**
+     * Counts the processes in the specified status grouped by their requirements.
+     */
+    public List<ProcessRequirementsEntry> countByRequirements(ProcessStatus status) {
+        try (DSLContext tx = DSL.using(cfg)) {
+            Field<String> fingerprint = md5(PROCESS_QUEUE.REQUIREMENTS.cast(String.class));
+            return tx.select(fingerprint, PROCESS_QUEUE.REQUIREMENTS, DSL.count(asterisk()))
+                    .from(PROCESS_QUEUE)
+                    .where(PROCESS_QUEUE.CURRENT_STATUS.eq(status.name()))
+                    .groupBy(PROCESS_QUEUE.REQUIREMENTS)
+                    .fetch(r -> new ProcessRequirementsEntry(r.value1(), objectMapper.fromJSONB(r.value2()), r.value3()));
+        }
+    }
+
+    /**
+     * Same as {@link #countByRequirements(ProcessStatus)}, but also includes
+     * the number of running processes, the number of processes created
+     * after {@code since} and the average run time of those which are
+     * already finished.
+     */
+    public List<ProcessRequirementsEntry> getRequirementsStats(ProcessStatus status, Timestamp since) {
+        try (DSLContext tx = DSL.using(cfg)) {
+            Field<String> fingerprint = md5(PROCESS_QUEUE.REQUIREMENTS.cast(String.class));
+
+            Condition recent = PROCESS_QUEUE.CREATED_AT.greaterOrEqual(since);
+            // processes finished during the period, regardless of when they were created
+            // the statuses are inlined to match the partial index IDX_PROC_Q_FIN_LAST_UPD
+            Condition finished = PROCESS_QUEUE.CURRENT_STATUS.in(Arrays.stream(FINAL_STATUSES).map(DSL::inline).collect(Collectors.toList()))
+                    .and(PROCESS_QUEUE.LAST_UPDATED_AT.greaterOrEqual(since))
+                    .and(PROCESS_QUEUE.LAST_RUN_AT.isNotNull());
+            Field<Double> duration = field("extract(epoch from {0} - {1}) * 1000", Double.class, PROCESS_QUEUE.LAST_UPDATED_AT, PROCESS_QUEUE.LAST_RUN_AT);
+
+            return tx.select(fingerprint,
+                    PROCESS_QUEUE.REQUIREMENTS,
+                    DSL.count().filterWhere(PROCESS_QUEUE.CURRENT_STATUS.eq(status.name())),
+                    DSL.count().filterWhere(PROCESS_QUEUE.CURRENT_STATUS.eq(ProcessStatus.RUNNING.name())),
+                    DSL.count().filterWhere(recent),
+                    DSL.count().filterWhere(finished),
+                    avg(duration).filterWhere(finished))
+                    .from(PROCESS_QUEUE)
+                    .where(PROCESS_QUEUE.CURRENT_STATUS.in(status.name(), ProcessStatus.RUNNING.name())
+                            .or(recent)
+                            .or(finished))
+                    .groupBy(PROCESS_QUEUE.REQUIREMENTS)
+                    .fetch(r -> new ProcessRequirementsEntry(r.value1(),
+                            objectMapper.fromJSONB(r.value2()),
+                            r.value3(),
+                            r.value4(),
+                            r.value5(),
+                            r.value6(),
+                            r.value7() != null ? r.value7().longValue() : null));
+        }
+    }
+
     // TODO move to EventDao?
     public List<ProcessStatusHistoryEntry> getHistory(ProcessKey processKey) {
         try (DSLContext tx = DSL.using(cfg)) {
@@ -20,15 +20,19 @@ package com.walmartlabs.concord.server.process.queue;
  * =====
  */
 
+import com.google.common.collect.ImmutableSet;
+import com.walmartlabs.concord.db.AfterCommit;
 import com.walmartlabs.concord.imports.Imports;
 import com.walmartlabs.concord.sdk.Constants;
 import com.walmartlabs.concord.sdk.EventType;
 import com.walmartlabs.concord.server.ConcordObjectMapper;
 import com.walmartlabs.concord.server.RequestId;
+import com.walmartlabs.concord.server.cfg.ProcessConfiguration;
 import com.walmartlabs.concord.server.process.*;
 import com.walmartlabs.concord.server.process.event.ProcessEventManager;
 import com.walmartlabs.concord.server.sdk.ProcessStatus;
 import com.walmartlabs.concord.server.sdk.events.ProcessEvent;
+import com.walmartlabs.concord.server.security.AuthenticationCache;
 import org.jooq.DSLContext;
 
 import javax.inject.Inject;
@@ -41,21 +45,39 @@ import java.util.*;
 @Named
 public class ProcessQueueManager {
 
+    private static final Set<ProcessStatus> FINAL_STATUSES = ImmutableSet.of(
+            ProcessStatus.FINISHED,
+            ProcessStatus.FAILED,
+            ProcessStatus.CANCELLED,
+            ProcessStatus.TIMED_OUT);
+
     private final ProcessQueueDao queueDao;
     private final ConcordObjectMapper objectMapper;
     private final ProcessKeyCache keyCache;
     private final ProcessEventManager eventManager;
+    private final AuthenticationCache authCache;
+    private final ProcessStatusNotifier statusNotifier;
+    private final ProcessWaitIndex waitIndex;
+    private final boolean statusNotifications;
 
     @Inject
-    public ProcessQueueManager(ProcessQueueDao queueDao,
+    public ProcessQueueManager(ProcessConfiguration processCfg,
+                               ProcessQueueDao queueDao,
                                ConcordObjectMapper objectMapper,
                                ProcessKeyCache keyCache,
-                               ProcessEventManager eventManager) {
+                               ProcessEventManager eventManager,
+                               AuthenticationCache authCache,
+                               ProcessStatusNotifier statusNotifier,
+                               ProcessWaitIndex waitIndex) {
 
         this.queueDao = queueDao;
         this.eventManager = eventManager;
         this.objectMapper = objectMapper;
         this.keyCache = keyCache;
+        this.authCache = authCache;
+        this.statusNotifier = statusNotifier;
+        this.waitIndex = waitIndex;
+        this.statusNotifications = processCfg.isStatusNotifications();
     }
 
     /**
@@ -78,6 +100,24 @@ public class ProcessQueueManager {
         });
     }
 
+    /**
+     * Creates the initial queue records for the specified processes. All records
+     * share the process payload's attributes.
+     */
+    public void insert(DSLContext tx, List<ProcessKey> processKeys, Payload payload, ProcessStatus status) {
+        ProcessKind kind = payload.getHeader(Payload.PROCESS_KIND, ProcessKind.DEFAULT);
+        UUID projectId = payload.getHeader(Payload.PROJECT_ID);
+        UUID repoId = payload.getHeader(Payload.REPOSITORY_ID);
+        UUID parentInstanceId = payload.getHeader(Payload.PARENT_INSTANCE_ID);
+        UUID initiatorId = payload.getHeader(Payload.INITIATOR_ID);
+        Map<String, Object> cfg = getCfg(payload);
+        Map<String, Object> meta = getMeta(cfg);
+        TriggeredByEntry triggeredBy = payload.getHeader(Payload.TRIGGERED_BY);
+
+        queueDao.insert(tx, processKeys, status, kind, parentInstanceId, projectId, repoId, initiatorId, meta, triggeredBy);
+        eventManager.insertStatusHistory(tx, processKeys, status);
+    }
+
     /**
      * Updates the existing record, moving the process into the ENQUEUED status.
      */
@@ -135,6 +175,7 @@ public class ProcessQueueManager {
     public void updateStatus(DSLContext tx, ProcessKey processKey, ProcessStatus status, Map<String, Object> statusPayload) {
         queueDao.updateStatus(tx, processKey, status);
         eventManager.insertStatusHistory(tx, processKey, status, statusPayload);
+        onStatusChange(tx, processKey, status);
     }
 
     /**
@@ -146,6 +187,7 @@ public class ProcessQueueManager {
         return queueDao.txResult(tx -> {
             boolean success = queueDao.updateStatus(tx, processKey, expected, status);
             eventManager.insertStatusHistory(tx, processKey, status, Collections.emptyMap());
+            onStatusChange(tx, processKey, status);
             return success;
         });
     }
@@ -160,6 +202,7 @@ public class ProcessQueueManager {
         return queueDao.txResult(tx -> {
             boolean success = queueDao.updateStatus(processKeys, expected, status);
             eventManager.insertStatusHistory(tx, processKeys, status);
+            processKeys.forEach(k -> onStatusChange(tx, k, status));
             return success;
         });
     }
@@ -177,6 +220,7 @@ public class ProcessQueueManager {
     public void updateAgentId(DSLContext tx, ProcessKey processKey, String agentId, ProcessStatus status) {
         queueDao.updateAgentId(tx, processKey, agentId, status);
         eventManager.insertStatusHistory(tx, processKey, status, Collections.emptyMap());
+        onStatusChange(tx, processKey, status);
     }
 
     /**
@@ -191,6 +235,7 @@ public class ProcessQueueManager {
      */
     public void updateWait(DSLContext tx, ProcessKey processKey, AbstractWaitCondition wait) {
         queueDao.updateWait(tx, processKey, wait);
+        waitIndex.register(processKey.getInstanceId(), wait);
 
         Map<String, Object> eventData = objectMapper.convertToMap(wait != null ? wait : new NoneCondition());
         ProcessEvent e = new ProcessEvent(processKey, EventType.PROCESS_WAIT.name(), null, eventData);
@@ -259,4 +304,22 @@ public class ProcessQueueManager {
 
         throw new IllegalArgumentException("Invalid '" + Constants.Request.PROCESS_TIMEOUT + "' value: expected an ISO-8601 value, got: " + processTimeout);
     }
+
+    private void onStatusChange(DSLContext tx, ProcessKey processKey, ProcessStatus status) {
+        if (FINAL_STATUSES.contains(status)) {
+            // finished processes can't use their session keys anymore
+            // invalidate once the change is committed, otherwise the session might be cached again
+            // by a concurrent request that still sees the old status
+            AfterCommit.run(tx, () -> authCache.invalidateSession(processKey.getInstanceId()));
+
+            // wake up the waiters on all server instances once the change is committed
+            if (statusNotifications) {
+                queueDao.notifyStatus(tx, processKey.getInstanceId(), status);
+            }
+        }
+
+        // the listeners re-check the processes, they must see the new status
+        AfterCommit.run(tx, () -> statusNotifier.onStatusChange(processKey.getInstanceId(), status));
+    }
+
 }
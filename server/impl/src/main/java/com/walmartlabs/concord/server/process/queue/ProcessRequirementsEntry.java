@@ -0,0 +1,128 @@
+package com.walmartlabs.concord.server.process.queue;
+
+/*-
+ * *****
+ * Concord
+ * -----
+ * Copyright (C) 2017 - 2020 Walmart Inc.
+ * -----
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * =====
+ */
+
+import com.fasterxml.jackson.annotation.JsonCreator;
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.annotation.JsonInclude.Include;
+import com.fasterxml.jackson.annotation.JsonProperty;
+
+import java.io.Serializable;
+import java.util.Map;
+
+/**
+ * Number of processes with the same agent requirements. Optionally,
+ * includes the statistics for the recent period.
+ */
+@JsonInclude(Include.NON_NULL)
+public class ProcessRequirementsEntry implements Serializable {
+
+    private final String fingerprint;
+    private final Map<String, Object> requirements;
+    private final int count;
+    private final Integer running;
+    private final Integer arrived;
+    private final Integer finished;
+    private final Long avgDuration;
+
+    public ProcessRequirementsEntry(String fingerprint, Map<String, Object> requirements, int count) {
+        this(fingerprint, requirements, count, null, null, null, null);
+    }
+
+    @JsonCreator
+    public ProcessRequirementsEntry(@JsonProperty("fingerprint") String fingerprint,
+                                    @JsonProperty("requirements") Map<String, Object> requirements,
+                                    @JsonProperty("count") int count,
+                                    @JsonProperty("running") Integer running,
+                                    @JsonProperty("arrived") Integer arrived,
+                                    @JsonProperty("finished") Integer finished,
+                                    @JsonProperty("avgDuration") Long avgDuration) {
+
+        this.fingerprint = fingerprint;
+        this.requirements = requirements;
+        this.count = count;
+        this.running = running;
+        this.arrived = arrived;
+        this.finished = finished;
+        this.avgDuration = avgDuration;
+    }
+
+    /**
+     * @return hash of the requirements or {@code null} if the processes
+     * have no requirements
+     */
+    public String getFingerprint() {
+        return fingerprint;
+    }
+
+    public Map<String, Object> getRequirements() {
+        return requirements;
+    }
+
+    /**
+     * @return number of processes in the requested status
+     */
+    public int getCount() {
+        return count;
+    }
+
+    /**
+     * @return number of RUNNING processes
+     */
+    public Integer getRunning() {
+        return running;
+    }
+
+    /**
+     * @return number of processes created during the period
+     */
+    public Integer getArrived() {
+        return arrived;
+    }
+
+    /**
+     * @return number of processes finished (successfully or not) during
+     * the period
+     */
+    public Integer getFinished() {
+        return finished;
+    }
+
+    /**
+     * @return average run time of the processes finished during the period (ms)
+     */
+    public Long getAvgDuration() {
+        return avgDuration;
+    }
+
+    @Override
+    public String toString() {
+        return "ProcessRequirementsEntry{" +
+                "fingerprint='" + fingerprint + '\'' +
+                ", requirements=" + requirements +
+                ", count=" + count +
+                ", running=" + running +
+                ", arrived=" + arrived +
+                ", finished=" + finished +
+                ", avgDuration=" + avgDuration +
+                '}';
+    }
+}
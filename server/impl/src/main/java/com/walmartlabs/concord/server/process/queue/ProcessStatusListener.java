@@ -0,0 +1,255 @@
+package com.walmartlabs.concord.server.process.queue;
+
+/*-
+ * *****
+ * Concord
+ * -----
+ * Copyright (C) 2017 - 2020 Walmart Inc.
+ * -----
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * =====
+ */
+
+import com.codahale.metrics.Meter;
+import com.codahale.metrics.MetricRegistry;
+import com.walmartlabs.concord.db.MainDB;
+import com.walmartlabs.concord.server.cfg.ProcessConfiguration;
+import com.walmartlabs.concord.server.jooq.enums.ProcessLockScope;
+import com.walmartlabs.concord.server.org.triggers.TriggerIndex;
+import com.walmartlabs.concord.server.sdk.BackgroundTask;
+import com.walmartlabs.concord.server.sdk.ProcessStatus;
+import org.postgresql.PGConnection;
+import org.postgresql.PGNotification;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.inject.Inject;
+import javax.inject.Named;
+import javax.inject.Singleton;
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.Statement;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Receives the process status, lock release and trigger change notifications sent by all
+ * server instances (see {@link ProcessQueueDao#notifyStatus},
+ * {@link com.walmartlabs.concord.server.process.locks.ProcessLocksDao#notifyReleased} and
+ * {@link TriggerIndex#refresh(UUID)}) and passes them to the {@link ProcessStatusNotifier},
+ * the {@link ProcessWaitIndex} and the {@link TriggerIndex}.
+ * The process status and lock notifications are received only if {@code process.statusNotifications}
+ * are enabled, the trigger change notifications are always received.
+ * Uses a dedicated DB connection.
+ */
+@Named
+@Singleton
+public class ProcessStatusListener implements BackgroundTask {
+
+    private static final Logger log = LoggerFactory.getLogger(ProcessStatusListener.class);
+
+    public static final String CHANNEL = "concord_process_status";
+    public static final String LOCKS_CHANNEL = "concord_process_locks";
+    public static final String TRIGGERS_CHANNEL = "concord_triggers";
+
+    private static final int POLL_TIMEOUT = (int) TimeUnit.SECONDS.toMillis(1);
+    private static final long ERROR_DELAY = TimeUnit.SECONDS.toMillis(5);
+    private static final long STOP_TIMEOUT = TimeUnit.SECONDS.toMillis(10);
+
+    private final DataSource dataSource;
+    private final ProcessStatusNotifier statusNotifier;
+    private final ProcessWaitIndex waitIndex;
+    private final TriggerIndex triggerIndex;
+    private final boolean statusNotifications;
+
+    private final Meter received;
+
+    private volatile boolean running;
+    private Thread worker;
+
+    @Inject
+    public ProcessStatusListener(@MainDB DataSource dataSource,
+                                 ProcessConfiguration processCfg,
+                                 ProcessStatusNotifier statusNotifier,
+                                 ProcessWaitIndex waitIndex,
+                                 TriggerIndex triggerIndex,
+                                 MetricRegistry metricRegistry) {
+
+        this.dataSource = dataSource;
+        this.statusNotifier = statusNotifier;
+        this.waitIndex = waitIndex;
+        this.triggerIndex = triggerIndex;
+        this.statusNotifications = processCfg.isStatusNotifications();
+
+        this.received = metricRegistry.meter("process-status-notifications");
+    }
+
+    @Override
+    public void start() {
+        if (!statusNotifications) {
+            log.info("start -> process status notifications are disabled, only the trigger changes are received");
+        }
+
+        this.running = true;
+        this.worker = new Thread(this::run, "process-status-listener");
+        this.worker.setDaemon(true);
+        this.worker.start();
+    }
+
+    @Override
+    public void stop() {
+        if (worker == null) {
+            return;
+        }
+
+        this.running = false;
+
+        try {
+            worker.join(STOP_TIMEOUT);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        worker = null;
+
+        log.info("stop -> done");
+    }
+
+    static String payload(UUID instanceId, ProcessStatus status) {
+        return instanceId + ":" + status;
+    }
+
+    public static String lockPayload(ProcessLockScope scope, UUID scopeId, String lockName) {
+        return scope + ":" + scopeId + ":" + lockName;
+    }
+
+    private void run() {
+        while (running) {
+            try (Connection conn = dataSource.getConnection()) {
+                listen(conn);
+            } catch (Exception e) {
+                if (!running) {
+                    break;
+                }
+
+                log.warn("run -> error while receiving notifications, reconnecting in {}ms: {}", ERROR_DELAY, e.getMessage());
+
+                try {
+                    Thread.sleep(ERROR_DELAY);
+                } catch (InterruptedException ie) {
+                    Thread.currentThread().interrupt();
+                    break;
+                }
+            }
+        }
+    }
+
+    private void listen(Connection conn) throws Exception {
+        conn.setAutoCommit(true);
+        List<String> channels = statusNotifications ? Arrays.asList(CHANNEL, LOCKS_CHANNEL, TRIGGERS_CHANNEL) : Collections.singletonList(TRIGGERS_CHANNEL);
+        try (Statement st = conn.createStatement()) {
+            for (String c : channels) {
+                st.execute("LISTEN " + c);
+            }
+        }
+
+        log.info("listen -> waiting for notifications on {}", channels);
+
+        // anything sent while we weren't listening is lost
+        if (statusNotifications) {
+            statusNotifier.onResync();
+        }
+        triggerIndex.onResync();
+
+        PGConnection pgConn = conn.unwrap(PGConnection.class);
+        try {
+            while (running) {
+                PGNotification[] notifications = pgConn.getNotifications(POLL_TIMEOUT);
+                if (notifications == null) {
+                    continue;
+                }
+
+                for (PGNotification n : notifications) {
+                    received.mark();
+                    if (LOCKS_CHANNEL.equals(n.getName())) {
+                        onLockNotification(n.getParameter());
+                    } else if (TRIGGERS_CHANNEL.equals(n.getName())) {
+                        onTriggersNotification(n.getParameter());
+                    } else {
+                        onNotification(n.getParameter());
+                    }
+                }
+            }
+        } finally {
+            try (Statement st = conn.createStatement()) {
+                st.execute("UNLISTEN *");
+            } catch (Exception e) {
+                log.warn("listen -> error while unsubscribing: {}", e.getMessage());
+            }
+        }
+    }
+
+    private void onNotification(String payload) {
+        int idx = payload.indexOf(':');
+        if (idx <= 0) {
+            log.warn("onNotification -> invalid payload: {}", payload);
+            return;
+        }
+
+        UUID instanceId;
+        ProcessStatus status;
+        try {
+            instanceId = UUID.fromString(payload.substring(0, idx));
+            status = ProcessStatus.valueOf(payload.substring(idx + 1));
+        } catch (IllegalArgumentException e) {
+            log.warn("onNotification -> invalid payload: {}", payload);
+            return;
+        }
+
+        statusNotifier.onStatusChange(instanceId, status);
+    }
+
+    private void onLockNotification(String payload) {
+        String[] parts = payload.split(":", 3);
+        if (parts.length != 3) {
+            log.warn("onLockNotification -> invalid payload: {}", payload);
+            return;
+        }
+
+        ProcessLockScope scope;
+        UUID scopeId;
+        try {
+            scope = ProcessLockScope.valueOf(parts[0]);
+            scopeId = UUID.fromString(parts[1]);
+        } catch (IllegalArgumentException e) {
+            log.warn("onLockNotification -> invalid payload: {}", payload);
+            return;
+        }
+
+        waitIndex.onLockReleased(scope, scopeId, parts[2]);
+    }
+
+    private void onTriggersNotification(String payload) {
+        UUID repoId;
+        try {
+            repoId = UUID.fromString(payload);
+        } catch (IllegalArgumentException e) {
+            log.warn("onTriggersNotification -> invalid payload: {}", payload);
+            return;
+        }
+
+        triggerIndex.onRemoteChange(repoId);
+    }
+}
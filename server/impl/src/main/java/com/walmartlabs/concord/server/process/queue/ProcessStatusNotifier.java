@@ -0,0 +1,167 @@
+package com.walmartlabs.concord.server.process.queue;
+
+/*-
+ * *****
+ * Concord
+ * -----
+ * Copyright (C) 2017 - 2020 Walmart Inc.
+ * -----
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * =====
+ */
+
+import com.codahale.metrics.Gauge;
+import com.codahale.metrics.MetricRegistry;
+import com.walmartlabs.concord.server.sdk.ProcessStatus;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.inject.Inject;
+import javax.inject.Named;
+import javax.inject.Singleton;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Notifies the subscribers about process status changes. Changes made by
+ * the current server instance are delivered immediately, possibly before
+ * the change is committed. Final statuses are additionally delivered after
+ * the commit, on all server instances, if {@link ProcessStatusListener}
+ * is enabled. Otherwise the subscribers must re-check the status periodically.
+ */
+@Named
+@Singleton
+public class ProcessStatusNotifier {
+
+    private static final Logger log = LoggerFactory.getLogger(ProcessStatusNotifier.class);
+
+    private final Map<UUID, Set<Subscription>> subscriptions = new ConcurrentHashMap<>();
+    private final List<Listener> globalListeners = new CopyOnWriteArrayList<>();
+    private final AtomicInteger subscriptionCount = new AtomicInteger();
+
+    @Inject
+    public ProcessStatusNotifier(MetricRegistry metricRegistry) {
+        metricRegistry.register("process-status-subscriptions", (Gauge<Integer>) subscriptionCount::get);
+    }
+
+    /**
+     * Subscribes to status changes of the specified processes.
+     * The returned subscription must be closed.
+     */
+    public Subscription subscribe(Collection<UUID> instanceIds, Listener listener) {
+        Subscription s = new Subscription(new HashSet<>(instanceIds), listener);
+        for (UUID id : s.instanceIds) {
+            subscriptions.computeIfAbsent(id, k -> ConcurrentHashMap.newKeySet()).add(s);
+        }
+        subscriptionCount.incrementAndGet();
+        return s;
+    }
+
+    /**
+     * Adds a listener that receives status changes of all processes.
+     * The listener must not block.
+     */
+    public void addListener(Listener listener) {
+        globalListeners.add(listener);
+    }
+
+    public void onStatusChange(UUID instanceId, ProcessStatus status) {
+        for (Listener l : globalListeners) {
+            try {
+                l.onStatusChange(instanceId, status);
+            } catch (Exception e) {
+                log.warn("onStatusChange ['{}', {}] -> listener error: {}", instanceId, status, e.getMessage(), e);
+            }
+        }
+
+        Set<Subscription> l = subscriptions.get(instanceId);
+        if (l == null) {
+            return;
+        }
+
+        for (Subscription s : l) {
+            try {
+                s.listener.onStatusChange(instanceId, status);
+            } catch (Exception e) {
+                log.warn("onStatusChange ['{}', {}] -> listener error: {}", instanceId, status, e.getMessage(), e);
+            }
+        }
+    }
+
+    /**
+     * Called when some notifications might have been missed
+     * (e.g. after a DB connection error). The subscribers should re-check
+     * the statuses.
+     */
+    public void onResync() {
+        for (Listener l : globalListeners) {
+            try {
+                l.onResync();
+            } catch (Exception e) {
+                log.warn("onResync -> listener error: {}", e.getMessage(), e);
+            }
+        }
+
+        Set<Subscription> all = new HashSet<>();
+        subscriptions.values().forEach(all::addAll);
+
+        for (Subscription s : all) {
+            try {
+                s.listener.onResync();
+            } catch (Exception e) {
+                log.warn("onResync -> listener error: {}", e.getMessage(), e);
+            }
+        }
+    }
+
+    private void unsubscribe(Subscription s) {
+        for (UUID id : s.instanceIds) {
+            subscriptions.computeIfPresent(id, (k, v) -> {
+                v.remove(s);
+                return v.isEmpty() ? null : v;
+            });
+        }
+        subscriptionCount.decrementAndGet();
+    }
+
+    public interface Listener {
+
+        void onStatusChange(UUID instanceId, ProcessStatus status);
+
+        default void onResync() {
+        }
+    }
+
+    public final class Subscription implements AutoCloseable {
+
+        private final Set<UUID> instanceIds;
+        private final Listener listener;
+        private boolean closed;
+
+        private Subscription(Set<UUID> instanceIds, Listener listener) {
+            this.instanceIds = instanceIds;
+            this.listener = listener;
+        }
+
+        @Override
+        public synchronized void close() {
+            if (closed) {
+                return;
+            }
+            closed = true;
+            unsubscribe(this);
+        }
+    }
+}
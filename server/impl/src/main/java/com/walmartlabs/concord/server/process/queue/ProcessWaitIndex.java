@@ -0,0 +1,308 @@
+package com.walmartlabs.concord.server.process.queue;
+
+/*-
+ * *****
+ * Concord
+ * -----
+ * Copyright (C) 2017 - 2020 Walmart Inc.
+ * -----
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * =====
+ */
+
+import com.codahale.metrics.Gauge;
+import com.codahale.metrics.MetricRegistry;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import com.walmartlabs.concord.server.cfg.ProcessConfiguration;
+import com.walmartlabs.concord.server.jooq.enums.ProcessLockScope;
+import com.walmartlabs.concord.server.sdk.ProcessStatus;
+
+import javax.inject.Inject;
+import javax.inject.Named;
+import javax.inject.Singleton;
+import java.util.*;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+/**
+ * In-memory index of the processes with wait conditions, keyed by the awaited
+ * resource: processes, locks and sleep deadlines. Allows {@link ProcessWaitWatchdog}
+ * to re-check exactly the affected processes as soon as the awaited resource changes.
+ * <p>
+ * The index is local to the server instance and contains only the wait conditions
+ * seen by this instance. The watchdog's periodic scan fills in the rest and re-checks
+ * the entries that weren't checked recently (see {@link #isFresh(UUID, long)}).
+ * Changes made by other server instances are received only if
+ * {@code process.statusNotifications} is enabled, otherwise the process completion
+ * and lock wait conditions are never considered fresh.
+ */
+@Named
+@Singleton
+public class ProcessWaitIndex {
+
+    private static final Set<ProcessStatus> FINAL_STATUSES = EnumSet.of(
+            ProcessStatus.FINISHED,
+            ProcessStatus.FAILED,
+            ProcessStatus.CANCELLED,
+            ProcessStatus.TIMED_OUT);
+
+    private final Map<UUID, Set<UUID>> processWaiters = new HashMap<>();
+    private final Map<String, Set<UUID>> lockWaiters = new HashMap<>();
+    private final Map<UUID, Registration> registrations = new HashMap<>();
+
+    private final ScheduledExecutorService timer;
+
+    private final boolean notificationsEnabled;
+
+    private volatile Consumer<UUID> listener;
+
+    @Inject
+    public ProcessWaitIndex(ProcessConfiguration processCfg, ProcessStatusNotifier statusNotifier, MetricRegistry metricRegistry) {
+        this.notificationsEnabled = processCfg.isStatusNotifications();
+        this.timer = Executors.newSingleThreadScheduledExecutor(new ThreadFactoryBuilder()
+                .setNameFormat("process-wait-timer-%d")
+                .setDaemon(true)
+                .build());
+
+        statusNotifier.addListener(new ProcessStatusNotifier.Listener() {
+            @Override
+            public void onStatusChange(UUID instanceId, ProcessStatus status) {
+                ProcessWaitIndex.this.onStatusChange(instanceId, status);
+            }
+
+            @Override
+            public void onResync() {
+                ProcessWaitIndex.this.onResync();
+            }
+        });
+        metricRegistry.register("process-wait-index-size", (Gauge<Integer>) this::size);
+    }
+
+    /**
+     * Sets the receiver of the wake-up calls. Must not block.
+     */
+    public void setListener(Consumer<UUID> listener) {
+        this.listener = listener;
+    }
+
+    /**
+     * Replaces the wait condition of the specified process.
+     * {@code null} removes the process from the index.
+     */
+    public void register(UUID instanceId, AbstractWaitCondition wait) {
+        synchronized (this) {
+            remove(instanceId);
+
+            if (wait == null) {
+                return;
+            }
+
+            Registration r = new Registration(System.currentTimeMillis());
+            switch (wait.type()) {
+                case PROCESS_COMPLETION: {
+                    r.processes = new HashSet<>(((ProcessCompletionCondition) wait).processes());
+                    for (UUID id : r.processes) {
+                        processWaiters.computeIfAbsent(id, k -> new HashSet<>()).add(instanceId);
+                    }
+                    break;
+                }
+                case PROCESS_LOCK: {
+                    ProcessLockCondition l = (ProcessLockCondition) wait;
+                    r.lock = lockKey(l.scope(), scopeId(l.scope(), l.orgId(), l.projectId()), l.name());
+                    lockWaiters.computeIfAbsent(r.lock, k -> new HashSet<>()).add(instanceId);
+                    break;
+                }
+                case PROCESS_SLEEP: {
+                    long delay = ((ProcessSleepCondition) wait).until().getTime() - System.currentTimeMillis();
+                    r.sleep = timer.schedule(() -> wakeUp(instanceId), Math.max(0, delay), TimeUnit.MILLISECONDS);
+                    break;
+                }
+                default: {
+                    // handled by the periodic scan only
+                    return;
+                }
+            }
+
+            registrations.put(instanceId, r);
+        }
+    }
+
+    /**
+     * Wakes up the processes waiting for the specified lock.
+     *
+     * @param scopeId ID of the lock's organization or project, depending on the scope
+     * @see #scopeId(ProcessLockScope, UUID, UUID)
+     */
+    public void onLockReleased(ProcessLockScope scope, UUID scopeId, String lockName) {
+        List<UUID> waiters;
+        synchronized (this) {
+            Set<UUID> s = lockWaiters.get(lockKey(scope, scopeId, lockName));
+            if (s == null) {
+                return;
+            }
+            waiters = new ArrayList<>(s);
+        }
+
+        waiters.forEach(this::wakeUp);
+    }
+
+    /**
+     * Marks the process' wait condition as checked.
+     */
+    public synchronized void markChecked(UUID instanceId) {
+        Registration r = registrations.get(instanceId);
+        if (r != null) {
+            r.checkedAt = System.currentTimeMillis();
+        }
+    }
+
+    /**
+     * @return {@code true} if the process is in the index, the index receives all changes
+     * of the awaited resource and the process was checked less than {@code maxAge} ms ago.
+     */
+    public synchronized boolean isFresh(UUID instanceId, long maxAge) {
+        Registration r = registrations.get(instanceId);
+        if (r == null) {
+            return false;
+        }
+
+        if (r.sleep == null && !notificationsEnabled) {
+            // changes made by other server instances are not received
+            return false;
+        }
+
+        return System.currentTimeMillis() - r.checkedAt < maxAge;
+    }
+
+    /**
+     * Removes the processes registered before {@code registeredBefore}
+     * that are not in the specified set. Used to remove the entries of the processes
+     * that were finished or resumed by other server instances.
+     *
+     * @return number of removed entries
+     */
+    public synchronized int retain(Set<UUID> instanceIds, long registeredBefore) {
+        List<UUID> toRemove = new ArrayList<>();
+        for (Map.Entry<UUID, Registration> e : registrations.entrySet()) {
+            if (e.getValue().registeredAt < registeredBefore && !instanceIds.contains(e.getKey())) {
+                toRemove.add(e.getKey());
+            }
+        }
+
+        toRemove.forEach(this::remove);
+        return toRemove.size();
+    }
+
+    public synchronized int size() {
+        return registrations.size();
+    }
+
+    private void onStatusChange(UUID instanceId, ProcessStatus status) {
+        List<UUID> waiters = new ArrayList<>();
+        synchronized (this) {
+            Set<UUID> s = processWaiters.get(instanceId);
+            if (s != null) {
+                waiters.addAll(s);
+            }
+
+            if (registrations.containsKey(instanceId)) {
+                if (FINAL_STATUSES.contains(status)) {
+                    remove(instanceId);
+                } else {
+                    // the wait conditions are handled only in certain statuses
+                    // (e.g. SUSPENDED), re-check the process when its status changes
+                    waiters.add(instanceId);
+                }
+            }
+        }
+
+        waiters.forEach(this::wakeUp);
+    }
+
+    private synchronized void onResync() {
+        // some of the changes might've been lost, the entries must be re-checked by the scan
+        registrations.values().forEach(r -> r.checkedAt = 0);
+    }
+
+    private void wakeUp(UUID instanceId) {
+        Consumer<UUID> l = listener;
+        if (l != null) {
+            l.accept(instanceId);
+        }
+    }
+
+    private void remove(UUID instanceId) {
+        Registration r = registrations.remove(instanceId);
+        if (r == null) {
+            return;
+        }
+
+        if (r.processes != null) {
+            for (UUID id : r.processes) {
+                removeFrom(processWaiters, id, instanceId);
+            }
+        }
+
+        if (r.lock != null) {
+            removeFrom(lockWaiters, r.lock, instanceId);
+        }
+
+        if (r.sleep != null) {
+            r.sleep.cancel(false);
+        }
+    }
+
+    private static <K> void removeFrom(Map<K, Set<UUID>> m, K key, UUID instanceId) {
+        Set<UUID> s = m.get(key);
+        if (s == null) {
+            return;
+        }
+
+        s.remove(instanceId);
+        if (s.isEmpty()) {
+            m.remove(key);
+        }
+    }
+
+    public static UUID scopeId(ProcessLockScope scope, UUID orgId, UUID projectId) {
+        switch (scope) {
+            case ORG:
+                return orgId;
+            case PROJECT:
+                return projectId;
+            default:
+                throw new IllegalArgumentException("unknown lock scope: " + scope);
+        }
+    }
+
+    private static String lockKey(ProcessLockScope scope, UUID scopeId, String lockName) {
+        return scope + "/" + scopeId + "/" + lockName;
+    }
+
+    private static final class Registration {
+
+        private final long registeredAt;
+        private long checkedAt;
+        private Set<UUID> processes;
+        private String lock;
+        private ScheduledFuture<?> sleep;
+
+        private Registration(long registeredAt) {
+            this.registeredAt = registeredAt;
+            this.checkedAt = registeredAt;
+        }
+    }
+}
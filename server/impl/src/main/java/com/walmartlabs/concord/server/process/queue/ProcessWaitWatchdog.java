@@ -20,6 +20,7 @@ package com.walmartlabs.concord.server.process.queue;
  * =====
  */
 
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
 import com.walmartlabs.concord.db.AbstractDao;
 import com.walmartlabs.concord.db.MainDB;
 import com.walmartlabs.concord.server.ConcordObjectMapper;
@@ -41,12 +42,23 @@ import javax.inject.Named;
 import javax.inject.Singleton;
 import java.sql.Timestamp;
 import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
 
 import static com.walmartlabs.concord.server.jooq.tables.ProcessQueue.PROCESS_QUEUE;
 
 /**
  * Takes care of processes with wait conditions.
  * E.g. waiting for other processes to finish, locking, etc.
+ * <p>
+ * The processes are re-checked as soon as {@link ProcessWaitIndex} reports
+ * a change of the awaited resource. The periodic scan is a safety net for
+ * the changes the index doesn't know about (e.g. made before the server's start
+ * or by other server instances). It re-checks only the processes that are not
+ * in the index or weren't checked recently.
  */
 @Named("process-wait-watchdog")
 @Singleton
@@ -60,24 +72,43 @@ public class ProcessWaitWatchdog implements ScheduledTask {
             ProcessStatus.CANCELLED,
             ProcessStatus.TIMED_OUT));
 
+    private static final int WORKER_THREADS = 2;
+    private static final long RETRY_DELAY = 1000;
+
+    // an arbitrary number, separates the wait locks from other advisory locks
+    private static final int LOCK_CLASS_ID = 0x57414954;
+
     private final ProcessWaitWatchdogConfiguration cfg;
     private final WatchdogDao dao;
     private final ProcessQueueManager queueManager;
     private final Map<WaitType, ProcessWaitHandler<AbstractWaitCondition>> processWaitHandlers;
+    private final ProcessWaitIndex waitIndex;
+
+    private final ScheduledExecutorService executor;
+    private final Set<UUID> pending = ConcurrentHashMap.newKeySet();
 
     @Inject
     @SuppressWarnings("unchecked")
     public ProcessWaitWatchdog(ProcessWaitWatchdogConfiguration cfg,
                                WatchdogDao dao,
                                ProcessQueueManager queueManager,
+                               ProcessWaitIndex waitIndex,
                                Set<ProcessWaitHandler> handlers) {
 
         this.cfg = cfg;
         this.dao = dao;
         this.queueManager = queueManager;
         this.processWaitHandlers = new HashMap<>();
+        this.waitIndex = waitIndex;
 
         handlers.forEach(h -> this.processWaitHandlers.put(h.getType(), h));
+
+        this.executor = Executors.newScheduledThreadPool(WORKER_THREADS, new ThreadFactoryBuilder()
+                .setNameFormat("process-wait-worker-%d")
+                .setDaemon(true)
+                .build());
+
+        waitIndex.setListener(this::wakeUp);
     }
 
     @Override
@@ -87,16 +118,69 @@ public class ProcessWaitWatchdog implements ScheduledTask {
 
     @Override
     public void performTask() {
+        long startedAt = System.currentTimeMillis();
+        long maxAge = TimeUnit.SECONDS.toMillis(cfg.getStaleAfter());
+
+        Set<UUID> seen = new HashSet<>();
         Timestamp lastUpdatedAt = null;
         while (true) {
             WaitingProcess p = dao.nextWaitItem(lastUpdatedAt, cfg.getPollLimit());
             if (p == null) {
-                return;
+                break;
             }
 
-            WaitType type = p.waits().type();
-            processHandler(type, p);
+            seen.add(p.instanceId());
             lastUpdatedAt = p.lastUpdatedAt();
+
+            if (waitIndex.isFresh(p.instanceId(), maxAge)) {
+                continue;
+            }
+
+            // the index might've missed the process, e.g. if the wait condition
+            // was added by another server instance
+            waitIndex.register(p.instanceId(), p.waits());
+
+            check(p.instanceId());
+        }
+
+        // the processes without wait conditions, e.g. finished or resumed by other server instances
+        int removed = waitIndex.retain(seen, startedAt);
+        if (removed > 0) {
+            log.debug("performTask -> removed {} entries from the index", removed);
+        }
+    }
+
+    /**
+     * Schedules a check of the process' wait conditions.
+     */
+    private void wakeUp(UUID instanceId) {
+        if (pending.add(instanceId)) {
+            executor.execute(() -> {
+                pending.remove(instanceId);
+                check(instanceId);
+            });
+        }
+    }
+
+    private void check(UUID instanceId) {
+        try {
+            // the same process can be woken up on multiple server instances,
+            // only one of them should handle it
+            boolean locked = dao.withLock(instanceId, p -> {
+                if (p == null) {
+                    // no wait conditions anymore
+                    waitIndex.register(instanceId, null);
+                    return;
+                }
+
+                processHandler(p.waits().type(), p);
+                waitIndex.markChecked(instanceId);
+            });
+            if (!locked) {
+                executor.schedule(() -> wakeUp(instanceId), RETRY_DELAY, TimeUnit.MILLISECONDS);
+            }
+        } catch (Exception e) {
+            log.warn("check ['{}'] -> error: {}", instanceId, e.getMessage());
         }
     }
 
@@ -156,6 +240,37 @@ public class ProcessWaitWatchdog implements ScheduledTask {
             this.objectMapper = objectMapper;
         }
 
+        /**
+         * Calls the handler with the current wait conditions of the process while
+         * holding an advisory lock. If the process has no wait conditions, the handler
+         * is called with {@code null}.
+         *
+         * @return {@code false} if the lock is held by someone else
+         */
+        public boolean withLock(UUID instanceId, Consumer<WaitingProcess> handler) {
+            return txResult(tx -> {
+                Boolean locked = (Boolean) tx.fetchValue("select pg_try_advisory_xact_lock(?, ?)", LOCK_CLASS_ID, instanceId.hashCode());
+                if (!Boolean.TRUE.equals(locked)) {
+                    return false;
+                }
+
+                ProcessQueue q = PROCESS_QUEUE.as("q");
+                WaitingProcess p = tx.select(
+                        q.INSTANCE_ID,
+                        q.CURRENT_STATUS,
+                        q.CREATED_AT,
+                        q.LAST_UPDATED_AT,
+                        q.WAIT_CONDITIONS)
+                        .from(q)
+                        .where(q.INSTANCE_ID.eq(instanceId)
+                                .and(q.WAIT_CONDITIONS.isNotNull()))
+                        .fetchOne(this::toWaitingProcess);
+
+                handler.accept(p);
+                return true;
+            });
+        }
+
         public WaitingProcess nextWaitItem(Timestamp lastUpdatedAt, int pollLimit) {
             return txResult(tx -> {
                 ProcessQueue q = PROCESS_QUEUE.as("q");
@@ -174,14 +289,18 @@ public class ProcessWaitWatchdog implements ScheduledTask {
 
                 return s.orderBy(q.LAST_UPDATED_AT)
                         .limit(pollLimit)
-                        .fetchOne(r -> WaitingProcess.builder()
-                                .instanceId(r.value1())
-                                .status(ProcessStatus.valueOf(r.value2()))
-                                .instanceCreatedAt(r.value3())
-                                .lastUpdatedAt(r.value4())
-                                .waits(objectMapper.fromJSONB(r.value5(), AbstractWaitCondition.class))
-                                .build());
+                        .fetchOne(this::toWaitingProcess);
             });
         }
+
+        private WaitingProcess toWaitingProcess(Record5<UUID, String, Timestamp, Timestamp, JSONB> r) {
+            return WaitingProcess.builder()
+                    .instanceId(r.value1())
+                    .status(ProcessStatus.valueOf(r.value2()))
+                    .instanceCreatedAt(r.value3())
+                    .lastUpdatedAt(r.value4())
+                    .waits(objectMapper.fromJSONB(r.value5(), AbstractWaitCondition.class))
+                    .build();
+        }
     }
 }
@@ -24,15 +24,12 @@ import com.google.common.collect.ImmutableSet;
 import com.walmartlabs.concord.policyengine.CheckResult;
 import com.walmartlabs.concord.policyengine.ConcurrentProcessRule;
 import com.walmartlabs.concord.policyengine.PolicyEngine;
-import com.walmartlabs.concord.server.jooq.tables.ProcessQueue;
-import com.walmartlabs.concord.server.jooq.tables.Projects;
 import com.walmartlabs.concord.server.policy.PolicyManager;
 import com.walmartlabs.concord.server.process.queue.ProcessCompletionCondition;
 import com.walmartlabs.concord.server.process.queue.ProcessQueueEntry;
 import com.walmartlabs.concord.server.process.queue.ProcessQueueManager;
 import com.walmartlabs.concord.server.sdk.ProcessStatus;
 import org.jooq.DSLContext;
-import org.jooq.Record1;
 
 import javax.inject.Inject;
 import javax.inject.Named;
@@ -46,11 +43,6 @@ import java.util.*;
 @Named
 public class ConcurrentProcessFilter extends WaitProcessFinishFilter {
 
-    private static final List<ProcessStatus> RUNNING_PROCESS_STATUSES = Arrays.asList(
-            ProcessStatus.STARTING,
-            ProcessStatus.RUNNING,
-            ProcessStatus.RESUMING);
-
     private static final Set<ProcessStatus> FINAL_STATUSES = ImmutableSet.of(
             ProcessStatus.SUSPENDED,
             ProcessStatus.FINISHED,
@@ -67,15 +59,15 @@ public class ConcurrentProcessFilter extends WaitProcessFinishFilter {
     }
 
     @Override
-    protected List<UUID> findProcess(DSLContext tx, ProcessQueueEntry item) {
+    protected List<UUID> findProcess(DSLContext tx, RunningProcesses running, ProcessQueueEntry item) {
         PolicyEngine pe = getPolicyEngine(item.orgId(), item.projectId(), item.initiatorId(), item.parentInstanceId());
         if (pe == null) {
             return Collections.emptyList();
         }
 
         CheckResult<ConcurrentProcessRule, List<UUID>> result = pe.getConcurrentProcessPolicy().check(
-                () -> processesPerOrg(tx, item.orgId()),
-                () -> processesPerProject(tx, item.projectId()));
+                () -> running.getByOrg(item.orgId()),
+                () -> running.getByProject(item.projectId()));
 
         if (result.getDeny().isEmpty()) {
             return Collections.emptyList();
@@ -110,24 +102,4 @@ public class ConcurrentProcessFilter extends WaitProcessFinishFilter {
 
         return policyManager.get(orgId, prjId, userId);
     }
-
-    private List<UUID> processesPerOrg(DSLContext tx, UUID orgId) {
-        ProcessQueue q = ProcessQueue.PROCESS_QUEUE.as("q");
-        Projects p = Projects.PROJECTS.as("p");
-        return tx.select(q.INSTANCE_ID)
-                .from(q)
-                .innerJoin(p).on(q.PROJECT_ID.eq(p.PROJECT_ID))
-                .where(p.ORG_ID.eq(orgId)
-                        .and(q.CURRENT_STATUS.in(RUNNING_PROCESS_STATUSES)))
-                .fetch(Record1::value1);
-    }
-
-    private List<UUID> processesPerProject(DSLContext tx, UUID projectId) {
-        ProcessQueue q = ProcessQueue.PROCESS_QUEUE.as("q");
-        return tx.select(q.INSTANCE_ID)
-                .from(q)
-                .where(q.PROJECT_ID.eq(projectId)
-                        .and(q.CURRENT_STATUS.in(RUNNING_PROCESS_STATUSES)))
-                .fetch(Record1::value1);
-    }
 }
@@ -23,7 +23,9 @@ package com.walmartlabs.concord.server.process.queue.dispatcher;
 import com.codahale.metrics.Histogram;
 import com.codahale.metrics.MetricRegistry;
 import com.codahale.metrics.Timer;
-import com.walmartlabs.concord.common.MapMatcher;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.walmartlabs.concord.common.CompiledMapMatcher;
 import com.walmartlabs.concord.db.AbstractDao;
 import com.walmartlabs.concord.db.MainDB;
 import com.walmartlabs.concord.imports.Imports;
@@ -32,6 +34,7 @@ import com.walmartlabs.concord.server.Locks;
 import com.walmartlabs.concord.server.PeriodicTask;
 import com.walmartlabs.concord.server.cfg.ProcessQueueConfiguration;
 import com.walmartlabs.concord.server.jooq.tables.ProcessQueue;
+import com.walmartlabs.concord.server.jooq.tables.Projects;
 import com.walmartlabs.concord.server.process.ImportsNormalizerFactory;
 import com.walmartlabs.concord.server.process.ProcessKey;
 import com.walmartlabs.concord.server.process.logs.ProcessLogManager;
@@ -54,9 +57,11 @@ import javax.inject.Named;
 import javax.inject.Singleton;
 import java.sql.Timestamp;
 import java.util.*;
+import java.util.concurrent.ExecutionException;
 import java.util.concurrent.TimeUnit;
 import java.util.stream.Collectors;
 
+import static com.walmartlabs.concord.db.PgUtils.jsonbText;
 import static com.walmartlabs.concord.server.jooq.tables.Organizations.ORGANIZATIONS;
 import static com.walmartlabs.concord.server.jooq.tables.ProcessQueue.PROCESS_QUEUE;
 import static com.walmartlabs.concord.server.jooq.tables.Projects.PROJECTS;
@@ -76,6 +81,7 @@ public class Dispatcher extends PeriodicTask {
 
     private static final long ERROR_DELAY = TimeUnit.SECONDS.toMillis(30);
     private static final long LOCK_KEY = 1552468327245L;
+    private static final int MATCHER_CACHE_SIZE = 1000;
 
     private final Locks locks;
     private final DispatcherDao dao;
@@ -91,6 +97,12 @@ public class Dispatcher extends PeriodicTask {
     private final Histogram dispatchedCountHistogram;
     private final Timer responseTimer;
 
+    // agent requirements -> compiled matcher
+    // the same requirements are typically shared by many processes
+    private final Cache<Map<String, Object>, CompiledMapMatcher> matchers = CacheBuilder.newBuilder()
+            .maximumSize(MATCHER_CACHE_SIZE)
+            .build();
+
     @Inject
     public Dispatcher(Locks locks,
                       DispatcherDao dao,
@@ -159,7 +171,7 @@ public class Dispatcher extends PeriodicTask {
         List<Request> inbox = new ArrayList<>(requests);
 
         int offset = 0;
-        Set<UUID> projectsToSkip = new HashSet<>();
+        RunningProcesses running = new RunningProcesses(tx, dao);
 
         List<Match> matches;
         while (true) {
@@ -181,31 +193,22 @@ public class Dispatcher extends PeriodicTask {
                     continue;
                 }
 
-                // see below
-                if (projectsToSkip.contains(e.projectId())) {
-                    it.remove();
-                    continue;
-                }
-
-                if (!pass(tx, e)) {
+                if (!pass(tx, running, e)) {
                     // the candidate didn't pass the filter or can't lock the queue
-                    // skip to the next candidate (of a different project)
                     it.remove();
+                    continue;
                 }
 
-                // only one process per project can be dispatched at the time, currently the filters are not
-                // designed to run multiple times per dispatch "tick"
-
-                // TODO
-                // this can be improved if filters accepted a list of candidates and returned a list of
-                // those who passed. However, statistically each batch of candidates contains unique project IDs
-                // so "multi-entry" filters are less effective and just complicate things
-                // in the future we might need to consider batching up candidates by project IDs and using sharded
-                // locks
-                projectsToSkip.add(e.projectId());
+                // count the candidate as running, so the next candidates of the same
+                // project or organization are checked against the updated numbers
+                running.reserve(e);
             }
 
             matches = match(inbox, candidates);
+
+            // the matched candidates are removed from the list, the rest weren't dispatched
+            candidates.forEach(running::release);
+
             if (matches.isEmpty()) {
                 // no matches, try fetching the next N records
                 offset += batchSize;
@@ -260,7 +263,7 @@ public class Dispatcher extends PeriodicTask {
             }
 
             Map<String, Object> m = (Map<String, Object>) requirements.getOrDefault("agent", Collections.emptyMap());
-            if (MapMatcher.matches(capabilities, m)) {
+            if (getMatcher(m).matches(capabilities)) {
                 return c;
             }
         }
@@ -268,9 +271,21 @@ public class Dispatcher extends PeriodicTask {
         return null;
     }
 
-    private boolean pass(DSLContext tx, ProcessQueueEntry e) {
+    private CompiledMapMatcher getMatcher(Map<String, Object> requirements) {
+        if (requirements == null || requirements.isEmpty()) {
+            return CompiledMapMatcher.compile(requirements);
+        }
+
+        try {
+            return matchers.get(requirements, () -> CompiledMapMatcher.compile(requirements));
+        } catch (ExecutionException e) {
+            throw new RuntimeException(e.getCause());
+        }
+    }
+
+    private boolean pass(DSLContext tx, RunningProcesses running, ProcessQueueEntry e) {
         for (Filter f : filters) {
-            if (!f.apply(tx, e)) {
+            if (!f.apply(tx, running, e)) {
                 return false;
             }
         }
@@ -323,6 +338,18 @@ public class Dispatcher extends PeriodicTask {
     @Named
     public static class DispatcherDao extends AbstractDao {
 
+        private static final List<ProcessStatus> RUNNING_PROCESS_STATUSES = Arrays.asList(
+                ProcessStatus.STARTING,
+                ProcessStatus.RUNNING,
+                ProcessStatus.RESUMING);
+
+        // suspended processes keep holding their exclusive groups
+        private static final List<ProcessStatus> EXCLUSIVE_PROCESS_STATUSES = Arrays.asList(
+                ProcessStatus.STARTING,
+                ProcessStatus.SUSPENDED,
+                ProcessStatus.RUNNING,
+                ProcessStatus.RESUMING);
+
         private final ConcordObjectMapper objectMapper;
         private final Histogram offsetHistogram;
 
@@ -393,6 +420,36 @@ public class Dispatcher extends PeriodicTask {
                             .build());
         }
 
+        public List<UUID> getRunningByOrg(DSLContext tx, UUID orgId) {
+            ProcessQueue q = PROCESS_QUEUE.as("q");
+            Projects p = PROJECTS.as("p");
+            return tx.select(q.INSTANCE_ID)
+                    .from(q)
+                    .innerJoin(p).on(q.PROJECT_ID.eq(p.PROJECT_ID))
+                    .where(p.ORG_ID.eq(orgId)
+                            .and(q.CURRENT_STATUS.in(RUNNING_PROCESS_STATUSES)))
+                    .fetch(Record1::value1);
+        }
+
+        public List<UUID> getRunningByProject(DSLContext tx, UUID projectId) {
+            ProcessQueue q = PROCESS_QUEUE.as("q");
+            return tx.select(q.INSTANCE_ID)
+                    .from(q)
+                    .where(q.PROJECT_ID.eq(projectId)
+                            .and(q.CURRENT_STATUS.in(RUNNING_PROCESS_STATUSES)))
+                    .fetch(Record1::value1);
+        }
+
+        public List<UUID> getRunningByExclusiveGroup(DSLContext tx, UUID projectId, String group) {
+            ProcessQueue q = PROCESS_QUEUE.as("q");
+            return tx.select(q.INSTANCE_ID)
+                    .from(q)
+                    .where(q.PROJECT_ID.eq(projectId)
+                            .and(q.CURRENT_STATUS.in(EXCLUSIVE_PROCESS_STATUSES)
+                                    .and(jsonbText(q.EXCLUSIVE, "group").eq(group))))
+                    .fetch(Record1::value1);
+        }
+
         public SecretReference getSecretReference(UUID repoId) {
             try (DSLContext tx = DSL.using(cfg)) {
                 return tx.select(ORGANIZATIONS.ORG_NAME, SECRETS.SECRET_NAME)
@@ -21,23 +21,18 @@ package com.walmartlabs.concord.server.process.queue.dispatcher;
  */
 
 import com.walmartlabs.concord.sdk.MapUtils;
-import com.walmartlabs.concord.server.jooq.tables.ProcessQueue;
 import com.walmartlabs.concord.server.process.queue.ProcessQueueEntry;
 import com.walmartlabs.concord.server.process.queue.ProcessQueueManager;
-import com.walmartlabs.concord.server.sdk.ProcessStatus;
 import org.jooq.DSLContext;
 import org.jooq.Record1;
-import org.jooq.SelectConditionStep;
-import org.jooq.SelectJoinStep;
 
 import javax.inject.Inject;
 import javax.inject.Named;
-import java.util.Arrays;
 import java.util.Collections;
 import java.util.List;
+import java.util.Set;
 import java.util.UUID;
 
-import static com.walmartlabs.concord.db.PgUtils.jsonbText;
 import static com.walmartlabs.concord.server.jooq.tables.ProcessQueue.PROCESS_QUEUE;
 import static org.jooq.impl.DSL.*;
 
@@ -51,19 +46,13 @@ public class ExclusiveProcessFilter extends WaitProcessFinishFilter {
 
     private static final String WAIT_MODE = "wait";
 
-    private static final List<ProcessStatus> RUNNING_PROCESS_STATUSES = Arrays.asList(
-            ProcessStatus.STARTING,
-            ProcessStatus.SUSPENDED,
-            ProcessStatus.RUNNING,
-            ProcessStatus.RESUMING);
-
     @Inject
     public ExclusiveProcessFilter(ProcessQueueManager processQueueManager) {
         super(processQueueManager);
     }
 
     @Override
-    protected List<UUID> findProcess(DSLContext tx, ProcessQueueEntry item) {
+    protected List<UUID> findProcess(DSLContext tx, RunningProcesses running, ProcessQueueEntry item) {
         if (item.projectId() == null) {
             return Collections.emptyList();
         }
@@ -74,35 +63,33 @@ public class ExclusiveProcessFilter extends WaitProcessFinishFilter {
             return Collections.emptyList();
         }
 
-        ProcessQueue q = ProcessQueue.PROCESS_QUEUE.as("q");
-        SelectConditionStep<Record1<UUID>> s = tx.select(q.INSTANCE_ID)
-                .from(q)
-                .where(q.PROJECT_ID.eq(item.projectId())
-                        .and(q.CURRENT_STATUS.in(RUNNING_PROCESS_STATUSES)
-                                .and( jsonbText(q.EXCLUSIVE, "group").eq(group))));
-
-        // parent's
-        if (item.parentInstanceId() != null) {
-            SelectJoinStep<Record1<UUID>> parents = tx.withRecursive("parents").as(
-                    select(PROCESS_QUEUE.INSTANCE_ID, PROCESS_QUEUE.PARENT_INSTANCE_ID).from(PROCESS_QUEUE)
-                            .where(PROCESS_QUEUE.INSTANCE_ID.eq(item.parentInstanceId()))
-                            .unionAll(
-                                    select(PROCESS_QUEUE.INSTANCE_ID, PROCESS_QUEUE.PARENT_INSTANCE_ID)
-                                            .from(PROCESS_QUEUE)
-                                            .join(name("parents"))
-                                            .on(PROCESS_QUEUE.INSTANCE_ID.eq(
-                                                    field(name("parents", "PARENT_INSTANCE_ID"), UUID.class)))))
-                    .select(field("parents.INSTANCE_ID", UUID.class))
-                    .from(name("parents"));
-
-            s.and(q.INSTANCE_ID.notIn(parents));
+        List<UUID> result = running.getByExclusiveGroup(item.projectId(), group);
+        if (result.isEmpty() || item.parentInstanceId() == null) {
+            return result;
         }
 
-        return s.fetch(Record1::value1);
+        // parent's
+        result.removeAll(findParents(tx, item.parentInstanceId()));
+        return result;
     }
 
     @Override
     protected String getReason() {
         return "exclusive process";
     }
+
+    private static Set<UUID> findParents(DSLContext tx, UUID parentInstanceId) {
+        return tx.withRecursive("parents").as(
+                select(PROCESS_QUEUE.INSTANCE_ID, PROCESS_QUEUE.PARENT_INSTANCE_ID).from(PROCESS_QUEUE)
+                        .where(PROCESS_QUEUE.INSTANCE_ID.eq(parentInstanceId))
+                        .unionAll(
+                                select(PROCESS_QUEUE.INSTANCE_ID, PROCESS_QUEUE.PARENT_INSTANCE_ID)
+                                        .from(PROCESS_QUEUE)
+                                        .join(name("parents"))
+                                        .on(PROCESS_QUEUE.INSTANCE_ID.eq(
+                                                field(name("parents", "PARENT_INSTANCE_ID"), UUID.class)))))
+                .select(field("parents.INSTANCE_ID", UUID.class))
+                .from(name("parents"))
+                .fetchSet(Record1::value1);
+    }
 }
@@ -25,5 +25,9 @@ import org.jooq.DSLContext;
 
 public interface Filter {
 
-    boolean apply(DSLContext tx, ProcessQueueEntry e);
+    /**
+     * @param running running processes as seen by the current dispatcher "tick"
+     * @return {@code true} if the process can be dispatched
+     */
+    boolean apply(DSLContext tx, RunningProcesses running, ProcessQueueEntry e);
 }
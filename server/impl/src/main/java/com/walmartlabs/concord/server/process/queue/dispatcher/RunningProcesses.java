@@ -0,0 +1,195 @@
+package com.walmartlabs.concord.server.process.queue.dispatcher;
+
+/*-
+ * *****
+ * Concord
+ * -----
+ * Copyright (C) 2017 - 2020 Walmart Inc.
+ * -----
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * =====
+ */
+
+import com.walmartlabs.concord.sdk.MapUtils;
+import com.walmartlabs.concord.server.process.queue.ProcessQueueEntry;
+import com.walmartlabs.concord.server.process.queue.dispatcher.Dispatcher.DispatcherDao;
+import org.jooq.DSLContext;
+
+import java.util.*;
+import java.util.function.Consumer;
+
+/**
+ * Running processes and holders of exclusive groups per organization and project,
+ * as seen by the dispatcher during a single "tick".
+ * <p>
+ * The data is loaded on demand, at most once per org, project or exclusive group
+ * per tick, while the dispatcher holds its global lock. The candidates that passed
+ * the filters are counted as running right away (see {@link #reserve(ProcessQueueEntry)}),
+ * so multiple candidates of the same project can be checked during the same tick.
+ * <p>
+ * Reserved candidates are not dispatched yet and might not be dispatched at all,
+ * the filters must not create wait conditions for them (see {@link #isReserved(UUID)}).
+ */
+public class RunningProcesses {
+
+    private final DSLContext tx;
+    private final DispatcherDao dao;
+
+    private final Map<UUID, Set<UUID>> byOrg = new HashMap<>();
+    private final Map<UUID, Set<UUID>> byProject = new HashMap<>();
+    private final Map<ExclusiveGroup, Set<UUID>> byExclusiveGroup = new HashMap<>();
+    private final Map<UUID, ProcessQueueEntry> reserved = new HashMap<>();
+
+    public RunningProcesses(DSLContext tx, DispatcherDao dao) {
+        this.tx = tx;
+        this.dao = dao;
+    }
+
+    /**
+     * Returns IDs of running processes in the specified organization.
+     */
+    public List<UUID> getByOrg(UUID orgId) {
+        Set<UUID> result = byOrg.computeIfAbsent(orgId, k -> {
+            Set<UUID> s = new HashSet<>(dao.getRunningByOrg(tx, orgId));
+            reserved.values().stream()
+                    .filter(e -> orgId.equals(e.orgId()))
+                    .forEach(e -> s.add(e.key().getInstanceId()));
+            return s;
+        });
+        return new ArrayList<>(result);
+    }
+
+    /**
+     * Returns IDs of running processes in the specified project.
+     */
+    public List<UUID> getByProject(UUID projectId) {
+        Set<UUID> result = byProject.computeIfAbsent(projectId, k -> {
+            Set<UUID> s = new HashSet<>(dao.getRunningByProject(tx, projectId));
+            reserved.values().stream()
+                    .filter(e -> projectId.equals(e.projectId()))
+                    .forEach(e -> s.add(e.key().getInstanceId()));
+            return s;
+        });
+        return new ArrayList<>(result);
+    }
+
+    /**
+     * Returns IDs of running or suspended processes in the specified project
+     * that belong to the specified exclusive group.
+     */
+    public List<UUID> getByExclusiveGroup(UUID projectId, String group) {
+        ExclusiveGroup g = new ExclusiveGroup(projectId, group);
+        Set<UUID> result = byExclusiveGroup.computeIfAbsent(g, k -> {
+            Set<UUID> s = new HashSet<>(dao.getRunningByExclusiveGroup(tx, projectId, group));
+            reserved.values().stream()
+                    .filter(e -> g.equals(ExclusiveGroup.of(e)))
+                    .forEach(e -> s.add(e.key().getInstanceId()));
+            return s;
+        });
+        return new ArrayList<>(result);
+    }
+
+    /**
+     * Counts the candidate as running.
+     */
+    public void reserve(ProcessQueueEntry e) {
+        UUID instanceId = e.key().getInstanceId();
+        reserved.put(instanceId, e);
+        forEachSet(e, s -> s.add(instanceId));
+    }
+
+    /**
+     * Reverts {@link #reserve(ProcessQueueEntry)}, e.g. if the candidate
+     * wasn't dispatched.
+     */
+    public void release(ProcessQueueEntry e) {
+        UUID instanceId = e.key().getInstanceId();
+        if (reserved.remove(instanceId) == null) {
+            return;
+        }
+        forEachSet(e, s -> s.remove(instanceId));
+    }
+
+    /**
+     * @return {@code true} if the process is a candidate of the current tick
+     * and it is not dispatched yet.
+     */
+    public boolean isReserved(UUID instanceId) {
+        return reserved.containsKey(instanceId);
+    }
+
+    private void forEachSet(ProcessQueueEntry e, Consumer<Set<UUID>> action) {
+        if (e.orgId() != null) {
+            Set<UUID> s = byOrg.get(e.orgId());
+            if (s != null) {
+                action.accept(s);
+            }
+        }
+
+        if (e.projectId() != null) {
+            Set<UUID> s = byProject.get(e.projectId());
+            if (s != null) {
+                action.accept(s);
+            }
+        }
+
+        ExclusiveGroup g = ExclusiveGroup.of(e);
+        if (g != null) {
+            Set<UUID> s = byExclusiveGroup.get(g);
+            if (s != null) {
+                action.accept(s);
+            }
+        }
+    }
+
+    private static final class ExclusiveGroup {
+
+        private final UUID projectId;
+        private final String group;
+
+        private ExclusiveGroup(UUID projectId, String group) {
+            this.projectId = projectId;
+            this.group = group;
+        }
+
+        private static ExclusiveGroup of(ProcessQueueEntry e) {
+            if (e.projectId() == null) {
+                return null;
+            }
+
+            String group = MapUtils.getString(e.exclusive(), "group");
+            if (group == null) {
+                return null;
+            }
+
+            return new ExclusiveGroup(e.projectId(), group);
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (o == null || getClass() != o.getClass()) {
+                return false;
+            }
+            ExclusiveGroup that = (ExclusiveGroup) o;
+            return projectId.equals(that.projectId) && group.equals(that.group);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(projectId, group);
+        }
+    }
+}
@@ -49,12 +49,18 @@ public abstract class WaitProcessFinishFilter implements Filter {
     }
 
     @Override
-    public boolean apply(DSLContext tx, ProcessQueueEntry e) {
-        List<UUID> processes = findProcess(tx, e);
+    public boolean apply(DSLContext tx, RunningProcesses running, ProcessQueueEntry e) {
+        List<UUID> processes = findProcess(tx, running, e);
         if (processes.isEmpty()) {
             return true;
         }
 
+        // some of the processes are candidates of the current "tick" that might not be dispatched at all,
+        // the process can't wait for them. Skip it until the next "tick" instead
+        if (processes.stream().anyMatch(running::isReserved)) {
+            return false;
+        }
+
         processQueueManager.updateWait(tx, e.key(), ProcessCompletionCondition.builder()
                 .processes(processes)
                 .reason(getReason())
@@ -65,7 +71,7 @@ public abstract class WaitProcessFinishFilter implements Filter {
         return false;
     }
 
-    protected abstract List<UUID> findProcess(DSLContext tx, ProcessQueueEntry item);
+    protected abstract List<UUID> findProcess(DSLContext tx, RunningProcesses running, ProcessQueueEntry item);
 
     protected Set<ProcessStatus> getFinalStatuses() {
         return FINAL_STATUSES;
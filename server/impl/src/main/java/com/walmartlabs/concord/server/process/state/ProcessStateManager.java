@@ -20,6 +20,10 @@ package com.walmartlabs.concord.server.process.state;
  * =====
  */
 
+import com.codahale.metrics.Meter;
+import com.codahale.metrics.MetricRegistry;
+import com.google.common.hash.Hashing;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
 import com.walmartlabs.concord.common.IOUtils;
 import com.walmartlabs.concord.common.Posix;
 import com.walmartlabs.concord.db.AbstractDao;
@@ -29,11 +33,14 @@ import com.walmartlabs.concord.server.cfg.SecretStoreConfiguration;
 import com.walmartlabs.concord.server.org.secret.SecretUtils;
 import com.walmartlabs.concord.server.process.PartialProcessKey;
 import com.walmartlabs.concord.server.process.ProcessKey;
+import com.walmartlabs.concord.server.sdk.BackgroundTask;
 import com.walmartlabs.concord.server.sdk.metrics.WithTimer;
 import org.apache.commons.compress.archivers.zip.ZipArchiveEntry;
 import org.apache.commons.compress.archivers.zip.ZipArchiveOutputStream;
 import org.jooq.Configuration;
 import org.jooq.DSLContext;
+import org.jooq.Field;
+import org.jooq.Table;
 import org.jooq.impl.DSL;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -52,6 +59,7 @@ import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.sql.Timestamp;
 import java.util.*;
+import java.util.concurrent.*;
 import java.util.function.BiFunction;
 import java.util.function.Function;
 import java.util.stream.Stream;
@@ -61,24 +69,58 @@ import static com.walmartlabs.concord.server.jooq.tables.ProcessState.PROCESS_ST
 
 @Named
 @Singleton
-public class ProcessStateManager extends AbstractDao {
+public class ProcessStateManager extends AbstractDao implements BackgroundTask {
 
     private static final Logger log = LoggerFactory.getLogger(ProcessStateManager.class);
 
     private static final String PATH_SEPARATOR = "/";
-    private static final int INSERT_BATCH_SIZE = 10;
+    private static final int BULK_BATCH_SIZE = 500;
+
+    private static final int DEFAULT_IMPORT_BATCH_SIZE = 500;
+    private static final long DEFAULT_IMPORT_BATCH_BYTES = 32 * 1024 * 1024;
 
     private final SecretStoreConfiguration secretCfg;
     private final Set<String> secureFiles = new HashSet<>();
 
+    private final int importBatchSize;
+    private final long importBatchBytes;
+    private final ThreadPoolExecutor importExecutor;
+
+    private final Meter importedFiles;
+    private final Meter importedBytes;
+    private final Meter skippedFiles;
+
     @Inject
     protected ProcessStateManager(@MainDB Configuration cfg,
                                   SecretStoreConfiguration secretCfg,
-                                  ProcessConfiguration stateCfg) {
+                                  ProcessConfiguration stateCfg,
+                                  MetricRegistry metricRegistry) {
         super(cfg);
         this.secretCfg = secretCfg;
 
         this.secureFiles.addAll(stateCfg.getSecureFiles());
+
+        this.importBatchSize = stateCfg.getStateImportBatchSize() > 0 ? stateCfg.getStateImportBatchSize() : DEFAULT_IMPORT_BATCH_SIZE;
+        this.importBatchBytes = stateCfg.getStateImportBatchBytes() > 0 ? stateCfg.getStateImportBatchBytes() : DEFAULT_IMPORT_BATCH_BYTES;
+
+        int parallelism = stateCfg.getStateImportParallelism() > 0 ? stateCfg.getStateImportParallelism() : Runtime.getRuntime().availableProcessors();
+        this.importExecutor = new ThreadPoolExecutor(1, parallelism, 30, TimeUnit.SECONDS, new SynchronousQueue<>(),
+                new ThreadFactoryBuilder()
+                        .setNameFormat("process-state-import-%d")
+                        .setDaemon(true)
+                        .build());
+        // run in the caller's thread if all workers are busy or if the pool is already stopped
+        // (unlike CallerRunsPolicy, which silently discards the tasks after the shutdown)
+        this.importExecutor.setRejectedExecutionHandler((r, executor) -> r.run());
+
+        this.importedFiles = metricRegistry.meter("process-state-import-files");
+        this.importedBytes = metricRegistry.meter("process-state-import-bytes");
+        this.skippedFiles = metricRegistry.meter("process-state-import-skipped-files");
+    }
+
+    @Override
+    public void stop() {
+        importExecutor.shutdownNow();
     }
 
     public <T> Optional<T> get(PartialProcessKey partialProcessKey, String path, Function<InputStream, Optional<T>> converter) {
@@ -282,6 +324,77 @@ public class ProcessStateManager extends AbstractDao {
                 .execute();
     }
 
+    /**
+     * Inserts a single value for each of the specified processes using a single JDBC batch.
+     */
+    public void insert(DSLContext tx, Collection<ProcessKey> processKeys, String path, Function<ProcessKey, byte[]> data) {
+        boolean needEncrypt = secureFiles.contains(path);
+
+        String sql = tx.insertInto(PROCESS_STATE)
+                .columns(PROCESS_STATE.INSTANCE_ID, PROCESS_STATE.INSTANCE_CREATED_AT, PROCESS_STATE.ITEM_PATH, PROCESS_STATE.ITEM_DATA, PROCESS_STATE.IS_ENCRYPTED)
+                .values((UUID) null, null, null, null, null)
+                .getSQL();
+
+        tx.connection(conn -> {
+            try (PreparedStatement ps = conn.prepareStatement(sql)) {
+                int n = 0;
+                for (ProcessKey k : processKeys) {
+                    byte[] ab = data.apply(k);
+                    if (needEncrypt) {
+                        ab = encrypt(ab);
+                    }
+
+                    ps.setObject(1, k.getInstanceId());
+                    ps.setTimestamp(2, k.getCreatedAt());
+                    ps.setString(3, path);
+                    ps.setBytes(4, ab);
+                    ps.setBoolean(5, needEncrypt);
+                    ps.addBatch();
+
+                    if (++n % BULK_BATCH_SIZE == 0) {
+                        ps.executeBatch();
+                    }
+                }
+
+                if (n % BULK_BATCH_SIZE != 0) {
+                    ps.executeBatch();
+                }
+            } catch (SQLException e) {
+                throw new RuntimeException(e);
+            }
+        });
+    }
+
+    /**
+     * Copies all values stored under the specified path from one process to
+     * the specified processes. The data is copied by the DB without
+     * round-tripping it through the server.
+     */
+    @WithTimer
+    public void copyPath(DSLContext tx, ProcessKey src, Collection<ProcessKey> dst, String path) {
+        String prefix = fixPath(path);
+
+        Map<Timestamp, List<UUID>> byCreatedAt = new HashMap<>();
+        for (ProcessKey k : dst) {
+            byCreatedAt.computeIfAbsent(k.getCreatedAt(), t -> new ArrayList<>()).add(k.getInstanceId());
+        }
+
+        for (Map.Entry<Timestamp, List<UUID>> e : byCreatedAt.entrySet()) {
+            Table<?> ids = DSL.unnest(e.getValue().toArray(new UUID[0])).as("t", "instance_id");
+            Field<UUID> instanceId = ids.field("instance_id", UUID.class);
+
+            tx.insertInto(PROCESS_STATE)
+                    .columns(PROCESS_STATE.INSTANCE_ID, PROCESS_STATE.INSTANCE_CREATED_AT, PROCESS_STATE.ITEM_PATH, PROCESS_STATE.UNIX_MODE, PROCESS_STATE.ITEM_DATA, PROCESS_STATE.IS_ENCRYPTED, PROCESS_STATE.ITEM_HASH)
+                    .select(DSL.select(instanceId, DSL.val(e.getKey()), PROCESS_STATE.ITEM_PATH, PROCESS_STATE.UNIX_MODE, PROCESS_STATE.ITEM_DATA, PROCESS_STATE.IS_ENCRYPTED, PROCESS_STATE.ITEM_HASH)
+                            .from(PROCESS_STATE)
+                            .crossJoin(ids)
+                            .where(PROCESS_STATE.INSTANCE_ID.eq(src.getInstanceId())
+                                    .and(PROCESS_STATE.INSTANCE_CREATED_AT.eq(src.getCreatedAt()))
+                                    .and(PROCESS_STATE.ITEM_PATH.startsWith(prefix))))
+                    .execute();
+        }
+    }
+
     /**
      * Imports data from the specified directory or a file.
      */
@@ -298,6 +411,13 @@ public class ProcessStateManager extends AbstractDao {
         tx(tx -> importPath(tx, processKey.getInstanceId(), processKey.getCreatedAt(), path, src, filter));
     }
 
+    /**
+     * Imports data from the specified directory or a file using the specified transaction.
+     */
+    public void importPath(DSLContext tx, ProcessKey processKey, String path, Path src, BiFunction<Path, BasicFileAttributes, Boolean> filter) {
+        importPath(tx, processKey.getInstanceId(), processKey.getCreatedAt(), path, src, filter);
+    }
+
     /**
      * Imports data from the specified directory or a file replacing the existing data.
      * If the filter function returns {@code false}, the matching file will be skipped.
@@ -306,16 +426,23 @@ public class ProcessStateManager extends AbstractDao {
         UUID instanceId = processKey.getInstanceId();
         Timestamp instanceCreatedAt = processKey.getCreatedAt();
 
-        tx(tx -> {
-            delete(tx, instanceId, instanceCreatedAt);
-            importPath(tx, instanceId, instanceCreatedAt, null, src, filter);
-        });
+        tx(tx -> importPath(tx, instanceId, instanceCreatedAt, null, src, filter, true));
     }
 
     private void importPath(DSLContext tx, UUID instanceId, Timestamp instanceCreatedAt, String path, Path src, BiFunction<Path, BasicFileAttributes, Boolean> filter) {
+        importPath(tx, instanceId, instanceCreatedAt, path, src, filter, false);
+    }
+
+    /**
+     * Imports the files into the process state. The files that weren't changed
+     * since the previous import (same hash and mode) are skipped.
+     *
+     * @param replace if {@code true}, removes all other items of the process
+     */
+    private void importPath(DSLContext tx, UUID instanceId, Timestamp instanceCreatedAt, String path, Path src, BiFunction<Path, BasicFileAttributes, Boolean> filter, boolean replace) {
         String prefix = fixPath(path);
 
-        List<BatchItem> batch = new ArrayList<>();
+        List<BatchItem> items = new ArrayList<>();
         try {
             Files.walkFileTree(src, new SimpleFileVisitor<Path>() {
                 @Override
@@ -342,33 +469,144 @@ public class ProcessStateManager extends AbstractDao {
                     int unixMode = Posix.unixMode(permissions);
                     boolean needsEncryption = secureFiles.contains(n);
 
-                    tx.deleteFrom(PROCESS_STATE).where(PROCESS_STATE.INSTANCE_ID.eq(instanceId)
-                            .and(PROCESS_STATE.INSTANCE_CREATED_AT.eq(instanceCreatedAt))
-                            .and(PROCESS_STATE.ITEM_PATH.eq(n)))
-                            .execute();
-
-                    batch.add(new BatchItem(n, file, unixMode, needsEncryption));
-                    if (batch.size() >= INSERT_BATCH_SIZE) {
-                        insert(tx, instanceId, instanceCreatedAt, batch);
-                        batch.clear();
-                    }
+                    items.add(new BatchItem(n, file, unixMode, attrs.size(), needsEncryption));
 
                     return FileVisitResult.CONTINUE;
                 }
             });
+        } catch (IOException e) {
+            throw new RuntimeException(e);
+        }
+
+        // hash (or encrypt) the files in parallel
+        prepare(items);
+
+        Map<String, StoredItem> stored = getStoredItems(tx, instanceId, instanceCreatedAt, items);
+
+        List<BatchItem> changed = new ArrayList<>(items.size());
+        List<String> unchanged = new ArrayList<>();
+        for (BatchItem i : items) {
+            StoredItem si = stored.get(i.itemPath);
+            if (si != null && i.hash != null && i.hash.equals(si.hash) && i.unixMode == si.unixMode) {
+                unchanged.add(i.itemPath);
+            } else {
+                changed.add(i);
+            }
+        }
+
+        if (replace) {
+            if (unchanged.isEmpty()) {
+                delete(tx, instanceId, instanceCreatedAt);
+            } else {
+                tx.deleteFrom(PROCESS_STATE)
+                        .where(PROCESS_STATE.INSTANCE_ID.eq(instanceId)
+                                .and(PROCESS_STATE.INSTANCE_CREATED_AT.eq(instanceCreatedAt))
+                                .and(PROCESS_STATE.ITEM_PATH.ne(DSL.all(unchanged.toArray(new String[0])))))
+                        .execute();
+            }
+        } else {
+            String[] outdated = changed.stream()
+                    .map(i -> i.itemPath)
+                    .filter(stored::containsKey)
+                    .toArray(String[]::new);
+
+            if (outdated.length > 0) {
+                tx.deleteFrom(PROCESS_STATE)
+                        .where(PROCESS_STATE.INSTANCE_ID.eq(instanceId)
+                                .and(PROCESS_STATE.INSTANCE_CREATED_AT.eq(instanceCreatedAt))
+                                .and(PROCESS_STATE.ITEM_PATH.eq(DSL.any(outdated))))
+                        .execute();
+            }
+        }
 
-            if (!batch.isEmpty()) {
+        // send the files in batches limited by the number of files and the total size
+        List<BatchItem> batch = new ArrayList<>();
+        long batchBytes = 0;
+        for (BatchItem i : changed) {
+            batch.add(i);
+            batchBytes += i.size;
+
+            if (batch.size() >= importBatchSize || batchBytes >= importBatchBytes) {
                 insert(tx, instanceId, instanceCreatedAt, batch);
+                batch.clear();
+                batchBytes = 0;
+            }
+        }
+
+        if (!batch.isEmpty()) {
+            insert(tx, instanceId, instanceCreatedAt, batch);
+        }
+
+        importedFiles.mark(changed.size());
+        importedBytes.mark(changed.stream().mapToLong(i -> i.size).sum());
+        skippedFiles.mark(unchanged.size());
+    }
+
+    private void prepare(List<BatchItem> items) {
+        if (items.size() < 2) {
+            items.forEach(this::prepare);
+            return;
+        }
+
+        CompletableFuture<?>[] futures = items.stream()
+                .map(i -> CompletableFuture.runAsync(() -> prepare(i), importExecutor))
+                .toArray(CompletableFuture[]::new);
+
+        try {
+            CompletableFuture.allOf(futures).join();
+        } catch (CompletionException e) {
+            Throwable t = e.getCause();
+            if (t instanceof RuntimeException) {
+                throw (RuntimeException) t;
+            }
+            throw new RuntimeException(t);
+        }
+    }
+
+    private void prepare(BatchItem item) {
+        try {
+            if (item.needsEncryption) {
+                // secure files are always re-encrypted and never hashed
+                // (the hash of the plain text is not stored in the DB)
+                item.encryptedData = encrypt(Files.readAllBytes(item.path));
+                item.size = item.encryptedData.length;
+            } else {
+                item.hash = com.google.common.io.Files.asByteSource(item.path.toFile())
+                        .hash(Hashing.sha256())
+                        .toString();
             }
         } catch (IOException e) {
             throw new RuntimeException(e);
         }
     }
 
+    private static Map<String, StoredItem> getStoredItems(DSLContext tx, UUID instanceId, Timestamp instanceCreatedAt, List<BatchItem> items) {
+        if (items.isEmpty()) {
+            return Collections.emptyMap();
+        }
+
+        String[] paths = items.stream()
+                .map(i -> i.itemPath)
+                .toArray(String[]::new);
+
+        Map<String, StoredItem> result = new HashMap<>();
+        tx.select(PROCESS_STATE.ITEM_PATH, PROCESS_STATE.ITEM_HASH, PROCESS_STATE.UNIX_MODE)
+                .from(PROCESS_STATE)
+                .where(PROCESS_STATE.INSTANCE_ID.eq(instanceId)
+                        .and(PROCESS_STATE.INSTANCE_CREATED_AT.eq(instanceCreatedAt))
+                        .and(PROCESS_STATE.ITEM_PATH.eq(DSL.any(paths))))
+                .fetch()
+                .forEach(r -> {
+                    Integer unixMode = r.value3();
+                    result.put(r.value1(), new StoredItem(r.value2(), unixMode != null ? unixMode : -1));
+                });
+        return result;
+    }
+
     private void insert(DSLContext tx, UUID instanceId, Timestamp instanceCreatedAt, Collection<BatchItem> batch) {
         String sql = tx.insertInto(PROCESS_STATE)
-                .columns(PROCESS_STATE.INSTANCE_ID, PROCESS_STATE.INSTANCE_CREATED_AT, PROCESS_STATE.ITEM_PATH, PROCESS_STATE.UNIX_MODE, PROCESS_STATE.ITEM_DATA, PROCESS_STATE.IS_ENCRYPTED)
-                .values((UUID) null, null, null, null, null, null)
+                .columns(PROCESS_STATE.INSTANCE_ID, PROCESS_STATE.INSTANCE_CREATED_AT, PROCESS_STATE.ITEM_PATH, PROCESS_STATE.UNIX_MODE, PROCESS_STATE.ITEM_DATA, PROCESS_STATE.IS_ENCRYPTED, PROCESS_STATE.ITEM_HASH)
+                .values((UUID) null, null, null, null, null, null, null)
                 .getSQL();
 
         List<InputStream> streams = new LinkedList<>();
@@ -388,19 +626,23 @@ public class ProcessStateManager extends AbstractDao {
                         // UNIX_MODE
                         ps.setInt(4, item.unixMode);
 
-                        InputStream in = Files.newInputStream(item.path);
-                        streams.add(in); // keep the streams open until the batch is committed
-
-                        if (item.needsEncryption) {
-                            in = encrypt(in);
-                        }
-
                         // ITEM_DATA
-                        ps.setBinaryStream(5, in);
+                        if (item.encryptedData != null) {
+                            ps.setBytes(5, item.encryptedData);
+                        } else {
+                            InputStream in = Files.newInputStream(item.path);
+                            streams.add(in); // keep the streams open until the batch is committed
+
+                            // with the known length the driver streams the data instead of buffering it
+                            ps.setBinaryStream(5, in, item.size);
+                        }
 
                         // IS_ENCRYPTED
                         ps.setBoolean(6, item.needsEncryption);
 
+                        // ITEM_HASH
+                        ps.setString(7, item.hash);
+
                         ps.addBatch();
                     }
 
@@ -701,11 +943,27 @@ public class ProcessStateManager extends AbstractDao {
         private final int unixMode;
         private final boolean needsEncryption;
 
-        private BatchItem(String itemPath, Path path, int unixMode, boolean needsEncryption) {
+        private long size;
+        private String hash;
+        private byte[] encryptedData;
+
+        private BatchItem(String itemPath, Path path, int unixMode, long size, boolean needsEncryption) {
             this.itemPath = itemPath;
             this.path = path;
             this.unixMode = unixMode;
+            this.size = size;
             this.needsEncryption = needsEncryption;
         }
     }
+
+    private static final class StoredItem {
+
+        private final String hash;
+        private final int unixMode;
+
+        private StoredItem(String hash, int unixMode) {
+            this.hash = hash;
+            this.unixMode = unixMode;
+        }
+    }
 }
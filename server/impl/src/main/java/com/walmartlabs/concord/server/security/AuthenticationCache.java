@@ -0,0 +1,174 @@
+package com.walmartlabs.concord.server.security;
+
+/*-
+ * *****
+ * Concord
+ * -----
+ * Copyright (C) 2017 - 2020 Walmart Inc.
+ * -----
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * =====
+ */
+
+import com.codahale.metrics.Gauge;
+import com.codahale.metrics.MetricRegistry;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.walmartlabs.concord.server.cfg.AuthCacheConfiguration;
+import com.walmartlabs.concord.server.security.apikey.ApiKeyDao;
+import com.walmartlabs.concord.server.security.apikey.ApiKeyDao.ActiveKey;
+import com.walmartlabs.concord.server.user.UserDao;
+import com.walmartlabs.concord.server.user.UserEntry;
+
+import javax.inject.Inject;
+import javax.inject.Named;
+import javax.inject.Singleton;
+import java.time.Instant;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Short-lived cache of the data required to authenticate API keys and process
+ * session keys. Only positive lookups are cached, so new keys, users and
+ * processes are visible immediately. Changes made by this server instance
+ * invalidate the affected entries; changes made by other instances become
+ * visible after {@link AuthCacheConfiguration#getTtl()}.
+ */
+@Named
+@Singleton
+public class AuthenticationCache {
+
+    private final ApiKeyDao apiKeyDao;
+    private final UserDao userDao;
+
+    /**
+     * API key hash -> active key.
+     */
+    private final Cache<String, ActiveKey> apiKeys;
+
+    /**
+     * User ID -> user entry (with roles and permissions).
+     */
+    private final Cache<UUID, UserEntry> users;
+
+    /**
+     * Instance IDs of processes that have an initiator and are not finished yet.
+     */
+    private final Cache<UUID, Boolean> activeSessions;
+
+    @Inject
+    public AuthenticationCache(AuthCacheConfiguration cfg,
+                               ApiKeyDao apiKeyDao,
+                               UserDao userDao,
+                               MetricRegistry metricRegistry) {
+
+        this.apiKeyDao = apiKeyDao;
+        this.userDao = userDao;
+
+        this.apiKeys = newCache(cfg);
+        this.users = newCache(cfg);
+        this.activeSessions = newCache(cfg);
+
+        registerGauges(metricRegistry, "auth-cache-apikey", apiKeys);
+        registerGauges(metricRegistry, "auth-cache-user", users);
+        registerGauges(metricRegistry, "auth-cache-session", activeSessions);
+    }
+
+    /**
+     * Returns the ID of the owner of the specified API key or {@code null}
+     * if the key doesn't exist or is expired.
+     */
+    public UUID findApiKeyUserId(String key) {
+        String hash = ApiKeyDao.hash(key);
+
+        ActiveKey k = apiKeys.getIfPresent(hash);
+        if (k == null) {
+            k = apiKeyDao.findActive(hash);
+            if (k == null) {
+                return null;
+            }
+            apiKeys.put(hash, k);
+        }
+
+        if (k.isExpired(Instant.now())) {
+            apiKeys.invalidate(hash);
+            return null;
+        }
+
+        return k.getUserId();
+    }
+
+    public UserEntry getUser(UUID userId) {
+        UserEntry u = users.getIfPresent(userId);
+        if (u == null) {
+            u = userDao.get(userId);
+            if (u == null) {
+                return null;
+            }
+            users.put(userId, u);
+        }
+        return u;
+    }
+
+    public boolean isActiveSession(UUID instanceId) {
+        return activeSessions.getIfPresent(instanceId) != null;
+    }
+
+    /**
+     * Marks the process as eligible for the session key authentication.
+     * Should be called only for processes with an initiator that are not
+     * in one of the final statuses.
+     */
+    public void markActiveSession(UUID instanceId) {
+        activeSessions.put(instanceId, Boolean.TRUE);
+    }
+
+    public void invalidateSession(UUID instanceId) {
+        activeSessions.invalidate(instanceId);
+    }
+
+    public void invalidateApiKey(UUID keyId) {
+        apiKeys.asMap().values().removeIf(k -> k.getKeyId().equals(keyId));
+    }
+
+    /**
+     * Invalidates the user's entry and all cached API keys of the user.
+     */
+    public void invalidateUser(UUID userId) {
+        users.invalidate(userId);
+        apiKeys.asMap().values().removeIf(k -> k.getUserId().equals(userId));
+    }
+
+    /**
+     * Invalidates all cached users, e.g. after a role's permissions are changed.
+     */
+    public void invalidateUsers() {
+        users.invalidateAll();
+    }
+
+    private static <K, V> Cache<K, V> newCache(AuthCacheConfiguration cfg) {
+        return CacheBuilder.newBuilder()
+                .expireAfterWrite(cfg.getTtl(), TimeUnit.MILLISECONDS)
+                .maximumSize(cfg.getMaxSize())
+                .concurrencyLevel(32)
+                .recordStats()
+                .build();
+    }
+
+    private static void registerGauges(MetricRegistry registry, String prefix, Cache<?, ?> cache) {
+        registry.register(prefix + "-hit-rate", (Gauge<Double>) () -> cache.stats().hitRate());
+        registry.register(prefix + "-hits", (Gauge<Long>) () -> cache.stats().hitCount());
+        registry.register(prefix + "-misses", (Gauge<Long>) () -> cache.stats().missCount());
+        registry.register(prefix + "-size", (Gauge<Long>) cache::size);
+    }
+}
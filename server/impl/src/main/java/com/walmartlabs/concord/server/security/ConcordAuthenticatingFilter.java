@@ -26,7 +26,6 @@ import com.walmartlabs.concord.server.cfg.SecretStoreConfiguration;
 import com.walmartlabs.concord.server.org.secret.SecretUtils;
 import com.walmartlabs.concord.server.sdk.metrics.InjectMeter;
 import com.walmartlabs.concord.server.security.apikey.ApiKey;
-import com.walmartlabs.concord.server.security.apikey.ApiKeyDao;
 import com.walmartlabs.concord.server.security.sessionkey.SessionKey;
 import com.walmartlabs.concord.server.security.sso.SsoHandler;
 import org.apache.shiro.SecurityUtils;
@@ -71,7 +70,7 @@ public class ConcordAuthenticatingFilter extends AuthenticatingFilter {
             "/api/service/console/whoami"
     };
 
-    private final ApiKeyDao apiKeyDao;
+    private final AuthenticationCache authCache;
     private final SecretStoreConfiguration secretCfg;
 
     @InjectMeter
@@ -83,13 +82,13 @@ public class ConcordAuthenticatingFilter extends AuthenticatingFilter {
     private final SsoHandler ssoHandler;
 
     @Inject
-    public ConcordAuthenticatingFilter(ApiKeyDao apiKeyDao,
+    public ConcordAuthenticatingFilter(AuthenticationCache authCache,
                                        SecretStoreConfiguration secretCfg,
                                        Meter successAuths,
                                        Meter failedAuths,
                                        SsoHandler ssoHandler) {
 
-        this.apiKeyDao = apiKeyDao;
+        this.authCache = authCache;
         this.secretCfg = secretCfg;
         this.successAuths = successAuths;
         this.failedAuths = failedAuths;
@@ -186,7 +185,7 @@ public class ConcordAuthenticatingFilter extends AuthenticatingFilter {
 
             validateApiKey(h);
 
-            UUID userId = apiKeyDao.findUserId(h);
+            UUID userId = authCache.findApiKeyUserId(h);
             if (userId == null) {
                 return new UsernamePasswordToken();
             }
@@ -109,14 +109,19 @@ public class ApiKeyDao extends AbstractDao {
         }
     }
 
-    public UUID findUserId(String key) {
+    /**
+     * Returns a non-expired key with the specified hash or {@code null}.
+     *
+     * @see #hash(String)
+     */
+    public ActiveKey findActive(String keyHash) {
         try (DSLContext tx = DSL.using(cfg)) {
-            return tx.select(API_KEYS.USER_ID)
+            return tx.select(API_KEYS.KEY_ID, API_KEYS.USER_ID, API_KEYS.EXPIRED_AT)
                     .from(API_KEYS)
-                    .where(API_KEYS.API_KEY.eq(hash(key))
+                    .where(API_KEYS.API_KEY.eq(keyHash)
                             .and(API_KEYS.EXPIRED_AT.isNull()
                                     .or(API_KEYS.EXPIRED_AT.greaterThan(currentTimestamp()))))
-                    .fetchOne(API_KEYS.USER_ID);
+                    .fetchOne(r -> new ActiveKey(r.value1(), r.value2(), r.value3() != null ? r.value3().toInstant() : null));
         }
     }
 
@@ -126,7 +131,7 @@ public class ApiKeyDao extends AbstractDao {
         }
     }
 
-    private static String hash(String s) {
+    public static String hash(String s) {
         MessageDigest md;
         try {
             md = MessageDigest.getInstance("SHA-256");
@@ -143,4 +148,33 @@ public class ApiKeyDao extends AbstractDao {
     private static ApiKeyEntry toEntry(Record3<UUID, String, Timestamp> r) {
         return new ApiKeyEntry(r.value1(), r.value2(), r.value3());
     }
+
+    public static class ActiveKey {
+
+        private final UUID keyId;
+        private final UUID userId;
+        private final Instant expiredAt;
+
+        public ActiveKey(UUID keyId, UUID userId, Instant expiredAt) {
+            this.keyId = keyId;
+            this.userId = userId;
+            this.expiredAt = expiredAt;
+        }
+
+        public UUID getKeyId() {
+            return keyId;
+        }
+
+        public UUID getUserId() {
+            return userId;
+        }
+
+        public Instant getExpiredAt() {
+            return expiredAt;
+        }
+
+        public boolean isExpired(Instant now) {
+            return expiredAt != null && !expiredAt.isAfter(now);
+        }
+    }
 }
@@ -24,10 +24,10 @@ import com.walmartlabs.concord.server.audit.AuditAction;
 import com.walmartlabs.concord.server.audit.AuditLog;
 import com.walmartlabs.concord.server.audit.AuditObject;
 import com.walmartlabs.concord.server.sdk.metrics.WithTimer;
+import com.walmartlabs.concord.server.security.AuthenticationCache;
 import com.walmartlabs.concord.server.security.PrincipalUtils;
 import com.walmartlabs.concord.server.security.UserPrincipal;
 import com.walmartlabs.concord.server.user.UserEntry;
-import com.walmartlabs.concord.server.user.UserManager;
 import org.apache.shiro.authc.AuthenticationException;
 import org.apache.shiro.authc.AuthenticationInfo;
 import org.apache.shiro.authc.AuthenticationToken;
@@ -45,12 +45,12 @@ public class ApiKeyRealm extends AuthorizingRealm {
 
     private static final String REALM_NAME = "apikey";
 
-    private final UserManager userManager;
+    private final AuthenticationCache authCache;
     private final AuditLog auditLog;
 
     @Inject
-    public ApiKeyRealm(UserManager userManager, AuditLog auditLog) {
-        this.userManager = userManager;
+    public ApiKeyRealm(AuthenticationCache authCache, AuditLog auditLog) {
+        this.authCache = authCache;
         this.auditLog = auditLog;
     }
 
@@ -64,7 +64,7 @@ public class ApiKeyRealm extends AuthorizingRealm {
     protected AuthenticationInfo doGetAuthenticationInfo(AuthenticationToken token) throws AuthenticationException {
         ApiKey t = (ApiKey) token;
 
-        UserEntry u = userManager.get(t.getUserId()).orElse(null);
+        UserEntry u = authCache.getUser(t.getUserId());
         if (u == null) {
             return null;
         }
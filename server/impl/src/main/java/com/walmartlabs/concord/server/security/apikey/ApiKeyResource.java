@@ -23,6 +23,7 @@ package com.walmartlabs.concord.server.security.apikey;
 import com.walmartlabs.concord.server.GenericOperationResult;
 import com.walmartlabs.concord.server.OperationResult;
 import com.walmartlabs.concord.server.cfg.ApiKeyConfiguration;
+import com.walmartlabs.concord.server.security.AuthenticationCache;
 import com.walmartlabs.concord.server.security.Roles;
 import com.walmartlabs.concord.server.security.UserPrincipal;
 import com.walmartlabs.concord.server.user.UserManager;
@@ -56,12 +57,14 @@ public class ApiKeyResource implements Resource {
     private final ApiKeyConfiguration cfg;
     private final ApiKeyDao apiKeyDao;
     private final UserManager userManager;
+    private final AuthenticationCache authCache;
 
     @Inject
-    public ApiKeyResource(ApiKeyConfiguration cfg, ApiKeyDao apiKeyDao, UserManager userManager) {
+    public ApiKeyResource(ApiKeyConfiguration cfg, ApiKeyDao apiKeyDao, UserManager userManager, AuthenticationCache authCache) {
         this.cfg = cfg;
         this.apiKeyDao = apiKeyDao;
         this.userManager = userManager;
+        this.authCache = authCache;
     }
 
     @GET
@@ -127,6 +130,7 @@ public class ApiKeyResource implements Resource {
         assertOwner(userId);
 
         apiKeyDao.delete(id);
+        authCache.invalidateApiKey(id);
         return new GenericOperationResult(OperationResult.DELETED);
     }
 
@@ -25,6 +25,7 @@ import com.walmartlabs.concord.db.MainDB;
 import com.walmartlabs.concord.db.PgUtils;
 import com.walmartlabs.concord.server.cfg.LdapGroupSyncConfiguration;
 import com.walmartlabs.concord.server.sdk.ScheduledTask;
+import com.walmartlabs.concord.server.security.AuthenticationCache;
 import com.walmartlabs.concord.server.user.UserDao;
 import com.walmartlabs.concord.server.user.UserType;
 import org.jooq.Configuration;
@@ -54,14 +55,16 @@ public class UserLdapGroupSynchronizer implements ScheduledTask {
     private final LdapManager ldapManager;
     private final UserDao userDao;
     private final LdapGroupDao ldapGroupsDao;
+    private final AuthenticationCache authCache;
 
     @Inject
-    public UserLdapGroupSynchronizer(LdapGroupSyncConfiguration cfg, Dao dao, LdapManager ldapManager, UserDao userDao, LdapGroupDao ldapGroupsDao) {
+    public UserLdapGroupSynchronizer(LdapGroupSyncConfiguration cfg, Dao dao, LdapManager ldapManager, UserDao userDao, LdapGroupDao ldapGroupsDao, AuthenticationCache authCache) {
         this.cfg = cfg;
         this.dao = dao;
         this.ldapManager = ldapManager;
         this.userDao = userDao;
         this.ldapGroupsDao = ldapGroupsDao;
+        this.authCache = authCache;
     }
 
     @Override
@@ -88,6 +91,7 @@ public class UserLdapGroupSynchronizer implements ScheduledTask {
             Set<String> groups = ldapManager.getGroups(u.username, u.domain);
             if (groups == null) {
                 userDao.disable(u.userId);
+                authCache.invalidateUser(u.userId);
                 log.info("processUser ['{}'] -> not found in LDAP, user is disabled", u.username);
             } else {
                 ldapGroupsDao.update(u.userId, groups);
@@ -27,6 +27,7 @@ import com.walmartlabs.concord.server.process.ProcessSecurityContext;
 import com.walmartlabs.concord.server.process.queue.ProcessQueueManager;
 import com.walmartlabs.concord.server.sdk.ProcessStatus;
 import com.walmartlabs.concord.server.sdk.metrics.WithTimer;
+import com.walmartlabs.concord.server.security.AuthenticationCache;
 import org.apache.shiro.authc.AuthenticationException;
 import org.apache.shiro.authc.AuthenticationInfo;
 import org.apache.shiro.authc.AuthenticationToken;
@@ -52,6 +53,7 @@ public class SessionKeyRealm extends AuthorizingRealm {
 
     private final ProcessSecurityContext processSecurityContext;
     private final ProcessQueueManager processQueueManager;
+    private final AuthenticationCache authCache;
 
     private static final Set<ProcessStatus> FINISHED_STATUSES = ImmutableSet.of(
             ProcessStatus.FINISHED,
@@ -61,9 +63,11 @@ public class SessionKeyRealm extends AuthorizingRealm {
 
     @Inject
     public SessionKeyRealm(ProcessSecurityContext processSecurityContext,
-                           ProcessQueueManager processQueueManager) {
+                           ProcessQueueManager processQueueManager,
+                           AuthenticationCache authCache) {
         this.processSecurityContext = processSecurityContext;
         this.processQueueManager = processQueueManager;
+        this.authCache = authCache;
     }
 
     @Override
@@ -78,20 +82,24 @@ public class SessionKeyRealm extends AuthorizingRealm {
         PartialProcessKey processKey = PartialProcessKey.from(t.getInstanceId());
 
         try {
-            ProcessEntry p = processQueueManager.get(processKey);
-            if (p == null) {
-                log.warn("doGetAuthenticationInfo -> process not found: {}", t.getInstanceId());
-                return null;
-            }
-
-            if (p.initiatorId() == null) {
-                log.warn("doGetAuthenticationInfo -> initiator not found: {}", t.getInstanceId());
-                return null;
-            }
-
-            if (isFinished(p)) {
-                log.warn("doGetAuthenticationInfo -> process is finished: {}", t.getInstanceId());
-                return null;
+            if (!authCache.isActiveSession(processKey.getInstanceId())) {
+                ProcessEntry p = processQueueManager.get(processKey);
+                if (p == null) {
+                    log.warn("doGetAuthenticationInfo -> process not found: {}", t.getInstanceId());
+                    return null;
+                }
+
+                if (p.initiatorId() == null) {
+                    log.warn("doGetAuthenticationInfo -> initiator not found: {}", t.getInstanceId());
+                    return null;
+                }
+
+                if (isFinished(p)) {
+                    log.warn("doGetAuthenticationInfo -> process is finished: {}", t.getInstanceId());
+                    return null;
+                }
+
+                authCache.markActiveSession(processKey.getInstanceId());
             }
 
             PrincipalCollection principals = getPrincipals(processKey);
@@ -24,6 +24,7 @@ import com.walmartlabs.concord.server.org.team.TeamDao;
 import com.walmartlabs.concord.server.org.team.TeamManager;
 import com.walmartlabs.concord.server.org.team.TeamRole;
 import com.walmartlabs.concord.server.sdk.ConcordApplicationException;
+import com.walmartlabs.concord.server.security.AuthenticationCache;
 import com.walmartlabs.concord.server.security.UserPrincipal;
 
 import javax.inject.Inject;
@@ -37,12 +38,14 @@ public class UserManager {
 
     private final UserDao userDao;
     private final TeamDao teamDao;
+    private final AuthenticationCache authCache;
     private final Map<UserType, UserInfoProvider> userInfoProviders;
 
     @Inject
-    public UserManager(UserDao userDao, TeamDao teamDao, List<UserInfoProvider> providers) {
+    public UserManager(UserDao userDao, TeamDao teamDao, AuthenticationCache authCache, List<UserInfoProvider> providers) {
         this.userDao = userDao;
         this.teamDao = teamDao;
+        this.authCache = authCache;
 
         this.userInfoProviders = new HashMap<>();
         providers.forEach(p -> this.userInfoProviders.put(p.getUserType(), p));
@@ -79,7 +82,9 @@ public class UserManager {
     }
 
     public Optional<UserEntry> update(UUID userId, String displayName, String email, UserType userType, boolean isDisabled, Set<String> roles) {
-        return Optional.ofNullable(userDao.update(userId, displayName, email, userType, isDisabled, roles));
+        UserEntry e = userDao.update(userId, displayName, email, userType, isDisabled, roles);
+        authCache.invalidateUser(userId);
+        return Optional.ofNullable(e);
     }
 
     public UserEntry create(String username, String domain, String displayName, String email, UserType type, Set<String> roles) {
@@ -133,6 +138,7 @@ public class UserManager {
             id = userDao.getId(username, null, type);
             if (id != null) {
                 userDao.updateDomain(id, userDomain);
+                authCache.invalidateUser(id);
                 return userDao.get(id);
             }
         }
@@ -0,0 +1,112 @@
+package com.walmartlabs.concord.server.audit;
+
+/*-
+ * *****
+ * Concord
+ * -----
+ * Copyright (C) 2017 - 2020 Walmart Inc.
+ * -----
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * =====
+ */
+
+import com.codahale.metrics.MetricRegistry;
+import com.walmartlabs.concord.server.Listeners;
+import com.walmartlabs.concord.server.cfg.AuditConfiguration;
+import org.junit.Test;
+
+import java.time.Instant;
+import java.util.*;
+
+import static org.junit.Assert.assertEquals;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.*;
+
+public class AuditLogWriterTest {
+
+    @Test
+    public void testStopFlushesEverything() {
+        List<AuditLogEntry> written = Collections.synchronizedList(new ArrayList<>());
+
+        AuditDao dao = mock(AuditDao.class);
+        doAnswer(i -> written.addAll(i.getArgument(0))).when(dao).insert(anyCollection());
+
+        AuditLogWriter writer = new AuditLogWriter(cfg(1000, 10), dao, mock(Listeners.class), new MetricRegistry());
+        writer.start();
+
+        for (int i = 0; i < 500; i++) {
+            writer.write(entry(i));
+        }
+
+        writer.stop();
+
+        assertEquals(500, written.size());
+        for (int i = 0; i < 500; i++) {
+            assertEquals(i, written.get(i).getDetails().get("n"));
+        }
+    }
+
+    @Test
+    public void testSyncWhenNotStarted() {
+        AuditDao dao = mock(AuditDao.class);
+        Listeners listeners = mock(Listeners.class);
+
+        AuditLogWriter writer = new AuditLogWriter(cfg(0, 10), dao, listeners, new MetricRegistry());
+        writer.start();
+        writer.write(entry(1));
+
+        verify(dao, times(1)).insert(anyCollection());
+        verify(listeners, times(1)).onAuditEvents(anyList());
+    }
+
+    @Test
+    public void testBadEntryDoesNotFailTheBatch() {
+        List<AuditLogEntry> written = Collections.synchronizedList(new ArrayList<>());
+
+        AuditDao dao = mock(AuditDao.class);
+        doAnswer(i -> {
+            Collection<AuditLogEntry> entries = i.getArgument(0);
+            for (AuditLogEntry e : entries) {
+                if (e.getDetails().get("n").equals(3)) {
+                    throw new RuntimeException("boom");
+                }
+            }
+            return written.addAll(entries);
+        }).when(dao).insert(anyCollection());
+
+        AuditLogWriter writer = new AuditLogWriter(cfg(100, 100), dao, mock(Listeners.class), new MetricRegistry());
+        writer.start();
+
+        for (int i = 0; i < 10; i++) {
+            writer.write(entry(i));
+        }
+
+        writer.stop();
+
+        assertEquals(9, written.size());
+    }
+
+    private static AuditConfiguration cfg(int queueSize, int batchSize) {
+        AuditConfiguration cfg = mock(AuditConfiguration.class);
+        when(cfg.getQueueSize()).thenReturn(queueSize);
+        when(cfg.getBatchSize()).thenReturn(batchSize);
+        return cfg;
+    }
+
+    private static AuditLogEntry entry(int n) {
+        Map<String, Object> details = new HashMap<>();
+        details.put("n", n);
+        return new AuditLogEntry(Instant.now(), null, AuditObject.JSON_STORE_DATA, AuditAction.UPDATE, details);
+    }
+}
@@ -0,0 +1,175 @@
+package com.walmartlabs.concord.server.events;
+
+
+/*-
+ * *****
+ * Concord
+ * -----
+ * Copyright (C) 2017 - 2020 Walmart Inc.
+ * -----
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * =====
+ */
+
+import com.walmartlabs.concord.sdk.Constants;
+import com.walmartlabs.concord.server.cfg.ExternalEventsConfiguration;
+import com.walmartlabs.concord.server.cfg.TriggersConfiguration;
+import com.walmartlabs.concord.server.org.triggers.TriggerEntry;
+import com.walmartlabs.concord.server.org.triggers.TriggerIndex;
+import com.walmartlabs.concord.server.process.*;
+import com.walmartlabs.concord.server.security.Roles;
+import com.walmartlabs.concord.server.user.UserEntry;
+import com.walmartlabs.concord.server.user.UserManager;
+import com.walmartlabs.concord.server.user.UserType;
+import org.apache.shiro.subject.Subject;
+import org.apache.shiro.util.ThreadContext;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.*;
+import java.util.concurrent.Callable;
+
+import static org.junit.Assert.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+public class AbstractEventResourceTest {
+
+    private final Set<UUID> failingProjects = Collections.synchronizedSet(new HashSet<>());
+    private final List<UUID> startedProjects = Collections.synchronizedList(new ArrayList<>());
+
+    private TestEventResource resource;
+
+    @Before
+    @SuppressWarnings("unchecked")
+    public void init() throws Exception {
+        Subject subject = mock(Subject.class);
+        when(subject.hasRole(Roles.ADMIN)).thenReturn(true);
+        ThreadContext.bind(subject);
+
+        ExternalEventsConfiguration eventsCfg = mock(ExternalEventsConfiguration.class);
+        when(eventsCfg.getWorkerThreads()).thenReturn(2);
+
+        ProcessManager processManager = mock(ProcessManager.class);
+        when(processManager.start(any(Payload.class))).thenAnswer(i -> {
+            Payload p = i.getArgument(0);
+            UUID projectId = p.getHeader(Payload.PROJECT_ID);
+            if (failingProjects.contains(projectId)) {
+                throw new RuntimeException("test error");
+            }
+            startedProjects.add(projectId);
+            return null;
+        });
+
+        UserManager userManager = mock(UserManager.class);
+        when(userManager.getOrCreate(any(), any(), any())).thenReturn(new UserEntry(UUID.randomUUID(), "test", null, null, null, UserType.LOCAL, null, null, false));
+
+        ProcessSecurityContext processSecurityContext = mock(ProcessSecurityContext.class);
+        when(processSecurityContext.runAs(any(), any())).thenAnswer(i -> ((Callable<Object>) i.getArgument(1)).call());
+
+        resource = new TestEventResource(eventsCfg, processManager, mock(TriggerIndex.class),
+                mock(TriggersConfiguration.class), userManager, processSecurityContext);
+    }
+
+    @After
+    public void cleanup() {
+        ThreadContext.unbindSubject();
+    }
+
+    @Test
+    public void testFailuresAreLoggedWithoutTracker() {
+        TriggerEntry a = trigger();
+        TriggerEntry b = trigger();
+        failingProjects.add(b.getProjectId());
+
+        List<PartialProcessKey> result = resource.process("test", "test", event(), Arrays.asList(a, b), null);
+        assertEquals(1, result.size());
+        assertEquals(Collections.singletonList(a.getProjectId()), startedProjects);
+    }
+
+    @Test
+    public void testRetryWithTracker() {
+        TriggerEntry a = trigger();
+        TriggerEntry b = trigger();
+        TriggerEntry c = trigger();
+        List<TriggerEntry> triggers = Arrays.asList(a, b, c);
+
+        SetTracker tracker = new SetTracker();
+
+        // the first attempt, one of the triggers fails
+        failingProjects.add(b.getProjectId());
+        try {
+            resource.process("test", "test", event(), triggers, null, tracker);
+            fail("exception expected");
+        } catch (RuntimeException e) {
+            assertTrue(e.getMessage().contains("1 of 3"));
+        }
+
+        assertEquals(new HashSet<>(Arrays.asList(a.getId(), c.getId())), tracker.started);
+        assertEquals(new HashSet<>(Arrays.asList(a.getProjectId(), c.getProjectId())), new HashSet<>(startedProjects));
+
+        // the retry, only the failed trigger must be started again
+        failingProjects.clear();
+        List<PartialProcessKey> result = resource.process("test", "test", event(), triggers, null, tracker);
+        assertEquals(1, result.size());
+        assertEquals(3, startedProjects.size());
+        assertEquals(b.getProjectId(), startedProjects.get(2));
+        assertEquals(new HashSet<>(Arrays.asList(a.getId(), b.getId(), c.getId())), tracker.started);
+
+        // nothing left to start
+        result = resource.process("test", "test", event(), triggers, null, tracker);
+        assertTrue(result.isEmpty());
+        assertEquals(3, startedProjects.size());
+    }
+
+    private static TriggerEntry trigger() {
+        // use the event's author as the initiator
+        Map<String, Object> cfg = Collections.singletonMap(Constants.Trigger.USE_INITIATOR, true);
+        return new TriggerEntry(UUID.randomUUID(), UUID.randomUUID(), "org", UUID.randomUUID(), "project",
+                UUID.randomUUID(), "repo", "test", null, null, null, cfg);
+    }
+
+    private static Map<String, Object> event() {
+        return Collections.singletonMap("author", "test");
+    }
+
+    private static class SetTracker implements AbstractEventResource.TriggerStartTracker {
+
+        private final Set<UUID> started = Collections.synchronizedSet(new HashSet<>());
+
+        @Override
+        public boolean isStarted(TriggerEntry t) {
+            return started.contains(t.getId());
+        }
+
+        @Override
+        public void onStart(TriggerEntry t, PartialProcessKey processKey) {
+            started.add(t.getId());
+        }
+    }
+
+    private static class TestEventResource extends AbstractEventResource {
+
+        private TestEventResource(ExternalEventsConfiguration eventsCfg,
+                                  ProcessManager processManager,
+                                  TriggerIndex triggerIndex,
+                                  TriggersConfiguration triggersCfg,
+                                  UserManager userManager,
+                                  ProcessSecurityContext processSecurityContext) {
+
+            super(eventsCfg, processManager, triggerIndex, triggersCfg, userManager, processSecurityContext);
+        }
+    }
+}
@@ -0,0 +1,115 @@
+package com.walmartlabs.concord.server.process.pipelines;
+
+
+/*-
+ * *****
+ * Concord
+ * -----
+ * Copyright (C) 2017 - 2020 Walmart Inc.
+ * -----
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * =====
+
+import com.walmartlabs.concord.common.CompiledMapMatcher;
+import com.walmartlabs.concord.common.MapMatcher;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.util.*;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares {@link MapMatcher} with {@link CompiledMapMatcher} using
+ * a dispatcher-like workload: a set of agent capabilities matched against
+ * the requirements of each candidate process.
+ * <p>
+ * Run with {@link #main(String[])}.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(1)
+public class MapMatcherBenchmark {
+
+    @State(Scope.Benchmark)
+    public static class MatcherState {
+
+        @Param({"10", "1000"})
+        public int candidates;
+
+        private Map<String, Object> capabilities;
+        private List<Map<String, Object>> requirements;
+        private List<CompiledMapMatcher> compiled;
+
+        @Setup
+        public void setUp() {
+            capabilities = new HashMap<>();
+            capabilities.put("type", "k8s");
+            capabilities.put("flavor", "large");
+            capabilities.put("region", "us-east-2");
+            capabilities.put("labels", Arrays.asList("jdk8", "ansible", "docker"));
+
+            Map<String, Object> nested = new HashMap<>();
+            nested.put("os", "linux");
+            nested.put("arch", "x86_64");
+            capabilities.put("host", nested);
+
+            requirements = new ArrayList<>(candidates);
+            compiled = new ArrayList<>(candidates);
+            for (int i = 0; i < candidates; i++) {
+                Map<String, Object> r = new HashMap<>();
+                r.put("type", "k8s");
+                r.put("flavor", i % 2 == 0 ? "large|xlarge" : "small.*");
+                r.put("region", "us-.*");
+                r.put("labels", Arrays.asList("jdk.*", "docker"));
+                r.put("host", Collections.singletonMap("os", "lin.*"));
+
+                requirements.add(r);
+                compiled.add(CompiledMapMatcher.compile(r));
+            }
+        }
+    }
+
+    @Benchmark
+    public void recursive(MatcherState s, Blackhole bh) {
+        for (Map<String, Object> r : s.requirements) {
+            bh.consume(MapMatcher.matches(s.capabilities, r));
+        }
+    }
+
+    @Benchmark
+    public void compiled(MatcherState s, Blackhole bh) {
+        for (CompiledMapMatcher m : s.compiled) {
+            bh.consume(m.matches(s.capabilities));
+        }
+    }
+
+    @Benchmark
+    public void compileAndMatch(MatcherState s, Blackhole bh) {
+        for (Map<String, Object> r : s.requirements) {
+            bh.consume(CompiledMapMatcher.compile(r).matches(s.capabilities));
+        }
+    }
+
+    public static void main(String[] args) throws Exception {
+        Options opt = new OptionsBuilder()
+                .include(MapMatcherBenchmark.class.getSimpleName())
+                .build();
+
+        new Runner(opt).run();
+    }
+}
@@ -45,7 +45,7 @@ public class JsonStorageQueryExecDaoTest extends AbstractDaoTest {
         List<String> queries = parseQueries("queries.txt");
 
         JsonStoreQueryDao qd = mock(JsonStoreQueryDao.class);
-        JsonStoreQueryExecDao dao = new JsonStoreQueryExecDao(getConfiguration(), new ConcordObjectMapper(TestObjectMapper.INSTANCE), qd);
+        JsonStoreQueryExecDao dao = new JsonStoreQueryExecDao(getConfiguration(), new ConcordObjectMapper(TestObjectMapper.INSTANCE), qd, mock(JsonStoreQueryCache.class));
 
         UUID storageId = UUID.randomUUID();
         for(String sql : queries) {
@@ -0,0 +1,72 @@
+package com.walmartlabs.concord.server.org.jsonstore;
+
+/*-
+ * *****
+ * Concord
+ * -----
+ * Copyright (C) 2017 - 2020 Walmart Inc.
+ * -----
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * =====
+ */
+
+import org.junit.Test;
+import org.sonatype.siesta.ValidationErrorsException;
+
+import javax.ws.rs.core.Response;
+import javax.ws.rs.core.StreamingOutput;
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Collections;
+
+import static org.junit.Assert.assertEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+public class JsonStoreQueryResourceTest {
+
+    /**
+     * The error must be reported before the response is built, i.e. with the proper status code.
+     */
+    @Test(expected = ValidationErrorsException.class)
+    public void testStreamUnknownQuery() {
+        JsonStoreQueryManager manager = mock(JsonStoreQueryManager.class);
+        when(manager.stream(eq("org"), eq("store"), eq("unknown"), any()))
+                .thenThrow(new ValidationErrorsException("Query not found: unknown"));
+
+        new JsonStoreQueryResource(manager).execStream("org", "store", "unknown", Collections.emptyMap());
+    }
+
+    @Test
+    public void testStream() throws Exception {
+        JsonStoreQueryExecDao.QueryStream rows = h -> {
+            try {
+                h.handle("{\"a\":1}");
+                h.handle("null");
+            } catch (Exception e) {
+                throw new RuntimeException(e);
+            }
+        };
+
+        JsonStoreQueryManager manager = mock(JsonStoreQueryManager.class);
+        when(manager.stream(eq("org"), eq("store"), eq("test"), any())).thenReturn(rows);
+
+        Response resp = new JsonStoreQueryResource(manager).execStream("org", "store", "test", Collections.emptyMap());
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        ((StreamingOutput) resp.getEntity()).write(out);
+        assertEquals("{\"a\":1}\nnull\n", new String(out.toByteArray(), StandardCharsets.UTF_8));
+    }
+}
@@ -0,0 +1,148 @@
+package com.walmartlabs.concord.server.org.jsonstore;
+
+/*-
+ * *****
+ * Concord
+ * -----
+ * Copyright (C) 2017 - 2020 Walmart Inc.
+ * -----
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * =====
+ */
+
+import com.walmartlabs.concord.server.AbstractDaoTest;
+import com.walmartlabs.concord.server.ConcordObjectMapper;
+import com.walmartlabs.concord.server.TestObjectMapper;
+import com.walmartlabs.concord.server.org.OrganizationManager;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Ignore;
+import org.junit.Test;
+
+import java.util.*;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.Assert.*;
+
+@Ignore("local DB connection required")
+public class JsonStoreStatsDaoTest extends AbstractDaoTest {
+
+    private JsonStoreDao storeDao;
+    private JsonStoreStatsDao statsDao;
+    private JsonStoreDataDao dataDao;
+    private UUID storeId;
+
+    @Before
+    public void setUp() {
+        storeDao = new JsonStoreDao(getConfiguration());
+        statsDao = new JsonStoreStatsDao(getConfiguration());
+        dataDao = new JsonStoreDataDao(getConfiguration(), new ConcordObjectMapper(TestObjectMapper.INSTANCE), statsDao);
+        storeId = storeDao.insert(OrganizationManager.DEFAULT_ORG_ID, "store#" + System.currentTimeMillis(), JsonStoreVisibility.PUBLIC, null);
+    }
+
+    @After
+    public void tearDown() {
+        storeDao.delete(storeId);
+    }
+
+    @Test
+    public void testCounters() {
+        dataDao.upsert(storeId, "a", "{\"x\": 1}");
+        dataDao.upsert(storeId, "a", "{\"x\": 12}");
+        assertStats(1, 9);
+
+        Map<String, String> items = new HashMap<>();
+        items.put("a", "{}");
+        items.put("b", "[]");
+        items.put("c", "123");
+        assertEquals(2, dataDao.upsert(storeId, items));
+        assertStats(3, 7);
+
+        // the counters survive the compaction
+        statsDao.compact(storeId);
+        assertStats(3, 7);
+        assertFalse(statsDao.listUncompacted(null, 100).contains(storeId));
+
+        assertTrue(dataDao.delete(storeId, "c"));
+        assertFalse(dataDao.delete(storeId, "c"));
+        assertEquals(Collections.singletonList("b"), dataDao.delete(storeId, Arrays.asList("b", "d")));
+        assertStats(1, 2);
+
+        assertFalse(statsDao.reconcile(storeId));
+    }
+
+    @Test
+    public void testReconcile() {
+        dataDao.upsert(storeId, "a", "{}");
+        statsDao.compact(storeId);
+
+        // e.g. a manual change in the DB
+        tx(tx -> statsDao.update(tx, storeId, 10, 100));
+        assertStats(11, 102);
+
+        assertTrue(statsDao.reconcile(storeId));
+        assertStats(1, 2);
+        assertFalse(statsDao.reconcile(storeId));
+    }
+
+    @Test(timeout = 60000)
+    public void testConcurrentWrites() throws Exception {
+        int threads = 3;
+        int iterations = 50;
+
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        try {
+            List<Future<?>> futures = new ArrayList<>();
+            for (int i = 0; i < threads; i++) {
+                int n = i;
+                futures.add(executor.submit(() -> {
+                    for (int j = 0; j < iterations; j++) {
+                        // own and shared items
+                        dataDao.upsert(storeId, "item-" + n + "-" + j, "{}");
+                        dataDao.upsert(storeId, "shared-" + j % 5, "{\"n\": " + n + "}");
+
+                        Map<String, String> items = new HashMap<>();
+                        items.put("shared-" + j % 5, "[]");
+                        items.put("shared-" + (j + 1) % 5, "[]");
+                        dataDao.upsert(storeId, items);
+
+                        if (j % 3 == 0) {
+                            dataDao.delete(storeId, Arrays.asList("shared-" + j % 5, "item-" + n + "-" + j));
+                        }
+
+                        if (n == 0 && j % 10 == 0) {
+                            statsDao.compact(storeId);
+                        }
+                    }
+                    return null;
+                }));
+            }
+
+            for (Future<?> f : futures) {
+                f.get();
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+
+        assertFalse(statsDao.reconcile(storeId));
+    }
+
+    private void assertStats(long itemCount, long dataSize) {
+        JsonStoreStatsDao.Stats stats = statsDao.get(storeId);
+        assertEquals(itemCount, stats.getItemCount());
+        assertEquals(dataSize, stats.getDataSize());
+    }
+}
@@ -0,0 +1,216 @@
+package com.walmartlabs.concord.server.org.triggers;
+
+/*-
+ * *****
+ * Concord
+ * -----
+ * Copyright (C) 2017 - 2020 Walmart Inc.
+ * -----
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * =====
+ */
+
+import com.walmartlabs.concord.server.cfg.TriggersConfiguration;
+import com.walmartlabs.concord.server.sdk.ConcordApplicationException;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.*;
+import java.util.stream.Collectors;
+
+import static org.junit.Assert.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.ArgumentMatchers.isNull;
+import static org.mockito.Mockito.*;
+
+public class TriggerIndexTest {
+
+    private TriggersDao triggersDao;
+    private TriggerIndex.Dao dao;
+    private TriggerIndex index;
+
+    @Before
+    public void init() {
+        TriggersConfiguration cfg = mock(TriggersConfiguration.class);
+        when(cfg.getIndexReloadInterval()).thenReturn(3600000L);
+
+        triggersDao = mock(TriggersDao.class);
+        dao = mock(TriggerIndex.Dao.class);
+        index = new TriggerIndex(cfg, triggersDao, dao);
+    }
+
+    @After
+    public void tearDown() {
+        index.stop();
+    }
+
+    @Test
+    public void testList() {
+        UUID repoId = UUID.randomUUID();
+
+        TriggerEntry push = trigger(repoId, "github", conditions("githubOrg", "acme", "githubRepo", "app", "type", "push"));
+        TriggerEntry anyRepo = trigger(repoId, "github", conditions("githubOrg", "acme", "githubRepo", "app-.*", "version", 2));
+        TriggerEntry external = trigger(repoId, "test", conditions("name", "a.*"));
+
+        when(dao.listStates(isNull())).thenReturn(states(repoId, "a"));
+        when(triggersDao.list(anyCollection())).thenReturn(Arrays.asList(push, anyRepo, external));
+
+        index.start();
+
+        assertEquals(ids(push), ids(index.list(null, "github", 1, conditions("githubOrg", "acme", "githubRepo", "app", "type", "push"))));
+        assertEquals(ids(), ids(index.list(null, "github", 1, conditions("githubOrg", "acme", "githubRepo", "app", "type", "pull_request"))));
+        assertEquals(ids(anyRepo), ids(index.list(null, "github", 2, conditions("githubOrg", "acme", "githubRepo", "app-1", "type", "push"))));
+        assertEquals(ids(), ids(index.list(UUID.randomUUID(), "github", 1, conditions("githubOrg", "acme", "githubRepo", "app", "type", "push"))));
+
+        // the conditions must match the whole value
+        assertEquals(ids(external), ids(index.list(null, "test", null, conditions("name", "abc"))));
+        assertEquals(ids(), ids(index.list(null, "test", null, conditions("name", "cba"))));
+
+        assertEquals(ids(push, anyRepo), ids(index.list("github")));
+        assertTrue(index.list("unknown").isEmpty());
+    }
+
+    @Test
+    public void testRefresh() {
+        UUID repoA = UUID.randomUUID();
+        UUID repoB = UUID.randomUUID();
+
+        Map<UUID, TriggerIndex.RepositoryState> all = new HashMap<>();
+        all.putAll(states(repoA, "a1"));
+        all.putAll(states(repoB, "b1"));
+        when(dao.listStates(isNull())).thenReturn(all);
+
+        TriggerEntry a1 = trigger(repoA, "test", null);
+        TriggerEntry b1 = trigger(repoB, "test", null);
+        when(triggersDao.list(anyCollection())).thenReturn(Arrays.asList(a1, b1));
+
+        index.start();
+        assertEquals(ids(a1, b1), ids(index.list("test")));
+        verify(triggersDao, times(1)).list(anyCollection());
+
+        // nothing's changed, only the repository's state is checked
+        when(dao.listStates(Collections.singleton(repoA))).thenReturn(states(repoA, "a1"));
+        index.refresh(repoA);
+        verify(triggersDao, times(1)).list(anyCollection());
+        verify(dao).notifyChanged(repoA);
+
+        // only the changed repository is re-read
+        TriggerEntry a2 = trigger(repoA, "test", null);
+        when(dao.listStates(Collections.singleton(repoA))).thenReturn(states(repoA, "a2"));
+        when(triggersDao.list(Collections.singletonList(repoA))).thenReturn(Collections.singletonList(a2));
+        index.refresh(repoA);
+        assertEquals(ids(a2, b1), ids(index.list("test")));
+
+        // the repository was removed or has no triggers anymore
+        when(dao.listStates(Collections.singleton(repoA))).thenReturn(Collections.emptyMap());
+        index.refresh(repoA);
+        assertEquals(ids(b1), ids(index.list("test")));
+
+        // the full reload was performed only once
+        verify(dao, times(1)).listStates(isNull());
+    }
+
+    @Test
+    public void testDisabledRepository() {
+        UUID repoId = UUID.randomUUID();
+
+        when(dao.listStates(isNull())).thenReturn(Collections.singletonMap(repoId, new TriggerIndex.RepositoryState("x", true)));
+        when(triggersDao.list(anyCollection())).thenReturn(Collections.singletonList(trigger(repoId, "test", null)));
+
+        index.start();
+
+        assertTrue(index.isRepositoryDisabled(repoId));
+        assertFalse(index.isRepositoryDisabled(UUID.randomUUID()));
+    }
+
+    @Test(timeout = 10000)
+    public void testRemoteChange() {
+        UUID repoId = UUID.randomUUID();
+
+        when(dao.listStates(isNull())).thenReturn(states(repoId, "a"));
+        when(triggersDao.list(anyCollection())).thenReturn(Collections.singletonList(trigger(repoId, "test", null)));
+
+        index.start();
+
+        TriggerEntry changed = trigger(repoId, "test", null);
+        when(dao.listStates(Collections.singleton(repoId))).thenReturn(states(repoId, "b"));
+        when(triggersDao.list(Collections.singletonList(repoId))).thenReturn(Collections.singletonList(changed));
+
+        // the changes are applied by the loader
+        index.onRemoteChange(repoId);
+        verify(triggersDao, timeout(5000)).list(Collections.singletonList(repoId));
+
+        while (!ids(changed).equals(ids(index.list("test")))) {
+            Thread.yield();
+        }
+
+        // changes made on other nodes are not sent back
+        verify(dao, never()).notifyChanged(any());
+    }
+
+    @Test(timeout = 10000)
+    public void testNotLoaded() {
+        UUID repoId = UUID.randomUUID();
+
+        when(dao.listStates(isNull()))
+                .thenThrow(new RuntimeException("db is down"))
+                .thenReturn(states(repoId, "a"));
+        when(triggersDao.list(anyCollection())).thenReturn(Collections.singletonList(trigger(repoId, "test", null)));
+
+        index.start();
+
+        // the initial load is retried by the loader, the requests are not blocked
+        while (true) {
+            try {
+                assertEquals(1, index.list("test").size());
+                break;
+            } catch (ConcordApplicationException e) {
+                assertEquals(503, e.getResponse().getStatus());
+                Thread.yield();
+            }
+        }
+
+        verify(dao, times(2)).listStates(isNull());
+    }
+
+    private static TriggerEntry trigger(UUID repoId, String eventSource, Map<String, Object> conditions) {
+        return new TriggerEntry(UUID.randomUUID(), null, null, null, null, repoId, null, eventSource, null, null, conditions, null);
+    }
+
+    private static Map<UUID, TriggerIndex.RepositoryState> states(UUID repoId, String fingerprint) {
+        return Collections.singletonMap(repoId, new TriggerIndex.RepositoryState(fingerprint, false));
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <V> Map<String, V> conditions(Object... kvs) {
+        Map<String, V> m = new HashMap<>();
+        for (int i = 0; i < kvs.length; i += 2) {
+            m.put((String) kvs[i], (V) kvs[i + 1]);
+        }
+        return m;
+    }
+
+    private static Set<UUID> ids(TriggerEntry... entries) {
+        return Arrays.stream(entries)
+                .map(TriggerEntry::getId)
+                .collect(Collectors.toSet());
+    }
+
+    private static Set<UUID> ids(List<TriggerEntry> entries) {
+        return entries.stream()
+                .map(TriggerEntry::getId)
+                .collect(Collectors.toSet());
+    }
+}
@@ -0,0 +1,181 @@
+package com.walmartlabs.concord.server.org.triggers;
+
+
+/*-
+ * *****
+ * Concord
+ * -----
+ * Copyright (C) 2017 - 2020 Walmart Inc.
+ * -----
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * =====
+ */
+
+import com.codahale.metrics.Gauge;
+import com.codahale.metrics.MetricRegistry;
+import com.walmartlabs.concord.server.cfg.TriggersConfiguration;
+import com.walmartlabs.concord.server.process.Payload;
+import com.walmartlabs.concord.server.process.ProcessManager;
+import com.walmartlabs.concord.server.process.ProcessSecurityContext;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.util.*;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.Mockito.*;
+
+public class TriggerSchedulerTest {
+
+    private TriggerScheduleDao scheduleDao;
+    private ProcessManager processManager;
+    private TriggersConfiguration cfg;
+    private MetricRegistry metricRegistry;
+    private TriggerScheduler scheduler;
+
+    @Before
+    @SuppressWarnings("unchecked")
+    public void init() throws Exception {
+        scheduleDao = mock(TriggerScheduleDao.class);
+        processManager = mock(ProcessManager.class);
+
+        ProcessSecurityContext securityContext = mock(ProcessSecurityContext.class);
+        when(securityContext.runAs(any(), any())).thenAnswer(i -> ((Callable<Object>) i.getArgument(1)).call());
+
+        cfg = mock(TriggersConfiguration.class);
+        when(cfg.getCronPollInterval()).thenReturn(60000L);
+        when(cfg.getCronBatchSize()).thenReturn(10);
+        when(cfg.getCronWorkerThreads()).thenReturn(1);
+
+        metricRegistry = new MetricRegistry();
+        scheduler = new TriggerScheduler(scheduleDao, mock(TriggerIndex.class), processManager, securityContext, cfg, metricRegistry);
+    }
+
+    @After
+    public void tearDown() {
+        scheduler.stop();
+    }
+
+    @Test(timeout = 10000)
+    public void testDueEntriesAreStarted() throws Exception {
+        CountDownLatch started = new CountDownLatch(2);
+        when(processManager.start(any(Payload.class))).thenAnswer(i -> {
+            started.countDown();
+            return null;
+        });
+
+        when(scheduleDao.claimDue(anyInt()))
+                .thenReturn(due(claim(future()), claim(future())))
+                .thenReturn(due());
+
+        scheduler.start();
+
+        started.await();
+        verify(processManager, times(2)).start(any(Payload.class));
+        verify(scheduleDao, never()).release(any());
+    }
+
+    @Test(timeout = 10000)
+    public void testEntriesBeforeStartAreSkipped() throws Exception {
+        CountDownLatch started = new CountDownLatch(1);
+        when(processManager.start(any(Payload.class))).thenAnswer(i -> {
+            started.countDown();
+            return null;
+        });
+
+        when(scheduleDao.claimDue(anyInt()))
+                .thenReturn(due(claim(new Date(0)), claim(future())))
+                .thenReturn(due());
+
+        scheduler.start();
+
+        started.await();
+        verify(processManager, times(1)).start(any(Payload.class));
+    }
+
+    @Test(timeout = 10000)
+    public void testUnstartedClaimsAreReleasedOnStop() throws Exception {
+        CountDownLatch running = new CountDownLatch(1);
+        CountDownLatch done = new CountDownLatch(1);
+        when(processManager.start(any(Payload.class))).thenAnswer(i -> {
+            running.countDown();
+            done.await();
+            return null;
+        });
+
+        TriggerScheduleDao.Claim a = claim(future());
+        TriggerScheduleDao.Claim b = claim(future());
+        when(scheduleDao.claimDue(anyInt()))
+                .thenReturn(due(a, b))
+                .thenReturn(due());
+
+        scheduler.start();
+
+        // "a" is running, "b" is waiting in the queue
+        running.await();
+        while (scheduledCount() < 1) {
+            Thread.sleep(10);
+        }
+
+        scheduler.stop();
+        done.countDown();
+
+        verify(scheduleDao).release(Collections.singletonList(b));
+        verify(processManager, times(1)).start(any(Payload.class));
+    }
+
+    @Test
+    public void testDisabled() {
+        when(cfg.getCronPollInterval()).thenReturn(0L);
+
+        scheduler.start();
+
+        verifyNoInteractions(scheduleDao);
+        assertEquals(0, scheduledCount());
+    }
+
+    @SuppressWarnings("unchecked")
+    private int scheduledCount() {
+        Gauge<Integer> g = metricRegistry.getGauges().get("cron-trigger-scheduled");
+        assertTrue(g != null);
+        return g.getValue();
+    }
+
+    private static Date future() {
+        return new Date(System.currentTimeMillis() + 1000);
+    }
+
+    private static TriggerScheduleDao.DueEntries due(TriggerScheduleDao.Claim... claims) {
+        return new TriggerScheduleDao.DueEntries(Instant.now(), Arrays.asList(claims));
+    }
+
+    private static TriggerScheduleDao.Claim claim(Date fireAt) {
+        Map<String, Object> conditions = new HashMap<>();
+        conditions.put("spec", "* * * * *");
+
+        TriggerSchedulerEntry e = new TriggerSchedulerEntry(fireAt, UUID.randomUUID(), UUID.randomUUID(), "org",
+                UUID.randomUUID(), "project", UUID.randomUUID(), "repo", conditions, new HashMap<>(),
+                Collections.emptyList(), Collections.emptyMap(), "cron");
+
+        return new TriggerScheduleDao.Claim(e, new Timestamp(fireAt.getTime() + 60000));
+    }
+}
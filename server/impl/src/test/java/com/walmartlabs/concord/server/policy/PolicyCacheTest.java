@@ -0,0 +1,197 @@
+package com.walmartlabs.concord.server.policy;
+
+/*-
+ * *****
+ * Concord
+ * -----
+ * Copyright (C) 2017 - 2020 Walmart Inc.
+ * -----
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * =====
+ */
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.walmartlabs.concord.policyengine.PolicyEngine;
+import com.walmartlabs.concord.server.cfg.PolicyCacheConfiguration;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.*;
+
+import static org.junit.Assert.*;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.Mockito.*;
+
+public class PolicyCacheTest {
+
+    private static final UUID ORG_ID = UUID.randomUUID();
+    private static final UUID PROJECT_ID = UUID.randomUUID();
+    private static final UUID USER_ID = UUID.randomUUID();
+
+    private final List<PolicyCache.PolicyLink> links = new ArrayList<>();
+    private final Map<UUID, PolicyCache.PolicyState> states = new LinkedHashMap<>();
+    private final Map<UUID, Map<String, Object>> rules = new HashMap<>();
+
+    private PolicyCache.Dao dao;
+    private PolicyCache cache;
+
+    @Before
+    public void setUp() {
+        dao = mock(PolicyCache.Dao.class);
+        when(dao.listLinks()).thenAnswer(i -> new ArrayList<>(links));
+        when(dao.listStates()).thenAnswer(i -> new ArrayList<>(states.values()));
+        when(dao.listRules(anyCollection())).thenAnswer(i -> {
+            Collection<UUID> ids = i.getArgument(0);
+            Map<UUID, Map<String, Object>> result = new HashMap<>();
+            ids.forEach(id -> result.put(id, rules.get(id)));
+            return result;
+        });
+
+        cache = new PolicyCache(new ObjectMapper(), mock(PolicyCacheConfiguration.class), dao);
+    }
+
+    @Test
+    public void testLookupOrder() {
+        link(policy("default", null), null, null, null);
+        link(policy("org", null), ORG_ID, null, null);
+        link(policy("project", null), null, PROJECT_ID, null);
+        link(policy("user", null), null, null, USER_ID);
+        link(policy("user-org", null), ORG_ID, null, USER_ID);
+        link(policy("user-project", null), null, PROJECT_ID, USER_ID);
+        cache.refresh();
+
+        assertNames(cache.get(ORG_ID, PROJECT_ID, USER_ID), "user-project");
+        assertNames(cache.get(ORG_ID, UUID.randomUUID(), USER_ID), "user-org");
+        assertNames(cache.get(UUID.randomUUID(), null, USER_ID), "user");
+        assertNames(cache.get(ORG_ID, PROJECT_ID, UUID.randomUUID()), "project");
+        assertNames(cache.get(ORG_ID, null, null), "org");
+        assertNames(cache.get(null, null, null), "default");
+    }
+
+    @Test
+    public void testParentRules() {
+        UUID parent = policy("parent", null, processCfg("a", "parent-a", "b", "parent-b"));
+        UUID child = policy("child", parent, processCfg("a", "child-a"));
+        link(child, ORG_ID, null, null);
+        cache.refresh();
+
+        PolicyEngine pe = cache.get(ORG_ID, null, null);
+        assertNames(pe, "child", "parent");
+        assertEquals(processCfg("a", "child-a", "b", "parent-b").get("processCfg"), pe.getRules().getProcessCfgRules());
+    }
+
+    @Test
+    public void testIncrementalReload() {
+        UUID parent = policy("parent", null);
+        UUID child = policy("child", parent);
+        UUID other = policy("other", null);
+        link(child, ORG_ID, null, null);
+        link(other, null, PROJECT_ID, null);
+
+        cache.refresh();
+        verify(dao, times(1)).listRules(new HashSet<>(Arrays.asList(parent, child, other)));
+
+        PolicyEngine childEngine = cache.get(ORG_ID, null, null);
+        PolicyEngine otherEngine = cache.get(null, PROJECT_ID, null);
+
+        // nothing's changed, the rules are not fetched, the engines are reused
+        cache.refresh();
+        verify(dao, times(1)).listRules(anyCollection());
+        assertSame(childEngine, cache.get(ORG_ID, null, null));
+        assertSame(otherEngine, cache.get(null, PROJECT_ID, null));
+
+        // the parent is modified, only its rules are fetched, only the dependent engine is rebuilt
+        update(parent, processCfg("a", "b"));
+        cache.refresh();
+        verify(dao, times(1)).listRules(Collections.singleton(parent));
+        assertNotSame(childEngine, cache.get(ORG_ID, null, null));
+        assertEquals(processCfg("a", "b").get("processCfg"), cache.get(ORG_ID, null, null).getRules().getProcessCfgRules());
+        assertSame(otherEngine, cache.get(null, PROJECT_ID, null));
+
+        // a new link to an existing policy, the rules are not fetched again
+        link(other, ORG_ID, null, USER_ID);
+        cache.refresh();
+        verify(dao, times(2)).listRules(anyCollection());
+        assertSame(otherEngine, cache.get(ORG_ID, null, USER_ID));
+    }
+
+    @Test
+    public void testRemovedLinks() {
+        UUID p = policy("org", null);
+        link(p, ORG_ID, null, null);
+        cache.refresh();
+        assertNames(cache.get(ORG_ID, null, null), "org");
+
+        links.clear();
+        states.clear();
+        cache.refresh();
+        assertNull(cache.get(ORG_ID, null, null));
+    }
+
+    @Test
+    public void testReloadError() {
+        link(policy("org", null), ORG_ID, null, null);
+        cache.refresh();
+
+        // the previous snapshot is kept
+        when(dao.listLinks()).thenThrow(new RuntimeException("test"));
+        cache.refresh();
+        assertNames(cache.get(ORG_ID, null, null), "org");
+    }
+
+    private UUID policy(String name, UUID parentId) {
+        return policy(name, parentId, Collections.emptyMap());
+    }
+
+    private UUID policy(String name, UUID parentId, Map<String, Object> r) {
+        UUID id = UUID.randomUUID();
+        states.put(id, ImmutablePolicyState.builder()
+                .id(id)
+                .parentId(parentId)
+                .name(name)
+                .rulesHash(String.valueOf(r.hashCode()))
+                .build());
+        rules.put(id, r);
+        return id;
+    }
+
+    private void update(UUID id, Map<String, Object> r) {
+        states.put(id, ImmutablePolicyState.builder()
+                .from(states.get(id))
+                .rulesHash(String.valueOf(r.hashCode()))
+                .build());
+        rules.put(id, r);
+    }
+
+    private void link(UUID policyId, UUID orgId, UUID projectId, UUID userId) {
+        links.add(ImmutablePolicyLink.builder()
+                .policyId(policyId)
+                .orgId(orgId)
+                .projectId(projectId)
+                .userId(userId)
+                .build());
+    }
+
+    private static Map<String, Object> processCfg(String... kv) {
+        Map<String, Object> cfg = new HashMap<>();
+        for (int i = 0; i < kv.length; i += 2) {
+            cfg.put(kv[i], kv[i + 1]);
+        }
+        return Collections.singletonMap("processCfg", cfg);
+    }
+
+    private static void assertNames(PolicyEngine pe, String... names) {
+        assertNotNull(pe);
+        assertEquals(Arrays.asList(names), pe.policyNames());
+    }
+}
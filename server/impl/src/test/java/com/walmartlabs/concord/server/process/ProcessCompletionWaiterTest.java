@@ -0,0 +1,133 @@
+package com.walmartlabs.concord.server.process;
+
+/*-
+ * *****
+ * Concord
+ * -----
+ * Copyright (C) 2017 - 2020 Walmart Inc.
+ * -----
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * =====
+ */
+
+import com.codahale.metrics.MetricRegistry;
+import com.walmartlabs.concord.server.cfg.ProcessConfiguration;
+import com.walmartlabs.concord.server.process.queue.ProcessQueueDao;
+import com.walmartlabs.concord.server.process.queue.ProcessQueueManager;
+import com.walmartlabs.concord.server.process.queue.ProcessStatusNotifier;
+import com.walmartlabs.concord.server.sdk.ProcessStatus;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.ArgumentCaptor;
+
+import javax.ws.rs.container.AsyncResponse;
+import javax.ws.rs.container.TimeoutHandler;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.Mockito.*;
+
+public class ProcessCompletionWaiterTest {
+
+    private final Map<UUID, ProcessStatus> statuses = new ConcurrentHashMap<>();
+    private final List<ProcessEntry> entries = Collections.emptyList();
+
+    private ProcessQueueDao queueDao;
+    private ProcessStatusNotifier notifier;
+    private ProcessCompletionWaiter waiter;
+
+    @Before
+    public void init() {
+        ProcessConfiguration cfg = mock(ProcessConfiguration.class);
+        when(cfg.isStatusNotifications()).thenReturn(true);
+
+        queueDao = mock(ProcessQueueDao.class);
+        when(queueDao.getStatuses(anyCollection())).thenAnswer(i -> new HashMap<>(statuses));
+        when(queueDao.get(anyList())).thenReturn(entries);
+
+        notifier = new ProcessStatusNotifier(new MetricRegistry());
+        waiter = new ProcessCompletionWaiter(cfg, mock(ProcessQueueManager.class), queueDao, notifier);
+    }
+
+    @Test
+    public void testWaitForAll() {
+        UUID a = start(ProcessStatus.RUNNING);
+        UUID b = start(ProcessStatus.RUNNING);
+
+        AsyncResponse response = mock(AsyncResponse.class);
+        waiter.waitForStatus(new HashSet<>(Arrays.asList(a, b)), ProcessWaitMode.ALL, 60000, response);
+        verify(queueDao, times(1)).getStatuses(anyCollection());
+
+        // non-final statuses are ignored
+        statuses.put(a, ProcessStatus.SUSPENDED);
+        notifier.onStatusChange(a, ProcessStatus.SUSPENDED);
+
+        statuses.put(a, ProcessStatus.FINISHED);
+        notifier.onStatusChange(a, ProcessStatus.FINISHED);
+        verify(queueDao, timeout(5000).times(2)).getStatuses(anyCollection());
+        verify(response, never()).resume(any(Object.class));
+
+        statuses.put(b, ProcessStatus.FAILED);
+        notifier.onStatusChange(b, ProcessStatus.FAILED);
+        verify(response, timeout(5000)).resume(entries);
+    }
+
+    @Test
+    public void testWaitForAny() {
+        UUID a = start(ProcessStatus.RUNNING);
+        UUID b = start(ProcessStatus.RUNNING);
+
+        AsyncResponse response = mock(AsyncResponse.class);
+        waiter.waitForStatus(new HashSet<>(Arrays.asList(a, b)), ProcessWaitMode.ANY, 60000, response);
+
+        statuses.put(b, ProcessStatus.CANCELLED);
+        notifier.onStatusChange(b, ProcessStatus.CANCELLED);
+        verify(response, timeout(5000)).resume(entries);
+    }
+
+    @Test
+    public void testResync() {
+        UUID a = start(ProcessStatus.RUNNING);
+
+        AsyncResponse response = mock(AsyncResponse.class);
+        waiter.waitForStatus(Collections.singleton(a), ProcessWaitMode.ALL, 60000, response);
+
+        // the notification was lost
+        statuses.put(a, ProcessStatus.FINISHED);
+        notifier.onResync();
+        verify(response, timeout(5000)).resume(entries);
+    }
+
+    @Test
+    public void testTimeout() {
+        UUID a = start(ProcessStatus.RUNNING);
+
+        AsyncResponse response = mock(AsyncResponse.class);
+        waiter.waitForStatus(Collections.singleton(a), ProcessWaitMode.ALL, 60000, response);
+
+        ArgumentCaptor<TimeoutHandler> handler = ArgumentCaptor.forClass(TimeoutHandler.class);
+        verify(response).setTimeoutHandler(handler.capture());
+
+        // the current entries are returned, the caller is expected to repeat the request
+        handler.getValue().handleTimeout(response);
+        verify(response).resume(entries);
+    }
+
+    private UUID start(ProcessStatus status) {
+        UUID id = UUID.randomUUID();
+        statuses.put(id, status);
+        return id;
+    }
+}
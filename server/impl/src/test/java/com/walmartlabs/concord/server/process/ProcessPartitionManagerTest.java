@@ -0,0 +1,158 @@
+package com.walmartlabs.concord.server.process;
+
+
+/*-
+ * *****
+ * Concord
+ * -----
+ * Copyright (C) 2017 - 2020 Walmart Inc.
+ * -----
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * =====
+ */
+
+import com.walmartlabs.concord.server.cfg.MainDBConfiguration;
+import com.walmartlabs.concord.server.cfg.ProcessConfiguration;
+import com.walmartlabs.concord.server.process.ProcessPartitionManager.Partition;
+import com.walmartlabs.concord.server.process.ProcessPartitionManager.PartitionDao;
+import org.jooq.Table;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.sql.Timestamp;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Set;
+
+import static com.walmartlabs.concord.server.jooq.tables.ProcessEvents.PROCESS_EVENTS;
+import static com.walmartlabs.concord.server.jooq.tables.ProcessLogs.PROCESS_LOGS;
+import static com.walmartlabs.concord.server.jooq.tables.ProcessState.PROCESS_STATE;
+import static org.junit.Assert.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+public class ProcessPartitionManagerTest {
+
+    private ProcessConfiguration cfg;
+    private MainDBConfiguration dbCfg;
+    private PartitionDao dao;
+    private ProcessPartitionManager manager;
+
+    @Before
+    public void init() {
+        cfg = mock(ProcessConfiguration.class);
+        when(cfg.getPartitionManagerInterval()).thenReturn(3600L);
+        when(cfg.getPartitionsAhead()).thenReturn(2);
+        when(cfg.isEventsCleanup()).thenReturn(true);
+        when(cfg.isLogsCleanup()).thenReturn(true);
+        when(cfg.isStateCleanup()).thenReturn(true);
+
+        dbCfg = mock(MainDBConfiguration.class);
+        dao = mock(PartitionDao.class);
+
+        manager = new ProcessPartitionManager(cfg, dbCfg, dao);
+    }
+
+    @Test
+    public void testParseBounds() {
+        Partition p = PartitionDao.toPartition("process_logs_p20200301", "FOR VALUES FROM ('2020-03-01 00:00:00') TO ('2020-03-02 00:00:00')");
+        assertEquals("process_logs_p20200301", p.name());
+        assertEquals(LocalDateTime.of(2020, 3, 1, 0, 0), p.lowerBound());
+        assertEquals(LocalDateTime.of(2020, 3, 2, 0, 0), p.upperBound());
+
+        p = PartitionDao.toPartition("process_logs_legacy", "FOR VALUES FROM (MINVALUE) TO ('2020-02-15 00:00:00')");
+        assertNull(p.lowerBound());
+        assertEquals(LocalDateTime.of(2020, 2, 15, 0, 0), p.upperBound());
+
+        p = PartitionDao.toPartition("process_logs_max", "FOR VALUES FROM ('2020-02-15 12:30:00.5') TO (MAXVALUE)");
+        assertEquals(LocalDateTime.of(2020, 2, 15, 12, 30, 0, 500_000_000), p.lowerBound());
+        assertNull(p.upperBound());
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void testParseInvalidBounds() {
+        PartitionDao.toPartition("process_logs_default", "DEFAULT");
+    }
+
+    @Test
+    public void testIntervalDependsOnTables() {
+        // the option is on but the tables weren't converted (e.g. PostgreSQL 10)
+        when(dbCfg.isProcessTablePartitioning()).thenReturn(true);
+        assertEquals(0, manager.getIntervalInSec());
+
+        // the tables were converted, the option was turned off later
+        when(dbCfg.isProcessTablePartitioning()).thenReturn(false);
+        when(dao.isPartitioned(PROCESS_LOGS)).thenReturn(true);
+        assertEquals(3600, manager.getIntervalInSec());
+    }
+
+    @Test
+    public void testCreatePartitions() {
+        LocalDate today = LocalDate.of(2020, 3, 10);
+        when(dao.today()).thenReturn(today);
+        when(dao.isPartitioned(PROCESS_LOGS)).thenReturn(true);
+
+        // the server was down for a while, the last partition ends before today
+        when(dao.listPartitions(PROCESS_LOGS)).thenReturn(Arrays.asList(
+                new Partition("process_logs_legacy", null, LocalDateTime.of(2020, 3, 7, 0, 0)),
+                new Partition("process_logs_p20200307", LocalDateTime.of(2020, 3, 7, 0, 0), LocalDateTime.of(2020, 3, 8, 0, 0))));
+
+        manager.start();
+
+        for (LocalDate d = LocalDate.of(2020, 3, 8); !d.isAfter(today.plusDays(2)); d = d.plusDays(1)) {
+            verify(dao).createPartition(PROCESS_LOGS, d);
+        }
+        verify(dao, times(5)).createPartition(any(), any());
+    }
+
+    @Test
+    public void testDropOldPartitions() {
+        Timestamp cutoff = Timestamp.valueOf(LocalDateTime.of(2020, 3, 10, 12, 0));
+
+        when(dao.isPartitioned(PROCESS_LOGS)).thenReturn(true);
+        when(dao.isPartitioned(PROCESS_STATE)).thenReturn(true);
+        when(cfg.isStateCleanup()).thenReturn(false);
+
+        Partition legacy = new Partition("process_logs_legacy", null, LocalDateTime.of(2020, 3, 1, 0, 0));
+        Partition old = partition(LocalDate.of(2020, 3, 9));
+        Partition pinned = partition(LocalDate.of(2020, 3, 8));
+        Partition current = partition(LocalDate.of(2020, 3, 10));
+        Partition unbounded = new Partition("process_logs_max", LocalDateTime.of(2020, 3, 11, 0, 0), null);
+
+        when(dao.listPartitions(PROCESS_LOGS)).thenReturn(Arrays.asList(legacy, old, pinned, current, unbounded));
+        when(dao.hasRecentProcesses(eq(pinned), any())).thenReturn(true);
+        when(dao.listPartitions(PROCESS_STATE)).thenReturn(Collections.singletonList(partition(LocalDate.of(2020, 3, 1))));
+
+        Set<Table<?>> partitioned = manager.dropOldPartitions(cutoff);
+        assertEquals(2, partitioned.size());
+        assertTrue(partitioned.contains(PROCESS_LOGS));
+        assertTrue(partitioned.contains(PROCESS_STATE));
+        assertFalse(partitioned.contains(PROCESS_EVENTS));
+
+        verify(dao).dropPartition(legacy);
+        verify(dao).dropPartition(old);
+        verify(dao, never()).dropPartition(pinned);
+        verify(dao, never()).dropPartition(current);
+        verify(dao, never()).dropPartition(unbounded);
+
+        // the cleanup of PROCESS_STATE is disabled
+        verify(dao, never()).listPartitions(PROCESS_STATE);
+    }
+
+    private static Partition partition(LocalDate d) {
+        return new Partition("process_logs_p" + d, d.atStartOfDay(), d.plusDays(1).atStartOfDay());
+    }
+}
@@ -0,0 +1,285 @@
+package com.walmartlabs.concord.server.process.pipelines;
+
+
+/*-
+ * *****
+ * Concord
+ * -----
+ * Copyright (C) 2017 - 2020 Walmart Inc.
+ * -----
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * =====
+ */
+
+import com.google.inject.Guice;
+import com.google.inject.Injector;
+import com.google.inject.Key;
+import com.typesafe.config.Config;
+import com.walmartlabs.concord.common.IOUtils;
+import com.walmartlabs.concord.common.TemporaryPath;
+import com.walmartlabs.concord.db.MainDB;
+import com.walmartlabs.concord.server.ServerModule;
+import com.walmartlabs.concord.server.org.OrganizationManager;
+import com.walmartlabs.concord.server.process.PartialProcessKey;
+import com.walmartlabs.concord.server.process.Payload;
+import com.walmartlabs.concord.server.process.PayloadBuilder;
+import com.walmartlabs.concord.server.process.ProcessKey;
+import com.walmartlabs.concord.server.process.queue.ProcessQueueManager;
+import com.walmartlabs.concord.server.sdk.ProcessStatus;
+import com.walmartlabs.concord.server.security.UserPrincipal;
+import com.walmartlabs.concord.server.security.internal.InternalRealm;
+import com.walmartlabs.concord.server.user.UserEntry;
+import com.walmartlabs.concord.server.user.UserManager;
+import com.walmartlabs.concord.server.user.UserType;
+import com.walmartlabs.ollie.config.ConfigurationProcessor;
+import com.walmartlabs.ollie.config.EnvironmentSelector;
+import com.walmartlabs.ollie.config.OllieConfigurationModule;
+import org.apache.commons.compress.archivers.zip.ZipArchiveOutputStream;
+import org.apache.shiro.mgt.DefaultSecurityManager;
+import org.apache.shiro.mgt.SecurityManager;
+import org.apache.shiro.subject.SimplePrincipalCollection;
+import org.apache.shiro.subject.Subject;
+import org.apache.shiro.util.ThreadContext;
+import org.eclipse.sisu.space.BeanScanning;
+import org.eclipse.sisu.space.SpaceModule;
+import org.eclipse.sisu.space.URLClassSpace;
+import org.eclipse.sisu.wire.WireModule;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import javax.sql.DataSource;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Base64;
+import java.util.Random;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the latency of starting a process: {@link NewProcessPipeline}
+ * (the API call) and {@link EnqueueProcessPipeline} (the enqueue worker)
+ * with workspace archives of different sizes.
+ * <p>
+ * The pipelines are created by the server's injector and use the same
+ * database as the DAO tests (see {@code AbstractDaoTest}). The server's
+ * configuration file is taken from the {@code ollie.conf} system property
+ * or from the {@code server/dist} module, the database and the secret store
+ * settings are overridden. The benchmark leaves its processes in the
+ * database, use a disposable instance. Run with {@link #main(String[])}.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(1)
+public class PipelineBenchmark {
+
+    private static final String DEFAULT_CFG_FILE = "../dist/src/main/resources/concord-server.conf";
+
+    /**
+     * Each file of the synthetic workspace is at most this big.
+     */
+    private static final int MAX_FILE_SIZE = 64 * 1024;
+
+    @State(Scope.Benchmark)
+    public static class ServerState {
+
+        /**
+         * Total size of the workspace archive's files, KB.
+         */
+        @Param({"1", "256", "4096"})
+        public int payloadKb;
+
+        private String prevCfgFile;
+        private Path cfgFile;
+        private Injector injector;
+
+        private NewProcessPipeline newProcessPipeline;
+        private EnqueueProcessPipeline enqueueProcessPipeline;
+        private ProcessQueueManager queueManager;
+
+        private UserEntry initiator;
+        private Subject subject;
+        private byte[] archive;
+
+        @Setup
+        public void setUp() throws Exception {
+            prevCfgFile = System.getProperty("ollie.conf");
+            cfgFile = createCfgFile(prevCfgFile != null ? prevCfgFile : DEFAULT_CFG_FILE);
+            System.setProperty("ollie.conf", cfgFile.toAbsolutePath().toString());
+
+            EnvironmentSelector environmentSelector = new EnvironmentSelector();
+            Config cfg = new ConfigurationProcessor("concord-server", environmentSelector.select()).process();
+
+            SecurityManager securityManager = new DefaultSecurityManager();
+
+            injector = Guice.createInjector(
+                    new WireModule(
+                            new SpaceModule(new URLClassSpace(PipelineBenchmark.class.getClassLoader()), BeanScanning.CACHE),
+                            new OllieConfigurationModule("com.walmartlabs.concord.server", cfg),
+                            new ServerModule(),
+                            // normally provided by the server's security module
+                            binder -> binder.bind(SecurityManager.class).toInstance(securityManager)));
+
+            newProcessPipeline = injector.getInstance(NewProcessPipeline.class);
+            enqueueProcessPipeline = injector.getInstance(EnqueueProcessPipeline.class);
+            queueManager = injector.getInstance(ProcessQueueManager.class);
+
+            initiator = injector.getInstance(UserManager.class).getOrCreate("admin", null, UserType.LOCAL);
+
+            SimplePrincipalCollection principals = new SimplePrincipalCollection();
+            principals.add(new UserPrincipal(InternalRealm.REALM_NAME, initiator), InternalRealm.REALM_NAME);
+
+            subject = new Subject.Builder(securityManager)
+                    .sessionCreationEnabled(false)
+                    .authenticated(true)
+                    .principals(principals)
+                    .buildSubject();
+
+            archive = createArchive(payloadKb * 1024);
+        }
+
+        @TearDown
+        public void tearDown() throws Exception {
+            DataSource ds = injector.getInstance(Key.get(DataSource.class, MainDB.class));
+            if (ds instanceof Closeable) {
+                ((Closeable) ds).close();
+            }
+
+            Files.deleteIfExists(cfgFile);
+            if (prevCfgFile != null) {
+                System.setProperty("ollie.conf", prevCfgFile);
+            } else {
+                System.clearProperty("ollie.conf");
+            }
+        }
+
+        /**
+         * Creates a new process the same way the multipart "start process"
+         * endpoint does.
+         */
+        private Payload newProcess() throws IOException {
+            // the enqueue pipeline unbinds the subject after each run
+            ThreadContext.bind(subject);
+
+            Payload payload = PayloadBuilder.start(PartialProcessKey.create())
+                    .workspace(new ByteArrayInputStream(archive))
+                    .organization(OrganizationManager.DEFAULT_ORG_ID)
+                    .initiator(initiator.getId(), initiator.getName())
+                    .build();
+
+            return newProcessPipeline.process(payload);
+        }
+
+        /**
+         * Enqueues a NEW process the same way the enqueue worker does.
+         */
+        private Payload enqueue(ProcessKey processKey) throws IOException {
+            if (!queueManager.updateExpectedStatus(processKey, ProcessStatus.NEW, ProcessStatus.PREPARING)) {
+                throw new IllegalStateException("Can't enqueue " + processKey);
+            }
+
+            Payload payload = PayloadBuilder.start(processKey).build();
+            return enqueueProcessPipeline.process(payload);
+        }
+    }
+
+    @Benchmark
+    public Payload newProcess(ServerState state) throws IOException {
+        return state.newProcess();
+    }
+
+    @Benchmark
+    public Payload newAndEnqueue(ServerState state) throws IOException {
+        Payload payload = state.newProcess();
+        return state.enqueue(payload.getProcessKey());
+    }
+
+    public static void main(String[] args) throws Exception {
+        Options opt = new OptionsBuilder()
+                .include(PipelineBenchmark.class.getSimpleName())
+                .build();
+
+        new Runner(opt).run();
+    }
+
+    /**
+     * Creates a configuration file with the same database settings as
+     * {@code AbstractDaoTest}, the rest comes from the specified base
+     * configuration file.
+     */
+    private static Path createCfgFile(String base) throws IOException {
+        Path src = Paths.get(base).toAbsolutePath();
+
+        String s = "include file(\"" + src + "\")\n" +
+                "concord-server {\n" +
+                "    db {\n" +
+                "        url = \"jdbc:postgresql://localhost:5432/postgres\"\n" +
+                "        appUsername = \"postgres\"\n" +
+                "        appPassword = \"q1\"\n" +
+                "        inventoryUsername = \"postgres\"\n" +
+                "        inventoryPassword = \"q1\"\n" +
+                "    }\n" +
+                "    secretStore {\n" +
+                "        serverPassword = \"" + base64("benchmark") + "\"\n" +
+                "        secretStoreSalt = \"" + base64("benchmark") + "\"\n" +
+                "        projectSecretSalt = \"" + base64("benchmark") + "\"\n" +
+                "    }\n" +
+                "}\n";
+
+        Path dst = IOUtils.createTempFile("benchmark", ".conf");
+        Files.write(dst, s.getBytes());
+        return dst;
+    }
+
+    /**
+     * Creates a workspace archive with a simple flow and random data files
+     * of the specified total size.
+     */
+    private static byte[] createArchive(int size) throws IOException {
+        Random rnd = new Random(42);
+
+        try (TemporaryPath workDir = IOUtils.tempDir("workspace")) {
+            Path dir = workDir.path();
+
+            Files.write(dir.resolve("concord.yml"), ("flows:\n" +
+                    "  default:\n" +
+                    "    - log: \"Hello!\"\n").getBytes());
+
+            Path dataDir = Files.createDirectories(dir.resolve("data"));
+            for (int i = 0; size > 0; i++) {
+                byte[] ab = new byte[Math.min(size, MAX_FILE_SIZE)];
+                rnd.nextBytes(ab);
+                Files.write(dataDir.resolve("file" + i + ".bin"), ab);
+                size -= ab.length;
+            }
+
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            try (ZipArchiveOutputStream zip = new ZipArchiveOutputStream(out)) {
+                IOUtils.zip(zip, dir);
+            }
+            return out.toByteArray();
+        }
+    }
+
+    private static String base64(String s) {
+        return Base64.getEncoder().encodeToString(s.getBytes());
+    }
+}
@@ -0,0 +1,148 @@
+package com.walmartlabs.concord.server.process.pipelines;
+
+
+/*-
+ * *****
+ * Concord
+ * -----
+ * Copyright (C) 2017 - 2020 Walmart Inc.
+ * -----
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * =====
+ */
+import com.codahale.metrics.MetricRegistry;
+import com.google.inject.Guice;
+import com.google.inject.Injector;
+import com.walmartlabs.concord.server.cfg.ProcessConfiguration;
+import com.walmartlabs.concord.server.process.Payload;
+import com.walmartlabs.concord.server.process.ProcessKey;
+import com.walmartlabs.concord.server.process.logs.ProcessLogManager;
+import com.walmartlabs.concord.server.process.pipelines.processors.Chain;
+import com.walmartlabs.concord.server.process.pipelines.processors.PayloadProcessor;
+import com.walmartlabs.concord.server.process.pipelines.processors.Pipeline;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import javax.inject.Inject;
+import java.sql.Timestamp;
+import java.util.Arrays;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * Measures the overhead of the per-processor pipeline profiling
+ * ({@link com.walmartlabs.concord.server.process.pipelines.processors.PipelineProfiler}):
+ * a plain {@link Chain} vs a {@link Pipeline} with the same processors,
+ * with and without the allocation tracking.
+ * <p>
+ * The processors themselves do nothing, so the results show the fixed cost
+ * added to each enqueue/start request. See {@link PipelineBenchmark} for
+ * the actual pipelines. Run with {@link #main(String[])}.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(1)
+public class PipelineOverheadBenchmark {
+
+    @State(Scope.Benchmark)
+    public static class PipelineState {
+
+        /**
+         * Roughly the size of {@link NewProcessPipeline}.
+         */
+        @Param({"10", "40"})
+        public int processors;
+
+        @Param({"false", "true"})
+        public boolean trackAllocations;
+
+        private Chain chain;
+        private Pipeline pipeline;
+
+        @Setup
+        public void setUp() {
+            ProcessConfiguration processCfg = mock(ProcessConfiguration.class);
+            // enables the allocation tracking, the pipeline never takes that long
+            when(processCfg.getPipelineProfileThreshold()).thenReturn(TimeUnit.HOURS.toMillis(1));
+            when(processCfg.isPipelineProfileAllocations()).thenReturn(trackAllocations);
+
+            Injector injector = Guice.createInjector(binder -> {
+                binder.bind(MetricRegistry.class).toInstance(new MetricRegistry());
+                binder.bind(ProcessConfiguration.class).toInstance(processCfg);
+                binder.bind(ProcessLogManager.class).toInstance(mock(ProcessLogManager.class));
+            });
+
+            PayloadProcessor[] ps = new PayloadProcessor[processors];
+            Arrays.fill(ps, new PassThroughProcessor());
+            this.chain = new Chain(ps);
+
+            this.pipeline = new BenchmarkPipeline(injector, processors);
+        }
+    }
+
+    @Benchmark
+    public Payload chain(PipelineState state) {
+        return state.chain.process(payload());
+    }
+
+    @Benchmark
+    public Payload pipeline(PipelineState state) {
+        return state.pipeline.process(payload());
+    }
+
+    public static void main(String[] args) throws Exception {
+        Options opt = new OptionsBuilder()
+                .include(PipelineOverheadBenchmark.class.getSimpleName())
+                .build();
+
+        new Runner(opt).run();
+    }
+
+    private static Payload payload() {
+        ProcessKey processKey = new ProcessKey(UUID.randomUUID(), new Timestamp(System.currentTimeMillis()));
+        return new Payload(processKey);
+    }
+
+    private static class BenchmarkPipeline extends Pipeline {
+
+        private BenchmarkPipeline(Injector injector, int processors) {
+            super(injector, processors(processors));
+        }
+
+        @SuppressWarnings("unchecked")
+        private static Class<? extends PayloadProcessor>[] processors(int count) {
+            Class<? extends PayloadProcessor>[] result = new Class[count];
+            Arrays.fill(result, PassThroughProcessor.class);
+            return result;
+        }
+    }
+
+    public static class PassThroughProcessor implements PayloadProcessor {
+
+        @Inject
+        public PassThroughProcessor() {
+        }
+
+        @Override
+        public Payload process(Chain chain, Payload payload) {
+            return chain.process(payload.putHeader(Payload.ENTRY_POINT, "default"));
+        }
+    }
+}
@@ -0,0 +1,143 @@
+package com.walmartlabs.concord.server.process.pipelines.processors;
+
+
+/*-
+ * *****
+ * Concord
+ * -----
+ * Copyright (C) 2017 - 2020 Walmart Inc.
+ * -----
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * =====
+ */
+
+import com.walmartlabs.concord.db.AbstractDao;
+import com.walmartlabs.concord.sdk.Constants;
+import com.walmartlabs.concord.server.process.Payload;
+import com.walmartlabs.concord.server.process.PayloadBuilder;
+import com.walmartlabs.concord.server.process.ProcessException;
+import com.walmartlabs.concord.server.process.ProcessKey;
+import com.walmartlabs.concord.server.process.ProcessSecurityContext;
+import com.walmartlabs.concord.server.process.queue.ProcessQueueDao;
+import com.walmartlabs.concord.server.process.queue.ProcessQueueManager;
+import com.walmartlabs.concord.server.process.state.ProcessStateManager;
+import com.walmartlabs.concord.server.sdk.ProcessStatus;
+import org.jooq.DSLContext;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.sql.Timestamp;
+import java.util.*;
+
+import static org.junit.Assert.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+public class BulkStartProcessorTest {
+
+    private DSLContext tx;
+    private ProcessStateManager stateManager;
+    private ProcessQueueManager queueManager;
+    private PayloadStoreProcessor payloadStore;
+    private List<Map<String, Object>> serialized;
+
+    private BulkStartProcessor processor;
+
+    @Before
+    public void init() {
+        tx = mock(DSLContext.class);
+
+        ProcessQueueDao queueDao = mock(ProcessQueueDao.class);
+        doAnswer(i -> {
+            ((AbstractDao.Tx) i.getArgument(0)).run(tx);
+            return null;
+        }).when(queueDao).tx(any());
+
+        stateManager = mock(ProcessStateManager.class);
+        queueManager = mock(ProcessQueueManager.class);
+
+        serialized = new ArrayList<>();
+        payloadStore = mock(PayloadStoreProcessor.class);
+        when(payloadStore.serialize(any())).thenAnswer(i -> {
+            serialized.add(i.getArgument(0));
+            return new byte[0];
+        });
+
+        processor = new BulkStartProcessor(queueDao, queueManager, stateManager, mock(ProcessSecurityContext.class), payloadStore);
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    public void testInstances() throws Exception {
+        ProcessKey processKey = new ProcessKey(UUID.randomUUID(), new Timestamp(System.currentTimeMillis()));
+
+        Map<String, Object> args = new HashMap<>();
+        args.put("x", 1);
+        args.put("y", 2);
+
+        Payload payload = PayloadBuilder.start(processKey)
+                .configuration(Collections.singletonMap(Constants.Request.ARGUMENTS_KEY, args))
+                .build()
+                .putHeader(BulkStartProcessor.INSTANCE_ARGUMENTS, Arrays.asList(
+                        Collections.singletonMap("x", 10),
+                        Collections.emptyMap(),
+                        Collections.singletonMap("z", 30)));
+
+        Payload result = processor.process(new Chain(), payload);
+
+        List<ProcessKey> keys = result.getHeader(BulkStartProcessor.PROCESS_KEYS);
+        assertEquals(3, keys.size());
+        assertEquals(processKey, keys.get(0));
+        assertEquals(3, new HashSet<>(keys).size());
+        keys.forEach(k -> assertEquals(processKey.getCreatedAt(), k.getCreatedAt()));
+
+        // the instance arguments are merged with the common ones
+        assertEquals(3, serialized.size());
+        List<Map<String, Object>> instanceArgs = new ArrayList<>();
+        for (Map<String, Object> h : serialized) {
+            assertFalse(h.containsKey(BulkStartProcessor.INSTANCE_ARGUMENTS.name()));
+            Map<String, Object> cfg = (Map<String, Object>) h.get(Payload.CONFIGURATION.name());
+            instanceArgs.add((Map<String, Object>) cfg.get(Constants.Request.ARGUMENTS_KEY));
+        }
+
+        Map<String, Object> a = new HashMap<>(args);
+        a.put("x", 10);
+        Map<String, Object> c = new HashMap<>(args);
+        c.put("z", 30);
+        assertTrue(instanceArgs.contains(a));
+        assertTrue(instanceArgs.contains(args));
+        assertTrue(instanceArgs.contains(c));
+
+        // the attachments are imported once and copied to the rest of the instances
+        verify(stateManager).insert(eq(tx), eq(keys), eq(PayloadStoreProcessor.PAYLOAD_PATH), any());
+        verify(stateManager).importPath(eq(tx), eq(processKey), eq(PayloadStoreProcessor.ATTACHMENTS_PATH), any(), any());
+        verify(stateManager).copyPath(tx, processKey, keys.subList(1, 3), PayloadStoreProcessor.ATTACHMENTS_PATH);
+        verify(queueManager).insert(eq(tx), eq(keys), any(), eq(ProcessStatus.NEW));
+    }
+
+    @Test
+    public void testNoInstances() throws Exception {
+        ProcessKey processKey = new ProcessKey(UUID.randomUUID(), new Timestamp(System.currentTimeMillis()));
+        Payload payload = PayloadBuilder.start(processKey).build()
+                .putHeader(BulkStartProcessor.INSTANCE_ARGUMENTS, Collections.emptyList());
+
+        try {
+            processor.process(new Chain(), payload);
+            fail("exception expected");
+        } catch (ProcessException e) {
+            assertTrue(e.getMessage().contains("At least one instance"));
+        }
+
+        verifyNoInteractions(queueManager);
+    }
+}
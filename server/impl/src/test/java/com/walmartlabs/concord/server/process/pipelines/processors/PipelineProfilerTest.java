@@ -0,0 +1,273 @@
+package com.walmartlabs.concord.server.org.jsonstore;
+
+/*-
+ * *****
+ * Concord
+ * -----
+ * Copyright (C) 2017 - 2020 Walmart Inc.
+ * -----
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * =====
+ */
+
+import com.codahale.metrics.MetricRegistry;
+import com.codahale.metrics.Timer;
+import com.google.inject.Guice;
+import com.google.inject.Injector;
+import com.walmartlabs.concord.server.cfg.ProcessConfiguration;
+import com.walmartlabs.concord.server.process.Payload;
+import com.walmartlabs.concord.server.process.ProcessKey;
+import com.walmartlabs.concord.server.process.logs.ProcessLogManager;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.ArgumentCaptor;
+
+import javax.inject.Inject;
+import java.sql.Timestamp;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+public class PipelineProfilerTest {
+
+    private MetricRegistry metricRegistry;
+    private ProcessLogManager logManager;
+    private ProcessConfiguration cfg;
+
+    @Before
+    public void setUp() {
+        metricRegistry = new MetricRegistry();
+        logManager = mock(ProcessLogManager.class);
+        cfg = mock(ProcessConfiguration.class);
+    }
+
+    @Test
+    public void testSelfTimes() {
+        Pipeline pipeline = new TestPipeline(injector(), FastProcessor.class, SlowProcessor.class, NoopProcessor.class);
+        pipeline.process(payload());
+
+        // each processor's timer doesn't include the rest of the chain
+        Timer fast = timer(FastProcessor.class);
+        Timer slow = timer(SlowProcessor.class);
+        assertEquals(1, fast.getCount());
+        assertEquals(1, slow.getCount());
+        assertEquals(1, timer(NoopProcessor.class).getCount());
+
+        long fastNanos = fast.getSnapshot().getMax();
+        long slowNanos = slow.getSnapshot().getMax();
+        assertTrue(fastNanos >= TimeUnit.MILLISECONDS.toNanos(FastProcessor.DELAY));
+        assertTrue(fastNanos < TimeUnit.MILLISECONDS.toNanos(SlowProcessor.DELAY));
+        assertTrue(slowNanos >= TimeUnit.MILLISECONDS.toNanos(SlowProcessor.DELAY));
+
+        // the profile is removed after the pipeline is finished
+        assertNull(PipelineProfile.current());
+    }
+
+    @Test
+    public void testNotCalledProcessors() {
+        Pipeline pipeline = new TestPipeline(injector(), StopProcessor.class, NoopProcessor.class);
+        pipeline.process(payload());
+
+        assertEquals(1, timer(StopProcessor.class).getCount());
+        assertEquals(0, timer(NoopProcessor.class).getCount());
+    }
+
+    @Test
+    public void testReportAboveThreshold() {
+        when(cfg.getPipelineProfileThreshold()).thenReturn(1L);
+
+        Payload payload = payload();
+        Pipeline pipeline = new TestPipeline(injector(), FastProcessor.class, SlowProcessor.class, NoopProcessor.class);
+        pipeline.process(payload);
+
+        ArgumentCaptor<String> msg = ArgumentCaptor.forClass(String.class);
+        verify(logManager, times(1)).info(eq(payload.getProcessKey()), msg.capture());
+
+        // slowest first, processors faster than 1ms are omitted
+        String s = msg.getValue();
+        assertTrue(s, s.startsWith("TestPipeline took "));
+        assertTrue(s, s.indexOf("SlowProcessor") < s.indexOf("FastProcessor"));
+        assertFalse(s, s.contains("NoopProcessor"));
+        assertFalse(s, s.contains("KB"));
+    }
+
+    @Test
+    public void testReportBelowThreshold() {
+        when(cfg.getPipelineProfileThreshold()).thenReturn(TimeUnit.HOURS.toMillis(1));
+        when(cfg.isPipelineProfileAllocations()).thenReturn(true);
+
+        Pipeline pipeline = new TestPipeline(injector(), FastProcessor.class);
+        pipeline.process(payload());
+
+        verify(logManager, never()).info(any(), anyString());
+        assertEquals(1, timer(FastProcessor.class).getCount());
+    }
+
+    @Test
+    public void testReportDisabled() {
+        when(cfg.getPipelineProfileThreshold()).thenReturn(0L);
+
+        Pipeline pipeline = new TestPipeline(injector(), SlowProcessor.class);
+        pipeline.process(payload());
+
+        verify(logManager, never()).info(any(), anyString());
+        assertEquals(1, timer(SlowProcessor.class).getCount());
+    }
+
+    @Test
+    public void testError() {
+        when(cfg.getPipelineProfileThreshold()).thenReturn(1L);
+
+        Payload payload = payload();
+        Pipeline pipeline = new TestPipeline(injector(), SlowProcessor.class, FailingProcessor.class);
+        try {
+            pipeline.process(payload);
+            fail("exception expected");
+        } catch (IllegalStateException e) {
+            // expected
+        }
+
+        // failed pipelines are reported too
+        assertEquals(1, timer(FailingProcessor.class).getCount());
+        verify(logManager, times(1)).info(eq(payload.getProcessKey()), anyString());
+        assertNull(PipelineProfile.current());
+    }
+
+    @Test
+    public void testAllocations() {
+        PipelineProfile profile = new PipelineProfile(2, true);
+        if (!profile.isTrackAllocations()) {
+            // not supported by the current JVM
+            return;
+        }
+
+        profile.enter(0);
+        profile.enter(1);
+        byte[][] garbage = new byte[16][];
+        for (int i = 0; i < garbage.length; i++) {
+            garbage[i] = new byte[64 * 1024];
+        }
+        profile.exit(1);
+        profile.exit(0);
+
+        assertTrue(profile.getSelfAllocatedBytes(1) >= 1024 * 1024);
+        assertTrue(profile.getTotalAllocatedBytes() >= profile.getSelfAllocatedBytes(1));
+        assertEquals(-1, new PipelineProfile(2, false).getTotalAllocatedBytes());
+    }
+
+    private Timer timer(Class<? extends PayloadProcessor> processor) {
+        Map<String, Timer> timers = metricRegistry.getTimers((name, metric) -> name.endsWith("." + processor.getSimpleName()));
+        assertEquals(1, timers.size());
+        return timers.values().iterator().next();
+    }
+
+    private Injector injector() {
+        return Guice.createInjector(binder -> {
+            binder.bind(MetricRegistry.class).toInstance(metricRegistry);
+            binder.bind(ProcessLogManager.class).toInstance(logManager);
+            binder.bind(ProcessConfiguration.class).toInstance(cfg);
+        });
+    }
+
+    private static Payload payload() {
+        return new Payload(new ProcessKey(UUID.randomUUID(), new Timestamp(System.currentTimeMillis())));
+    }
+
+    private static void sleep(long ms) {
+        try {
+            Thread.sleep(ms);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static class TestPipeline extends Pipeline {
+
+        @SafeVarargs
+        private TestPipeline(Injector injector, Class<? extends PayloadProcessor>... processors) {
+            super(injector, processors);
+        }
+    }
+
+    public static class FastProcessor implements PayloadProcessor {
+
+        private static final long DELAY = 5;
+
+        @Inject
+        public FastProcessor() {
+        }
+
+        @Override
+        public Payload process(Chain chain, Payload payload) {
+            sleep(DELAY);
+            return chain.process(payload);
+        }
+    }
+
+    public static class SlowProcessor implements PayloadProcessor {
+
+        private static final long DELAY = 100;
+
+        @Inject
+        public SlowProcessor() {
+        }
+
+        @Override
+        public Payload process(Chain chain, Payload payload) {
+            sleep(DELAY);
+            return chain.process(payload);
+        }
+    }
+
+    public static class NoopProcessor implements PayloadProcessor {
+
+        @Inject
+        public NoopProcessor() {
+        }
+
+        @Override
+        public Payload process(Chain chain, Payload payload) {
+            return chain.process(payload);
+        }
+    }
+
+    public static class StopProcessor implements PayloadProcessor {
+
+        @Inject
+        public StopProcessor() {
+        }
+
+        @Override
+        public Payload process(Chain chain, Payload payload) {
+            return payload;
+        }
+    }
+
+    public static class FailingProcessor implements PayloadProcessor {
+
+        @Inject
+        public FailingProcessor() {
+        }
+
+        @Override
+        public Payload process(Chain chain, Payload payload) {
+            throw new IllegalStateException("test");
+        }
+    }
+}
@@ -0,0 +1,131 @@
+package com.walmartlabs.concord.server.process.queue;
+
+
+/*-
+ * *****
+ * Concord
+ * -----
+ * Copyright (C) 2017 - 2020 Walmart Inc.
+ * -----
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * =====
+ */
+
+import com.walmartlabs.concord.server.process.ProcessKey;
+import com.walmartlabs.concord.server.process.ProcessKind;
+import com.walmartlabs.concord.server.process.queue.EnqueueLanes.Candidate;
+import org.junit.Test;
+
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+import static org.junit.Assert.assertEquals;
+
+public class EnqueueLanesTest {
+
+    private static final UUID ORG_ID = UUID.randomUUID();
+
+    @Test
+    public void testPriorityFirst() {
+        UUID projectId = UUID.randomUUID();
+
+        List<Candidate> candidates = new ArrayList<>();
+        candidates.add(candidate(projectId, ProcessKind.DEFAULT));
+        candidates.add(candidate(projectId, ProcessKind.DEFAULT));
+        Candidate handler = candidate(projectId, ProcessKind.FAILURE_HANDLER);
+        candidates.add(handler);
+
+        EnqueueLanes lanes = new EnqueueLanes(EnqueueLanes.LaneKey.PROJECT);
+        List<Candidate> result = lanes.select(candidates, 1);
+
+        assertEquals(1, result.size());
+        assertEquals(handler, result.get(0));
+        assertEquals(1, lanes.getStats().getPriorityDepth());
+        assertEquals(2, lanes.getStats().getDefaultDepth());
+    }
+
+    @Test
+    public void testPriorityRoundRobin() {
+        UUID noisyProject = UUID.randomUUID();
+        UUID quietProject = UUID.randomUUID();
+
+        // e.g. a lot of cancelled processes
+        List<Candidate> candidates = new ArrayList<>();
+        for (int i = 0; i < 10; i++) {
+            candidates.add(candidate(noisyProject, ProcessKind.CANCEL_HANDLER));
+        }
+        Candidate quiet = candidate(quietProject, ProcessKind.FAILURE_HANDLER);
+        candidates.add(quiet);
+
+        EnqueueLanes lanes = new EnqueueLanes(EnqueueLanes.LaneKey.PROJECT);
+        List<Candidate> result = lanes.select(candidates, 2);
+
+        assertEquals(2, result.size());
+        assertEquals(noisyProject, result.get(0).getProjectId());
+        assertEquals(quiet, result.get(1));
+        assertEquals(11, lanes.getStats().getPriorityDepth());
+    }
+
+    @Test
+    public void testRoundRobin() {
+        UUID noisyProject = UUID.randomUUID();
+        UUID quietProject = UUID.randomUUID();
+
+        List<Candidate> candidates = new ArrayList<>();
+        for (int i = 0; i < 10; i++) {
+            candidates.add(candidate(noisyProject, ProcessKind.DEFAULT));
+        }
+        Candidate quiet = candidate(quietProject, ProcessKind.DEFAULT);
+        candidates.add(quiet);
+
+        EnqueueLanes lanes = new EnqueueLanes(EnqueueLanes.LaneKey.PROJECT);
+        List<Candidate> result = lanes.select(candidates, 2);
+
+        assertEquals(2, result.size());
+        assertEquals(noisyProject, result.get(0).getProjectId());
+        assertEquals(quiet, result.get(1));
+        assertEquals(2, lanes.getStats().getLanesCount());
+        assertEquals(10, lanes.getStats().getMaxLaneDepth());
+    }
+
+    @Test
+    public void testRotationBetweenPolls() {
+        UUID projectA = UUID.randomUUID();
+        UUID projectB = UUID.randomUUID();
+
+        List<Candidate> candidates = new ArrayList<>();
+        for (int i = 0; i < 5; i++) {
+            candidates.add(candidate(projectA, ProcessKind.DEFAULT));
+        }
+        for (int i = 0; i < 5; i++) {
+            candidates.add(candidate(projectB, ProcessKind.DEFAULT));
+        }
+
+        EnqueueLanes lanes = new EnqueueLanes(EnqueueLanes.LaneKey.PROJECT);
+
+        List<Candidate> first = lanes.select(candidates, 1);
+        assertEquals(projectA, first.get(0).getProjectId());
+        candidates.removeAll(first);
+
+        // the project A was served during the previous poll, B goes next
+        List<Candidate> second = lanes.select(candidates, 1);
+        assertEquals(projectB, second.get(0).getProjectId());
+    }
+
+    private static Candidate candidate(UUID projectId, ProcessKind kind) {
+        Timestamp now = new Timestamp(System.currentTimeMillis());
+        return new Candidate(new ProcessKey(UUID.randomUUID(), now), ORG_ID, projectId, kind, now);
+    }
+}
@@ -0,0 +1,99 @@
+package com.walmartlabs.concord.server.process.queue;
+
+/*-
+ * *****
+ * Concord
+ * -----
+ * Copyright (C) 2017 - 2020 Walmart Inc.
+ * -----
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * =====
+ */
+
+import com.codahale.metrics.MetricRegistry;
+import com.walmartlabs.concord.server.sdk.ProcessStatus;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertEquals;
+
+public class ProcessStatusNotifierTest {
+
+    @Test
+    public void test() {
+        ProcessStatusNotifier notifier = new ProcessStatusNotifier(new MetricRegistry());
+
+        UUID a = UUID.randomUUID();
+        UUID b = UUID.randomUUID();
+        UUID c = UUID.randomUUID();
+
+        List<UUID> first = new ArrayList<>();
+        List<UUID> second = new ArrayList<>();
+
+        ProcessStatusNotifier.Subscription s1 = notifier.subscribe(Arrays.asList(a, b), (id, status) -> first.add(id));
+        ProcessStatusNotifier.Subscription s2 = notifier.subscribe(Arrays.asList(b, c), (id, status) -> second.add(id));
+
+        notifier.onStatusChange(a, ProcessStatus.RUNNING);
+        notifier.onStatusChange(b, ProcessStatus.FINISHED);
+        notifier.onStatusChange(UUID.randomUUID(), ProcessStatus.FINISHED);
+
+        assertEquals(Arrays.asList(a, b), first);
+        assertEquals(Arrays.asList(b), second);
+
+        // ---
+
+        s1.close();
+        s1.close();
+
+        notifier.onStatusChange(b, ProcessStatus.FAILED);
+        notifier.onStatusChange(c, ProcessStatus.FAILED);
+
+        assertEquals(Arrays.asList(a, b), first);
+        assertEquals(Arrays.asList(b, b, c), second);
+
+        s2.close();
+    }
+
+    @Test
+    public void testResync() {
+        ProcessStatusNotifier notifier = new ProcessStatusNotifier(new MetricRegistry());
+
+        AtomicInteger resyncs = new AtomicInteger();
+        ProcessStatusNotifier.Listener l = new ProcessStatusNotifier.Listener() {
+            @Override
+            public void onStatusChange(UUID instanceId, ProcessStatus status) {
+            }
+
+            @Override
+            public void onResync() {
+                resyncs.incrementAndGet();
+            }
+        };
+
+        // a subscription for multiple processes is notified once
+        ProcessStatusNotifier.Subscription s = notifier.subscribe(Arrays.asList(UUID.randomUUID(), UUID.randomUUID()), l);
+
+        notifier.onResync();
+        assertEquals(1, resyncs.get());
+
+        s.close();
+
+        notifier.onResync();
+        assertEquals(1, resyncs.get());
+    }
+}
@@ -0,0 +1,216 @@
+package com.walmartlabs.concord.server.process.queue;
+
+/*-
+ * *****
+ * Concord
+ * -----
+ * Copyright (C) 2017 - 2020 Walmart Inc.
+ * -----
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * =====
+ */
+
+import com.codahale.metrics.MetricRegistry;
+import com.walmartlabs.concord.server.cfg.ProcessConfiguration;
+import com.walmartlabs.concord.server.jooq.enums.ProcessLockScope;
+import com.walmartlabs.concord.server.sdk.ProcessStatus;
+import org.junit.Test;
+
+import java.util.*;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.*;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+public class ProcessWaitIndexTest {
+
+    @Test
+    public void testProcessCompletion() {
+        ProcessStatusNotifier notifier = new ProcessStatusNotifier(new MetricRegistry());
+        ProcessWaitIndex index = new ProcessWaitIndex(processCfg(true), notifier, new MetricRegistry());
+
+        List<UUID> woken = new ArrayList<>();
+        index.setListener(woken::add);
+
+        UUID parent = UUID.randomUUID();
+        UUID a = UUID.randomUUID();
+        UUID b = UUID.randomUUID();
+
+        index.register(parent, ProcessCompletionCondition.builder()
+                .processes(Arrays.asList(a, b))
+                .reason("test")
+                .build());
+
+        notifier.onStatusChange(a, ProcessStatus.FINISHED);
+        notifier.onStatusChange(UUID.randomUUID(), ProcessStatus.FINISHED);
+        assertEquals(Collections.singletonList(parent), woken);
+
+        // the parent itself is re-checked when its status changes
+        woken.clear();
+        notifier.onStatusChange(parent, ProcessStatus.SUSPENDED);
+        assertEquals(Collections.singletonList(parent), woken);
+
+        // finished processes are removed from the index
+        notifier.onStatusChange(parent, ProcessStatus.CANCELLED);
+        assertEquals(0, index.size());
+
+        woken.clear();
+        notifier.onStatusChange(b, ProcessStatus.FINISHED);
+        assertTrue(woken.isEmpty());
+    }
+
+    @Test
+    public void testLock() {
+        ProcessWaitIndex index = new ProcessWaitIndex(processCfg(true), new ProcessStatusNotifier(new MetricRegistry()), new MetricRegistry());
+
+        List<UUID> woken = new ArrayList<>();
+        index.setListener(woken::add);
+
+        UUID orgId = UUID.randomUUID();
+        UUID projectId = UUID.randomUUID();
+        UUID waiter = UUID.randomUUID();
+
+        index.register(waiter, ProcessLockCondition.builder()
+                .instanceId(UUID.randomUUID())
+                .orgId(orgId)
+                .projectId(projectId)
+                .scope(ProcessLockScope.PROJECT)
+                .name("test")
+                .build());
+
+        index.onLockReleased(ProcessLockScope.PROJECT, projectId, "another");
+        index.onLockReleased(ProcessLockScope.ORG, orgId, "test");
+        assertTrue(woken.isEmpty());
+
+        index.onLockReleased(ProcessLockScope.PROJECT, projectId, "test");
+        assertEquals(Collections.singletonList(waiter), woken);
+
+        // the wait condition was removed
+        index.register(waiter, null);
+        assertEquals(0, index.size());
+
+        woken.clear();
+        index.onLockReleased(ProcessLockScope.PROJECT, projectId, "test");
+        assertTrue(woken.isEmpty());
+    }
+
+    @Test(timeout = 10000)
+    public void testSleep() throws Exception {
+        ProcessWaitIndex index = new ProcessWaitIndex(processCfg(true), new ProcessStatusNotifier(new MetricRegistry()), new MetricRegistry());
+
+        BlockingQueue<UUID> woken = new LinkedBlockingQueue<>();
+        index.setListener(woken::add);
+
+        UUID cancelled = UUID.randomUUID();
+        index.register(cancelled, ProcessSleepCondition.builder()
+                .until(new Date(System.currentTimeMillis() + 200))
+                .resumeEvent("test")
+                .reason("test")
+                .build());
+
+        UUID waiter = UUID.randomUUID();
+        index.register(waiter, ProcessSleepCondition.builder()
+                .until(new Date(System.currentTimeMillis() + 500))
+                .resumeEvent("test")
+                .reason("test")
+                .build());
+
+        index.register(cancelled, null);
+
+        assertEquals(waiter, woken.take());
+        assertNull(woken.poll(500, TimeUnit.MILLISECONDS));
+    }
+
+    @Test
+    public void testFresh() {
+        ProcessStatusNotifier notifier = new ProcessStatusNotifier(new MetricRegistry());
+        ProcessWaitIndex index = new ProcessWaitIndex(processCfg(true), notifier, new MetricRegistry());
+
+        UUID waiter = UUID.randomUUID();
+        assertFalse(index.isFresh(waiter, 60000));
+
+        index.register(waiter, completion(UUID.randomUUID()));
+        assertTrue(index.isFresh(waiter, 60000));
+        assertFalse(index.isFresh(waiter, 0));
+
+        // some of the notifications might've been lost
+        notifier.onResync();
+        assertFalse(index.isFresh(waiter, 60000));
+
+        index.markChecked(waiter);
+        assertTrue(index.isFresh(waiter, 60000));
+    }
+
+    @Test
+    public void testFreshWithoutNotifications() {
+        ProcessWaitIndex index = new ProcessWaitIndex(processCfg(false), new ProcessStatusNotifier(new MetricRegistry()), new MetricRegistry());
+
+        // other server instances might finish the awaited process
+        UUID waiter = UUID.randomUUID();
+        index.register(waiter, completion(UUID.randomUUID()));
+        assertFalse(index.isFresh(waiter, 60000));
+
+        // sleep conditions are handled locally
+        UUID sleeper = UUID.randomUUID();
+        index.register(sleeper, ProcessSleepCondition.builder()
+                .until(new Date(System.currentTimeMillis() + 60000))
+                .resumeEvent("test")
+                .reason("test")
+                .build());
+        assertTrue(index.isFresh(sleeper, 60000));
+
+        index.register(sleeper, null);
+    }
+
+    @Test
+    public void testRetain() {
+        ProcessStatusNotifier notifier = new ProcessStatusNotifier(new MetricRegistry());
+        ProcessWaitIndex index = new ProcessWaitIndex(processCfg(true), notifier, new MetricRegistry());
+
+        List<UUID> woken = new ArrayList<>();
+        index.setListener(woken::add);
+
+        UUID a = UUID.randomUUID();
+        UUID b = UUID.randomUUID();
+        UUID awaited = UUID.randomUUID();
+        index.register(a, completion(awaited));
+        index.register(b, completion(awaited));
+
+        // registered after the scan's start
+        assertEquals(0, index.retain(Collections.emptySet(), 0));
+        assertEquals(2, index.size());
+
+        // "b" was finished by another server instance
+        assertEquals(1, index.retain(Collections.singleton(a), Long.MAX_VALUE));
+        assertEquals(1, index.size());
+
+        notifier.onStatusChange(awaited, ProcessStatus.FINISHED);
+        assertEquals(Collections.singletonList(a), woken);
+    }
+
+    private static ProcessCompletionCondition completion(UUID instanceId) {
+        return ProcessCompletionCondition.builder()
+                .processes(Collections.singletonList(instanceId))
+                .reason("test")
+                .build();
+    }
+
+    private static ProcessConfiguration processCfg(boolean statusNotifications) {
+        ProcessConfiguration cfg = mock(ProcessConfiguration.class);
+        when(cfg.isStatusNotifications()).thenReturn(statusNotifications);
+        return cfg;
+    }
+}
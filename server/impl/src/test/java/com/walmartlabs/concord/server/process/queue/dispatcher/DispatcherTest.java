@@ -0,0 +1,216 @@
+package com.walmartlabs.concord.server.process.queue.dispatcher;
+
+
+/*-
+ * *****
+ * Concord
+ * -----
+ * Copyright (C) 2017 - 2020 Walmart Inc.
+ * -----
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * =====
+ */
+
+import com.codahale.metrics.MetricRegistry;
+import com.walmartlabs.concord.db.AbstractDao;
+import com.walmartlabs.concord.server.Locks;
+import com.walmartlabs.concord.server.cfg.ProcessQueueConfiguration;
+import com.walmartlabs.concord.server.process.ImportsNormalizerFactory;
+import com.walmartlabs.concord.server.process.ProcessKey;
+import com.walmartlabs.concord.server.process.loader.ImportsNormalizer;
+import com.walmartlabs.concord.server.process.logs.ProcessLogManager;
+import com.walmartlabs.concord.server.process.queue.ProcessQueueEntry;
+import com.walmartlabs.concord.server.process.queue.ProcessQueueManager;
+import com.walmartlabs.concord.server.process.queue.dispatcher.Dispatcher.DispatcherDao;
+import com.walmartlabs.concord.server.queueclient.message.MessageType;
+import com.walmartlabs.concord.server.queueclient.message.ProcessRequest;
+import com.walmartlabs.concord.server.sdk.ProcessStatus;
+import com.walmartlabs.concord.server.websocket.WebSocketChannel;
+import com.walmartlabs.concord.server.websocket.WebSocketChannelManager;
+import org.jooq.DSLContext;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.sql.Timestamp;
+import java.util.*;
+
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+public class DispatcherTest {
+
+    private static final int BATCH_SIZE = 10;
+
+    private DSLContext tx;
+    private DispatcherDao dao;
+    private WebSocketChannelManager channelManager;
+    private ProcessQueueManager queueManager;
+
+    @Before
+    @SuppressWarnings("unchecked")
+    public void init() {
+        tx = mock(DSLContext.class);
+
+        dao = mock(DispatcherDao.class);
+        when(dao.txResult(any())).thenAnswer(i -> ((AbstractDao.TxResult<Object>) i.getArgument(0)).run(tx));
+
+        channelManager = mock(WebSocketChannelManager.class);
+        when(channelManager.sendResponse(any(), any())).thenReturn(true);
+
+        queueManager = mock(ProcessQueueManager.class);
+    }
+
+    @Test
+    public void testMultipleCandidatesPerProject() throws Exception {
+        UUID projectId = UUID.randomUUID();
+
+        List<ProcessQueueEntry> candidates = Arrays.asList(
+                entry(projectId, null, null),
+                entry(projectId, null, null),
+                entry(projectId, null, null));
+        candidates(candidates);
+        agents(3);
+
+        assertTrue(dispatcher(new MaxPerProjectFilter(queueManager, 10)).performTask());
+
+        // all candidates of the same project are dispatched during the same "tick"
+        for (ProcessQueueEntry c : candidates) {
+            verify(queueManager).updateStatus(tx, c.key(), ProcessStatus.STARTING);
+        }
+        verify(queueManager, never()).updateWait(any(), any(), any());
+    }
+
+    @Test
+    public void testLimitPerProject() throws Exception {
+        UUID projectId = UUID.randomUUID();
+
+        List<ProcessQueueEntry> candidates = Arrays.asList(
+                entry(projectId, null, null),
+                entry(projectId, null, null),
+                entry(projectId, null, null));
+        candidates(candidates);
+        agents(3);
+
+        assertTrue(dispatcher(new MaxPerProjectFilter(queueManager, 2)).performTask());
+
+        verify(queueManager).updateStatus(tx, candidates.get(0).key(), ProcessStatus.STARTING);
+        verify(queueManager).updateStatus(tx, candidates.get(1).key(), ProcessStatus.STARTING);
+        verify(queueManager, never()).updateStatus(tx, candidates.get(2).key(), ProcessStatus.STARTING);
+
+        // the third candidate is blocked by the candidates of the same "tick"
+        // it must be skipped, not put to wait for them
+        verify(queueManager, never()).updateWait(any(), any(), any());
+    }
+
+    @Test
+    public void testNoWaitForUndispatchedCandidates() throws Exception {
+        UUID projectId = UUID.randomUUID();
+
+        // the first candidate requires an agent that doesn't exist
+        ProcessQueueEntry a = entry(projectId, exclusive("x"), Collections.singletonMap("agent", Collections.singletonMap("flavor", "none")));
+        ProcessQueueEntry b = entry(projectId, exclusive("x"), null);
+        candidates(Arrays.asList(a, b));
+        agents(1);
+
+        assertFalse(dispatcher(new ExclusiveProcessFilter(queueManager)).performTask());
+
+        verify(queueManager, never()).updateStatus(any(DSLContext.class), any(ProcessKey.class), any(ProcessStatus.class));
+        verify(queueManager, never()).updateWait(any(), any(), any());
+    }
+
+    @Test
+    public void testWaitForRunningProcesses() throws Exception {
+        UUID projectId = UUID.randomUUID();
+        UUID runningId = UUID.randomUUID();
+        when(dao.getRunningByExclusiveGroup(tx, projectId, "x")).thenReturn(Collections.singletonList(runningId));
+
+        ProcessQueueEntry a = entry(projectId, exclusive("x"), null);
+        candidates(Collections.singletonList(a));
+        agents(1);
+
+        assertFalse(dispatcher(new ExclusiveProcessFilter(queueManager)).performTask());
+
+        verify(queueManager, never()).updateStatus(any(DSLContext.class), any(ProcessKey.class), any(ProcessStatus.class));
+        verify(queueManager).updateWait(eq(tx), eq(a.key()), any());
+    }
+
+    private Dispatcher dispatcher(Filter filter) {
+        ProcessQueueConfiguration cfg = mock(ProcessQueueConfiguration.class);
+        when(cfg.getDispatcherBatchSize()).thenReturn(BATCH_SIZE);
+
+        ImportsNormalizerFactory importsNormalizerFactory = mock(ImportsNormalizerFactory.class);
+        when(importsNormalizerFactory.forProject(any())).thenReturn(mock(ImportsNormalizer.class));
+
+        return new Dispatcher(mock(Locks.class), dao, channelManager, mock(ProcessLogManager.class), queueManager,
+                Collections.singleton(filter), importsNormalizerFactory, cfg, new MetricRegistry());
+    }
+
+    private void candidates(List<ProcessQueueEntry> candidates) {
+        when(dao.next(eq(tx), anyInt(), anyInt())).thenReturn(Collections.emptyList());
+        when(dao.next(tx, 0, BATCH_SIZE)).thenReturn(candidates);
+    }
+
+    private void agents(int count) {
+        Map<WebSocketChannel, ProcessRequest> requests = new LinkedHashMap<>();
+        for (int i = 0; i < count; i++) {
+            WebSocketChannel channel = new WebSocketChannel(UUID.randomUUID(), "agent" + i, null, "test");
+            requests.put(channel, new ProcessRequest(Collections.emptyMap()));
+        }
+        when(channelManager.<ProcessRequest>getRequests(MessageType.PROCESS_REQUEST)).thenReturn(requests);
+    }
+
+    private static ProcessQueueEntry entry(UUID projectId, Map<String, Object> exclusive, Map<String, Object> requirements) {
+        return ProcessQueueEntry.builder()
+                .key(new ProcessKey(UUID.randomUUID(), new Timestamp(System.currentTimeMillis())))
+                .orgId(UUID.randomUUID())
+                .projectId(projectId)
+                .exclusive(exclusive)
+                .requirements(requirements)
+                .build();
+    }
+
+    private static Map<String, Object> exclusive(String group) {
+        Map<String, Object> m = new HashMap<>();
+        m.put("group", group);
+        m.put("mode", "wait");
+        return m;
+    }
+
+    /**
+     * Allows only N running processes per project.
+     */
+    private static class MaxPerProjectFilter extends WaitProcessFinishFilter {
+
+        private final int max;
+
+        private MaxPerProjectFilter(ProcessQueueManager processQueueManager, int max) {
+            super(processQueueManager);
+            this.max = max;
+        }
+
+        @Override
+        protected List<UUID> findProcess(DSLContext tx, RunningProcesses running, ProcessQueueEntry item) {
+            List<UUID> l = running.getByProject(item.projectId());
+            return l.size() >= max ? l : Collections.emptyList();
+        }
+
+        @Override
+        protected String getReason() {
+            return "test";
+        }
+    }
+}
@@ -0,0 +1,148 @@
+package com.walmartlabs.concord.server.process.queue.dispatcher;
+
+
+/*-
+ * *****
+ * Concord
+ * -----
+ * Copyright (C) 2017 - 2020 Walmart Inc.
+ * -----
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * =====
+ */
+
+import com.walmartlabs.concord.server.process.ProcessKey;
+import com.walmartlabs.concord.server.process.queue.ProcessQueueEntry;
+import com.walmartlabs.concord.server.process.queue.dispatcher.Dispatcher.DispatcherDao;
+import org.jooq.DSLContext;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.sql.Timestamp;
+import java.util.*;
+
+import static org.junit.Assert.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+public class RunningProcessesTest {
+
+    private DSLContext tx;
+    private DispatcherDao dao;
+
+    @Before
+    public void init() {
+        tx = mock(DSLContext.class);
+        dao = mock(DispatcherDao.class);
+    }
+
+    @Test
+    public void testReserveAndRelease() {
+        UUID orgId = UUID.randomUUID();
+        UUID projectId = UUID.randomUUID();
+        UUID runningId = UUID.randomUUID();
+
+        when(dao.getRunningByProject(tx, projectId)).thenReturn(Collections.singletonList(runningId));
+        when(dao.getRunningByOrg(tx, orgId)).thenReturn(Collections.singletonList(runningId));
+
+        RunningProcesses running = new RunningProcesses(tx, dao);
+        assertEquals(set(runningId), new HashSet<>(running.getByProject(projectId)));
+
+        ProcessQueueEntry a = entry(orgId, projectId, null);
+        running.reserve(a);
+
+        // already loaded
+        assertEquals(set(runningId, id(a)), new HashSet<>(running.getByProject(projectId)));
+        // loaded after the reservation
+        assertEquals(set(runningId, id(a)), new HashSet<>(running.getByOrg(orgId)));
+        assertTrue(running.isReserved(id(a)));
+        assertFalse(running.isReserved(runningId));
+
+        running.release(a);
+        assertEquals(set(runningId), new HashSet<>(running.getByProject(projectId)));
+        assertEquals(set(runningId), new HashSet<>(running.getByOrg(orgId)));
+        assertFalse(running.isReserved(id(a)));
+
+        // releasing twice is a no-op
+        running.release(a);
+        assertEquals(set(runningId), new HashSet<>(running.getByProject(projectId)));
+
+        // each org and project is loaded only once
+        verify(dao, times(1)).getRunningByProject(tx, projectId);
+        verify(dao, times(1)).getRunningByOrg(tx, orgId);
+    }
+
+    @Test
+    public void testExclusiveGroups() {
+        UUID projectId = UUID.randomUUID();
+
+        RunningProcesses running = new RunningProcesses(tx, dao);
+
+        ProcessQueueEntry a = entry(null, projectId, exclusive("a"));
+        ProcessQueueEntry b = entry(null, projectId, exclusive("b"));
+        running.reserve(a);
+        running.reserve(b);
+
+        assertEquals(Collections.singletonList(id(a)), running.getByExclusiveGroup(projectId, "a"));
+        assertEquals(Collections.singletonList(id(b)), running.getByExclusiveGroup(projectId, "b"));
+        assertTrue(running.getByExclusiveGroup(UUID.randomUUID(), "a").isEmpty());
+
+        running.release(a);
+        assertTrue(running.getByExclusiveGroup(projectId, "a").isEmpty());
+        assertEquals(Collections.singletonList(id(b)), running.getByExclusiveGroup(projectId, "b"));
+
+        verify(dao, times(1)).getRunningByExclusiveGroup(tx, projectId, "a");
+        verify(dao, times(1)).getRunningByExclusiveGroup(tx, projectId, "b");
+        verify(dao, never()).getRunningByExclusiveGroup(any(), eq(projectId), eq("c"));
+    }
+
+    @Test
+    public void testReturnedListsAreCopies() {
+        UUID projectId = UUID.randomUUID();
+
+        RunningProcesses running = new RunningProcesses(tx, dao);
+        running.reserve(entry(null, projectId, exclusive("a")));
+
+        // filters are allowed to modify the results
+        running.getByExclusiveGroup(projectId, "a").clear();
+        running.getByProject(projectId).clear();
+
+        assertEquals(1, running.getByExclusiveGroup(projectId, "a").size());
+        assertEquals(1, running.getByProject(projectId).size());
+    }
+
+    private static ProcessQueueEntry entry(UUID orgId, UUID projectId, Map<String, Object> exclusive) {
+        return ProcessQueueEntry.builder()
+                .key(new ProcessKey(UUID.randomUUID(), new Timestamp(System.currentTimeMillis())))
+                .orgId(orgId)
+                .projectId(projectId)
+                .exclusive(exclusive)
+                .build();
+    }
+
+    private static Map<String, Object> exclusive(String group) {
+        Map<String, Object> m = new HashMap<>();
+        m.put("group", group);
+        m.put("mode", "wait");
+        return m;
+    }
+
+    private static UUID id(ProcessQueueEntry e) {
+        return e.key().getInstanceId();
+    }
+
+    private static Set<UUID> set(UUID... ids) {
+        return new HashSet<>(Arrays.asList(ids));
+    }
+}
@@ -20,6 +20,7 @@ package com.walmartlabs.concord.server.process.state;
  * =====
  */
 
+import com.codahale.metrics.MetricRegistry;
 import com.google.common.base.Charsets;
 import com.walmartlabs.concord.sdk.Constants;
 import com.walmartlabs.concord.server.AbstractDaoTest;
@@ -41,6 +42,7 @@ import java.util.UUID;
 
 import static com.walmartlabs.concord.server.process.state.ProcessStateManager.copyTo;
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertTrue;
 import static org.mockito.Mockito.mock;
 
@@ -58,7 +60,7 @@ public class ProcessStateManagerTest extends AbstractDaoTest {
 
         //
         ProcessConfiguration stateCfg = new ProcessConfiguration(24 * 60 * 60 * 1000, Collections.singletonList(Constants.Files.REQUEST_DATA_FILE_NAME));
-        ProcessStateManager stateManager = new ProcessStateManager(getConfiguration(), mock(SecretStoreConfiguration.class), stateCfg);
+        ProcessStateManager stateManager = new ProcessStateManager(getConfiguration(), mock(SecretStoreConfiguration.class), stateCfg, new MetricRegistry());
         stateManager.importPath(processKey, null, baseDir);
 
         Path tmpDir = Files.createTempDirectory("testExport");
@@ -80,6 +82,39 @@ public class ProcessStateManagerTest extends AbstractDaoTest {
         assertFileContent("456", tmpDir.resolve("file-2"));
     }
 
+    @Test
+    public void testReplaceUnchanged() throws Exception {
+        ProcessKey processKey = new ProcessKey(UUID.randomUUID(), new Timestamp(System.currentTimeMillis()));
+
+        Path baseDir = Files.createTempDirectory("testReplace");
+
+        writeTempFile(baseDir.resolve("file-1"), "123".getBytes());
+        writeTempFile(baseDir.resolve("file-2"), "456".getBytes());
+        writeTempFile(baseDir.resolve("file-3"), "789".getBytes());
+
+        ProcessConfiguration stateCfg = new ProcessConfiguration(24 * 60 * 60 * 1000, Collections.singletonList(Constants.Files.REQUEST_DATA_FILE_NAME));
+        MetricRegistry metricRegistry = new MetricRegistry();
+        ProcessStateManager stateManager = new ProcessStateManager(getConfiguration(), mock(SecretStoreConfiguration.class), stateCfg, metricRegistry);
+        stateManager.replacePath(processKey, baseDir, (p, attrs) -> true);
+
+        // --- update one file, remove another
+
+        writeTempFile(baseDir.resolve("file-1"), "123-up".getBytes());
+        Files.delete(baseDir.resolve("file-3"));
+
+        stateManager.replacePath(processKey, baseDir, (p, attrs) -> true);
+
+        assertEquals(1, metricRegistry.meter("process-state-import-skipped-files").getCount());
+
+        Path tmpDir = Files.createTempDirectory("testExport");
+
+        boolean result = stateManager.export(processKey, copyTo(tmpDir));
+        assertTrue(result);
+        assertFileContent("123-up", tmpDir.resolve("file-1"));
+        assertFileContent("456", tmpDir.resolve("file-2"));
+        assertFalse(Files.exists(tmpDir.resolve("file-3")));
+    }
+
     @Ignore
     @Test
     public void testLargeImport() throws Exception {
@@ -103,7 +138,7 @@ public class ProcessStateManagerTest extends AbstractDaoTest {
         }
 
         ProcessConfiguration stateCfg = new ProcessConfiguration(24 * 60 * 60 * 1000, Collections.singletonList(Constants.Files.REQUEST_DATA_FILE_NAME));
-        ProcessStateManager stateManager = new ProcessStateManager(getConfiguration(), mock(SecretStoreConfiguration.class), stateCfg);
+        ProcessStateManager stateManager = new ProcessStateManager(getConfiguration(), mock(SecretStoreConfiguration.class), stateCfg, new MetricRegistry());
         stateManager.importPath(processKey, "/", baseDir);
     }
 
@@ -0,0 +1,135 @@
+package com.walmartlabs.concord.server.security;
+
+/*-
+ * *****
+ * Concord
+ * -----
+ * Copyright (C) 2017 - 2020 Walmart Inc.
+ * -----
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * =====
+ */
+
+import com.codahale.metrics.MetricRegistry;
+import com.walmartlabs.concord.server.cfg.AuthCacheConfiguration;
+import com.walmartlabs.concord.server.security.apikey.ApiKeyDao;
+import com.walmartlabs.concord.server.security.apikey.ApiKeyDao.ActiveKey;
+import com.walmartlabs.concord.server.user.UserDao;
+import com.walmartlabs.concord.server.user.UserEntry;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.time.Instant;
+import java.util.Base64;
+import java.util.UUID;
+
+import static org.junit.Assert.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+public class AuthenticationCacheTest {
+
+    private static final String KEY = Base64.getEncoder().encodeToString("test-key".getBytes());
+
+    private ApiKeyDao apiKeyDao;
+    private UserDao userDao;
+    private AuthenticationCache cache;
+
+    @Before
+    public void init() {
+        AuthCacheConfiguration cfg = mock(AuthCacheConfiguration.class);
+        when(cfg.getTtl()).thenReturn(60000L);
+        when(cfg.getMaxSize()).thenReturn(100L);
+
+        apiKeyDao = mock(ApiKeyDao.class);
+        userDao = mock(UserDao.class);
+        cache = new AuthenticationCache(cfg, apiKeyDao, userDao, new MetricRegistry());
+    }
+
+    @Test
+    public void testApiKey() {
+        UUID keyId = UUID.randomUUID();
+        UUID userId = UUID.randomUUID();
+        when(apiKeyDao.findActive(ApiKeyDao.hash(KEY))).thenReturn(new ActiveKey(keyId, userId, null));
+
+        assertEquals(userId, cache.findApiKeyUserId(KEY));
+        assertEquals(userId, cache.findApiKeyUserId(KEY));
+        verify(apiKeyDao, times(1)).findActive(any());
+
+        cache.invalidateApiKey(keyId);
+        assertEquals(userId, cache.findApiKeyUserId(KEY));
+        verify(apiKeyDao, times(2)).findActive(any());
+
+        cache.invalidateUser(userId);
+        assertEquals(userId, cache.findApiKeyUserId(KEY));
+        verify(apiKeyDao, times(3)).findActive(any());
+    }
+
+    @Test
+    public void testUnknownApiKey() {
+        assertNull(cache.findApiKeyUserId(KEY));
+        assertNull(cache.findApiKeyUserId(KEY));
+
+        // negative lookups are not cached
+        verify(apiKeyDao, times(2)).findActive(any());
+    }
+
+    @Test
+    public void testExpiredApiKey() {
+        UUID keyId = UUID.randomUUID();
+        UUID userId = UUID.randomUUID();
+        when(apiKeyDao.findActive(ApiKeyDao.hash(KEY))).thenReturn(new ActiveKey(keyId, userId, Instant.now().minusSeconds(1)));
+
+        assertNull(cache.findApiKeyUserId(KEY));
+        assertNull(cache.findApiKeyUserId(KEY));
+        verify(apiKeyDao, times(2)).findActive(any());
+    }
+
+    @Test
+    public void testUser() {
+        UUID userId = UUID.randomUUID();
+        UserEntry u = mock(UserEntry.class);
+        when(userDao.get(userId)).thenReturn(u);
+
+        assertSame(u, cache.getUser(userId));
+        assertSame(u, cache.getUser(userId));
+        verify(userDao, times(1)).get(userId);
+
+        cache.invalidateUser(userId);
+        assertSame(u, cache.getUser(userId));
+        verify(userDao, times(2)).get(userId);
+
+        cache.invalidateUsers();
+        assertSame(u, cache.getUser(userId));
+        verify(userDao, times(3)).get(userId);
+
+        // negative lookups are not cached
+        UUID unknownId = UUID.randomUUID();
+        assertNull(cache.getUser(unknownId));
+        assertNull(cache.getUser(unknownId));
+        verify(userDao, times(2)).get(unknownId);
+    }
+
+    @Test
+    public void testSession() {
+        UUID instanceId = UUID.randomUUID();
+        assertFalse(cache.isActiveSession(instanceId));
+
+        cache.markActiveSession(instanceId);
+        assertTrue(cache.isActiveSession(instanceId));
+        assertFalse(cache.isActiveSession(UUID.randomUUID()));
+
+        cache.invalidateSession(instanceId);
+        assertFalse(cache.isActiveSession(instanceId));
+    }
+}
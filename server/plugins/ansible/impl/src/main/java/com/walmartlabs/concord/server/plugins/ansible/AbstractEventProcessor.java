@@ -20,52 +20,184 @@ package com.walmartlabs.concord.server.plugins.ansible;
  * =====
  */
 
+
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
 import com.walmartlabs.concord.server.sdk.ScheduledTask;
 import org.jooq.DSLContext;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
-import java.util.List;
+import java.util.*;
+import java.util.concurrent.*;
 
 // TODO: move to plugins sdk?
 public abstract class AbstractEventProcessor<E extends AbstractEventProcessor.Event> implements ScheduledTask {
 
+    private static final Logger log = LoggerFactory.getLogger(AbstractEventProcessor.class);
+
     private final String processorName;
     private final EventMarkerDao eventMarkerDao;
     private final int fetchLimit;
+    private final int partitions;
+
+    /**
+     * Processes the partitions, {@code null} if partitioning is disabled.
+     */
+    private final ExecutorService executor;
+
+    /**
+     * The last known lag (the newest event seq minus the marker) of each partition.
+     */
+    private final Map<Integer, Long> lag = new ConcurrentHashMap<>();
 
     protected AbstractEventProcessor(String processorName, EventMarkerDao eventMarkerDao, int fetchLimit) {
+        this(processorName, eventMarkerDao, fetchLimit, 1);
+    }
+
+    /**
+     * @param partitions the number of partitions. If greater than 1, events are
+     *                   split into partitions using {@link Partition}, each partition
+     *                   is processed in a separate thread and has its own marker.
+     *                   When the number of partitions changes, the new partitions start
+     *                   from the slowest marker, so some events can be fetched again.
+     *                   Implementations must skip the events that were already processed.
+     */
+    protected AbstractEventProcessor(String processorName, EventMarkerDao eventMarkerDao, int fetchLimit, int partitions) {
         this.processorName = processorName;
         this.eventMarkerDao = eventMarkerDao;
         this.fetchLimit = fetchLimit;
+        this.partitions = Math.max(1, partitions);
+
+        this.executor = this.partitions > 1 ? Executors.newFixedThreadPool(this.partitions, new ThreadFactoryBuilder()
+                .setNameFormat(processorName + "-partition-%d")
+                .setDaemon(true)
+                .build()) : null;
     }
 
     @Override
     public void performTask() {
-        int processedEvents = 0;
+        if (partitions == 1) {
+            processPartition(processorName, null);
+            return;
+        }
+
+        Map<String, Partition> markers = new LinkedHashMap<>();
+        for (int i = 0; i < partitions; i++) {
+            markers.put(markerName(i), new Partition(i, partitions));
+        }
+
+        // new partition markers start from the marker of the non-partitioned mode
+        eventMarkerDao.init(markers.keySet(), processorName);
+
+        List<Future<?>> futures = new ArrayList<>(partitions);
+        for (Map.Entry<String, Partition> e : markers.entrySet()) {
+            futures.add(executor.submit(() -> processPartition(e.getKey(), e.getValue())));
+        }
+
+        int failed = 0;
+        try {
+            for (Future<?> f : futures) {
+                try {
+                    f.get();
+                } catch (ExecutionException e) {
+                    log.error("performTask ['{}'] -> partition error", processorName, e.getCause());
+                    failed++;
+                }
+            }
+        } catch (InterruptedException e) {
+            // don't leave the partitions running, the next run would process them concurrently
+            futures.forEach(f -> f.cancel(true));
+            Thread.currentThread().interrupt();
+            return;
+        }
+
+        // keep the non-partitioned marker at the slowest partition,
+        // so it's safe to switch back to the non-partitioned mode
+        eventMarkerDao.updateToMin(processorName, markers.keySet());
+
+        if (failed > 0) {
+            throw new RuntimeException("Error while processing events: " + failed + " partition(s) failed");
+        }
+    }
+
+    /**
+     * Returns the last known lag of each partition: the difference between
+     * the newest event seq and the partition's marker.
+     */
+    public Map<Integer, Long> getLag() {
+        return Collections.unmodifiableMap(lag);
+    }
+
+    private void processPartition(String markerName, Partition partition) {
+        int processedEvents;
 
         do {
-            EventMarkerDao.EventMarker m = eventMarkerDao.get(processorName);
-            processedEvents = process(m, fetchLimit);
+            EventMarkerDao.EventMarker m = limit(eventMarkerDao.get(markerName));
+            processedEvents = process(markerName, m, partition, fetchLimit);
         } while (processedEvents >= fetchLimit);
     }
 
-    private int process(EventMarkerDao.EventMarker m, int fetchLimit) {
+    private int process(String markerName, EventMarkerDao.EventMarker m, Partition partition, int fetchLimit) {
+        int partitionIdx = partition != null ? partition.index() : 0;
+
         return eventMarkerDao.txResult(tx -> {
-            List<E> events = processEvents(tx, m, fetchLimit);
+            List<E> events = processEvents(tx, m, partition, fetchLimit);
             if (events.isEmpty()) {
-                eventMarkerDao.update(tx, processorName, m.maxEventSeq());
+                eventMarkerDao.update(tx, markerName, m.maxEventSeq());
+                lag.put(partitionIdx, 0L);
                 return 0;
             }
 
             E lastEvent = events.get(events.size() - 1);
-            eventMarkerDao.update(tx, processorName, lastEvent.eventSeq());
+            eventMarkerDao.update(tx, markerName, lastEvent.eventSeq());
+            lag.put(partitionIdx, Math.max(0, m.maxEventSeq() - lastEvent.eventSeq()));
 
             return events.size();
         });
     }
 
-    protected abstract List<E> processEvents(DSLContext tx, EventMarkerDao.EventMarker m, int fetchLimit);
+    private String markerName(int partition) {
+        return processorName + "-" + partition + "-of-" + partitions;
+    }
+
+    /**
+     * Allows to limit the range of events that can be processed in the current run
+     * by lowering {@link EventMarkerDao.EventMarker#maxEventSeq()}.
+     */
+    protected EventMarkerDao.EventMarker limit(EventMarkerDao.EventMarker m) {
+        return m;
+    }
+
+    /**
+     * @param partition the partition to process or {@code null} if partitioning is disabled.
+     */
+    protected abstract List<E> processEvents(DSLContext tx, EventMarkerDao.EventMarker m, Partition partition, int fetchLimit);
 
     public interface Event {
         long eventSeq();
     }
+
+    /**
+     * A subset of events. Events are assigned to partitions by their
+     * process instance ID, so all events of a process are handled by
+     * the same partition in the original order.
+     */
+    public static final class Partition {
+
+        private final int index;
+        private final int count;
+
+        public Partition(int index, int count) {
+            this.index = index;
+            this.count = count;
+        }
+
+        public int index() {
+            return index;
+        }
+
+        public int count() {
+            return count;
+        }
+    }
 }
@@ -0,0 +1,244 @@
+package com.walmartlabs.concord.server.plugins.ansible;
+
+/*-
+ * *****
+ * Concord
+ * -----
+ * Copyright (C) 2017 - 2020 Walmart Inc.
+ * -----
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * =====
+ */
+
+
+import com.codahale.metrics.Meter;
+import com.codahale.metrics.MetricRegistry;
+import com.codahale.metrics.Timer;
+import com.walmartlabs.concord.server.sdk.BackgroundTask;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.inject.Inject;
+import javax.inject.Named;
+import javax.inject.Singleton;
+import java.util.*;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Processes the events received by {@link AnsibleEventListener} in batches.
+ * <p>
+ * Each event is claimed in the same transaction as the results (see
+ * {@link PushedEventDao#claim}), so the event is processed only once even if
+ * the {@link EventFetcher} picks it up at the same time.
+ * <p>
+ * Events that weren't processed (the buffer is full, the batch failed or the
+ * server was restarted) are picked up by the {@link EventFetcher} after
+ * {@link AnsibleEventsConfiguration#getRecoveryDelay()}. To keep the events of
+ * each process in order, the subsequent events of such processes are also left
+ * to the {@link EventFetcher} until its marker passes the skipped events.
+ */
+@Named
+@Singleton
+public class AnsibleEventFlusher implements BackgroundTask {
+
+    private static final Logger log = LoggerFactory.getLogger(AnsibleEventFlusher.class);
+
+    private final AnsibleEventsConfiguration cfg;
+    private final PushedEventDao pushedEventDao;
+    private final EventMarkerDao eventMarkerDao;
+    private final List<EventProcessor> processors;
+
+    private final BlockingQueue<EventProcessor.Event> queue;
+
+    /**
+     * Process instance ID -> the newest event seq left to the {@link EventFetcher}.
+     */
+    private final Map<UUID, Long> skipped = new ConcurrentHashMap<>();
+
+    /**
+     * If {@code true}, all events are left to the {@link EventFetcher} until
+     * its marker reaches {@link #catchUpEventSeq}, e.g. the events received
+     * before a restart might be still unprocessed.
+     */
+    private volatile boolean catchingUp;
+    private volatile long catchUpEventSeq;
+
+    private final Meter dropped;
+    private final Timer flushTimer;
+
+    private Thread worker;
+
+    @Inject
+    public AnsibleEventFlusher(AnsibleEventsConfiguration cfg,
+                               PushedEventDao pushedEventDao,
+                               EventMarkerDao eventMarkerDao,
+                               List<EventProcessor> processors,
+                               MetricRegistry metricRegistry) {
+
+        this.cfg = cfg;
+        this.pushedEventDao = pushedEventDao;
+        this.eventMarkerDao = eventMarkerDao;
+        this.processors = processors;
+
+        this.queue = cfg.isPushEnabled() ? new ArrayBlockingQueue<>(cfg.getPushMaxBufferSize()) : null;
+
+        this.dropped = metricRegistry.meter("ansible-events-push-dropped");
+        this.flushTimer = metricRegistry.timer("ansible-events-push-flush");
+    }
+
+    @Override
+    public void start() {
+        if (queue == null) {
+            return;
+        }
+
+        EventMarkerDao.EventMarker m = eventMarkerDao.get(EventFetcher.PROCESSOR_NAME);
+        this.catchUpEventSeq = m.maxEventSeq();
+        this.catchingUp = m.eventSeq() < m.maxEventSeq();
+
+        this.worker = new Thread(this::run, "ansible-event-flusher");
+        this.worker.start();
+
+        log.info("start -> done");
+    }
+
+    @Override
+    public void stop() {
+        if (worker == null) {
+            return;
+        }
+
+        worker.interrupt();
+        try {
+            worker.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        worker = null;
+
+        // flush whatever is left, the rest is handled by the recovery
+        try {
+            flush();
+        } catch (Exception e) {
+            log.warn("stop -> error while processing events: {}", e.getMessage());
+        }
+
+        log.info("stop -> done");
+    }
+
+    public boolean isEnabled() {
+        return queue != null;
+    }
+
+    /**
+     * Adds the events to the buffer. Events that don't fit and the events of
+     * processes with previously skipped events are left to the {@link EventFetcher}.
+     */
+    public void offer(List<EventProcessor.Event> events) {
+        if (queue == null) {
+            return;
+        }
+
+        for (EventProcessor.Event e : events) {
+            if (catchingUp || skipped.containsKey(e.instanceId()) || !queue.offer(e)) {
+                skip(e);
+            }
+        }
+    }
+
+    private void run() {
+        while (!Thread.currentThread().isInterrupted()) {
+            try {
+                Thread.sleep(cfg.getPushFlushInterval());
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                break;
+            }
+
+            try {
+                flush();
+            } catch (Exception e) {
+                log.warn("run -> error while processing events: {}", e.getMessage(), e);
+            }
+        }
+    }
+
+    void flush() {
+        updateSkipped();
+
+        while (!queue.isEmpty()) {
+            List<EventProcessor.Event> events = new ArrayList<>();
+            queue.drainTo(events, cfg.getFetchLimit());
+
+            events.sort(Comparator.comparingLong(EventProcessor.Event::eventSeq));
+
+            List<EventProcessor.Event> unclaimed = new ArrayList<>();
+            try (Timer.Context ignored = flushTimer.time()) {
+                pushedEventDao.tx(tx -> {
+                    unclaimed.clear();
+
+                    Set<Long> claimed = pushedEventDao.claim(tx, events);
+
+                    List<EventProcessor.Event> toProcess = new ArrayList<>(claimed.size());
+                    for (EventProcessor.Event e : events) {
+                        if (claimed.contains(e.eventSeq())) {
+                            toProcess.add(e);
+                        } else {
+                            // processed by the recovery or not committed yet
+                            unclaimed.add(e);
+                        }
+                    }
+
+                    if (toProcess.isEmpty()) {
+                        return;
+                    }
+
+                    for (EventProcessor p : processors) {
+                        p.process(tx, toProcess);
+                    }
+                });
+            } catch (Exception e) {
+                events.forEach(this::skip);
+                throw e;
+            }
+
+            unclaimed.forEach(this::skip);
+        }
+    }
+
+    private void skip(EventProcessor.Event e) {
+        skipped.merge(e.instanceId(), e.eventSeq(), Math::max);
+        dropped.mark();
+    }
+
+    /**
+     * Forgets the skipped events that are already behind the {@link EventFetcher}'s marker.
+     */
+    private void updateSkipped() {
+        if (!catchingUp && skipped.isEmpty()) {
+            return;
+        }
+
+        long eventSeq = eventMarkerDao.get(EventFetcher.PROCESSOR_NAME).eventSeq();
+
+        if (catchingUp && eventSeq >= catchUpEventSeq) {
+            catchingUp = false;
+            log.info("updateSkipped -> caught up with the recovery, processing new events");
+        }
+
+        // removes the entry only if its value wasn't changed concurrently
+        skipped.entrySet().removeIf(e -> e.getValue() <= eventSeq);
+    }
+}
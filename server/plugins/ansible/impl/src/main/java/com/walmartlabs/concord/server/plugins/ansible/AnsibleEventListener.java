@@ -0,0 +1,107 @@
+package com.walmartlabs.concord.server.plugins.ansible;
+
+/*-
+ * *****
+ * Concord
+ * -----
+ * Copyright (C) 2017 - 2020 Walmart Inc.
+ * -----
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * =====
+ */
+
+
+import com.walmartlabs.concord.server.sdk.ProcessKey;
+import com.walmartlabs.concord.server.sdk.events.ProcessEvent;
+import com.walmartlabs.concord.server.sdk.events.ProcessEventListener;
+
+import javax.inject.Inject;
+import javax.inject.Named;
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.util.*;
+
+/**
+ * Receives Ansible events as they are stored and passes them to
+ * the {@link AnsibleEventFlusher}.
+ */
+@Named
+public class AnsibleEventListener implements ProcessEventListener {
+
+    private static final Map<String, List<String>> PAYLOAD_KEYS = new HashMap<>();
+
+    static {
+        PAYLOAD_KEYS.put(Constants.ANSIBLE_EVENT_TYPE, Constants.ANSIBLE_EVENT_KEYS);
+        PAYLOAD_KEYS.put(Constants.ANSIBLE_PLAYBOOK_INFO, Constants.ANSIBLE_PLAYBOOK_INFO_KEYS);
+        PAYLOAD_KEYS.put(Constants.ANSIBLE_PLAYBOOK_RESULT, Constants.ANSIBLE_PLAYBOOK_RESULT_KEYS);
+    }
+
+    private final AnsibleEventFlusher flusher;
+
+    @Inject
+    public AnsibleEventListener(AnsibleEventFlusher flusher) {
+        this.flusher = flusher;
+    }
+
+    @Override
+    public void onEvents(List<ProcessEvent> events) {
+        if (!flusher.isEnabled()) {
+            return;
+        }
+
+        List<EventProcessor.Event> result = new ArrayList<>();
+        for (ProcessEvent e : events) {
+            List<String> keys = PAYLOAD_KEYS.get(e.getEventType());
+            if (keys == null || e.getEventSeq() == null) {
+                continue;
+            }
+
+            ProcessKey processKey = e.getProcessKey();
+            Instant eventDate = e.getEventDate() != null ? e.getEventDate().toInstant() : Instant.now();
+
+            result.add(ImmutableEvent.builder()
+                    .instanceId(processKey.getInstanceId())
+                    .instanceCreatedAt(processKey.getCreatedAt())
+                    .eventSeq(e.getEventSeq())
+                    .eventDate(Timestamp.from(eventDate))
+                    .eventType(e.getEventType())
+                    .payload(payload(e.getData(), keys))
+                    .build());
+        }
+
+        if (result.isEmpty()) {
+            return;
+        }
+
+        flusher.offer(result);
+    }
+
+    /**
+     * Keeps only the keys used by the event processors, same as
+     * {@link EventFetcher.AnsibleEventDao}.
+     */
+    private static Map<String, Object> payload(Map<String, Object> data, List<String> keys) {
+        if (data == null) {
+            return Collections.emptyMap();
+        }
+
+        Map<String, Object> result = new HashMap<>(keys.size());
+        for (String k : keys) {
+            Object v = data.get(k);
+            if (v != null) {
+                result.put(k, v);
+            }
+        }
+        return result;
+    }
+}
@@ -39,12 +39,33 @@ public class AnsibleEventsConfiguration implements Serializable {
     @Config("ansibleEvents.fetchLimit")
     private int fetchLimit;
 
+    @Inject
+    @Config("ansibleEvents.partitions")
+    private int partitions;
+
+    @Inject
+    @Config("ansibleEvents.pushEnabled")
+    private boolean pushEnabled;
+
+    @Inject
+    @Config("ansibleEvents.pushFlushInterval")
+    private long pushFlushInterval;
+
+    @Inject
+    @Config("ansibleEvents.pushMaxBufferSize")
+    private int pushMaxBufferSize;
+
+    @Inject
+    @Config("ansibleEvents.recoveryDelay")
+    private long recoveryDelay;
+
     public AnsibleEventsConfiguration() {
     }
 
     public AnsibleEventsConfiguration(int period, int fetchLimit) {
         this.period = period;
         this.fetchLimit = fetchLimit;
+        this.partitions = 1;
     }
 
     public int getPeriod() {
@@ -54,4 +75,24 @@ public class AnsibleEventsConfiguration implements Serializable {
     public int getFetchLimit() {
         return fetchLimit;
     }
+
+    public int getPartitions() {
+        return partitions;
+    }
+
+    public boolean isPushEnabled() {
+        return pushEnabled;
+    }
+
+    public long getPushFlushInterval() {
+        return pushFlushInterval;
+    }
+
+    public int getPushMaxBufferSize() {
+        return pushMaxBufferSize;
+    }
+
+    public long getRecoveryDelay() {
+        return recoveryDelay;
+    }
 }
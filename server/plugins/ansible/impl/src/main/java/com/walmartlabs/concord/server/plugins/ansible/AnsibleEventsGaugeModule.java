@@ -0,0 +1,68 @@
+package com.walmartlabs.concord.server.plugins.ansible;
+
+/*-
+ * *****
+ * Concord
+ * -----
+ * Copyright (C) 2017 - 2020 Walmart Inc.
+ * -----
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * =====
+ */
+
+
+import com.codahale.metrics.Gauge;
+import com.google.inject.AbstractModule;
+import com.google.inject.Provider;
+import com.google.inject.multibindings.Multibinder;
+import com.walmartlabs.concord.server.sdk.metrics.GaugeProvider;
+
+import javax.inject.Named;
+import java.util.Collections;
+import java.util.Map;
+
+@Named
+public class AnsibleEventsGaugeModule extends AbstractModule {
+
+    @Override
+    protected void configure() {
+        Provider<EventFetcher> provider = getProvider(EventFetcher.class);
+
+        Multibinder<GaugeProvider> gauges = Multibinder.newSetBinder(binder(), GaugeProvider.class);
+        gauges.addBinding().toInstance(new GaugeProvider<Map<Integer, Long>>() {
+            @Override
+            public String name() {
+                return "ansible-event-processor-lag";
+            }
+
+            @Override
+            public Gauge<Map<Integer, Long>> gauge() {
+                return () -> provider.get().getLag();
+            }
+        });
+        gauges.addBinding().toInstance(new GaugeProvider<Long>() {
+            @Override
+            public String name() {
+                return "ansible-event-processor-max-lag";
+            }
+
+            @Override
+            public Gauge<Long> gauge() {
+                return () -> {
+                    Map<Integer, Long> lag = provider.get().getLag();
+                    return lag.isEmpty() ? 0L : Collections.max(lag.values());
+                };
+            }
+        });
+    }
+}
@@ -20,6 +20,10 @@ package com.walmartlabs.concord.server.plugins.ansible;
  * =====
  */
 
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
 public final class Constants {
 
     public static final String ANSIBLE_EVENT_TYPE = "ANSIBLE";
@@ -28,6 +32,19 @@ public final class Constants {
 
     public static final String ANSIBLE_PLAYBOOK_RESULT = "ANSIBLE_PLAYBOOK_RESULT";
 
+    /**
+     * Payload keys used by the event processors, per event type.
+     */
+    public static final List<String> ANSIBLE_EVENT_KEYS = Collections.unmodifiableList(Arrays.asList(
+            "host", "hostGroup", "status", "duration", "ignore_errors", "currentRetryCount", "hostStatus", "playId",
+            "playbookId", "parentCorrelationId", "action", "isHandler", "taskId", "task"));
+
+    public static final List<String> ANSIBLE_PLAYBOOK_INFO_KEYS = Collections.unmodifiableList(Arrays.asList(
+            "plays", "playbookId", "playbook", "uniqueHosts", "totalWork", "parentCorrelationId", "currentRetryCount"));
+
+    public static final List<String> ANSIBLE_PLAYBOOK_RESULT_KEYS = Collections.unmodifiableList(Arrays.asList(
+            "playbookId", "status", "parentCorrelationId"));
+
     private Constants() {
     }
 }
@@ -32,50 +32,123 @@ import javax.inject.Singleton;
 import java.io.IOException;
 import java.sql.Timestamp;
 import java.util.*;
+import java.util.concurrent.ConcurrentNavigableMap;
+import java.util.concurrent.ConcurrentSkipListMap;
 
 import static com.walmartlabs.concord.server.jooq.Tables.PROCESS_EVENTS;
+import static com.walmartlabs.concord.server.plugins.ansible.jooq.Tables.ANSIBLE_PUSHED_EVENTS;
 import static org.jooq.impl.DSL.*;
 
 @Named("ansible-event-processor")
 @Singleton
 public class EventFetcher extends AbstractEventProcessor<EventProcessor.Event> {
 
-    private static final String PROCESSOR_NAME = "ansible-event-processor";
+    static final String PROCESSOR_NAME = "ansible-event-processor";
 
     private final AnsibleEventsConfiguration cfg;
+    private final EventMarkerDao eventMarkerDao;
     private final EventFetcher.AnsibleEventDao dao;
+    private final PushedEventDao pushedEventDao;
     private final List<EventProcessor> processors;
 
+    /**
+     * The newest event seq observed at the specified time (ms).
+     */
+    private final ConcurrentNavigableMap<Long, Long> maxEventSeqs = new ConcurrentSkipListMap<>();
+
     @Inject
     public EventFetcher(AnsibleEventsConfiguration cfg,
                         EventMarkerDao eventMarkerDao,
                         AnsibleEventDao dao,
+                        PushedEventDao pushedEventDao,
                         List<EventProcessor> processors) {
-        super(PROCESSOR_NAME, eventMarkerDao, cfg.getFetchLimit());
+        super(PROCESSOR_NAME, eventMarkerDao, cfg.getFetchLimit(), cfg.getPartitions());
         this.cfg = cfg;
+        this.eventMarkerDao = eventMarkerDao;
         this.dao = dao;
+        this.pushedEventDao = pushedEventDao;
         this.processors = processors;
     }
 
+    @Override
+    public void performTask() {
+        super.performTask();
+
+        // events behind the (slowest) marker are never fetched again
+        pushedEventDao.deleteUpTo(eventMarkerDao.get(PROCESSOR_NAME).eventSeq());
+    }
+
     @Override
     public long getIntervalInSec() {
         return cfg.getPeriod();
     }
 
+    /**
+     * When the events are pushed by {@link AnsibleEventListener}, only the events
+     * that are older than {@link AnsibleEventsConfiguration#getRecoveryDelay()} are
+     * fetched: newer events are most likely still waiting in {@link AnsibleEventFlusher}.
+     */
+    @Override
+    protected EventMarkerDao.EventMarker limit(EventMarkerDao.EventMarker m) {
+        if (!cfg.isPushEnabled()) {
+            return m;
+        }
+
+        long now = System.currentTimeMillis();
+        maxEventSeqs.put(now, m.maxEventSeq());
+
+        long maxEventSeq = -1;
+        Map.Entry<Long, Long> e = maxEventSeqs.floorEntry(now - cfg.getRecoveryDelay());
+        if (e != null) {
+            maxEventSeq = e.getValue();
+            maxEventSeqs.headMap(e.getKey()).clear();
+        }
+
+        return EventMarkerDao.EventMarker.builder()
+                .from(m)
+                .maxEventSeq(Math.max(m.eventSeq(), maxEventSeq))
+                .build();
+    }
+
     @Override
-    protected List<EventProcessor.Event> processEvents(DSLContext tx, EventMarkerDao.EventMarker marker, int fetchLimit) {
-        List<EventProcessor.Event> events = dao.list(tx, marker, fetchLimit);
+    protected List<EventProcessor.Event> processEvents(DSLContext tx, EventMarkerDao.EventMarker marker, Partition partition, int fetchLimit) {
+        List<EventProcessor.Event> events = dao.list(tx, marker, partition, fetchLimit);
         if (events.isEmpty()) {
             return Collections.emptyList();
         }
 
-        for (EventProcessor p : processors) {
-            p.process(tx, events);
+        if (!cfg.isPushEnabled() && cfg.getPartitions() <= 1) {
+            process(tx, events);
+            return events;
         }
 
+        // skip the events claimed by the AnsibleEventFlusher in the meantime or
+        // processed by another partition before the number of partitions was changed
+        Set<Long> claimed = pushedEventDao.claim(tx, events);
+
+        List<EventProcessor.Event> toProcess = new ArrayList<>(claimed.size());
+        for (EventProcessor.Event e : events) {
+            if (claimed.contains(e.eventSeq())) {
+                toProcess.add(e);
+            }
+        }
+
+        process(tx, toProcess);
+
+        // the marker is moved past all fetched events
         return events;
     }
 
+    private void process(DSLContext tx, List<EventProcessor.Event> events) {
+        if (events.isEmpty()) {
+            return;
+        }
+
+        for (EventProcessor p : processors) {
+            p.process(tx, events);
+        }
+    }
+
     @Named
     public static class AnsibleEventDao extends AbstractDao {
 
@@ -92,13 +165,13 @@ public class EventFetcher extends AbstractEventProcessor<EventProcessor.Event> {
             return super.txResult(t);
         }
 
-        private static SelectConditionStep<Record1<JSONB>> payloadField(DSLContext tx, String ... keys) {
+        private static SelectConditionStep<Record1<JSONB>> payloadField(DSLContext tx, List<String> keys) {
             return tx.select(function("jsonb_object_agg", JSONB.class, field("key"), field("value")))
                     .from(table("jsonb_each(pe.EVENT_DATA)"))
-                    .where(field("key").in(Arrays.asList(keys)));
+                    .where(field("key").in(keys));
         }
 
-        public List<EventProcessor.Event> list(DSLContext tx, EventMarkerDao.EventMarker marker, int count) {
+        public List<EventProcessor.Event> list(DSLContext tx, EventMarkerDao.EventMarker marker, Partition partition, int count) {
             ProcessEvents pe = PROCESS_EVENTS.as("pe");
 
             SelectConditionStep<Record6<UUID, Timestamp, Long, Timestamp, String, JSONB>> q = tx.select(
@@ -107,12 +180,20 @@ public class EventFetcher extends AbstractEventProcessor<EventProcessor.Event> {
                     pe.EVENT_SEQ,
                     pe.EVENT_DATE,
                     pe.EVENT_TYPE,
-                    when(pe.EVENT_TYPE.eq(Constants.ANSIBLE_EVENT_TYPE), payloadField(tx, "host", "hostGroup", "status", "duration", "ignore_errors", "currentRetryCount", "hostStatus", "playId", "playbookId", "parentCorrelationId", "action", "isHandler", "taskId", "task"))
-                            .when(pe.EVENT_TYPE.eq(Constants.ANSIBLE_PLAYBOOK_INFO), payloadField(tx, "plays", "playbookId", "playbook", "uniqueHosts", "totalWork", "parentCorrelationId", "currentRetryCount"))
-                            .when(pe.EVENT_TYPE.eq(Constants.ANSIBLE_PLAYBOOK_RESULT), payloadField(tx, "playbookId", "status", "parentCorrelationId")))
+                    when(pe.EVENT_TYPE.eq(Constants.ANSIBLE_EVENT_TYPE), payloadField(tx, Constants.ANSIBLE_EVENT_KEYS))
+                            .when(pe.EVENT_TYPE.eq(Constants.ANSIBLE_PLAYBOOK_INFO), payloadField(tx, Constants.ANSIBLE_PLAYBOOK_INFO_KEYS))
+                            .when(pe.EVENT_TYPE.eq(Constants.ANSIBLE_PLAYBOOK_RESULT), payloadField(tx, Constants.ANSIBLE_PLAYBOOK_RESULT_KEYS)))
                     .from(pe)
                     .where(pe.EVENT_TYPE.in(Constants.ANSIBLE_EVENT_TYPE, Constants.ANSIBLE_PLAYBOOK_INFO, Constants.ANSIBLE_PLAYBOOK_RESULT)
-                            .and(pe.EVENT_SEQ.greaterThan(marker.eventSeq())));
+                            .and(pe.EVENT_SEQ.greaterThan(marker.eventSeq()))
+                            .and(pe.EVENT_SEQ.lessOrEqual(marker.maxEventSeq()))
+                            .andNotExists(selectOne()
+                                    .from(ANSIBLE_PUSHED_EVENTS)
+                                    .where(ANSIBLE_PUSHED_EVENTS.EVENT_SEQ.eq(pe.EVENT_SEQ))));
+
+            if (partition != null) {
+                q.and(partitionOf(pe.INSTANCE_ID, partition.count()).eq(inline(partition.index())));
+            }
 
             return q.orderBy(pe.EVENT_SEQ)
                     .limit(count)
@@ -126,6 +207,14 @@ public class EventFetcher extends AbstractEventProcessor<EventProcessor.Event> {
                             .build());
         }
 
+        /**
+         * Returns the partition number of the specified process instance ID
+         * in the range of {@code [0, count)}.
+         */
+        private static Field<Integer> partitionOf(Field<UUID> instanceId, int count) {
+            return field("mod(mod(hashtext({0}::text), {1}) + {1}, {1})", Integer.class, instanceId, inline(count));
+        }
+
         @SuppressWarnings("unchecked")
         private Map<String, Object> deserialize(JSONB o) {
             if (o == null) {
@@ -30,10 +30,13 @@ import org.jooq.Record1;
 
 import javax.inject.Inject;
 import javax.inject.Named;
+import java.util.Collection;
 
 import static com.walmartlabs.concord.server.jooq.Tables.EVENT_PROCESSOR_MARKER;
 import static com.walmartlabs.concord.server.jooq.Tables.PROCESS_EVENTS;
+import static org.jooq.impl.DSL.greatest;
 import static org.jooq.impl.DSL.max;
+import static org.jooq.impl.DSL.min;
 import static org.jooq.impl.DSL.value;
 
 // TODO: move to plugins sdk?
@@ -84,6 +87,51 @@ public class EventMarkerDao extends AbstractDao {
                 .execute();
     }
 
+    /**
+     * Creates the specified markers if they don't exist. New markers
+     * start from the current value of the {@code initialProcessorName} marker.
+     * Existing markers that are behind the {@code initialProcessorName} marker
+     * (e.g. left from a previous run with a different configuration) are moved forward.
+     */
+    public void init(Collection<String> processorNames, String initialProcessorName) {
+        EventProcessorMarker m = EVENT_PROCESSOR_MARKER.as("m");
+
+        tx(tx -> {
+            Long initialEventSeq = tx.select(m.EVENT_SEQ)
+                    .from(m)
+                    .where(m.PROCESSOR_NAME.eq(initialProcessorName))
+                    .fetchOne(m.EVENT_SEQ);
+
+            long eventSeq = initialEventSeq != null ? initialEventSeq : -1;
+            for (String processorName : processorNames) {
+                tx.insertInto(m)
+                        .columns(m.PROCESSOR_NAME, m.EVENT_SEQ)
+                        .values(value(processorName), value(eventSeq))
+                        .onDuplicateKeyUpdate()
+                        .set(m.EVENT_SEQ, greatest(m.EVENT_SEQ, value(eventSeq)))
+                        .execute();
+            }
+        });
+    }
+
+    /**
+     * Sets the marker to the lowest value of the specified markers.
+     */
+    public void updateToMin(String processorName, Collection<String> processorNames) {
+        EventProcessorMarker m = EVENT_PROCESSOR_MARKER.as("m");
+
+        tx(tx -> {
+            Long eventSeq = tx.select(min(m.EVENT_SEQ))
+                    .from(m)
+                    .where(m.PROCESSOR_NAME.in(processorNames))
+                    .fetchOne(Record1::value1);
+
+            if (eventSeq != null) {
+                update(tx, processorName, eventSeq);
+            }
+        });
+    }
+
     @Value.Immutable
     public interface EventMarker {
 
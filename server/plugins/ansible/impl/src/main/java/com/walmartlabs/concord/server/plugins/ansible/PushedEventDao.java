@@ -0,0 +1,102 @@
+package com.walmartlabs.concord.server.plugins.ansible;
+
+/*-
+ * *****
+ * Concord
+ * -----
+ * Copyright (C) 2017 - 2020 Walmart Inc.
+ * -----
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * =====
+ */
+
+
+import com.walmartlabs.concord.db.AbstractDao;
+import com.walmartlabs.concord.db.MainDB;
+import org.jooq.Configuration;
+import org.jooq.DSLContext;
+
+import javax.inject.Inject;
+import javax.inject.Named;
+import java.sql.Timestamp;
+import java.util.*;
+
+import static com.walmartlabs.concord.server.jooq.Tables.PROCESS_EVENTS;
+import static com.walmartlabs.concord.server.plugins.ansible.jooq.Tables.ANSIBLE_PUSHED_EVENTS;
+import static org.jooq.impl.DSL.select;
+
+/**
+ * Keeps track of the events processed by {@link AnsibleEventFlusher} and
+ * {@link EventFetcher}. Each event is claimed in the same transaction as
+ * its results, so the event is processed only once even if both try
+ * to process it at the same time.
+ */
+@Named
+public class PushedEventDao extends AbstractDao {
+
+    @Inject
+    public PushedEventDao(@MainDB Configuration cfg) {
+        super(cfg);
+    }
+
+    @Override
+    public void tx(Tx t) {
+        super.tx(t);
+    }
+
+    /**
+     * Claims the specified events. Returns the claimed seqs, i.e. the seqs
+     * of the events that weren't claimed before. The events that are not
+     * visible in the current transaction (e.g. not committed yet) are not claimed.
+     * <p>
+     * If another transaction holds a claim on the same event, the call waits
+     * for the other transaction to finish.
+     */
+    public Set<Long> claim(DSLContext tx, Collection<EventProcessor.Event> events) {
+        if (events.isEmpty()) {
+            return Collections.emptySet();
+        }
+
+        Set<UUID> instanceIds = new HashSet<>();
+        Set<Timestamp> instanceCreatedAts = new HashSet<>();
+        List<Long> eventSeqs = new ArrayList<>(events.size());
+        for (EventProcessor.Event e : events) {
+            instanceIds.add(e.instanceId());
+            instanceCreatedAts.add(e.instanceCreatedAt());
+            eventSeqs.add(e.eventSeq());
+        }
+
+        // the instance keys are used to prune the partitions of PROCESS_EVENTS (if partitioned)
+        // the rows are claimed in the order of their seqs to avoid deadlocks
+        return tx.insertInto(ANSIBLE_PUSHED_EVENTS, ANSIBLE_PUSHED_EVENTS.EVENT_SEQ)
+                .select(select(PROCESS_EVENTS.EVENT_SEQ)
+                        .from(PROCESS_EVENTS)
+                        .where(PROCESS_EVENTS.INSTANCE_ID.in(instanceIds)
+                                .and(PROCESS_EVENTS.INSTANCE_CREATED_AT.in(instanceCreatedAts))
+                                .and(PROCESS_EVENTS.EVENT_SEQ.in(eventSeqs)))
+                        .orderBy(PROCESS_EVENTS.EVENT_SEQ))
+                .onConflictDoNothing()
+                .returning(ANSIBLE_PUSHED_EVENTS.EVENT_SEQ)
+                .fetch()
+                .intoSet(ANSIBLE_PUSHED_EVENTS.EVENT_SEQ);
+    }
+
+    /**
+     * Removes the records of events that are behind the specified marker.
+     */
+    public void deleteUpTo(long eventSeq) {
+        tx(tx -> tx.deleteFrom(ANSIBLE_PUSHED_EVENTS)
+                .where(ANSIBLE_PUSHED_EVENTS.EVENT_SEQ.le(eventSeq))
+                .execute());
+    }
+}
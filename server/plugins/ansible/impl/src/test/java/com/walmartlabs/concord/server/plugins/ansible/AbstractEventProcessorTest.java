@@ -0,0 +1,134 @@
+package com.walmartlabs.concord.server.plugins.ansible;
+
+
+/*-
+ * *****
+ * Concord
+ * -----
+ * Copyright (C) 2017 - 2020 Walmart Inc.
+ * -----
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * =====
+ */
+
+import com.walmartlabs.concord.db.AbstractDao;
+import org.jooq.DSLContext;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+
+import static org.junit.Assert.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+public class AbstractEventProcessorTest {
+
+    private EventMarkerDao eventMarkerDao;
+
+    @Before
+    public void init() {
+        DSLContext tx = mock(DSLContext.class);
+
+        eventMarkerDao = mock(EventMarkerDao.class);
+        when(eventMarkerDao.txResult(any())).thenAnswer(i -> ((AbstractDao.TxResult<?>) i.getArgument(0)).run(tx));
+        when(eventMarkerDao.get(anyString())).thenReturn(EventMarkerDao.EventMarker.builder()
+                .eventSeq(0)
+                .maxEventSeq(100)
+                .build());
+    }
+
+    @Test
+    public void testPartitions() {
+        TestProcessor p = new TestProcessor(eventMarkerDao, 3);
+
+        p.performTask();
+        p.performTask();
+
+        assertEquals(new HashSet<>(Arrays.asList(0, 1, 2)), p.partitions);
+
+        // the same pool is used for every run
+        assertTrue(p.threads.size() <= 3);
+        for (String t : p.threads) {
+            assertTrue(t, t.startsWith("test-partition-"));
+        }
+
+        Set<String> markers = new HashSet<>(Arrays.asList("test-0-of-3", "test-1-of-3", "test-2-of-3"));
+        verify(eventMarkerDao, times(2)).init(markers, "test");
+        verify(eventMarkerDao, times(2)).updateToMin("test", markers);
+        verify(eventMarkerDao, times(2)).update(any(), eq("test-1-of-3"), eq(100L));
+    }
+
+    @Test
+    public void testFailedPartition() {
+        TestProcessor p = new TestProcessor(eventMarkerDao, 2);
+        p.failedPartition = 1;
+
+        try {
+            p.performTask();
+            fail("exception expected");
+        } catch (RuntimeException e) {
+            assertTrue(e.getMessage(), e.getMessage().contains("1 partition(s) failed"));
+        }
+
+        // the marker of the failed partition wasn't moved, the rest can proceed
+        verify(eventMarkerDao).update(any(), eq("test-0-of-2"), eq(100L));
+        verify(eventMarkerDao, never()).update(any(), eq("test-1-of-2"), anyLong());
+        verify(eventMarkerDao).updateToMin(eq("test"), any());
+    }
+
+    @Test
+    public void testNoPartitions() {
+        TestProcessor p = new TestProcessor(eventMarkerDao, 1);
+
+        p.performTask();
+
+        assertEquals(Collections.singleton(-1), p.partitions);
+        assertEquals(Collections.singleton(Thread.currentThread().getName()), p.threads);
+        verify(eventMarkerDao).update(any(), eq("test"), eq(100L));
+        verify(eventMarkerDao, never()).init(any(), any());
+    }
+
+    private static class TestProcessor extends AbstractEventProcessor<AbstractEventProcessor.Event> {
+
+        private final Set<Integer> partitions = ConcurrentHashMap.newKeySet();
+        private final Set<String> threads = ConcurrentHashMap.newKeySet();
+
+        private volatile int failedPartition = -1;
+
+        private TestProcessor(EventMarkerDao eventMarkerDao, int partitions) {
+            super("test", eventMarkerDao, 10, partitions);
+        }
+
+        @Override
+        public long getIntervalInSec() {
+            return 1;
+        }
+
+        @Override
+        protected List<Event> processEvents(DSLContext tx, EventMarkerDao.EventMarker m, Partition partition, int fetchLimit) {
+            int idx = partition != null ? partition.index() : -1;
+            if (idx == failedPartition) {
+                throw new RuntimeException("test");
+            }
+
+            partitions.add(idx);
+            threads.add(Thread.currentThread().getName());
+            return Collections.emptyList();
+        }
+    }
+}
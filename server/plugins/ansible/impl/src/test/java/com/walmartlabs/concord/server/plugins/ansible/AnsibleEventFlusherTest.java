@@ -0,0 +1,193 @@
+package com.walmartlabs.concord.server.plugins.ansible;
+
+
+/*-
+ * *****
+ * Concord
+ * -----
+ * Copyright (C) 2017 - 2020 Walmart Inc.
+ * -----
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * =====
+ */
+
+import com.codahale.metrics.MetricRegistry;
+import com.walmartlabs.concord.db.AbstractDao;
+import org.jooq.DSLContext;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.sql.Timestamp;
+import java.util.*;
+import java.util.stream.Collectors;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+public class AnsibleEventFlusherTest {
+
+    private static final UUID PROCESS_A = UUID.randomUUID();
+    private static final UUID PROCESS_B = UUID.randomUUID();
+
+    private PushedEventDao pushedEventDao;
+    private EventMarkerDao eventMarkerDao;
+    private AnsibleEventFlusher flusher;
+
+    private final Set<Long> claimedByOthers = new HashSet<>();
+    private final List<Long> processed = new ArrayList<>();
+    private boolean failProcessing;
+
+    @Before
+    @SuppressWarnings("unchecked")
+    public void init() {
+        AnsibleEventsConfiguration cfg = mock(AnsibleEventsConfiguration.class);
+        when(cfg.isPushEnabled()).thenReturn(true);
+        when(cfg.getPushMaxBufferSize()).thenReturn(2);
+        when(cfg.getPushFlushInterval()).thenReturn(Long.MAX_VALUE);
+        when(cfg.getFetchLimit()).thenReturn(100);
+
+        DSLContext tx = mock(DSLContext.class);
+
+        pushedEventDao = mock(PushedEventDao.class);
+        doAnswer(i -> {
+            ((AbstractDao.Tx) i.getArgument(0)).run(tx);
+            return null;
+        }).when(pushedEventDao).tx(any());
+        when(pushedEventDao.claim(any(), any())).thenAnswer(i -> ((Collection<EventProcessor.Event>) i.getArgument(1)).stream()
+                .map(EventProcessor.Event::eventSeq)
+                .filter(seq -> !claimedByOthers.contains(seq))
+                .collect(Collectors.toSet()));
+
+        eventMarkerDao = mock(EventMarkerDao.class);
+        marker(0, 0);
+
+        EventProcessor processor = (t, events) -> {
+            if (failProcessing) {
+                throw new RuntimeException("test");
+            }
+            events.forEach(e -> processed.add(e.eventSeq()));
+        };
+
+        flusher = new AnsibleEventFlusher(cfg, pushedEventDao, eventMarkerDao, Collections.singletonList(processor), new MetricRegistry());
+    }
+
+    @After
+    public void tearDown() {
+        flusher.stop();
+    }
+
+    @Test
+    public void testProcessedOnce() {
+        flusher.start();
+
+        // #2 is processed by the recovery in the meantime
+        claimedByOthers.add(2L);
+
+        flusher.offer(Arrays.asList(event(PROCESS_A, 2), event(PROCESS_A, 1)));
+        flusher.flush();
+
+        assertEquals(Collections.singletonList(1L), processed);
+    }
+
+    @Test
+    public void testOverflowKeepsOrder() {
+        flusher.start();
+
+        // the buffer fits only two events, #3 is left to the recovery
+        flusher.offer(Arrays.asList(event(PROCESS_A, 1), event(PROCESS_B, 2), event(PROCESS_A, 3)));
+
+        // ...as well as the following events of the same process
+        flusher.offer(Collections.singletonList(event(PROCESS_A, 4)));
+        flusher.flush();
+
+        assertEquals(Arrays.asList(1L, 2L), processed);
+
+        // the recovery is still behind the skipped events
+        marker(3, 4);
+        flusher.flush();
+        flusher.offer(Arrays.asList(event(PROCESS_A, 5), event(PROCESS_B, 6)));
+        flusher.flush();
+
+        assertEquals(Arrays.asList(1L, 2L, 6L), processed);
+
+        // the recovery caught up
+        marker(5, 6);
+        flusher.flush();
+        flusher.offer(Collections.singletonList(event(PROCESS_A, 7)));
+        flusher.flush();
+
+        assertEquals(Arrays.asList(1L, 2L, 6L, 7L), processed);
+    }
+
+    @Test
+    public void testFailedBatch() {
+        flusher.start();
+
+        failProcessing = true;
+        flusher.offer(Collections.singletonList(event(PROCESS_A, 1)));
+        try {
+            flusher.flush();
+            fail("exception expected");
+        } catch (RuntimeException e) {
+            // expected
+        }
+
+        failProcessing = false;
+        flusher.offer(Arrays.asList(event(PROCESS_A, 2), event(PROCESS_B, 3)));
+        flusher.flush();
+
+        assertEquals(Collections.singletonList(3L), processed);
+    }
+
+    @Test
+    public void testCatchUpAfterRestart() {
+        // there are unprocessed events from before the restart
+        marker(10, 20);
+        flusher.start();
+
+        flusher.offer(Arrays.asList(event(PROCESS_A, 21), event(PROCESS_B, 22)));
+        flusher.flush();
+
+        assertEquals(Collections.emptyList(), processed);
+
+        // the recovery caught up, but the processes with skipped events are still waiting for it
+        marker(20, 22);
+        flusher.flush();
+        flusher.offer(Arrays.asList(event(PROCESS_A, 23), event(UUID.randomUUID(), 24)));
+        flusher.flush();
+
+        assertEquals(Collections.singletonList(24L), processed);
+    }
+
+    private void marker(long eventSeq, long maxEventSeq) {
+        when(eventMarkerDao.get(EventFetcher.PROCESSOR_NAME)).thenReturn(EventMarkerDao.EventMarker.builder()
+                .eventSeq(eventSeq)
+                .maxEventSeq(maxEventSeq)
+                .build());
+    }
+
+    private static EventProcessor.Event event(UUID instanceId, long eventSeq) {
+        Timestamp now = new Timestamp(System.currentTimeMillis());
+        return ImmutableEvent.builder()
+                .instanceId(instanceId)
+                .instanceCreatedAt(now)
+                .eventSeq(eventSeq)
+                .eventDate(now)
+                .eventType(Constants.ANSIBLE_EVENT_TYPE)
+                .payload(Collections.emptyMap())
+                .build();
+    }
+}
@@ -0,0 +1,117 @@
+package com.walmartlabs.concord.server.plugins.ansible;
+
+
+/*-
+ * *****
+ * Concord
+ * -----
+ * Copyright (C) 2017 - 2020 Walmart Inc.
+ * -----
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * =====
+ */
+
+import org.jooq.DSLContext;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.sql.Timestamp;
+import java.util.*;
+
+import static org.junit.Assert.assertEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+public class EventFetcherTest {
+
+    private AnsibleEventsConfiguration cfg;
+    private EventFetcher.AnsibleEventDao dao;
+    private PushedEventDao pushedEventDao;
+
+    private final List<Long> processed = new ArrayList<>();
+    private List<EventProcessor.Event> events;
+
+    @Before
+    public void init() {
+        cfg = mock(AnsibleEventsConfiguration.class);
+        when(cfg.getFetchLimit()).thenReturn(100);
+
+        dao = mock(EventFetcher.AnsibleEventDao.class);
+        events = Arrays.asList(event(1), event(2), event(3));
+        when(dao.list(any(), any(), any(), anyInt())).thenReturn(events);
+
+        pushedEventDao = mock(PushedEventDao.class);
+    }
+
+    @Test
+    public void testClaimsInPartitionedMode() {
+        when(cfg.getPartitions()).thenReturn(2);
+
+        // #2 was processed by another partition before the number of partitions was changed
+        when(pushedEventDao.claim(any(), any())).thenReturn(new HashSet<>(Arrays.asList(1L, 3L)));
+
+        List<EventProcessor.Event> result = fetcher().processEvents(mock(DSLContext.class), marker(), new AbstractEventProcessor.Partition(0, 2), 100);
+
+        assertEquals(Arrays.asList(1L, 3L), processed);
+        verify(pushedEventDao).claim(any(), eq(events));
+
+        // the marker is moved past all fetched events
+        assertEquals(3, result.size());
+    }
+
+    @Test
+    public void testClaimsWhenPushIsEnabled() {
+        when(cfg.getPartitions()).thenReturn(1);
+        when(cfg.isPushEnabled()).thenReturn(true);
+
+        when(pushedEventDao.claim(any(), any())).thenReturn(Collections.singleton(2L));
+
+        fetcher().processEvents(mock(DSLContext.class), marker(), null, 100);
+
+        assertEquals(Collections.singletonList(2L), processed);
+    }
+
+    @Test
+    public void testNoClaims() {
+        when(cfg.getPartitions()).thenReturn(1);
+
+        fetcher().processEvents(mock(DSLContext.class), marker(), null, 100);
+
+        assertEquals(Arrays.asList(1L, 2L, 3L), processed);
+        verifyNoInteractions(pushedEventDao);
+    }
+
+    private EventFetcher fetcher() {
+        EventProcessor processor = (tx, events) -> events.forEach(e -> processed.add(e.eventSeq()));
+        return new EventFetcher(cfg, mock(EventMarkerDao.class), dao, pushedEventDao, Collections.singletonList(processor));
+    }
+
+    private static EventMarkerDao.EventMarker marker() {
+        return EventMarkerDao.EventMarker.builder()
+                .eventSeq(0)
+                .maxEventSeq(3)
+                .build();
+    }
+
+    private static EventProcessor.Event event(long eventSeq) {
+        Timestamp now = new Timestamp(System.currentTimeMillis());
+        return ImmutableEvent.builder()
+                .instanceId(UUID.randomUUID())
+                .instanceCreatedAt(now)
+                .eventSeq(eventSeq)
+                .eventDate(now)
+                .eventType(Constants.ANSIBLE_EVENT_TYPE)
+                .payload(Collections.emptyMap())
+                .build();
+    }
+}
@@ -22,22 +22,28 @@ package com.walmartlabs.concord.server.plugins.noderoster;
 
 import com.google.common.cache.Cache;
 import com.google.common.cache.CacheBuilder;
+import com.google.common.collect.Iterables;
 import com.walmartlabs.concord.server.plugins.noderoster.dao.HostsDao;
 
 import javax.inject.Inject;
 import javax.inject.Named;
-import java.util.Optional;
-import java.util.UUID;
-import java.util.concurrent.Callable;
+import javax.inject.Singleton;
+import java.util.*;
 import java.util.concurrent.TimeUnit;
 
 @Named
+@Singleton
 public class HostManager {
 
+    private static final int MAX_HOSTS_PER_QUERY = 1000;
+
     private final HostsDao dao;
     private final HostNormalizer hostNormalizer;
 
-    private final Cache<String, Optional<UUID>> hostCache;
+    /**
+     * Host name -> host ID. Only the existing hosts are cached.
+     */
+    private final Cache<String, UUID> hostCache;
 
     @Inject
     public HostManager(HostsDao dao, HostNormalizer hostNormalizer) {
@@ -45,91 +51,110 @@ public class HostManager {
         this.hostNormalizer = hostNormalizer;
 
         this.hostCache = CacheBuilder.newBuilder()
-                .expireAfterAccess(1, TimeUnit.MINUTES)
+                .expireAfterAccess(10, TimeUnit.MINUTES)
+                .maximumSize(100_000)
                 .build();
     }
 
     public UUID getId(String host) {
-        try {
-            return hostCache.get(host, new GetLoader(host))
-                    .orElse(null);
-        } catch (Exception e) {
-            throw new RuntimeException(e);
+        UUID id = hostCache.getIfPresent(host);
+        if (id != null) {
+            return id;
         }
-    }
 
-    public UUID getOrCreate(String host) {
-        try {
-            return hostCache.get(host, new GetOrCreateLoader(host))
-                    .orElseThrow(() -> new RuntimeException("Can't find a host: " + host));
-        } catch (Exception e) {
-            throw new RuntimeException(e);
+        id = findIds(Collections.singleton(host)).get(host);
+        if (id != null) {
+            hostCache.put(host, id);
         }
+        return id;
     }
 
-    private Host findHost(String host) {
-        UUID hostId = dao.getId(host);
-        if (hostId != null) {
-            return new Host(hostId, host);
+    public UUID getOrCreate(String host) {
+        UUID id = getOrCreate(Collections.singleton(host)).get(host);
+        if (id == null) {
+            throw new RuntimeException("Can't find a host: " + host);
         }
+        return id;
+    }
 
-        String normalizedHost = hostNormalizer.normalize(host);
-        if (!normalizedHost.equals(host)) {
-            hostId = dao.getId(normalizedHost);
-            if (hostId != null) {
-                return new Host(hostId, normalizedHost);
+    /**
+     * Returns the IDs of the specified hosts, creating the unknown hosts.
+     * Hosts that are not in the cache are resolved using a single query
+     * (per {@link #MAX_HOSTS_PER_QUERY} hosts).
+     */
+    public Map<String, UUID> getOrCreate(Collection<String> hosts) {
+        Map<String, UUID> result = new HashMap<>(hosts.size());
+
+        Set<String> unknownHosts = new HashSet<>();
+        for (String h : hosts) {
+            UUID id = hostCache.getIfPresent(h);
+            if (id != null) {
+                result.put(h, id);
+            } else {
+                unknownHosts.add(h);
             }
         }
 
-        return new Host(null, normalizedHost);
-    }
-
-    private static class Host {
+        for (List<String> chunk : Iterables.partition(unknownHosts, MAX_HOSTS_PER_QUERY)) {
+            Map<String, UUID> ids = findIds(chunk);
 
-        private final UUID id;
-        private final String normalizedHost;
-
-        public Host(UUID id, String normalizedHost) {
-            this.id = id;
-            this.normalizedHost = normalizedHost;
-        }
-    }
+            Set<String> newHosts = new HashSet<>();
+            for (String h : chunk) {
+                if (!ids.containsKey(h)) {
+                    newHosts.add(hostNormalizer.normalize(h));
+                }
+            }
 
-    private final class GetLoader implements Callable<Optional<UUID>> {
+            Map<String, UUID> newIds = Collections.emptyMap();
+            if (!newHosts.isEmpty()) {
+                dao.insert(newHosts);
+                newIds = dao.getIds(newHosts);
+            }
 
-        private final String host;
+            for (String h : chunk) {
+                UUID id = ids.get(h);
+                if (id == null) {
+                    id = newIds.get(hostNormalizer.normalize(h));
+                }
 
-        private GetLoader(String host) {
-            this.host = host;
-        }
+                if (id == null) {
+                    throw new RuntimeException("Can't find a host: " + h);
+                }
 
-        @Override
-        public Optional<UUID> call() {
-            Host h = findHost(host);
-            if (h.id == null) {
-                return Optional.empty();
+                hostCache.put(h, id);
+                result.put(h, id);
             }
-
-            return Optional.of(h.id);
         }
+
+        return result;
     }
 
-    private final class GetOrCreateLoader implements Callable<Optional<UUID>> {
+    /**
+     * Finds the IDs of the existing hosts using the host names as is
+     * or, if not found, their normalized names.
+     */
+    private Map<String, UUID> findIds(Collection<String> hosts) {
+        Map<String, String> normalizedHosts = new HashMap<>(hosts.size());
+        for (String h : hosts) {
+            normalizedHosts.put(h, hostNormalizer.normalize(h));
+        }
 
-        private final String host;
+        Set<String> names = new HashSet<>(hosts);
+        names.addAll(normalizedHosts.values());
 
-        private GetOrCreateLoader(String host) {
-            this.host = host;
-        }
+        Map<String, UUID> ids = dao.getIds(names);
 
-        @Override
-        public Optional<UUID> call() {
-            Host h = findHost(host);
-            if (h.id != null) {
-                return Optional.of(h.id);
+        Map<String, UUID> result = new HashMap<>(hosts.size());
+        for (String h : hosts) {
+            UUID id = ids.get(h);
+            if (id == null) {
+                id = ids.get(normalizedHosts.get(h));
             }
 
-            return Optional.of(dao.insert(h.normalizedHost));
+            if (id != null) {
+                result.put(h, id);
+            }
         }
+        return result;
     }
 }
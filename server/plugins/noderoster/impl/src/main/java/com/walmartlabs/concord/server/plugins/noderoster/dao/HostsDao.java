@@ -25,14 +25,19 @@ import com.walmartlabs.concord.db.AbstractDao;
 import com.walmartlabs.concord.server.plugins.noderoster.HostEntry;
 import com.walmartlabs.concord.server.plugins.noderoster.InitiatorEntry;
 import com.walmartlabs.concord.server.plugins.noderoster.db.NodeRosterDB;
-import org.jooq.Configuration;
-import org.jooq.Record1;
-import org.jooq.Record2;
+import com.walmartlabs.concord.server.plugins.noderoster.jooq.tables.records.NodeRosterHostsRecord;
+import com.walmartlabs.concord.server.plugins.noderoster.processor.Partitioner;
+import org.jooq.*;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import javax.inject.Inject;
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.Collection;
 import java.util.List;
+import java.util.Map;
 import java.util.UUID;
 
 import static com.walmartlabs.concord.server.plugins.noderoster.jooq.tables.NodeRosterHostArtifacts.NODE_ROSTER_HOST_ARTIFACTS;
@@ -44,6 +49,12 @@ public class HostsDao extends AbstractDao {
 
     private static final Logger log = LoggerFactory.getLogger(HostsDao.class);
 
+    /**
+     * Time ranges (in days) used to find the last initiator of a host.
+     * Restricting the partition key allows PostgreSQL to skip older partitions.
+     */
+    private static final int[] LAST_INITIATOR_LOOKBACK_DAYS = {1, 7, 30};
+
     private final ObjectMapper objectMapper = new ObjectMapper();
 
     @Inject
@@ -51,31 +62,56 @@ public class HostsDao extends AbstractDao {
         super(cfg);
     }
 
-    public UUID getId(String host) {
-        return txResult(tx -> tx.select(NODE_ROSTER_HOSTS.HOST_ID)
+    public Map<String, UUID> getIds(Collection<String> hosts) {
+        return txResult(tx -> tx.select(NODE_ROSTER_HOSTS.NORMALIZED_HOSTNAME, NODE_ROSTER_HOSTS.HOST_ID)
                 .from(NODE_ROSTER_HOSTS)
-                .where(NODE_ROSTER_HOSTS.NORMALIZED_HOSTNAME.eq(host))
-                .fetchOne(NODE_ROSTER_HOSTS.HOST_ID));
+                .where(NODE_ROSTER_HOSTS.NORMALIZED_HOSTNAME.in(hosts))
+                .fetchMap(NODE_ROSTER_HOSTS.NORMALIZED_HOSTNAME, NODE_ROSTER_HOSTS.HOST_ID));
     }
 
-    public UUID insert(String host) {
-        return txResult(tx -> tx.insertInto(NODE_ROSTER_HOSTS, NODE_ROSTER_HOSTS.NORMALIZED_HOSTNAME)
-                .values(host)
-                .returning(NODE_ROSTER_HOSTS.HOST_ID)
-                .fetchOne()
-                .getHostId());
+    /**
+     * Inserts the specified hosts, the existing hosts are ignored.
+     */
+    public void insert(Collection<String> hosts) {
+        tx(tx -> {
+            InsertValuesStep1<NodeRosterHostsRecord, String> q = tx.insertInto(NODE_ROSTER_HOSTS, NODE_ROSTER_HOSTS.NORMALIZED_HOSTNAME);
+            for (String h : hosts) {
+                q.values(h);
+            }
+            q.onConflictDoNothing().execute();
+        });
     }
 
     public InitiatorEntry getLastInitiator(UUID hostId) {
-        return txResult(tx -> tx.select(NODE_ROSTER_PROCESS_HOSTS.INITIATOR_ID, NODE_ROSTER_PROCESS_HOSTS.INITIATOR)
-                .from(NODE_ROSTER_PROCESS_HOSTS)
-                .where(NODE_ROSTER_PROCESS_HOSTS.HOST_ID.eq(hostId))
-                .orderBy(NODE_ROSTER_PROCESS_HOSTS.INSTANCE_CREATED_AT.desc())
-                .limit(1)
-                .fetchOne(r -> InitiatorEntry.builder()
-                        .userId(r.get(NODE_ROSTER_PROCESS_HOSTS.INITIATOR_ID))
-                        .username(r.get(NODE_ROSTER_PROCESS_HOSTS.INITIATOR))
-                        .build()));
+        // try the recent data first, the partitions outside of the range are skipped
+        Instant now = Instant.now();
+        for (int days : LAST_INITIATOR_LOOKBACK_DAYS) {
+            InitiatorEntry e = getLastInitiator(hostId, Timestamp.from(now.minus(days, ChronoUnit.DAYS)));
+            if (e != null) {
+                return e;
+            }
+        }
+
+        return getLastInitiator(hostId, null);
+    }
+
+    private InitiatorEntry getLastInitiator(UUID hostId, Timestamp after) {
+        return txResult(tx -> {
+            SelectConditionStep<Record2<UUID, String>> q = tx.select(NODE_ROSTER_PROCESS_HOSTS.INITIATOR_ID, NODE_ROSTER_PROCESS_HOSTS.INITIATOR)
+                    .from(NODE_ROSTER_PROCESS_HOSTS)
+                    .where(NODE_ROSTER_PROCESS_HOSTS.HOST_ID.eq(hostId));
+
+            if (after != null) {
+                q.and(Partitioner.since(NODE_ROSTER_PROCESS_HOSTS.INSTANCE_CREATED_AT, after));
+            }
+
+            return q.orderBy(NODE_ROSTER_PROCESS_HOSTS.INSTANCE_CREATED_AT.desc())
+                    .limit(1)
+                    .fetchOne(r -> InitiatorEntry.builder()
+                            .userId(r.get(NODE_ROSTER_PROCESS_HOSTS.INITIATOR_ID))
+                            .username(r.get(NODE_ROSTER_PROCESS_HOSTS.INITIATOR))
+                            .build());
+        });
     }
 
     public String getLastFacts(UUID hostId) {
@@ -21,31 +21,42 @@ package com.walmartlabs.concord.server.plugins.noderoster.processor;
  */
 
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
 import com.walmartlabs.concord.db.AbstractDao;
 import com.walmartlabs.concord.db.MainDB;
 import com.walmartlabs.concord.server.jooq.tables.ProcessEvents;
 import com.walmartlabs.concord.server.jooq.tables.ProcessQueue;
+import com.walmartlabs.concord.server.plugins.noderoster.HostManager;
 import com.walmartlabs.concord.server.plugins.noderoster.cfg.NodeRosterEventsConfiguration;
+import com.walmartlabs.concord.server.sdk.BackgroundTask;
 import org.jooq.*;
 
 import javax.inject.Inject;
 import javax.inject.Named;
+import javax.inject.Singleton;
 import java.io.IOException;
 import java.sql.Timestamp;
 import java.time.Instant;
 import java.util.*;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
 import static com.walmartlabs.concord.server.jooq.Tables.*;
 import static com.walmartlabs.concord.server.plugins.noderoster.processor.EventMarkerDao.EventMarker;
 import static org.jooq.impl.DSL.function;
 
 @Named("noderoster/ansible-events-processor")
-public class AnsibleEventsProcessor extends AbstractEventProcessor<AnsibleEvent> {
+@Singleton
+public class AnsibleEventsProcessor extends AbstractEventProcessor<AnsibleEvent> implements BackgroundTask {
 
     private static final String NAME = "noderoster/ansible-events-processor";
 
     private final EventsDao eventsDao;
+    private final HostManager hostManager;
     private final List<Processor> processors;
+    private final ExecutorService executor;
 
     private final long interval;
     private final Timestamp startTimestamp;
@@ -54,13 +65,22 @@ public class AnsibleEventsProcessor extends AbstractEventProcessor<AnsibleEvent>
     public AnsibleEventsProcessor(NodeRosterEventsConfiguration eventsCfg,
                                   EventMarkerDao eventMarkerDao,
                                   EventsDao eventsDao,
+                                  HostManager hostManager,
                                   Map<String, Processor> processors) {
 
         super(NAME, eventMarkerDao, eventsCfg.getFetchLimit());
 
         this.eventsDao = eventsDao;
+        this.hostManager = hostManager;
         this.processors = new ArrayList<>(processors.values());
 
+        // processors write into different tables and can run in parallel
+        this.executor = Executors.newFixedThreadPool(Math.max(1, this.processors.size()),
+                new ThreadFactoryBuilder()
+                        .setNameFormat("noderoster-processor-%d")
+                        .setDaemon(true)
+                        .build());
+
         this.interval = eventsCfg.getPeriod();
 
         Instant startTimestamp = eventsCfg.getStartTimestamp();
@@ -72,6 +92,12 @@ public class AnsibleEventsProcessor extends AbstractEventProcessor<AnsibleEvent>
         return interval;
     }
 
+    @Override
+    public void stop() {
+        // the current batch (if any) is rolled back and processed again after the restart
+        executor.shutdownNow();
+    }
+
     @Override
     protected List<AnsibleEvent> processEvents(DSLContext tx, EventMarker marker, int fetchLimit) {
         List<AnsibleEvent> events = eventsDao.list(marker, startTimestamp, fetchLimit);
@@ -79,9 +105,36 @@ public class AnsibleEventsProcessor extends AbstractEventProcessor<AnsibleEvent>
             return Collections.emptyList();
         }
 
+        // resolve all hosts of the batch at once, the processors will get them from the cache
+        Set<String> hosts = new HashSet<>();
+        for (AnsibleEvent e : events) {
+            String host = e.data().getHost();
+            if (host != null) {
+                hosts.add(host);
+            }
+        }
+        hostManager.getOrCreate(hosts);
+
+        List<Future<?>> futures = new ArrayList<>(processors.size());
         for (Processor p : processors) {
-            p.process(events);
+            futures.add(executor.submit(() -> p.process(events)));
         }
+
+        for (Future<?> f : futures) {
+            try {
+                f.get();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new RuntimeException(e);
+            } catch (ExecutionException e) {
+                Throwable cause = e.getCause();
+                if (cause instanceof RuntimeException) {
+                    throw (RuntimeException) cause;
+                }
+                throw new RuntimeException(cause);
+            }
+        }
+
         return events;
     }
 
@@ -20,6 +20,8 @@ package com.walmartlabs.concord.server.plugins.noderoster.processor;
  * =====
  */
 
+import org.jooq.Condition;
+import org.jooq.Field;
 import org.jooq.Record;
 import org.jooq.Table;
 import org.jooq.impl.DSL;
@@ -30,6 +32,12 @@ import java.time.LocalTime;
 import java.util.*;
 import java.util.function.Function;
 
+/**
+ * Splits items between daily partitions ({@code TABLE_yyyyMMdd}) of a table
+ * using the item's timestamp. Queries that read from the partitioned tables
+ * should restrict the timestamp column using {@link #since(Field, Timestamp)},
+ * so the database can skip the partitions outside of the range.
+ */
 public class Partitioner<E, R extends Record> {
 
     // TODO make configurable
@@ -64,6 +72,16 @@ public class Partitioner<E, R extends Record> {
         return result;
     }
 
+    /**
+     * Returns a condition that restricts the partition key to the days starting
+     * from the specified timestamp. The value is aligned with the partitions'
+     * boundaries and inlined, so the partitions outside of the range are
+     * excluded when the query is planned (bind values are not known at that time).
+     */
+    public static Condition since(Field<Timestamp> key, Timestamp from) {
+        return key.greaterOrEqual(DSL.inline(startOfDay(from)));
+    }
+
     private static String partitionId(Timestamp itemKey) {
         Timestamp start = startOfDay(itemKey);
         return new SimpleDateFormat(PARTITION_DATE_FORMAT).format(start);
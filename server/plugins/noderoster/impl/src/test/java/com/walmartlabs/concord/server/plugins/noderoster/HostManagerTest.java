@@ -0,0 +1,138 @@
+package com.walmartlabs.concord.server.plugins.noderoster;
+
+/*-
+ * *****
+ * Concord
+ * -----
+ * Copyright (C) 2017 - 2020 Walmart Inc.
+ * -----
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * =====
+ */
+
+import com.walmartlabs.concord.server.plugins.noderoster.dao.HostsDao;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.*;
+
+import static org.junit.Assert.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.Mockito.*;
+
+public class HostManagerTest {
+
+    /**
+     * Host name -> host ID, the contents of the HOSTS table.
+     */
+    private Map<String, UUID> db;
+
+    private HostsDao dao;
+    private HostManager hostManager;
+
+    @Before
+    public void setUp() {
+        db = new HashMap<>();
+
+        dao = mock(HostsDao.class);
+        when(dao.getIds(anyCollection())).thenAnswer(i -> {
+            Collection<String> hosts = i.getArgument(0);
+            Map<String, UUID> result = new HashMap<>();
+            for (String h : hosts) {
+                UUID id = db.get(h);
+                if (id != null) {
+                    result.put(h, id);
+                }
+            }
+            return result;
+        });
+        doAnswer(i -> {
+            Collection<String> hosts = i.getArgument(0);
+            hosts.forEach(h -> db.putIfAbsent(h, UUID.randomUUID()));
+            return null;
+        }).when(dao).insert(anyCollection());
+
+        HostNormalizer normalizer = mock(HostNormalizer.class);
+        when(normalizer.normalize(any())).thenAnswer(i -> ((String) i.getArgument(0)).toLowerCase());
+
+        hostManager = new HostManager(dao, normalizer);
+    }
+
+    @Test
+    public void testGetOrCreate() {
+        UUID existingId = UUID.randomUUID();
+        db.put("a", existingId);
+
+        Map<String, UUID> ids = hostManager.getOrCreate(Arrays.asList("a", "b", "c"));
+        assertEquals(3, ids.size());
+        assertEquals(existingId, ids.get("a"));
+        assertEquals(db.get("b"), ids.get("b"));
+        assertEquals(db.get("c"), ids.get("c"));
+
+        // one lookup for all hosts, one insert for the new ones, one lookup for the new IDs
+        verify(dao, times(2)).getIds(anyCollection());
+        verify(dao, times(1)).insert(new HashSet<>(Arrays.asList("b", "c")));
+
+        // all hosts are cached now
+        assertEquals(ids, hostManager.getOrCreate(Arrays.asList("a", "b", "c")));
+        assertEquals(existingId, hostManager.getId("a"));
+        verifyNoMoreInteractions(dao);
+    }
+
+    @Test
+    public void testNormalizedNames() {
+        UUID id = UUID.randomUUID();
+        db.put("host.example.com", id);
+
+        // found using the normalized name
+        assertEquals(id, hostManager.getOrCreate("HOST.example.com"));
+        verify(dao, never()).insert(anyCollection());
+
+        // new hosts are created using their normalized names
+        UUID newId = hostManager.getOrCreate("NEW.example.com");
+        assertEquals(db.get("new.example.com"), newId);
+        assertFalse(db.containsKey("NEW.example.com"));
+    }
+
+    @Test
+    public void testLargeBatch() {
+        List<String> hosts = new ArrayList<>();
+        for (int i = 0; i < 2500; i++) {
+            hosts.add("host" + i);
+        }
+
+        Map<String, UUID> ids = hostManager.getOrCreate(hosts);
+        assertEquals(2500, ids.size());
+        assertEquals(2500, new HashSet<>(ids.values()).size());
+
+        // split into 3 chunks
+        verify(dao, times(3)).insert(anyCollection());
+        verify(dao, times(6)).getIds(anyCollection());
+    }
+
+    @Test
+    public void testMissesAreNotCached() {
+        assertNull(hostManager.getId("a"));
+
+        UUID id = hostManager.getOrCreate("a");
+        assertEquals(db.get("a"), id);
+        assertEquals(id, hostManager.getId("a"));
+    }
+
+    @Test(expected = RuntimeException.class)
+    public void testInsertFailure() {
+        doNothing().when(dao).insert(anyCollection());
+        hostManager.getOrCreate("a");
+    }
+}
@@ -20,7 +20,16 @@ package com.walmartlabs.concord.server.sdk.audit;
  * =====
  */
 
+import java.util.List;
+
 public interface AuditLogListener {
 
     void onEvent(AuditEvent event);
+
+    /**
+     * Called with batches of events written into the audit log.
+     */
+    default void onBatch(List<AuditEvent> events) {
+        events.forEach(this::onEvent);
+    }
 }
@@ -34,15 +34,21 @@ public class ProcessEvent implements Serializable {
     private final String eventType;
     private final OffsetDateTime eventDate;
 
+    private final Map<String, Object> data;
+    private final Long eventSeq;
+
     public ProcessEvent(ProcessKey processKey, String eventType, OffsetDateTime eventDate, Map<String, Object> data) {
+        this(processKey, eventType, eventDate, data, null);
+    }
+
+    public ProcessEvent(ProcessKey processKey, String eventType, OffsetDateTime eventDate, Map<String, Object> data, Long eventSeq) {
         this.processKey = processKey;
         this.eventType = eventType;
         this.eventDate = eventDate;
         this.data = data;
+        this.eventSeq = eventSeq;
     }
 
-    private final Map<String, Object> data;
-
     public ProcessKey getProcessKey() {
         return processKey;
     }
@@ -58,4 +64,12 @@ public class ProcessEvent implements Serializable {
     public Map<String, Object> getData() {
         return data;
     }
+
+    /**
+     * Returns the sequence number of the event or {@code null} if the event
+     * wasn't stored yet.
+     */
+    public Long getEventSeq() {
+        return eventSeq;
+    }
 }